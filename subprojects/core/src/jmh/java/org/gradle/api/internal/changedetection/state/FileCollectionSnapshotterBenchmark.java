@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.io.Files;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
+import org.gradle.api.internal.hash.DefaultFileHasher;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.gradle.util.GFileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.gradle.api.internal.changedetection.state.TaskFilePropertyCompareStrategy.UNORDERED;
+import static org.gradle.api.internal.changedetection.state.TaskFilePropertySnapshotNormalizationStrategy.RELATIVE;
+
+/**
+ * Snapshots a source tree of small files without any cached hashes, comparing sequential hashing with hashing on several threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileCollectionSnapshotterBenchmark {
+    private static final int FILES_PER_DIRECTORY = 100;
+    private static final int MAX_FILE_SIZE = 16 * 1024;
+
+    @Param({"1000", "50000"})
+    int fileCount;
+
+    @Param({"1", "4", "8"})
+    int threads;
+
+    private File projectDir;
+    private FileCollection sources;
+    private ParallelFileHasher parallelFileHasher;
+    private FileCollectionSnapshotter snapshotter;
+
+    @Setup(Level.Trial)
+    public void createSourceTree() throws IOException {
+        projectDir = File.createTempFile("jmh", "project");
+        projectDir.delete();
+        projectDir.mkdirs();
+        ProjectInternal project = (ProjectInternal) ProjectBuilder.builder().withProjectDir(projectDir).build();
+
+        Random random = new Random(42);
+        File sourceDir = new File(projectDir, "src");
+        for (int i = 0; i < fileCount; i++) {
+            File file = new File(sourceDir, "dir" + i / FILES_PER_DIRECTORY + "/File" + i + ".java");
+            byte[] content = new byte[random.nextInt(MAX_FILE_SIZE)];
+            random.nextBytes(content);
+            GFileUtils.mkdirs(file.getParentFile());
+            Files.write(content, file);
+        }
+        sources = project.fileTree(sourceDir);
+
+        parallelFileHasher = new ParallelFileHasher(new DefaultExecutorFactory(), threads);
+        snapshotter = new DefaultGenericFileCollectionSnapshotter(
+            new DefaultFileHasher(),
+            new StringInterner(),
+            project.getServices().get(FileSystem.class),
+            project.getServices().get(DirectoryFileTreeFactory.class),
+            new NoOpFileSystemMirror(),
+            parallelFileHasher);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        parallelFileHasher.stop();
+        GFileUtils.deleteDirectory(projectDir);
+    }
+
+    @Benchmark
+    public FileCollectionSnapshot snapshot() {
+        return snapshotter.snapshot(sources, UNORDERED, RELATIVE);
+    }
+
+    private static class NoOpFileSystemMirror implements FileSystemMirror {
+        @Override
+        public FileDetails getFile(String path) {
+            return null;
+        }
+
+        @Override
+        public void putFile(FileDetails file) {
+        }
+
+        @Override
+        public DirectoryTreeDetails getDirectoryTree(String path) {
+            return null;
+        }
+
+        @Override
+        public void putDirectory(DirectoryTreeDetails directory) {
+        }
+    }
+}
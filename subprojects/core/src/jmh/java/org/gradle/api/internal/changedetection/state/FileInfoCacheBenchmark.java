@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import org.gradle.api.internal.changedetection.state.CachingFileHasher.FileInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the in-memory store previously used for {@link CachingFileHasher} entries with {@link CompactFileInfoCache}.
+ *
+ * <p>The heap retained per cached file is printed when the store is set up. The paths are created before measuring, as they are
+ * interned and shared with the rest of the build. The benchmark itself measures lookups.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FileInfoCacheBenchmark {
+    private static final int MAX_ENTRIES = 400000;
+
+    @Param({"guava", "compact"})
+    String store;
+
+    @Param({"100000", "400000"})
+    int entries;
+
+    private String[] paths;
+    private Cache<Object, Object> cache;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        paths = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            paths[i] = "/home/user/projects/project/subproject" + i / 1000 + "/src/main/java/org/gradle/sample/File" + i + ".java";
+        }
+
+        long before = usedHeap();
+        cache = store.equals("compact") ? new CompactFileInfoCache(MAX_ENTRIES) : CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).recordStats().build();
+        Random random = new Random(42);
+        for (String path : paths) {
+            cache.put(path, new FileInfo(Hashing.md5().hashLong(random.nextLong()), random.nextInt(65536), random.nextLong()));
+        }
+        long after = usedHeap();
+        System.out.println();
+        System.out.println(String.format("%s store retains %d bytes per cached file", store, (after - before) / entries));
+    }
+
+    @Benchmark
+    public Object lookup() {
+        next = (next + 1) % entries;
+        return cache.getIfPresent(paths[next]);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash;
+
+import com.google.common.hash.HashCode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes a single file of the given size, comparing reading through a heap buffer with reading into direct buffers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FileHasherBenchmark {
+    @Param({"1024", "65536", "1048576", "16777216", "268435456", "1073741824"})
+    long fileSize;
+
+    @Param({"heap", "direct"})
+    String mode;
+
+    private File file;
+    private FileHasher hasher;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        file = File.createTempFile("jmh", "file");
+        Random random = new Random(42);
+        byte[] chunk = new byte[1024 * 1024];
+        OutputStream output = new FileOutputStream(file);
+        try {
+            for (long remaining = fileSize; remaining > 0; remaining -= chunk.length) {
+                random.nextBytes(chunk);
+                output.write(chunk, 0, (int) Math.min(chunk.length, remaining));
+            }
+        } finally {
+            output.close();
+        }
+        hasher = new DefaultFileHasher(HashAlgorithm.MD5, mode.equals("direct") ? 0 : Long.MAX_VALUE);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Benchmark
+    public HashCode hash() {
+        return hasher.hash(file);
+    }
+}
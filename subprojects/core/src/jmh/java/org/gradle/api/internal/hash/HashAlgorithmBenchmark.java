@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash;
+
+import com.google.common.hash.HashCode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes content held in memory with each of the available algorithms, so that the cost of the algorithm is not hidden by I/O.
+ * Multiply the number of operations per second by the content size for the throughput in bytes per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HashAlgorithmBenchmark {
+    @Param({"md5", "murmur3-128"})
+    String algorithm;
+
+    @Param({"1024", "65536", "1048576"})
+    int contentSize;
+
+    private byte[] content;
+    private FileHasher hasher;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        content = new byte[contentSize];
+        new Random(42).nextBytes(content);
+        hasher = new DefaultFileHasher(HashAlgorithm.forId(algorithm));
+    }
+
+    @Benchmark
+    public HashCode hashContent() {
+        return hasher.hash(new ByteArrayInputStream(content));
+    }
+}
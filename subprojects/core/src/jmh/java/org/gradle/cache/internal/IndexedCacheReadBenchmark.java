@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.cache.CacheAccess;
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.internal.Factory;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads entries of an indexed cache from multiple threads, comparing reads queued to the single {@link CacheAccessWorker} thread
+ * with reads on the calling threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class IndexedCacheReadBenchmark {
+    private static final int ENTRIES = 20000;
+
+    @Param({"worker", "concurrent"})
+    String mode;
+
+    private File cacheFile;
+    private BTreePersistentIndexedCache<String, String> cache;
+    private CacheAccessWorker worker;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void createCache() throws IOException {
+        cacheFile = File.createTempFile("jmh", ".bin");
+        cacheFile.delete();
+        cache = new BTreePersistentIndexedCache<String, String>(cacheFile, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER);
+        keys = new String[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            keys[i] = "/home/user/projects/project/src/main/java/org/gradle/sample/File" + i + ".java";
+            cache.put(keys[i], "0123456789abcdef0123456789abcdef" + i);
+        }
+        if (mode.equals("worker")) {
+            worker = new CacheAccessWorker("benchmark cache", new NoOpCacheAccess());
+            new Thread(worker).start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCache() {
+        if (worker != null) {
+            worker.stop();
+        }
+        cache.close();
+        cacheFile.delete();
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        int next;
+    }
+
+    @Benchmark
+    public String get(Reader reader) {
+        reader.next = (reader.next + 7) % ENTRIES;
+        final String key = keys[reader.next];
+        if (worker == null) {
+            return cache.get(key);
+        }
+        return worker.read(new Factory<String>() {
+            @Override
+            public String create() {
+                return cache.get(key);
+            }
+        });
+    }
+
+    private static class NoOpCacheAccess implements CacheAccess {
+        @Override
+        public <T> T useCache(Factory<? extends T> action) {
+            return action.create();
+        }
+
+        @Override
+        public void useCache(Runnable action) {
+            action.run();
+        }
+
+        @Override
+        public <T> T longRunningOperation(Factory<? extends T> action) {
+            return action.create();
+        }
+
+        @Override
+        public void longRunningOperation(Runnable action) {
+            action.run();
+        }
+    }
+}
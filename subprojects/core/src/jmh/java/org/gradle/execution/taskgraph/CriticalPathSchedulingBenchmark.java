@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.initialization.DefaultBuildCancellationToken;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.gradle.util.GFileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a set of recorded task durations for a typical multi-project Java build and measures the wall clock time to execute the plan,
+ * comparing plan order with critical path ordering. One recorded millisecond is replayed as 10 microseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CriticalPathSchedulingBenchmark {
+    private static final int WORKERS = 8;
+    private static final long NANOS_PER_RECORDED_MILLI = 10000;
+
+    @Param({"30"})
+    int projectCount;
+
+    @Param({"false", "true"})
+    boolean criticalPath;
+
+    private File projectDir;
+    private List<Task> tasks;
+    private final Map<String, Long> recordedDurations = new HashMap<String, Long>();
+    private final TaskDurationHistory taskDurationHistory = new TaskDurationHistory() {
+        @Override
+        public Long getPreviousDuration(TaskInternal task) {
+            return recordedDurations.get(task.getPath());
+        }
+
+        @Override
+        public void recordDuration(TaskInternal task, long durationMillis) {
+            recordedDurations.put(task.getPath(), durationMillis);
+        }
+    };
+    private ExecutorService executor;
+    private DefaultTaskExecutionPlan executionPlan;
+
+    @Setup(Level.Trial)
+    public void createBuild() throws IOException {
+        projectDir = File.createTempFile("jmh", "project");
+        projectDir.delete();
+        projectDir.mkdirs();
+        Project root = ProjectBuilder.builder().withProjectDir(projectDir).build();
+
+        Random random = new Random(42);
+        tasks = new ArrayList<Task>();
+        Task previousJar = null;
+        for (int i = 0; i < projectCount; i++) {
+            Project project = ProjectBuilder.builder().withParent(root).withName("p" + i).build();
+            Task compileJava = task(project, "compileJava", 500 + random.nextInt(2500));
+            if (previousJar != null && random.nextBoolean()) {
+                compileJava.dependsOn(previousJar);
+            }
+            Task processResources = task(project, "processResources", 20 + random.nextInt(100));
+            Task classes = task(project, "classes", 1).dependsOn(compileJava, processResources);
+            Task jar = task(project, "jar", 50 + random.nextInt(200)).dependsOn(classes);
+            Task compileTestJava = task(project, "compileTestJava", 300 + random.nextInt(1500)).dependsOn(classes);
+            Task test = task(project, "test", 1000 + random.nextInt(20000)).dependsOn(compileTestJava);
+            Task javadoc = task(project, "javadoc", 200 + random.nextInt(1000)).dependsOn(classes);
+            Task checkstyle = task(project, "checkstyle", 100 + random.nextInt(500)).dependsOn(classes);
+            tasks.add(jar);
+            tasks.add(test);
+            tasks.add(javadoc);
+            tasks.add(checkstyle);
+            previousJar = jar;
+        }
+        executor = Executors.newFixedThreadPool(WORKERS);
+    }
+
+    private Task task(Project project, String name, long recordedDuration) {
+        Task task = project.getTasks().create(name);
+        recordedDurations.put(task.getPath(), recordedDuration);
+        return task;
+    }
+
+    @Setup(Level.Invocation)
+    public void createPlan() {
+        executionPlan = new DefaultTaskExecutionPlan(new DefaultBuildCancellationToken(), false, true);
+        executionPlan.addToTaskGraph(tasks);
+        executionPlan.determineExecutionPlan();
+        if (criticalPath) {
+            executionPlan.prioritiseByCriticalPath(taskDurationHistory);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+        GFileUtils.deleteDirectory(projectDir);
+    }
+
+    @Benchmark
+    public void executePlan() throws Exception {
+        List<Future<?>> workers = new ArrayList<Future<?>>(WORKERS);
+        for (int i = 0; i < WORKERS; i++) {
+            workers.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    TaskInfo taskInfo;
+                    while ((taskInfo = executionPlan.getTaskToExecute()) != null) {
+                        LockSupport.parkNanos(recordedDurations.get(taskInfo.getTask().getPath()) * NANOS_PER_RECORDED_MILLI);
+                        executionPlan.taskComplete(taskInfo);
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executionPlan.awaitCompletion();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.initialization.DefaultBuildCancellationToken;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.gradle.util.GFileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes a number of workers to drain an execution plan of no-op tasks, comparing the scanning scheduler with the ready queue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TaskExecutionPlanBenchmark {
+    private static final int WORKERS = 16;
+    private static final int TASKS_PER_PROJECT = 50;
+    private static final int MAX_DEPENDENCIES = 3;
+
+    @Param({"1000", "10000", "50000"})
+    int taskCount;
+
+    @Param({"false", "true"})
+    boolean readyQueue;
+
+    private File projectDir;
+    private List<Task> tasks;
+    private ExecutorService executor;
+    private DefaultTaskExecutionPlan executionPlan;
+
+    @Setup(Level.Trial)
+    public void createGraph() throws IOException {
+        projectDir = File.createTempFile("jmh", "project");
+        projectDir.delete();
+        projectDir.mkdirs();
+        Project root = ProjectBuilder.builder().withProjectDir(projectDir).build();
+
+        Random random = new Random(42);
+        tasks = new ArrayList<Task>(taskCount);
+        Project project = null;
+        for (int i = 0; i < taskCount; i++) {
+            if (i % TASKS_PER_PROJECT == 0) {
+                project = ProjectBuilder.builder().withParent(root).withName("p" + i / TASKS_PER_PROJECT).build();
+            }
+            Task task = project.getTasks().create("t" + i);
+            int dependencies = i == 0 ? 0 : random.nextInt(MAX_DEPENDENCIES + 1);
+            for (int j = 0; j < dependencies; j++) {
+                task.dependsOn(tasks.get(random.nextInt(i)));
+            }
+            tasks.add(task);
+        }
+        executor = Executors.newFixedThreadPool(WORKERS);
+    }
+
+    @Setup(Level.Invocation)
+    public void createPlan() {
+        executionPlan = new DefaultTaskExecutionPlan(new DefaultBuildCancellationToken(), false, readyQueue);
+        executionPlan.addToTaskGraph(tasks);
+        executionPlan.determineExecutionPlan();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+        GFileUtils.deleteDirectory(projectDir);
+    }
+
+    @Benchmark
+    public void executePlan() throws Exception {
+        List<Future<?>> workers = new ArrayList<Future<?>>(WORKERS);
+        for (int i = 0; i < WORKERS; i++) {
+            workers.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    TaskInfo taskInfo;
+                    while ((taskInfo = executionPlan.getTaskToExecute()) != null) {
+                        executionPlan.taskComplete(taskInfo);
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executionPlan.awaitCompletion();
+    }
+}
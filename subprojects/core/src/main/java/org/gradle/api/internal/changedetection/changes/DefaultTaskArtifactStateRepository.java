@@ -31,6 +31,7 @@ import org.gradle.api.internal.changedetection.state.OutputFilesSnapshotter;
 import org.gradle.api.internal.changedetection.state.TaskExecution;
 import org.gradle.api.internal.changedetection.state.TaskHistoryRepository;
 import org.gradle.api.internal.file.FileCollectionFactory;
+import org.gradle.api.internal.hash.HashAlgorithm;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
@@ -47,16 +48,19 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
     private final Instantiator instantiator;
     private final FileCollectionFactory fileCollectionFactory;
     private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
+    private final HashAlgorithm hashAlgorithm;
 
     public DefaultTaskArtifactStateRepository(TaskHistoryRepository taskHistoryRepository, Instantiator instantiator,
                                               OutputFilesSnapshotter outputFilesSnapshotter, FileCollectionSnapshotterRegistry fileCollectionSnapshotterRegistry,
-                                              FileCollectionFactory fileCollectionFactory, ClassLoaderHierarchyHasher classLoaderHierarchyHasher) {
+                                              FileCollectionFactory fileCollectionFactory, ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
+                                              HashAlgorithm hashAlgorithm) {
         this.taskHistoryRepository = taskHistoryRepository;
         this.instantiator = instantiator;
         this.outputFilesSnapshotter = outputFilesSnapshotter;
         this.fileCollectionSnapshotterRegistry = fileCollectionSnapshotterRegistry;
         this.fileCollectionFactory = fileCollectionFactory;
         this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
+        this.hashAlgorithm = hashAlgorithm;
     }
 
     public TaskArtifactState getStateFor(final TaskInternal task) {
@@ -120,7 +124,7 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         public BuildCacheKey calculateCacheKey() {
             // Ensure that states are created
             getStates();
-            return history.getCurrentExecution().calculateCacheKey();
+            return history.getCurrentExecution().calculateCacheKey(hashAlgorithm);
         }
 
         public FileCollection getOutputFiles() {
@@ -19,6 +19,8 @@ package org.gradle.api.internal.changedetection.state;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
@@ -31,11 +33,13 @@ import org.gradle.api.internal.file.FileTreeInternal;
 import org.gradle.api.internal.file.collections.DirectoryFileTree;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.internal.hash.FileHasher;
+import org.gradle.internal.nativeintegration.filesystem.DefaultFileMetadata;
 import org.gradle.internal.nativeintegration.filesystem.FileMetadataSnapshot;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.serialize.SerializerRegistry;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -50,13 +54,15 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
     private final FileSystem fileSystem;
     private final DirectoryFileTreeFactory directoryFileTreeFactory;
     private final FileSystemMirror fileSystemMirror;
+    private final ParallelFileHasher parallelFileHasher;
 
-    public AbstractFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
+    public AbstractFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ParallelFileHasher parallelFileHasher) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.fileSystem = fileSystem;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
         this.fileSystemMirror = fileSystemMirror;
+        this.parallelFileHasher = parallelFileHasher;
     }
 
     public void registerSerializers(SerializerRegistry registry) {
@@ -99,10 +105,6 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
         return new FileHashSnapshot(hasher.hash(fileDetails), fileDetails.getLastModified());
     }
 
-    private FileHashSnapshot fileSnapshot(File file, FileMetadataSnapshot fileDetails) {
-        return new FileHashSnapshot(hasher.hash(file, fileDetails), fileDetails.getLastModified());
-    }
-
     private String getPath(File file) {
         return stringInterner.intern(file.getAbsolutePath());
     }
@@ -130,12 +132,27 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
 
         @Override
         public void visitCollection(FileCollectionInternal fileCollection) {
+            List<File> roots = Lists.newArrayList();
+            List<FileDetails> rootDetails = Lists.newArrayList();
+            PendingFiles pendingFiles = new PendingFiles();
             for (File file : fileCollection) {
                 FileDetails details = fileSystemMirror.getFile(file.getPath());
                 if (details == null) {
-                    details = calculateDetails(file);
-                    fileSystemMirror.putFile(details);
+                    details = calculateDetails(file, rootDetails.size(), pendingFiles);
+                    if (details.getType() != RegularFile) {
+                        fileSystemMirror.putFile(details);
+                    }
                 }
+                roots.add(file);
+                rootDetails.add(details);
+            }
+            for (FileDetails details : pendingFiles.hashInto(rootDetails)) {
+                fileSystemMirror.putFile(details);
+            }
+
+            for (int i = 0; i < roots.size(); i++) {
+                File file = roots.get(i);
+                FileDetails details = rootDetails.get(i);
                 switch (details.getType()) {
                     case Missing:
                         fileTreeElements.add(details);
@@ -154,7 +171,7 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
             }
         }
 
-        private DefaultFileDetails calculateDetails(File file) {
+        private DefaultFileDetails calculateDetails(File file, int index, PendingFiles pendingFiles) {
             String path = getPath(file);
             FileMetadataSnapshot stat = fileSystem.stat(file);
             switch (stat.getType()) {
@@ -163,7 +180,8 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
                 case Directory:
                     return new DefaultFileDetails(path, new RelativePath(false, file.getName()), Directory, true, dirSnapshot());
                 case RegularFile:
-                    return new DefaultFileDetails(path, new RelativePath(true, file.getName()), RegularFile, true, fileSnapshot(file, stat));
+                    pendingFiles.add(index, file, stat);
+                    return new DefaultFileDetails(path, new RelativePath(true, file.getName()), RegularFile, true, null);
                 default:
                     throw new IllegalArgumentException("Unrecognized file type: " + stat.getType());
             }
@@ -172,7 +190,8 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
         @Override
         public void visitTree(FileTreeInternal fileTree) {
             List<FileDetails> elements = Lists.newArrayList();
-            fileTree.visitTreeOrBackingFile(new FileVisitorImpl(elements));
+            // The elements of an arbitrary tree may only be accessible while visiting it, so hash them immediately
+            fileTree.visitTreeOrBackingFile(new FileVisitorImpl(elements, null));
             elements = normaliseTreeElements(elements);
             fileTreeElements.addAll(elements);
         }
@@ -183,7 +202,9 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
             if (!directoryTree.getPatterns().isEmpty()) {
                 // Currently handle only those trees where we want everything from a directory
                 elements = Lists.newArrayList();
-                directoryTree.visit(new FileVisitorImpl(elements));
+                PendingFiles pendingFiles = new PendingFiles();
+                directoryTree.visit(new FileVisitorImpl(elements, pendingFiles));
+                pendingFiles.hashInto(elements);
             } else {
                 DirectoryTreeDetails treeDetails = fileSystemMirror.getDirectoryTree(directoryTree.getDir().getAbsolutePath());
                 if (treeDetails != null) {
@@ -193,7 +214,9 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
                     // Scan the directory
                     String path = getPath(directoryTree.getDir());
                     elements = Lists.newArrayList();
-                    directoryTree.visit(new FileVisitorImpl(elements));
+                    PendingFiles pendingFiles = new PendingFiles();
+                    directoryTree.visit(new FileVisitorImpl(elements, pendingFiles));
+                    pendingFiles.hashInto(elements);
                     DirectoryTreeDetails details = new DirectoryTreeDetails(path, ImmutableList.copyOf(elements));
                     fileSystemMirror.putDirectory(details);
                 }
@@ -206,9 +229,14 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
 
     private class FileVisitorImpl implements FileVisitor {
         private final List<FileDetails> fileTreeElements;
+        private final PendingFiles pendingFiles;
 
-        FileVisitorImpl(List<FileDetails> fileTreeElements) {
+        /**
+         * @param pendingFiles where to collect the regular files to hash once the visit is complete, or null to hash them while visiting.
+         */
+        FileVisitorImpl(List<FileDetails> fileTreeElements, @Nullable PendingFiles pendingFiles) {
             this.fileTreeElements = fileTreeElements;
+            this.pendingFiles = pendingFiles;
         }
 
         @Override
@@ -218,7 +246,50 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
 
         @Override
         public void visitFile(FileVisitDetails fileDetails) {
-            fileTreeElements.add(new DefaultFileDetails(getPath(fileDetails.getFile()), fileDetails.getRelativePath(), RegularFile, false, fileSnapshot(fileDetails)));
+            if (pendingFiles == null) {
+                fileTreeElements.add(new DefaultFileDetails(getPath(fileDetails.getFile()), fileDetails.getRelativePath(), RegularFile, false, fileSnapshot(fileDetails)));
+                return;
+            }
+            File file = fileDetails.getFile();
+            pendingFiles.add(fileTreeElements.size(), file, DefaultFileMetadata.file(fileDetails.getLastModified(), fileDetails.getSize()));
+            fileTreeElements.add(new DefaultFileDetails(getPath(file), fileDetails.getRelativePath(), RegularFile, false, null));
+        }
+    }
+
+    /**
+     * Regular files whose content is hashed in one batch, possibly in parallel, after their directory has been visited.
+     * Until then, each file is represented by a placeholder without content in the list of elements.
+     */
+    private class PendingFiles {
+        private final List<Integer> indexes = Lists.newArrayList();
+        private final List<File> files = Lists.newArrayList();
+        private final List<FileMetadataSnapshot> metadata = Lists.newArrayList();
+
+        void add(int index, File file, FileMetadataSnapshot fileMetadata) {
+            indexes.add(index);
+            files.add(file);
+            metadata.add(fileMetadata);
+        }
+
+        /**
+         * Hashes the pending files and replaces their placeholders in the given elements.
+         *
+         * @return the details of the hashed files.
+         */
+        List<FileDetails> hashInto(List<FileDetails> elements) {
+            if (files.isEmpty()) {
+                return Collections.emptyList();
+            }
+            HashCode[] hashes = parallelFileHasher.hash(hasher, files, metadata);
+            List<FileDetails> hashed = Lists.newArrayListWithCapacity(hashes.length);
+            for (int i = 0; i < hashes.length; i++) {
+                int index = indexes.get(i);
+                FileDetails placeholder = elements.get(index);
+                FileDetails details = new DefaultFileDetails(placeholder.getPath(), placeholder.getRelativePath(), RegularFile, placeholder.isRoot(), new FileHashSnapshot(hashes[i], metadata.get(i).getLastModified()));
+                elements.set(index, details);
+                hashed.add(details);
+            }
+            return hashed;
         }
     }
 }
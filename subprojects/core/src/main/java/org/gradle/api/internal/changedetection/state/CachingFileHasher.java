@@ -40,7 +40,7 @@ public class CachingFileHasher implements FileHasher {
 
     public CachingFileHasher(FileHasher delegate, TaskHistoryStore store, StringInterner stringInterner, FileTimeStampInspector timestampInspector, String cacheName) {
         this.delegate = delegate;
-        this.cache = store.createCache(cacheName, String.class, new FileInfoSerializer(), 400000, true);
+        this.cache = store.createFileHashCache(cacheName, new FileInfoSerializer(), 400000);
         this.stringInterner = stringInterner;
         this.timestampInspector = timestampInspector;
     }
@@ -87,7 +87,8 @@ public class CachingFileHasher implements FileHasher {
     }
 
     private FileInfo snapshot(File file, long length, long timestamp) {
-        String absolutePath = file.getAbsolutePath();
+        // Interned, so that the in-memory cache shares the path with the rest of the build
+        String absolutePath = stringInterner.intern(file.getAbsolutePath());
         if (timestampInspector.timestampCanBeUsedToDetectFileChange(absolutePath, timestamp)) {
             FileInfo info = cache.get(absolutePath);
 
@@ -98,7 +99,7 @@ public class CachingFileHasher implements FileHasher {
 
         HashCode hash = delegate.hash(file);
         FileInfo info = new FileInfo(hash, length, timestamp);
-        cache.put(stringInterner.intern(absolutePath), info);
+        cache.put(absolutePath, info);
         return info;
     }
 
@@ -121,6 +122,14 @@ public class CachingFileHasher implements FileHasher {
         public HashCode getHash() {
             return hash;
         }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
     }
 
     private static class FileInfoSerializer extends AbstractSerializer<FileInfo> {
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.cache.AbstractCache;
+import com.google.common.hash.HashCode;
+import com.google.common.primitives.Longs;
+import org.gradle.api.internal.changedetection.state.CachingFileHasher.FileInfo;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * An in-memory store for {@link CachingFileHasher} entries, keyed by absolute path. Instead of an entry object, a key object and a
+ * {@link FileInfo} with its {@link HashCode} for every file, the entries are kept densely in a key array and a primitive array holding
+ * the hash, length and timestamp of each file, with an open-addressing index of entry numbers to find them. Keys are expected to be
+ * interned, so that they are shared with the rest of the build.
+ *
+ * <p>Only 128 bit hashes are kept. Other values are not kept, and neither are missing entries, so that they are loaded again.</p>
+ *
+ * <p>When the store is full, the entries that were not used since the store was last full are evicted. At most half of the entries are
+ * kept.</p>
+ */
+class CompactFileInfoCache extends AbstractCache<Object, Object> {
+    private static final int INITIAL_CAPACITY = 1024;
+    // The hash, as two longs, then the length and timestamp
+    private static final int LONGS_PER_ENTRY = 4;
+
+    private final int maxSize;
+    // Entry number + 1 for each slot, or 0 for an empty slot
+    private int[] index;
+    private String[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size;
+
+    CompactFileInfoCache(int maxSize) {
+        this.maxSize = maxSize;
+        clear();
+    }
+
+    @Override
+    public synchronized Object getIfPresent(Object key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        int entry = index[slot] - 1;
+        used[entry] = true;
+        int offset = entry * LONGS_PER_ENTRY;
+        byte[] hash = new byte[16];
+        toBytes(values[offset], hash, 0);
+        toBytes(values[offset + 1], hash, 8);
+        return new FileInfo(HashCode.fromBytes(hash), values[offset + 2], values[offset + 3]);
+    }
+
+    @Override
+    public Object get(Object key, Callable<?> valueLoader) throws ExecutionException {
+        Object value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ExecutionException(e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public synchronized void put(Object key, Object value) {
+        if (!(value instanceof FileInfo) || ((FileInfo) value).getHash().bits() != 128) {
+            invalidate(key);
+            return;
+        }
+        FileInfo fileInfo = (FileInfo) value;
+        int slot = find(key);
+        int entry;
+        if (slot >= 0) {
+            entry = index[slot] - 1;
+        } else {
+            if (size >= maxSize) {
+                evict();
+            }
+            if (size == keys.length) {
+                resizeEntries(keys.length * 2);
+            }
+            if (size >= index.length * 3 / 4) {
+                rebuildIndex(index.length * 2);
+            }
+            entry = size++;
+            keys[entry] = (String) key;
+            index[emptySlot(key)] = entry + 1;
+        }
+        used[entry] = true;
+        int offset = entry * LONGS_PER_ENTRY;
+        byte[] hash = fileInfo.getHash().asBytes();
+        values[offset] = Longs.fromBytes(hash[0], hash[1], hash[2], hash[3], hash[4], hash[5], hash[6], hash[7]);
+        values[offset + 1] = Longs.fromBytes(hash[8], hash[9], hash[10], hash[11], hash[12], hash[13], hash[14], hash[15]);
+        values[offset + 2] = fileInfo.getLength();
+        values[offset + 3] = fileInfo.getTimestamp();
+    }
+
+    @Override
+    public synchronized void invalidate(Object key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return;
+        }
+        int entry = index[slot] - 1;
+        removeSlot(slot);
+
+        // Move the last entry into the gap
+        int last = size - 1;
+        if (entry != last) {
+            index[find(keys[last])] = entry + 1;
+            keys[entry] = keys[last];
+            used[entry] = used[last];
+            System.arraycopy(values, last * LONGS_PER_ENTRY, values, entry * LONGS_PER_ENTRY, LONGS_PER_ENTRY);
+        }
+        keys[last] = null;
+        size--;
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        clear();
+    }
+
+    @Override
+    public synchronized long size() {
+        return size;
+    }
+
+    private void clear() {
+        index = new int[INITIAL_CAPACITY * 2];
+        keys = new String[INITIAL_CAPACITY];
+        values = new long[INITIAL_CAPACITY * LONGS_PER_ENTRY];
+        used = new boolean[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    private void evict() {
+        // Keep at most half of the entries, so that evicting does not happen again soon
+        int retain = maxSize / 2;
+        int kept = 0;
+        for (int entry = 0; entry < size && kept < retain; entry++) {
+            if (used[entry]) {
+                keys[kept] = keys[entry];
+                System.arraycopy(values, entry * LONGS_PER_ENTRY, values, kept * LONGS_PER_ENTRY, LONGS_PER_ENTRY);
+                kept++;
+            }
+        }
+        for (int entry = kept; entry < size; entry++) {
+            keys[entry] = null;
+        }
+        Arrays.fill(used, false);
+        size = kept;
+        rebuildIndex(index.length);
+    }
+
+    private void resizeEntries(int capacity) {
+        String[] newKeys = new String[capacity];
+        long[] newValues = new long[capacity * LONGS_PER_ENTRY];
+        boolean[] newUsed = new boolean[capacity];
+        System.arraycopy(keys, 0, newKeys, 0, size);
+        System.arraycopy(values, 0, newValues, 0, size * LONGS_PER_ENTRY);
+        System.arraycopy(used, 0, newUsed, 0, size);
+        keys = newKeys;
+        values = newValues;
+        used = newUsed;
+    }
+
+    private void rebuildIndex(int capacity) {
+        index = new int[capacity];
+        for (int entry = 0; entry < size; entry++) {
+            index[emptySlot(keys[entry])] = entry + 1;
+        }
+    }
+
+    private void removeSlot(int slot) {
+        index[slot] = 0;
+        // Move the following slots of the probe sequence back into the gap
+        int mask = index.length - 1;
+        int gap = slot;
+        int current = (slot + 1) & mask;
+        while (index[current] != 0) {
+            int home = home(keys[index[current] - 1]);
+            // Move the slot when its home slot is not between the gap and its current slot
+            if (((current - home) & mask) >= ((current - gap) & mask)) {
+                index[gap] = index[current];
+                index[current] = 0;
+                gap = current;
+            }
+            current = (current + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the slot for the given key, or a negative value when the key is not present.
+     */
+    private int find(Object key) {
+        int mask = index.length - 1;
+        for (int slot = home(key); index[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[index[slot] - 1].equals(key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int emptySlot(Object key) {
+        int mask = index.length - 1;
+        int slot = home(key);
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int home(Object key) {
+        int hash = key.hashCode();
+        // Spread the bits, as paths often share long prefixes
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash & (index.length - 1);
+    }
+
+    private static void toBytes(long value, byte[] bytes, int offset) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>= 8;
+        }
+    }
+}
@@ -47,6 +47,13 @@ public class CrossBuildFileHashCache implements Closeable, TaskHistoryStore {
         return cache.createCache(parameters);
     }
 
+    @Override
+    public <V> PersistentIndexedCache<String, V> createFileHashCache(String cacheName, Serializer<V> valueSerializer, int maxEntriesToKeepInMemory) {
+        PersistentIndexedCacheParameters<String, V> parameters = new PersistentIndexedCacheParameters<String, V>(cacheName, String.class, valueSerializer)
+                .cacheDecorator(inMemoryTaskArtifactCache.fileInfoDecorator(maxEntriesToKeepInMemory));
+        return cache.createCache(parameters);
+    }
+
     @Override
     public void flush() {
     }
@@ -37,8 +37,8 @@ public class DefaultCompileClasspathSnapshotter extends AbstractFileCollectionSn
     };
     private final JvmClassHasher jvmClassHasher;
 
-    public DefaultCompileClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, JvmClassHasher jvmClassHasher) {
-        super(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror);
+    public DefaultCompileClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ParallelFileHasher parallelFileHasher, JvmClassHasher jvmClassHasher) {
+        super(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, parallelFileHasher);
         this.jvmClassHasher = jvmClassHasher;
     }
 
@@ -17,24 +17,122 @@
 package org.gradle.api.internal.changedetection.state;
 
 import org.gradle.api.Nullable;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.TaskOutputsInternal;
 import org.gradle.api.internal.tasks.execution.TaskOutputsGenerationListener;
+import org.gradle.internal.nativeintegration.filesystem.FileMetadataSnapshot;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.nativeintegration.filesystem.FileType;
 
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A file system mirror that lives as long as the daemon. Before a task generates outputs, only the state under the declared outputs of
+ * the task is discarded, or all state when the task does not declare any outputs.
+ *
+ * <p>Directory trees are kept from one build to the next. At the end of a build, the timestamps of the directories and files of each tree
+ * are recorded, and the first time the tree is used in the next build it is reused if none of the timestamps changed. Directories that
+ * gain or lose entries get a new timestamp, so a tree is not walked again unless it changed. Trees with timestamps too close to the start of
+ * the build are not kept, as a change during or right after the build may not result in a new timestamp.</p>
+ */
 public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGenerationListener {
+    // The resolution of file timestamps on the coarsest file systems we support
+    private static final long TIMESTAMP_RESOLUTION = 2000;
+
+    private final FileSystem fileSystem;
     // Map from interned absolute path for a file to known details for the file. Currently not shared with trees
     private final Map<String, FileDetails> files = new ConcurrentHashMap<String, FileDetails>();
     // Map from interned absolute path for a directory to known details for the directory.
     private final Map<String, DirectoryTreeDetails> trees = new ConcurrentHashMap<String, DirectoryTreeDetails>();
+    // Map from interned absolute path for a directory to the details for the directory from a previous build, which need to be checked before use.
+    private final Map<String, RetainedTree> retainedTrees = new ConcurrentHashMap<String, RetainedTree>();
+    private volatile long buildStarted = System.currentTimeMillis();
+
+    public DefaultFileSystemMirror(FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+    }
 
     @Override
-    public void beforeTaskOutputsGenerated() {
-        // When the task outputs are generated, throw away all cached state. This is intentionally very simple, to be improved later
+    public void beforeTaskOutputsGenerated(TaskInternal task) {
+        TaskOutputsInternal outputs = task.getOutputs();
+        if (!outputs.hasDeclaredOutputs()) {
+            // The task may change any file
+            files.clear();
+            trees.clear();
+            retainedTrees.clear();
+            return;
+        }
+        for (File outputRoot : outputs.getFiles()) {
+            invalidate(outputRoot.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Discards the state of all files and directories that contain, or are contained in, the given path.
+     */
+    private void invalidate(String path) {
+        invalidate(files.keySet().iterator(), path);
+        invalidate(trees.keySet().iterator(), path);
+        invalidate(retainedTrees.keySet().iterator(), path);
+    }
+
+    private static void invalidate(Iterator<String> paths, String path) {
+        while (paths.hasNext()) {
+            String candidate = paths.next();
+            if (isSameOrDescendant(candidate, path) || isSameOrDescendant(path, candidate)) {
+                paths.remove();
+            }
+        }
+    }
+
+    private static boolean isSameOrDescendant(String path, String ancestor) {
+        if (!path.startsWith(ancestor)) {
+            return false;
+        }
+        return path.length() == ancestor.length()
+            || ancestor.endsWith(File.separator)
+            || path.charAt(ancestor.length()) == File.separatorChar;
+    }
+
+    /**
+     * Called when a build starts. The state of files is discarded, and the directory trees from the previous build are checked before they are used.
+     */
+    public void beforeBuild() {
+        buildStarted = System.currentTimeMillis();
         files.clear();
         trees.clear();
     }
 
+    /**
+     * Called when a build finishes. Records the timestamps of the directory trees used during the build, so that they can be checked in the next build.
+     * Trees that were not used during the build are discarded.
+     */
+    public void afterBuild() {
+        long trustedBefore = buildStarted - TIMESTAMP_RESOLUTION;
+        Map<String, RetainedTree> retained = new HashMap<String, RetainedTree>();
+        for (DirectoryTreeDetails tree : trees.values()) {
+            RetainedTree previous = retainedTrees.get(tree.path);
+            if (previous != null && previous.details == tree) {
+                // Checked during this build, the timestamps are checked again in the next build
+                retained.put(tree.path, previous);
+                continue;
+            }
+            RetainedTree retainedTree = record(tree, trustedBefore);
+            if (retainedTree != null) {
+                retained.put(tree.path, retainedTree);
+            }
+        }
+        files.clear();
+        trees.clear();
+        retainedTrees.clear();
+        retainedTrees.putAll(retained);
+    }
+
     @Nullable
     @Override
     public FileDetails getFile(String path) {
@@ -49,11 +147,102 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGen
     @Nullable
     @Override
     public DirectoryTreeDetails getDirectoryTree(String path) {
-        return trees.get(path);
+        DirectoryTreeDetails details = trees.get(path);
+        if (details != null) {
+            return details;
+        }
+        RetainedTree retainedTree = retainedTrees.get(path);
+        if (retainedTree == null) {
+            return null;
+        }
+        if (!isUpToDate(retainedTree)) {
+            retainedTrees.remove(path);
+            return null;
+        }
+        trees.put(path, retainedTree.details);
+        return retainedTree.details;
     }
 
     @Override
     public void putDirectory(DirectoryTreeDetails directory) {
         trees.put(directory.path, directory);
     }
+
+    /**
+     * Records the timestamps of the root directory and the elements of the given tree, which must all be older than the given time.
+     *
+     * @return the recorded tree, or null when the tree cannot be checked in a later build.
+     */
+    @Nullable
+    private RetainedTree record(DirectoryTreeDetails tree, long trustedBefore) {
+        List<FileDetails> elements = tree.elements;
+        long[] timestamps = new long[elements.size() + 1];
+        long[] lengths = new long[elements.size() + 1];
+        timestamps[0] = new File(tree.path).lastModified();
+        if (timestamps[0] == 0 || timestamps[0] >= trustedBefore) {
+            return null;
+        }
+        for (int i = 0; i < elements.size(); i++) {
+            FileDetails element = elements.get(i);
+            if (element.getType() == FileType.Directory) {
+                timestamps[i + 1] = new File(element.getPath()).lastModified();
+            } else {
+                FileMetadataSnapshot metadata = fileSystem.stat(new File(element.getPath()));
+                if (metadata.getType() != FileType.RegularFile || !isHashedContent(element, metadata)) {
+                    // Changed since the element was hashed
+                    return null;
+                }
+                timestamps[i + 1] = metadata.getLastModified();
+                lengths[i + 1] = metadata.getLength();
+            }
+            if (timestamps[i + 1] == 0 || timestamps[i + 1] >= trustedBefore) {
+                return null;
+            }
+        }
+        return new RetainedTree(tree, timestamps, lengths);
+    }
+
+    private static boolean isHashedContent(FileDetails element, FileMetadataSnapshot metadata) {
+        IncrementalFileSnapshot content = element.getContent();
+        return content instanceof FileHashSnapshot && ((FileHashSnapshot) content).getLastModified() == metadata.getLastModified();
+    }
+
+    private boolean isUpToDate(RetainedTree retainedTree) {
+        List<FileDetails> elements = retainedTree.details.elements;
+        if (new File(retainedTree.details.path).lastModified() != retainedTree.timestamps[0]) {
+            return false;
+        }
+        for (int i = 0; i < elements.size(); i++) {
+            FileDetails element = elements.get(i);
+            if (element.getType() == FileType.Directory) {
+                if (new File(element.getPath()).lastModified() != retainedTree.timestamps[i + 1]) {
+                    return false;
+                }
+            } else {
+                FileMetadataSnapshot metadata = fileSystem.stat(new File(element.getPath()));
+                if (metadata.getType() != FileType.RegularFile
+                    || metadata.getLastModified() != retainedTree.timestamps[i + 1]
+                    || metadata.getLength() != retainedTree.lengths[i + 1]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The details of a directory tree from a previous build, with the timestamp of the root directory followed by the timestamp of each element,
+     * and the length of each regular file.
+     */
+    private static class RetainedTree {
+        private final DirectoryTreeDetails details;
+        private final long[] timestamps;
+        private final long[] lengths;
+
+        RetainedTree(DirectoryTreeDetails details, long[] timestamps, long[] lengths) {
+            this.details = details;
+            this.timestamps = timestamps;
+            this.lengths = lengths;
+        }
+    }
 }
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.internal.hash.HashAlgorithm;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
@@ -32,9 +33,16 @@ public class DefaultTaskHistoryStore implements TaskHistoryStore, Closeable {
     private final PersistentCache cache;
 
     public DefaultTaskHistoryStore(Gradle gradle, CacheRepository cacheRepository, InMemoryTaskArtifactCache inMemoryTaskArtifactCache) {
+        this(gradle, cacheRepository, inMemoryTaskArtifactCache, HashAlgorithm.MD5);
+    }
+
+    /**
+     * Each hash algorithm uses its own task history, as the history holds the hashes of task inputs and outputs.
+     */
+    public DefaultTaskHistoryStore(Gradle gradle, CacheRepository cacheRepository, InMemoryTaskArtifactCache inMemoryTaskArtifactCache, HashAlgorithm hashAlgorithm) {
         this.inMemoryTaskArtifactCache = inMemoryTaskArtifactCache;
         cache = cacheRepository
-                .cache(gradle, "taskHistory")
+                .cache(gradle, hashAlgorithm.qualifyCacheName("taskHistory"))
                 .withDisplayName("task history cache")
                 .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
                 .open();
@@ -51,6 +59,13 @@ public class DefaultTaskHistoryStore implements TaskHistoryStore, Closeable {
         return cache.createCache(parameters);
     }
 
+    @Override
+    public <V> PersistentIndexedCache<String, V> createFileHashCache(String cacheName, Serializer<V> valueSerializer, int maxEntriesToKeepInMemory) {
+        PersistentIndexedCacheParameters<String, V> parameters = new PersistentIndexedCacheParameters<String, V>(cacheName, String.class, valueSerializer)
+                .cacheDecorator(inMemoryTaskArtifactCache.fileInfoDecorator(maxEntriesToKeepInMemory));
+        return cache.createCache(parameters);
+    }
+
     @Override
     public void flush() {
         cache.flush();
@@ -33,6 +33,10 @@ class FileHashSnapshot implements IncrementalFileSnapshot {
         this.lastModified = lastModified;
     }
 
+    long getLastModified() {
+        return lastModified;
+    }
+
     public boolean isContentUpToDate(IncrementalFileSnapshot snapshot) {
         if (!(snapshot instanceof FileHashSnapshot)) {
             return false;
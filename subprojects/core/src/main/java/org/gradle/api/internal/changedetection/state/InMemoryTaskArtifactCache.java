@@ -79,21 +79,29 @@ public class InMemoryTaskArtifactCache implements SessionLifecycleListener {
     }
 
     public CacheDecorator decorator(final int maxEntriesToKeepInMemory, final boolean cacheInMemoryForShortLivedProcesses) {
-        return new InMemoryCacheDecorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses);
+        return new InMemoryCacheDecorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses, false);
     }
 
-    private <K, V> MultiProcessSafeAsyncPersistentIndexedCache<K, V> applyInMemoryCaching(String cacheId, MultiProcessSafeAsyncPersistentIndexedCache<K, V> backingCache, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses) {
+    /**
+     * Returns a decorator for a cache of {@link CachingFileHasher} entries keyed by absolute path, which keeps entries in memory using a compact representation.
+     * Entries are also cached in memory for short lived processes.
+     */
+    public CacheDecorator fileInfoDecorator(final int maxEntriesToKeepInMemory) {
+        return new InMemoryCacheDecorator(maxEntriesToKeepInMemory, true, true);
+    }
+
+    private <K, V> MultiProcessSafeAsyncPersistentIndexedCache<K, V> applyInMemoryCaching(String cacheId, MultiProcessSafeAsyncPersistentIndexedCache<K, V> backingCache, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses, boolean compact) {
         if (!longLivingProcess && !cacheInMemoryForShortLivedProcesses) {
             // Short lived process, don't cache in memory
             LOG.debug("Creating cache {} without in-memory store.", cacheId);
             return backingCache;
         }
         int targetSize = cacheSizer.scaleCacheSize(maxEntriesToKeepInMemory);
-        CacheDetails cacheDetails = getCache(cacheId, targetSize);
+        CacheDetails cacheDetails = getCache(cacheId, targetSize, compact);
         return new InMemoryDecoratedCache<K, V>(backingCache, cacheDetails.entries, cacheId, cacheDetails.lockState);
     }
 
-    private CacheDetails getCache(String cacheId, int maxSize) {
+    private CacheDetails getCache(String cacheId, int maxSize, boolean compact) {
         synchronized (lock) {
             SoftReference<CacheDetails> reference = allCaches.get(cacheId);
             if (reference != null) {
@@ -108,7 +116,7 @@ public class InMemoryTaskArtifactCache implements SessionLifecycleListener {
                     return cacheDetails;
                 }
             }
-            Cache<Object, Object> entries = createInMemoryCache(cacheId, maxSize);
+            Cache<Object, Object> entries = compact ? new CompactFileInfoCache(maxSize) : createInMemoryCache(cacheId, maxSize);
             CacheDetails cacheDetails = new CacheDetails(cacheId, maxSize, entries, new AtomicReference<FileLock.State>(null));
             LOG.debug("Creating in-memory store for cache {} (max size: {})", cacheId, maxSize);
             allCaches.put(cacheId, new SoftReference<CacheDetails>(cacheDetails));
@@ -140,10 +148,12 @@ public class InMemoryTaskArtifactCache implements SessionLifecycleListener {
     private class InMemoryCacheDecorator implements CacheDecorator {
         private final int maxEntriesToKeepInMemory;
         private final boolean cacheInMemoryForShortLivedProcesses;
+        private final boolean compact;
 
-        InMemoryCacheDecorator(int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses) {
+        InMemoryCacheDecorator(int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses, boolean compact) {
             this.maxEntriesToKeepInMemory = maxEntriesToKeepInMemory;
             this.cacheInMemoryForShortLivedProcesses = cacheInMemoryForShortLivedProcesses;
+            this.compact = compact;
         }
 
         @Override
@@ -155,18 +165,18 @@ public class InMemoryTaskArtifactCache implements SessionLifecycleListener {
                 return false;
             }
             InMemoryCacheDecorator other = (InMemoryCacheDecorator) obj;
-            return maxEntriesToKeepInMemory == other.maxEntriesToKeepInMemory && cacheInMemoryForShortLivedProcesses == other.cacheInMemoryForShortLivedProcesses;
+            return maxEntriesToKeepInMemory == other.maxEntriesToKeepInMemory && cacheInMemoryForShortLivedProcesses == other.cacheInMemoryForShortLivedProcesses && compact == other.compact;
         }
 
         @Override
         public int hashCode() {
-            return maxEntriesToKeepInMemory ^ (cacheInMemoryForShortLivedProcesses ? 1 : 0);
+            return maxEntriesToKeepInMemory ^ (cacheInMemoryForShortLivedProcesses ? 1 : 0) ^ (compact ? 2 : 0);
         }
 
         @Override
         public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(String cacheId, String cacheName, MultiProcessSafePersistentIndexedCache<K, V> persistentCache, CrossProcessCacheAccess crossProcessCacheAccess, AsyncCacheAccess asyncCacheAccess) {
             MultiProcessSafeAsyncPersistentIndexedCache<K, V> asyncCache = new AsyncCacheAccessDecoratedCache<K, V>(asyncCacheAccess, persistentCache);
-            MultiProcessSafeAsyncPersistentIndexedCache<K, V> memCache = applyInMemoryCaching(cacheId, asyncCache, maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses);
+            MultiProcessSafeAsyncPersistentIndexedCache<K, V> memCache = applyInMemoryCaching(cacheId, asyncCache, maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses, compact);
             return new CrossProcessSynchronizingCache<K, V>(memCache, crossProcessCacheAccess);
         }
     }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.hash.HashCode;
+import org.gradle.api.internal.hash.FileHasher;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.nativeintegration.filesystem.FileMetadataSnapshot;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes batches of files using a bounded pool of threads. The calling thread takes part in hashing, so that a batch always makes progress
+ * even when all threads of the pool are busy hashing the batches of other callers.
+ *
+ * <p>Small batches, and all batches when the pool has a single thread, are hashed on the calling thread.</p>
+ */
+public class ParallelFileHasher implements Stoppable {
+    public static final String PARALLEL_HASHING_TOGGLE = "org.gradle.parallel.hashing";
+
+    private static final int MIN_FILES_TO_HASH_IN_PARALLEL = 32;
+    private static final int MIN_CHUNK_SIZE = 8;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final int maxThreads;
+    private final StoppableExecutor executor;
+
+    public ParallelFileHasher(ExecutorFactory executorFactory, int maxThreads) {
+        this.maxThreads = maxThreads;
+        this.executor = maxThreads > 1 ? executorFactory.create("File hasher", maxThreads - 1) : null;
+    }
+
+    /**
+     * Hashes the given files with the given hasher, which must be thread-safe.
+     *
+     * @param files the files to hash.
+     * @param metadata the metadata of each file.
+     * @return the hash of each file, in the same order as the files.
+     */
+    public HashCode[] hash(final FileHasher hasher, final List<File> files, final List<? extends FileMetadataSnapshot> metadata) {
+        final HashCode[] hashes = new HashCode[files.size()];
+        if (executor == null || files.size() < MIN_FILES_TO_HASH_IN_PARALLEL) {
+            hashChunk(hasher, files, metadata, hashes, 0, files.size());
+            return hashes;
+        }
+
+        final int chunkSize = Math.max(MIN_CHUNK_SIZE, files.size() / (maxThreads * CHUNKS_PER_THREAD));
+        final int chunkCount = (files.size() + chunkSize - 1) / chunkSize;
+        final AtomicInteger nextChunk = new AtomicInteger();
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int chunk;
+                while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+                    int start = chunk * chunkSize;
+                    hashChunk(hasher, files, metadata, hashes, start, Math.min(start + chunkSize, files.size()));
+                }
+            }
+        };
+
+        int helpers = Math.min(maxThreads, chunkCount) - 1;
+        List<Future<?>> futures = new ArrayList<Future<?>>(helpers);
+        for (int i = 0; i < helpers; i++) {
+            futures.add(executor.submit(worker));
+        }
+        try {
+            worker.run();
+        } catch (RuntimeException e) {
+            // Stop the helpers from picking up more work
+            nextChunk.set(chunkCount);
+            throw e;
+        } finally {
+            waitFor(futures);
+        }
+        return hashes;
+    }
+
+    private static void hashChunk(FileHasher hasher, List<File> files, List<? extends FileMetadataSnapshot> metadata, HashCode[] hashes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            hashes[i] = hasher.hash(files.get(i), metadata.get(i));
+        }
+    }
+
+    private static void waitFor(List<Future<?>> futures) {
+        Throwable failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        if (failure != null) {
+            throw UncheckedException.throwAsUncheckedException(failure);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.gradle.api.internal.changedetection.state;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.hash.HashCode;
+import org.gradle.api.internal.hash.HashAlgorithm;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.internal.BuildCacheKeyBuilder;
 import org.gradle.caching.internal.DefaultBuildCacheKeyBuilder;
@@ -114,12 +115,12 @@ public abstract class TaskExecution {
 
     public abstract void setDiscoveredInputFilesSnapshot(FileCollectionSnapshot inputFilesSnapshot);
 
-    public BuildCacheKey calculateCacheKey() {
+    public BuildCacheKey calculateCacheKey(HashAlgorithm hashAlgorithm) {
         if (taskClassLoaderHash == null || taskActionsClassLoaderHash == null) {
             return null;
         }
 
-        BuildCacheKeyBuilder builder = new DefaultBuildCacheKeyBuilder();
+        BuildCacheKeyBuilder builder = new DefaultBuildCacheKeyBuilder(hashAlgorithm);
         builder.putString(taskClass);
         builder.putBytes(taskClassLoaderHash.asBytes());
         builder.putBytes(taskActionsClassLoaderHash.asBytes());
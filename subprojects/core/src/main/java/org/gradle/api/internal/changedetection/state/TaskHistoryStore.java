@@ -30,5 +30,13 @@ public interface TaskHistoryStore {
      */
     <K, V> PersistentIndexedCache<K, V> createCache(String name, Class<K> keyType, Serializer<V> valueSerializer, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses);
 
+    /**
+     * Creates a cache for {@link CachingFileHasher}, keyed by absolute path. The entries kept in memory use a compact representation, as there can be an entry for
+     * every file used by a build.
+     *
+     * @param maxEntriesToKeepInMemory The max number of entries to keep in memory, scaled according to available heap.
+     */
+    <V> PersistentIndexedCache<String, V> createFileHashCache(String name, Serializer<V> valueSerializer, int maxEntriesToKeepInMemory);
+
     void flush();
 }
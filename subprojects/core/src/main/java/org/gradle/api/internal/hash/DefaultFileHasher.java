@@ -18,7 +18,6 @@ package org.gradle.api.internal.hash;
 import com.google.common.base.Charsets;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hasher;
-import com.google.common.hash.Hashing;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.internal.nativeintegration.filesystem.FileMetadataSnapshot;
@@ -28,19 +27,46 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 
 public class DefaultFileHasher implements FileHasher {
-    private static final byte[] SIGNATURE = Hashing.md5().hashString(DefaultFileHasher.class.getName(), Charsets.UTF_8).asBytes();
+    private static final long DEFAULT_DIRECT_BUFFER_THRESHOLD = 1024 * 1024;
+    private static final int DIRECT_BUFFER_SIZE = 256 * 1024;
+
     private final Queue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(16);
+    private final Queue<ByteBuffer> directBuffers = new ArrayBlockingQueue<ByteBuffer>(16);
+    private final HashAlgorithm algorithm;
+    private final byte[] signature;
+    private final long directBufferThreshold;
+
+    public DefaultFileHasher() {
+        this(HashAlgorithm.MD5);
+    }
+
+    public DefaultFileHasher(HashAlgorithm algorithm) {
+        this(algorithm, DEFAULT_DIRECT_BUFFER_THRESHOLD);
+    }
+
+    /**
+     * @param directBufferThreshold the size from which files are read into direct buffers rather than through a heap buffer.
+     * Only used when the algorithm is available as a {@link MessageDigest}.
+     */
+    public DefaultFileHasher(HashAlgorithm algorithm, long directBufferThreshold) {
+        this.algorithm = algorithm;
+        this.signature = algorithm.getHashFunction().hashString(DefaultFileHasher.class.getName(), Charsets.UTF_8).asBytes();
+        this.directBufferThreshold = directBufferThreshold;
+    }
 
     @Override
     public HashCode hash(InputStream inputStream) {
         try {
             return doHash(inputStream);
         } catch (IOException e) {
-            throw new UncheckedIOException("Failed to create MD5 hash for file content.", e);
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file content.", algorithm), e);
         }
     }
 
@@ -53,11 +79,43 @@ public class DefaultFileHasher implements FileHasher {
 
     @Override
     public HashCode hash(File file) {
+        return hash(file, file.length());
+    }
+
+    private HashCode hash(File file, long length) {
         try {
-            InputStream inputStream = new FileInputStream(file);
+            FileInputStream inputStream = new FileInputStream(file);
+            if (length >= directBufferThreshold) {
+                MessageDigest digest = algorithm.createMessageDigest();
+                if (digest != null) {
+                    return doHash(inputStream.getChannel(), digest);
+                }
+            }
             return doHash(inputStream);
         } catch (IOException e) {
-            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s'.", file), e);
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file '%s'.", algorithm, file), e);
+        }
+    }
+
+    /**
+     * Reads large files with few system calls into native memory, rather than through a small heap buffer.
+     */
+    private HashCode doHash(FileChannel channel, MessageDigest digest) throws IOException {
+        try {
+            ByteBuffer buffer = takeDirectBuffer();
+            try {
+                digest.update(signature);
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+                return HashCode.fromBytes(digest.digest());
+            } finally {
+                returnDirectBuffer(buffer);
+            }
+        } finally {
+            channel.close();
         }
     }
 
@@ -95,19 +153,32 @@ public class DefaultFileHasher implements FileHasher {
         return buffer;
     }
 
+    private void returnDirectBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        directBuffers.offer(buffer);
+    }
+
+    private ByteBuffer takeDirectBuffer() {
+        ByteBuffer buffer = directBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+        }
+        return buffer;
+    }
+
     @Override
     public HashCode hash(File file, FileMetadataSnapshot fileDetails) {
-        return hash(file);
+        return hash(file, fileDetails.getLength());
     }
 
     @Override
     public HashCode hash(FileTreeElement fileDetails) {
-        return hash(fileDetails.getFile());
+        return hash(fileDetails.getFile(), fileDetails.getSize());
     }
 
-    private static Hasher createFileHasher() {
-        Hasher hasher = Hashing.md5().newHasher();
-        hasher.putBytes(SIGNATURE);
+    private Hasher createFileHasher() {
+        Hasher hasher = algorithm.getHashFunction().newHasher();
+        hasher.putBytes(signature);
         return hasher;
     }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.gradle.api.Nullable;
+import org.gradle.internal.UncheckedException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The algorithms available to hash file contents and build cache keys. Hashes are only used to detect changes, so a fast
+ * non-cryptographic hash works as well as MD5, which remains the default.
+ *
+ * <p>Hashes produced by different algorithms must never be compared with each other. Persistent caches that store hashes
+ * should be named using {@link #qualifyCacheName(String)}, so that each algorithm uses its own cache.</p>
+ */
+public enum HashAlgorithm {
+    MD5("md5", Hashing.md5(), "MD5"),
+    MURMUR3_128("murmur3-128", Hashing.murmur3_128(), null);
+
+    public static final String ALGORITHM_PROPERTY = "org.gradle.hash.algorithm";
+
+    private final String id;
+    private final HashFunction hashFunction;
+    private final String messageDigestAlgorithm;
+
+    HashAlgorithm(String id, HashFunction hashFunction, @Nullable String messageDigestAlgorithm) {
+        this.id = id;
+        this.hashFunction = hashFunction;
+        this.messageDigestAlgorithm = messageDigestAlgorithm;
+    }
+
+    /**
+     * Returns the algorithm selected by the {@value #ALGORITHM_PROPERTY} system property, or MD5 when not set.
+     */
+    public static HashAlgorithm current() {
+        return forId(System.getProperty(ALGORITHM_PROPERTY, MD5.id));
+    }
+
+    public static HashAlgorithm forId(String id) {
+        for (HashAlgorithm algorithm : values()) {
+            if (algorithm.id.equals(id)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown hash algorithm '%s'. Supported algorithms are: md5, murmur3-128.", id));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public HashFunction getHashFunction() {
+        return hashFunction;
+    }
+
+    /**
+     * Creates a message digest that produces the same hashes as {@link #getHashFunction()}.
+     *
+     * @return the message digest, or null when the algorithm is not provided by the JDK.
+     */
+    @Nullable
+    public MessageDigest createMessageDigest() {
+        if (messageDigestAlgorithm == null) {
+            return null;
+        }
+        try {
+            return MessageDigest.getInstance(messageDigestAlgorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    /**
+     * Returns the name of a persistent cache holding hashes produced by this algorithm. MD5 keeps the unqualified name, so that
+     * existing caches remain valid.
+     */
+    public String qualifyCacheName(String cacheName) {
+        return this == MD5 ? cacheName : cacheName + "-" + id;
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
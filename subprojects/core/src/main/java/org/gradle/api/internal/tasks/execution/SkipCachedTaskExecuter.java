@@ -93,7 +93,7 @@ public class SkipCachedTaskExecuter implements TaskExecuter {
                                     boolean found = getCache().load(cacheKey, new BuildCacheEntryReader() {
                                         @Override
                                         public void readFrom(final InputStream input) {
-                                            taskOutputsGenerationListener.beforeTaskOutputsGenerated();
+                                            taskOutputsGenerationListener.beforeTaskOutputsGenerated(task);
                                             packer.unpack(taskOutputs, input, taskOutputOriginFactory.createReader(task));
                                             LOGGER.info("Unpacked output for {} from cache (took {}).", task, clock.getElapsed());
                                         }
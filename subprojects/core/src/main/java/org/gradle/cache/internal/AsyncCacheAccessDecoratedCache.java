@@ -19,9 +19,23 @@ package org.gradle.cache.internal;
 import org.gradle.api.Nullable;
 import org.gradle.internal.Factory;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Applies updates asynchronously using the given {@link AsyncCacheAccess}. Once the backing cache has been opened by a read, entries are
+ * read on the calling thread, so that multiple threads can read at the same time. Reads of entries with pending updates return the
+ * updated value. Finishing the work waits for the reads in progress on other threads.
+ */
 public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentIndexedCache<K, V> {
     private final AsyncCacheAccess asyncCacheAccess;
     private final MultiProcessSafePersistentIndexedCache<K, V> persistentCache;
+    private final ConcurrentMap<K, PendingUpdate<V>> pendingUpdates = new ConcurrentHashMap<K, PendingUpdate<V>>();
+    // Held for read while reading on the calling thread, and for write while closing the backing cache
+    private final ReadWriteLock openLock = new ReentrantReadWriteLock();
+    private volatile boolean open;
 
     public AsyncCacheAccessDecoratedCache(AsyncCacheAccess asyncCacheAccess, MultiProcessSafePersistentIndexedCache<K, V> persistentCache) {
         this.asyncCacheAccess = asyncCacheAccess;
@@ -31,22 +45,40 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
     @Nullable
     @Override
     public V get(final K key) {
+        PendingUpdate<V> pendingUpdate = pendingUpdates.get(key);
+        if (pendingUpdate != null) {
+            return pendingUpdate.value;
+        }
+        openLock.readLock().lock();
+        try {
+            if (open) {
+                return persistentCache.get(key);
+            }
+        } finally {
+            openLock.readLock().unlock();
+        }
+        // Open the backing cache as the owner of the cache
         return asyncCacheAccess.read(new Factory<V>() {
             @Override
             public V create() {
-                return persistentCache.get(key);
+                V value = persistentCache.get(key);
+                open = true;
+                return value;
             }
         });
     }
 
     @Override
     public void putLater(final K key, final V value, final Runnable completion) {
+        final PendingUpdate<V> pendingUpdate = new PendingUpdate<V>(value);
+        pendingUpdates.put(key, pendingUpdate);
         asyncCacheAccess.enqueue(new Runnable() {
             @Override
             public void run() {
                 try {
                     persistentCache.put(key, value);
                 } finally {
+                    pendingUpdates.remove(key, pendingUpdate);
                     completion.run();
                 }
             }
@@ -55,12 +87,15 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
 
     @Override
     public void removeLater(final K key, final Runnable completion) {
+        final PendingUpdate<V> pendingUpdate = new PendingUpdate<V>(null);
+        pendingUpdates.put(key, pendingUpdate);
         asyncCacheAccess.enqueue(new Runnable() {
             @Override
             public void run() {
                 try {
                     persistentCache.remove(key);
                 } finally {
+                    pendingUpdates.remove(key, pendingUpdate);
                     completion.run();
                 }
             }
@@ -74,11 +109,27 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
 
     @Override
     public void finishWork() {
-        persistentCache.finishWork();
+        // The backing cache is closed, and needs to be opened again by the owner of the cache
+        openLock.writeLock().lock();
+        try {
+            open = false;
+            persistentCache.finishWork();
+        } finally {
+            openLock.writeLock().unlock();
+        }
     }
 
     @Override
     public void beforeLockRelease(FileLock.State currentCacheState) {
         persistentCache.beforeLockRelease(currentCacheState);
     }
+
+    private static class PendingUpdate<V> {
+        @Nullable
+        private final V value;
+
+        PendingUpdate(@Nullable V value) {
+            this.value = value;
+        }
+    }
 }
@@ -55,6 +55,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private final FileLockManager lockManager;
     private final ExecutorFactory executorFactory;
     private final FileAccess fileAccess = new UnitOfWorkFileAccess();
+    private final FileAccess indexedCacheFileAccess = new IndexedCacheFileAccess();
     private final Map<String, IndexedCacheEntry> caches = new HashMap<String, IndexedCacheEntry>();
     private final AbstractCrossProcessCacheAccess crossProcessCacheAccess;
     private final LockOptions lockOptions;
@@ -65,9 +66,11 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private final Lock lock = new ReentrantLock(); // protects the following state
     private final Condition condition = lock.newCondition();
     private boolean open;
-    private Thread owner;
-    private FileLock fileLock;
+    // The following are also read without the lock by threads reading the indexed caches
+    private volatile Thread owner;
+    private volatile FileLock fileLock;
     private FileLock.State stateAtOpen;
+    private volatile boolean fileLockClean;
     private Runnable fileLockHeldByOwner;
     private boolean contended;
     private final CacheAccessOperationsStack operations;
@@ -154,6 +157,12 @@ public class DefaultCacheAccess implements CacheCoordinator {
         try {
             // Take ownership
             takeOwnershipNow();
+            if (fileLock != null && !contended) {
+                // No other process is waiting for the lock, so take the time to shrink fragmented cache files before closing them
+                for (IndexedCacheEntry entry : caches.values()) {
+                    entry.getBackingCache().compactIfFragmented();
+                }
+            }
             if (fileLockHeldByOwner != null) {
                 fileLockHeldByOwner.run();
             }
@@ -337,7 +346,8 @@ public class DefaultCacheAccess implements CacheCoordinator {
                     }
                 };
 
-                MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
+                DefaultMultiProcessSafePersistentIndexedCache<K, V> backingCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, indexedCacheFileAccess);
+                MultiProcessSafePersistentIndexedCache<K, V> indexedCache = backingCache;
                 CacheDecorator decorator = parameters.getCacheDecorator();
                 if (decorator != null) {
                     indexedCache = decorator.decorate(cacheFile.getAbsolutePath(), parameters.getCacheName(), indexedCache, crossProcessCacheAccess, getCacheAccessWorker());
@@ -350,7 +360,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
                         });
                     }
                 }
-                entry = new IndexedCacheEntry(parameters, indexedCache);
+                entry = new IndexedCacheEntry(parameters, indexedCache, backingCache);
                 caches.put(parameters.getCacheName(), entry);
                 if (fileLock != null) {
                     indexedCache.afterLockAcquire(stateAtOpen);
@@ -420,6 +430,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
         } finally {
             this.fileLock = null;
             this.stateAtOpen = null;
+            this.fileLockClean = false;
             contended = false;
         }
     }
@@ -469,11 +480,66 @@ public class DefaultCacheAccess implements CacheCoordinator {
         }
 
         public void updateFile(Runnable action) throws LockTimeoutException {
-            getLock().updateFile(action);
+            boolean clean = false;
+            try {
+                getLock().updateFile(action);
+                clean = true;
+            } finally {
+                setFileLockClean(clean);
+            }
         }
 
         public void writeFile(Runnable action) throws LockTimeoutException {
-            getLock().writeFile(action);
+            boolean clean = false;
+            try {
+                getLock().writeFile(action);
+                clean = true;
+            } finally {
+                setFileLockClean(clean);
+            }
+        }
+    }
+
+    /**
+     * Allows the indexed caches to be read by threads that do not own this cache, while holding the file lock. The indexed caches
+     * coordinate these reads with the owner. Such reads are only allowed once the owner has found the files to be clean.
+     *
+     * <p>Reads by threads that do not own this cache do not take the lock, as the owner holds it while the indexed caches wait for these
+     * reads to complete before the file lock is released.</p>
+     */
+    private class IndexedCacheFileAccess extends UnitOfWorkFileAccess {
+        @Override
+        public <T> T readFile(final Factory<? extends T> action) throws LockTimeoutException {
+            if (Thread.currentThread() != owner) {
+                if (fileLock == null) {
+                    throw new IllegalStateException(String.format("The %s has not been locked. Owner: %s", cacheDisplayName, owner));
+                }
+                if (!fileLockClean) {
+                    throw new FileIntegrityViolationException(String.format("The %s was not unlocked cleanly", cacheDisplayName));
+                }
+                return action.create();
+            }
+            try {
+                return super.readFile(new Factory<T>() {
+                    @Override
+                    public T create() {
+                        setFileLockClean(true);
+                        return action.create();
+                    }
+                });
+            } catch (FileIntegrityViolationException e) {
+                setFileLockClean(false);
+                throw e;
+            }
+        }
+    }
+
+    private void setFileLockClean(boolean clean) {
+        lock.lock();
+        try {
+            fileLockClean = clean;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -521,17 +587,23 @@ public class DefaultCacheAccess implements CacheCoordinator {
 
     private static class IndexedCacheEntry {
         private final MultiProcessSafePersistentIndexedCache cache;
+        private final DefaultMultiProcessSafePersistentIndexedCache backingCache;
         private final PersistentIndexedCacheParameters parameters;
 
-        IndexedCacheEntry(PersistentIndexedCacheParameters parameters, MultiProcessSafePersistentIndexedCache cache) {
+        IndexedCacheEntry(PersistentIndexedCacheParameters parameters, MultiProcessSafePersistentIndexedCache cache, DefaultMultiProcessSafePersistentIndexedCache backingCache) {
             this.parameters = parameters;
             this.cache = cache;
+            this.backingCache = backingCache;
         }
 
         public MultiProcessSafePersistentIndexedCache getCache() {
             return cache;
         }
 
+        public DefaultMultiProcessSafePersistentIndexedCache getBackingCache() {
+            return backingCache;
+        }
+
         public PersistentIndexedCacheParameters getParameters() {
             return parameters;
         }
@@ -18,10 +18,22 @@ package org.gradle.cache.internal;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.internal.Factory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Entries can be read by multiple threads at the same time, as long as the cache has been opened. Opening and closing the cache is
+ * exclusive.
+ */
 public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultMultiProcessSafePersistentIndexedCache.class);
     private final FileAccess fileAccess;
     private final Factory<BTreePersistentIndexedCache<K, V>> factory;
+    // Protects the cache field, the backing cache protects its own state
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private BTreePersistentIndexedCache<K, V> cache;
 
     public DefaultMultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
@@ -31,7 +43,23 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     @Override
     public V get(final K key) {
-        final PersistentIndexedCache<K, V> cache = getCache();
+        lock.readLock().lock();
+        try {
+            if (cache != null) {
+                return get(cache, key);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            return get(getCache(), key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private V get(final PersistentIndexedCache<K, V> cache, final K key) {
         try {
             return fileAccess.readFile(new Factory<V>() {
                 public V create() {
@@ -45,26 +73,36 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     @Override
     public void put(final K key, final V value) {
-        final PersistentIndexedCache<K, V> cache = getCache();
-        // Use writeFile because the cache can internally recover from datafile
-        // corruption, so we don't care at this level if it's corrupt
-        fileAccess.writeFile(new Runnable() {
-            public void run() {
-                cache.put(key, value);
-            }
-        });
+        lock.writeLock().lock();
+        try {
+            final PersistentIndexedCache<K, V> cache = getCache();
+            // Use writeFile because the cache can internally recover from datafile
+            // corruption, so we don't care at this level if it's corrupt
+            fileAccess.writeFile(new Runnable() {
+                public void run() {
+                    cache.put(key, value);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public void remove(final K key) {
-        final PersistentIndexedCache<K, V> cache = getCache();
-        // Use writeFile because the cache can internally recover from datafile
-        // corruption, so we don't care at this level if it's corrupt
-        fileAccess.writeFile(new Runnable() {
-            public void run() {
-                cache.remove(key);
-            }
-        });
+        lock.writeLock().lock();
+        try {
+            final PersistentIndexedCache<K, V> cache = getCache();
+            // Use writeFile because the cache can internally recover from datafile
+            // corruption, so we don't care at this level if it's corrupt
+            fileAccess.writeFile(new Runnable() {
+                public void run() {
+                    cache.remove(key);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
@@ -73,16 +111,21 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     @Override
     public void finishWork() {
-        if (cache != null) {
-            try {
-                fileAccess.writeFile(new Runnable() {
-                    public void run() {
-                        cache.close();
-                    }
-                });
-            } finally {
-                cache = null;
+        lock.writeLock().lock();
+        try {
+            if (cache != null) {
+                try {
+                    fileAccess.writeFile(new Runnable() {
+                        public void run() {
+                            cache.close();
+                        }
+                    });
+                } finally {
+                    cache = null;
+                }
             }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -90,6 +133,30 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
     public void beforeLockRelease(FileLock.State currentCacheState) {
     }
 
+    /**
+     * Compacts the cache file when most of it is free. This rewrites the file, so it is only done when the cache is closed, while the file lock
+     * is held and no other process is waiting for it. Does nothing when the cache is not open.
+     */
+    public void compactIfFragmented() {
+        lock.writeLock().lock();
+        try {
+            if (cache != null) {
+                fileAccess.writeFile(new Runnable() {
+                    public void run() {
+                        try {
+                            cache.compactIfFragmented();
+                        } catch (RuntimeException e) {
+                            // The cache is still usable, and compacting is attempted again when the cache is next closed
+                            LOGGER.warn("Could not compact {}, continuing without compacting.", cache, e);
+                        }
+                    }
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     private PersistentIndexedCache<K, V> getCache() {
         if (cache == null) {
             // Use writeFile because the cache can internally recover from datafile
@@ -16,6 +16,7 @@
 package org.gradle.cache.internal.btree;
 
 import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.cache.HeapProportionalCacheSizer;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.io.StreamByteBuffer;
 import org.gradle.internal.serialize.Serializer;
@@ -24,6 +25,7 @@ import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
@@ -33,27 +35,51 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 // todo - stream serialised value to file
 // todo - handle hash collisions (properly, this time)
 // todo - don't store null links to child blocks in leaf index blocks
 // todo - align block boundaries
-// todo - thread safety control
 // todo - merge small values into a single data block
 // todo - discard when file corrupt
 // todo - include data directly in index entry when serializer can guarantee small fixed sized data
 // todo - free list leaks disk space
 // todo - merge adjacent free blocks
 // todo - use more efficient lookup for free block with nearest size
+
+/**
+ * A persistent index backed by a B-tree. Entries can be read by multiple threads at the same time. Other operations are exclusive.
+ *
+ * <p>Recently used blocks are kept in memory, up to a total size that is proportional to the heap. The size can be set in KB using the
+ * {@value #BLOCK_CACHE_SIZE_SYSTEM_PROPERTY} system property. The number of reads served from memory is logged when the cache is closed.</p>
+ *
+ * <p>Free space in the file is reused, but the file never shrinks. {@link #compactIfFragmented()} rewrites the file when most of it is free.</p>
+ */
 public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
+    public static final String BLOCK_CACHE_SIZE_SYSTEM_PROPERTY = "org.gradle.cache.block.cache.kb";
     private static final Logger LOGGER = LoggerFactory.getLogger(BTreePersistentIndexedCache.class);
+    // Enough for the index of a few hundred thousand entries, when using the default heap size
+    private static final int DEFAULT_BLOCK_CACHE_SIZE_KB = 16 * 1024;
+    private static final long BLOCK_CACHE_SIZE = Integer.getInteger(BLOCK_CACHE_SIZE_SYSTEM_PROPERTY, new HeapProportionalCacheSizer().scaleCacheSize(DEFAULT_BLOCK_CACHE_SIZE_KB)) * 1024L;
+    // Smaller files are not worth rewriting
+    private static final long MIN_COMPACTION_FILE_SIZE = 1024 * 1024;
+    private static final int MIN_COMPACTION_FREE_PERCENT = 50;
+    // Number of entries to copy between writes to the compacted file
+    private static final int COMPACTION_BATCH_SIZE = 1000;
     private final File cacheFile;
     private final KeyHasher<K> keyHasher;
     private final Serializer<V> serializer;
     private final short maxChildIndexEntries;
     private final int minIndexChildNodes;
+    private final int maxFreeListEntries;
+    private final CachingBlockStore cachingStore;
+    private final FreeListBlockStore freeListStore;
     private final StateCheckBlockStore store;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private HeaderBlock header;
+    private int rebuilds;
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
         this(cacheFile, keySerializer, valueSerializer, (short) 512, 512);
@@ -61,13 +87,20 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, new KeyHasher<K>(keySerializer), valueSerializer, maxChildIndexEntries, maxFreeListEntries);
+    }
+
+    private BTreePersistentIndexedCache(File cacheFile, KeyHasher<K> keyHasher, Serializer<V> valueSerializer,
+                                        short maxChildIndexEntries, int maxFreeListEntries) {
         this.cacheFile = cacheFile;
-        this.keyHasher = new KeyHasher<K>(keySerializer);
+        this.keyHasher = keyHasher;
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
-        store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
+        this.maxFreeListEntries = maxFreeListEntries;
+        cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), BLOCK_CACHE_SIZE, IndexBlock.class, DataBlock.class, FreeListBlockStore.FreeListBlock.class);
+        freeListStore = new FreeListBlockStore(cachingStore, maxFreeListEntries);
+        store = new StateCheckBlockStore(freeListStore);
         try {
             open();
         } catch (Exception e) {
@@ -119,6 +152,8 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public V get(K key) {
         try {
+            lock.readLock().lock();
+            int rebuildsBeforeRead = rebuilds;
             try {
                 DataBlock block = header.getRoot().get(key);
                 if (block != null) {
@@ -126,8 +161,19 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
                 }
                 return null;
             } catch (CorruptedCacheException e) {
-                rebuild();
+                // Rebuild below, as the read lock cannot be upgraded
+            } finally {
+                lock.readLock().unlock();
+            }
+            lock.writeLock().lock();
+            try {
+                // Another thread may have found the same corruption
+                if (rebuilds == rebuildsBeforeRead) {
+                    rebuild();
+                }
                 return null;
+            } finally {
+                lock.writeLock().unlock();
             }
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
@@ -135,6 +181,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     }
 
     public void put(K key, V value) {
+        lock.writeLock().lock();
         try {
             long hashCode = keyHasher.getHashCode(key);
             Lookup lookup = header.getRoot().find(hashCode);
@@ -144,7 +191,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
                 DataBlockUpdateResult updateResult = block.useNewValue(value);
                 if (updateResult.isFailed()) {
                     store.remove(block);
-                    newBlock = new DataBlock(value, updateResult.getSerializedValue());
+                    newBlock = new DataBlock(updateResult.getSerializedValue());
                 }
             } else {
                 newBlock = new DataBlock(value);
@@ -156,10 +203,24 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             store.flush();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
+    /**
+     * Adds an entry that is not in the cache yet, without flushing.
+     */
+    private void add(long hashCode, byte[] serializedValue) throws Exception {
+        Lookup lookup = header.getRoot().find(hashCode);
+        assert lookup.entry == null;
+        DataBlock newBlock = new DataBlock(serializedValue);
+        store.write(newBlock);
+        lookup.indexBlock.put(hashCode, newBlock.getPos());
+    }
+
     public void remove(K key) {
+        lock.writeLock().lock();
         try {
             Lookup lookup = header.getRoot().find(key);
             if (lookup.entry == null) {
@@ -171,11 +232,14 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             store.flush();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     private IndexBlock load(BlockPointer pos, IndexRoot root, IndexBlock parent, int index) {
         IndexBlock block = store.read(pos, IndexBlock.class);
+        // Threads reading the same cached block at the same time set the same values, which are only used when updating the tree
         block.root = root;
         block.parent = parent;
         block.parentEntryIndex = index;
@@ -183,40 +247,133 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     }
 
     public void reset() {
-        close();
+        lock.writeLock().lock();
         try {
-            open();
-        } catch (Exception e) {
-            throw new UncheckedIOException(e);
+            close();
+            try {
+                open();
+            } catch (Exception e) {
+                throw new UncheckedIOException(e);
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     public void close() {
-        LOGGER.debug("Closing {}", this);
+        LOGGER.debug("Closing {}. Blocks read from memory: {}, from file: {}", this, cachingStore.getHitCount(), cachingStore.getMissCount());
+        lock.writeLock().lock();
         try {
             store.close();
         } catch (Exception e) {
             throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the cache into a new file when at least half of a large cache file is free. The entries are written in key order, so that
+     * the index and the values are close together.
+     *
+     * <p>The cache file is replaced, so this must only be called while other processes cannot access the cache, for example when about
+     * to release the cache lock.</p>
+     */
+    public void compactIfFragmented() {
+        lock.writeLock().lock();
+        try {
+            long fileSize = cacheFile.length();
+            if (fileSize < MIN_COMPACTION_FILE_SIZE) {
+                return;
+            }
+            long freeSpace = freeListStore.getFreeSpace();
+            if (freeSpace * 100 < fileSize * MIN_COMPACTION_FREE_PERCENT) {
+                return;
+            }
+            LOGGER.debug("Compacting {}, {} of {} bytes are free.", this, freeSpace, fileSize);
+            compact();
+            LOGGER.info("Compacted {} from {} to {} bytes.", this, fileSize, cacheFile.length());
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not compact %s.", this), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compact() throws Exception {
+        File compactedFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compact");
+        if (compactedFile.exists() && !compactedFile.delete()) {
+            throw new IOException(String.format("Could not delete %s.", compactedFile));
+        }
+        try {
+            BTreePersistentIndexedCache<K, V> compacted = new BTreePersistentIndexedCache<K, V>(compactedFile, keyHasher, serializer, maxChildIndexEntries, maxFreeListEntries);
+            try {
+                copyEntries(header.getRoot(), compacted, 0);
+            } finally {
+                compacted.close();
+            }
+        } catch (Exception e) {
+            compactedFile.delete();
+            throw e;
+        }
+
+        store.close();
+        try {
+            // Cannot rename over an existing file on some platforms
+            if (!compactedFile.renameTo(cacheFile) && !(cacheFile.delete() && compactedFile.renameTo(cacheFile))) {
+                throw new IOException(String.format("Could not replace %s with %s.", cacheFile, compactedFile));
+            }
+        } finally {
+            doOpen();
         }
     }
 
+    /**
+     * Copies the entries of the given block and its children in key order. Returns the number of entries copied so far.
+     */
+    private int copyEntries(IndexBlock block, BTreePersistentIndexedCache<K, V> target, int copied) throws Exception {
+        for (IndexEntry entry : block.entries) {
+            if (!entry.childIndexBlock.isNull()) {
+                copied = copyEntries(store.read(entry.childIndexBlock, IndexBlock.class), target, copied);
+            }
+            DataBlock dataBlock = store.read(entry.dataBlock, DataBlock.class);
+            target.add(entry.hashCode, dataBlock.serializedValue);
+            if (++copied % COMPACTION_BATCH_SIZE == 0) {
+                target.store.flush();
+            }
+        }
+        if (!block.tailPos.isNull()) {
+            copied = copyEntries(store.read(block.tailPos, IndexBlock.class), target, copied);
+        }
+        return copied;
+    }
+
     public boolean isOpen() {
-        return store.isOpen();
+        lock.readLock().lock();
+        try {
+            return store.isOpen();
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     private void rebuild() throws Exception {
         LOGGER.warn("{} is corrupt. Discarding.", this);
+        rebuilds++;
         store.clear();
         close();
         doOpen();
     }
 
     public void verify() {
+        lock.writeLock().lock();
         try {
             doVerify();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Some problems were found when checking the integrity of %s.",
                     this), e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -635,37 +792,23 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     private class DataBlock extends BlockPayload {
         private int size;
-        private StreamByteBuffer buffer;
-        private V value;
+        // Replaced rather than changed, and deserialized on each read, so that the block can be cached and read by multiple threads
+        private byte[] serializedValue;
 
         private DataBlock() {
         }
 
         public DataBlock(V value) throws Exception {
-            this.value = value;
-            setValue(value);
-            size = buffer.totalBytesUnread();
+            this(serialize(value));
         }
 
-        public DataBlock(V value, StreamByteBuffer buffer) throws Exception {
-            this.value = value;
-            this.buffer = buffer;
-            size = buffer.totalBytesUnread();
-        }
-
-        public void setValue(V value) throws Exception {
-            buffer = StreamByteBuffer.createWithChunkSizeInDefaultRange(size);
-            KryoBackedEncoder encoder = new KryoBackedEncoder(buffer.getOutputStream());
-            serializer.write(encoder, value);
-            encoder.flush();
+        public DataBlock(byte[] serializedValue) {
+            this.serializedValue = serializedValue;
+            size = serializedValue.length;
         }
 
         public V getValue() throws Exception {
-            if (value == null) {
-                value = serializer.read(new KryoBackedDecoder(buffer.getInputStream()));
-                buffer = null;
-            }
-            return value;
+            return serializer.read(new KryoBackedDecoder(new ByteArrayInputStream(serializedValue)));
         }
 
         @Override
@@ -681,35 +824,43 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         public void read(DataInputStream instr) throws Exception {
             size = instr.readInt();
             int bytes = instr.readInt();
-            buffer = StreamByteBuffer.of(instr, bytes);
+            serializedValue = new byte[bytes];
+            instr.readFully(serializedValue);
         }
 
         public void write(DataOutputStream outstr) throws Exception {
             outstr.writeInt(size);
-            outstr.writeInt(buffer.totalBytesUnread());
-            buffer.writeTo(outstr);
-            buffer = null;
+            outstr.writeInt(serializedValue.length);
+            outstr.write(serializedValue);
         }
 
         public DataBlockUpdateResult useNewValue(V value) throws Exception {
-            setValue(value);
-            boolean ok = buffer.totalBytesUnread() <= size;
+            byte[] newSerializedValue = serialize(value);
+            boolean ok = newSerializedValue.length <= size;
             if (ok) {
-                this.value = value;
+                serializedValue = newSerializedValue;
                 store.write(this);
                 return DataBlockUpdateResult.success();
             } else {
-                return DataBlockUpdateResult.failed(buffer);
+                return DataBlockUpdateResult.failed(newSerializedValue);
             }
         }
     }
 
+    private byte[] serialize(V value) throws Exception {
+        StreamByteBuffer buffer = new StreamByteBuffer();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(buffer.getOutputStream());
+        serializer.write(encoder, value);
+        encoder.flush();
+        return buffer.readAsByteArray();
+    }
+
     private static class DataBlockUpdateResult {
         private static final DataBlockUpdateResult SUCCESS = new DataBlockUpdateResult(true, null);
         private final boolean success;
-        private final StreamByteBuffer serializedValue;
+        private final byte[] serializedValue;
 
-        private DataBlockUpdateResult(boolean success, StreamByteBuffer serializedValue) {
+        private DataBlockUpdateResult(boolean success, byte[] serializedValue) {
             this.success = success;
             this.serializedValue = serializedValue;
         }
@@ -718,7 +869,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             return SUCCESS;
         }
 
-        static DataBlockUpdateResult failed(StreamByteBuffer serializedValue) {
+        static DataBlockUpdateResult failed(byte[] serializedValue) {
             return new DataBlockUpdateResult(false, serializedValue);
         }
 
@@ -726,7 +877,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             return !success;
         }
 
-        public StreamByteBuffer getSerializedValue() {
+        public byte[] getSerializedValue() {
             return serializedValue;
         }
     }
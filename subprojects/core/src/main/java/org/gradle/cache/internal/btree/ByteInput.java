@@ -16,60 +16,74 @@
 
 package org.gradle.cache.internal.btree;
 
-import com.google.common.io.CountingInputStream;
-import org.gradle.internal.io.RandomAccessFileInputStream;
-
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 
 /**
- * Allows a stream of bytes to be read from a particular location of some backing byte stream.
+ * Allows bytes to be read from a particular location of some backing file.
+ *
+ * <p>Uses positional reads, which do not change the state of the file, so that multiple threads can read at the same time.</p>
  */
 class ByteInput {
-    private final RandomAccessFile file;
-    private final ResettableBufferedInputStream bufferedInputStream;
-    private CountingInputStream countingInputStream;
+    private final File file;
+    private FileChannel channel;
 
-    public ByteInput(RandomAccessFile file) {
+    public ByteInput(File file) {
         this.file = file;
-        bufferedInputStream = new ResettableBufferedInputStream(new RandomAccessFileInputStream(file));
     }
 
     /**
-     * Starts reading from the given offset.
+     * Reads the given number of bytes, starting at the given offset.
      */
-    public DataInputStream start(long offset) throws IOException {
-        file.seek(offset);
-        bufferedInputStream.clear();
-        countingInputStream = new CountingInputStream(bufferedInputStream);
-        return new DataInputStream(countingInputStream);
-    }
-
-    /**
-     * Returns the number of bytes read since {@link #start(long)} was called.
-     */
-    public long getBytesRead() {
-        return countingInputStream.getCount();
+    public DataInputStream read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (true) {
+            FileChannel channel = getChannel();
+            try {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) < 0) {
+                        throw new EOFException(String.format("Cannot read %s bytes at offset %s of %s.", length, offset, file));
+                    }
+                }
+                return new DataInputStream(new ByteArrayInputStream(buffer.array()));
+            } catch (ClosedByInterruptException e) {
+                discard(channel);
+                throw e;
+            } catch (ClosedChannelException e) {
+                // Closed because another thread reading from it was interrupted, so open it again
+                discard(channel);
+            }
+        }
     }
 
     /**
-     * Finishes reading, resetting any buffered state.
+     * Closes the file. It is opened again when read from.
      */
-    public void done() {
-        countingInputStream = null;
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
     }
 
-    private static class ResettableBufferedInputStream extends BufferedInputStream {
-        ResettableBufferedInputStream(InputStream input) {
-            super(input);
+    private synchronized FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            channel = new RandomAccessFile(file, "r").getChannel();
         }
+        return channel;
+    }
 
-        void clear() {
-            count = 0;
-            pos = 0;
+    private synchronized void discard(FileChannel channel) {
+        if (this.channel == channel) {
+            this.channel = null;
         }
     }
 }
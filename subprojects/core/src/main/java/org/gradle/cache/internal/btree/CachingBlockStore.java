@@ -15,7 +15,6 @@
  */
 package org.gradle.cache.internal.btree;
 
-import org.apache.commons.collections.map.LRUMap;
 import org.gradle.api.Nullable;
 
 import java.util.Arrays;
@@ -25,14 +24,20 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * A {@link BlockStore} that keeps recently used blocks of the given types in memory, up to the given total size of the blocks in the
+ * file. As a block is only kept once, a small file never uses the whole budget. Blocks can be read by multiple threads at the same time,
+ * provided that no other operation runs at the same time and the backing store supports this.
+ */
 public class CachingBlockStore implements BlockStore {
     private final BlockStore store;
     private final Map<BlockPointer, BlockPayload> dirty = new LinkedHashMap<BlockPointer, BlockPayload>();
-    private final Map<BlockPointer, BlockPayload> indexBlockCache = new LRUMap(100);
+    private final BlockCache blockCache;
     private final Set<Class<?>> cachableTypes = new HashSet<Class<?>>();
 
-    public CachingBlockStore(BlockStore store, Class<? extends BlockPayload>... cacheableBlockTypes) {
+    public CachingBlockStore(BlockStore store, long maxCachedBytes, Class<? extends BlockPayload>... cacheableBlockTypes) {
         this.store = store;
+        this.blockCache = new BlockCache(maxCachedBytes);
         cachableTypes.addAll(Arrays.asList(cacheableBlockTypes));
     }
 
@@ -42,13 +47,13 @@ public class CachingBlockStore implements BlockStore {
 
     public void close() {
         flush();
-        indexBlockCache.clear();
+        blockCache.clear();
         store.close();
     }
 
     public void clear() {
         dirty.clear();
-        indexBlockCache.clear();
+        blockCache.clear();
         store.clear();
     }
 
@@ -69,7 +74,7 @@ public class CachingBlockStore implements BlockStore {
     public void remove(BlockPayload block) {
         dirty.remove(block.getPos());
         if (isCacheable(block)) {
-            indexBlockCache.remove(block.getPos());
+            blockCache.remove(block.getPos());
         }
         store.remove(block);
     }
@@ -94,10 +99,28 @@ public class CachingBlockStore implements BlockStore {
         return block;
     }
 
+    /**
+     * Returns the number of reads of a cacheable block that were served from memory.
+     */
+    public long getHitCount() {
+        return blockCache.getHitCount();
+    }
+
+    /**
+     * Returns the number of reads of a cacheable block that had to be read from the backing store.
+     */
+    public long getMissCount() {
+        return blockCache.getMissCount();
+    }
+
     @Nullable
     private <T extends BlockPayload> T maybeGetFromCache(BlockPointer pos, Class<T> payloadType) {
         if (cachableTypes.contains(payloadType)) {
-            return payloadType.cast(indexBlockCache.get(pos));
+            BlockPayload block = blockCache.get(pos);
+            // The position may have been reused for a block of another type, in which case the file is corrupt
+            if (payloadType.isInstance(block)) {
+                return payloadType.cast(block);
+            }
         }
         return null;
     }
@@ -110,11 +133,87 @@ public class CachingBlockStore implements BlockStore {
 
     private <T extends BlockPayload> void maybeCache(T block) {
         if (isCacheable(block)) {
-            indexBlockCache.put(block.getPos(), block);
+            blockCache.put(block);
         }
     }
 
     private <T extends BlockPayload> boolean isCacheable(T block) {
         return cachableTypes.contains(block.getClass());
     }
+
+    /**
+     * A least recently used cache of blocks, limited by the size of the blocks in the file. Reading changes the order of the entries, so
+     * access is synchronized.
+     */
+    private static class BlockCache {
+        private final long maxBytes;
+        private final LinkedHashMap<BlockPointer, CachedBlock> blocks = new LinkedHashMap<BlockPointer, CachedBlock>(16, 0.75f, true);
+        private long bytes;
+        private long hits;
+        private long misses;
+
+        BlockCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Nullable
+        synchronized BlockPayload get(BlockPointer pos) {
+            CachedBlock cachedBlock = blocks.get(pos);
+            if (cachedBlock == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            return cachedBlock.payload;
+        }
+
+        synchronized void put(BlockPayload payload) {
+            CachedBlock cachedBlock = new CachedBlock(payload);
+            CachedBlock previous = blocks.put(payload.getPos(), cachedBlock);
+            if (previous != null) {
+                bytes -= previous.size;
+            }
+            bytes += cachedBlock.size;
+            Iterator<CachedBlock> iterator = blocks.values().iterator();
+            while (bytes > maxBytes && iterator.hasNext()) {
+                CachedBlock eldest = iterator.next();
+                if (eldest == cachedBlock) {
+                    // Always keep the block just used
+                    break;
+                }
+                iterator.remove();
+                bytes -= eldest.size;
+            }
+        }
+
+        synchronized void remove(BlockPointer pos) {
+            CachedBlock cachedBlock = blocks.remove(pos);
+            if (cachedBlock != null) {
+                bytes -= cachedBlock.size;
+            }
+        }
+
+        synchronized void clear() {
+            blocks.clear();
+            bytes = 0;
+        }
+
+        synchronized long getHitCount() {
+            return hits;
+        }
+
+        synchronized long getMissCount() {
+            return misses;
+        }
+    }
+
+    private static class CachedBlock {
+        final BlockPayload payload;
+        final int size;
+
+        CachedBlock(BlockPayload payload) {
+            this.payload = payload;
+            this.size = payload.getBlock().getSize();
+        }
+    }
 }
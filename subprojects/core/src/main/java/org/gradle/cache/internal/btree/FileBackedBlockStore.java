@@ -15,14 +15,20 @@
  */
 package org.gradle.cache.internal.btree;
 
+import com.google.common.io.CountingInputStream;
 import org.gradle.api.UncheckedIOException;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 
+/**
+ * A {@link BlockStore} backed by a file. Blocks can be read by multiple threads at the same time, provided that no other operation
+ * runs at the same time.
+ */
 public class FileBackedBlockStore implements BlockStore {
     private final File cacheFile;
     private RandomAccessFile file;
@@ -47,7 +53,7 @@ public class FileBackedBlockStore implements BlockStore {
             cacheFile.getParentFile().mkdirs();
             file = new RandomAccessFile(cacheFile, "rw");
             output = new ByteOutput(file);
-            input = new ByteInput(file);
+            input = new ByteInput(cacheFile);
             currentFileSize = file.length();
             nextBlock = currentFileSize;
             if (currentFileSize == 0) {
@@ -60,6 +66,7 @@ public class FileBackedBlockStore implements BlockStore {
 
     public void close() {
         try {
+            input.close();
             file.close();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -213,30 +220,36 @@ public class FileBackedBlockStore implements BlockStore {
                 throw blockCorruptedException();
             }
 
-            DataInputStream inputStream = input.start(pos);
-
             BlockPayload payload = getPayload();
 
             // Read header
-            byte type = inputStream.readByte();
+            DataInputStream headerStream = input.read(pos, HEADER_SIZE);
+            byte type = headerStream.readByte();
             if (type != payload.getType()) {
                 throw blockCorruptedException();
             }
+            payloadSize = headerStream.readInt();
+            if (payloadSize < 0 || pos + HEADER_SIZE + TAIL_SIZE + payloadSize > currentFileSize) {
+                throw blockCorruptedException();
+            }
 
             // Read body
-            payloadSize = inputStream.readInt();
-            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > currentFileSize) {
+            CountingInputStream countingInputStream = new CountingInputStream(input.read(pos + HEADER_SIZE, payloadSize + TAIL_SIZE));
+            DataInputStream inputStream = new DataInputStream(countingInputStream);
+            long count;
+            try {
+                payload.read(inputStream);
+                count = inputStream.readInt();
+            } catch (EOFException e) {
+                // Payload is larger than the block
                 throw blockCorruptedException();
             }
-            payload.read(inputStream);
 
-            // Read and verify count
-            long actualCount = input.getBytesRead();
-            long count = inputStream.readInt();
+            // Verify count
+            long actualCount = HEADER_SIZE + countingInputStream.getCount() - TAIL_SIZE;
             if (actualCount != count) {
                 throw blockCorruptedException();
             }
-            input.done();
         }
 
         public RuntimeException blockCorruptedException() {
@@ -35,7 +35,7 @@ class KeyHasher<K> {
         this.serializer = serializer;
     }
 
-    long getHashCode(K key) throws Exception {
+    synchronized long getHashCode(K key) throws Exception {
         serializer.write(encoder, key);
         encoder.flush();
         return digestStream.getChecksum();
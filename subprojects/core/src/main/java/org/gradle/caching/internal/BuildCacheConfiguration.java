@@ -39,6 +39,28 @@ public interface BuildCacheConfiguration {
      */
     void useLocalCache(File directory);
 
+    /**
+     * Returns the size in megabytes the local directory cache is trimmed to, by evicting the least recently used entries. Defaults to 5 GB.
+     * It can also be overridden via the {@code org.gradle.cache.tasks.targetSize} system property.
+     */
+    long getLocalCacheTargetSizeInMB();
+
+    /**
+     * Sets the size in megabytes the local directory cache is trimmed to.
+     */
+    void setLocalCacheTargetSizeInMB(long targetSizeInMB);
+
+    /**
+     * Returns the number of days after which entries that have not been used are evicted from the local directory cache. Defaults to 7 days.
+     * It can also be overridden via the {@code org.gradle.cache.tasks.maxAge} system property.
+     */
+    long getLocalCacheMaxAgeInDays();
+
+    /**
+     * Sets the number of days after which entries that have not been used are evicted from the local directory cache.
+     */
+    void setLocalCacheMaxAgeInDays(long maxAgeInDays);
+
     /**
      * Use the give build cache factory.
      */
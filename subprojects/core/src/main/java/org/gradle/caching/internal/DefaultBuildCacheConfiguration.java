@@ -19,6 +19,7 @@ package org.gradle.caching.internal;
 import org.gradle.StartParameter;
 import org.gradle.cache.CacheRepository;
 import org.gradle.caching.BuildCache;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.util.SingleMessageLogger;
@@ -26,19 +27,28 @@ import org.gradle.util.SingleMessageLogger;
 import java.io.File;
 
 public class DefaultBuildCacheConfiguration implements BuildCacheConfigurationInternal, Stoppable {
+    private static final long DEFAULT_LOCAL_CACHE_TARGET_SIZE_IN_MB = 5 * 1024;
+    private static final long DEFAULT_LOCAL_CACHE_MAX_AGE_IN_DAYS = 7;
+
     private final boolean pullAllowed;
     private final boolean pushAllowed;
     private final CacheRepository cacheRepository;
+    private final ExecutorFactory executorFactory;
     private final StartParameter startParameter;
+    private long localCacheTargetSizeInMB;
+    private long localCacheMaxAgeInDays;
     private BuildCacheFactory factory;
     private BuildCache cache;
 
-    public DefaultBuildCacheConfiguration(CacheRepository cacheRepository, StartParameter startParameter) {
+    public DefaultBuildCacheConfiguration(CacheRepository cacheRepository, ExecutorFactory executorFactory, StartParameter startParameter) {
         this.cacheRepository = cacheRepository;
+        this.executorFactory = executorFactory;
         this.startParameter = startParameter;
         useLocalCache();
         this.pullAllowed = "true".equalsIgnoreCase(System.getProperty("org.gradle.cache.tasks.pull", "true").trim());
         this.pushAllowed = "true".equalsIgnoreCase(System.getProperty("org.gradle.cache.tasks.push", "true").trim());
+        this.localCacheTargetSizeInMB = Long.getLong("org.gradle.cache.tasks.targetSize", DEFAULT_LOCAL_CACHE_TARGET_SIZE_IN_MB);
+        this.localCacheMaxAgeInDays = Long.getLong("org.gradle.cache.tasks.maxAge", DEFAULT_LOCAL_CACHE_MAX_AGE_IN_DAYS);
     }
 
     @Override
@@ -48,8 +58,8 @@ public class DefaultBuildCacheConfiguration implements BuildCacheConfigurationIn
             public BuildCache createCache(StartParameter startParameter) {
                 String cacheDirectoryPath = System.getProperty("org.gradle.cache.tasks.directory");
                 return cacheDirectoryPath != null
-                    ? new LocalDirectoryBuildCache(cacheRepository, new File(cacheDirectoryPath))
-                    : new LocalDirectoryBuildCache(cacheRepository, "task-cache");
+                    ? new LocalDirectoryBuildCache(cacheRepository, new File(cacheDirectoryPath), executorFactory, localCacheTargetSizeInMB, localCacheMaxAgeInDays)
+                    : new LocalDirectoryBuildCache(cacheRepository, "task-cache", executorFactory, localCacheTargetSizeInMB, localCacheMaxAgeInDays);
             }
         });
     }
@@ -59,7 +69,7 @@ public class DefaultBuildCacheConfiguration implements BuildCacheConfigurationIn
         setFactory(new BuildCacheFactory() {
             @Override
             public BuildCache createCache(StartParameter startParameter) {
-                return new LocalDirectoryBuildCache(cacheRepository, directory);
+                return new LocalDirectoryBuildCache(cacheRepository, directory, executorFactory, localCacheTargetSizeInMB, localCacheMaxAgeInDays);
             }
         });
     }
@@ -69,6 +79,26 @@ public class DefaultBuildCacheConfiguration implements BuildCacheConfigurationIn
         setFactory(factory);
     }
 
+    @Override
+    public long getLocalCacheTargetSizeInMB() {
+        return localCacheTargetSizeInMB;
+    }
+
+    @Override
+    public void setLocalCacheTargetSizeInMB(long targetSizeInMB) {
+        this.localCacheTargetSizeInMB = targetSizeInMB;
+    }
+
+    @Override
+    public long getLocalCacheMaxAgeInDays() {
+        return localCacheMaxAgeInDays;
+    }
+
+    @Override
+    public void setLocalCacheMaxAgeInDays(long maxAgeInDays) {
+        this.localCacheMaxAgeInDays = maxAgeInDays;
+    }
+
     private void setFactory(final BuildCacheFactory factory) {
         this.factory = factory;
     }
@@ -19,8 +19,8 @@ package org.gradle.caching.internal;
 import com.google.common.base.Charsets;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hasher;
-import com.google.common.hash.Hashing;
 import org.apache.commons.lang.SerializationUtils;
+import org.gradle.api.internal.hash.HashAlgorithm;
 import org.gradle.caching.BuildCacheKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +38,20 @@ import java.util.Map;
  */
 public class DefaultBuildCacheKeyBuilder implements BuildCacheKeyBuilder {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultBuildCacheKeyBuilder.class);
-    private final Hasher hasher = Hashing.md5().newHasher();
+    private final Hasher hasher;
+
+    public DefaultBuildCacheKeyBuilder() {
+        this(HashAlgorithm.MD5);
+    }
+
+    public DefaultBuildCacheKeyBuilder(HashAlgorithm algorithm) {
+        this.hasher = algorithm.getHashFunction().newHasher();
+        if (algorithm != HashAlgorithm.MD5) {
+            // Keys are shared by all build caches, so the keys of different algorithms must not meet. MD5 keys stay unchanged, so existing entries remain valid
+            hasher.putInt(algorithm.getId().length());
+            hasher.putString(algorithm.getId(), Charsets.UTF_8);
+        }
+    }
 
     @Override
     public BuildCacheKeyBuilder putByte(byte b) {
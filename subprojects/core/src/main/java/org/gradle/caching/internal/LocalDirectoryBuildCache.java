@@ -16,6 +16,7 @@
 
 package org.gradle.caching.internal;
 
+import com.google.common.collect.Sets;
 import com.google.common.io.Closer;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.cache.CacheBuilder;
@@ -26,33 +27,65 @@ import org.gradle.caching.BuildCacheEntryReader;
 import org.gradle.caching.BuildCacheEntryWriter;
 import org.gradle.caching.BuildCacheException;
 import org.gradle.caching.BuildCacheKey;
-import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.gradle.cache.internal.FileLockManager.LockMode.None;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
+/**
+ * A build cache that stores each entry in a file named after its key. Entries are written to a temporary file that is then atomically renamed,
+ * so that the cache can be shared by several processes without locking.
+ */
 public class LocalDirectoryBuildCache implements BuildCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalDirectoryBuildCache.class);
+    // Only update the access time of an entry when it is older than this, to avoid a write for every cache hit
+    private static final long ACCESS_TIME_RESOLUTION = TimeUnit.MINUTES.toMillis(10);
+    private static final long CLEANUP_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    static final String TEMP_FILE_SUFFIX = ".part";
+
     private final PersistentCache persistentCache;
+    private final Set<String> storesInProgress = Sets.newConcurrentHashSet();
+    private final LocalDirectoryBuildCacheCleaner cleaner;
+    private final StoppableExecutor cleanupExecutor;
 
-    public LocalDirectoryBuildCache(CacheRepository cacheRepository, File directory) {
-        this(cacheRepository.cache(checkDirectory(directory)));
+    public LocalDirectoryBuildCache(CacheRepository cacheRepository, File directory, ExecutorFactory executorFactory, long targetSizeInMB, long maxAgeInDays) {
+        this(cacheRepository.cache(checkDirectory(directory)), executorFactory, targetSizeInMB, maxAgeInDays);
     }
 
-    public LocalDirectoryBuildCache(CacheRepository cacheRepository, String cacheKey) {
-        this(cacheRepository.cache(cacheKey));
+    public LocalDirectoryBuildCache(CacheRepository cacheRepository, String cacheKey, ExecutorFactory executorFactory, long targetSizeInMB, long maxAgeInDays) {
+        this(cacheRepository.cache(cacheKey), executorFactory, targetSizeInMB, maxAgeInDays);
     }
 
-    private LocalDirectoryBuildCache(CacheBuilder cacheBuilder) {
+    private LocalDirectoryBuildCache(CacheBuilder cacheBuilder, ExecutorFactory executorFactory, long targetSizeInMB, long maxAgeInDays) {
         this.persistentCache = cacheBuilder
             .withDisplayName("Build cache")
             .withLockOptions(mode(None))
             .open();
+        this.cleaner = new LocalDirectoryBuildCacheCleaner(persistentCache.getBaseDir(), targetSizeInMB * 1024 * 1024, TimeUnit.DAYS.toMillis(maxAgeInDays), CLEANUP_INTERVAL);
+        this.cleanupExecutor = executorFactory.create("Build cache cleanup");
+        cleanupExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    cleaner.cleanup();
+                } catch (Exception e) {
+                    LOGGER.warn("Could not clean up " + getDescription() + ".", e);
+                }
+            }
+        });
     }
 
     private static File checkDirectory(File directory) {
@@ -75,49 +108,77 @@ public class LocalDirectoryBuildCache implements BuildCache {
     }
 
     @Override
-    public boolean load(final BuildCacheKey key, final BuildCacheEntryReader reader) throws BuildCacheException {
-        return persistentCache.useCache(new Factory<Boolean>() {
-            @Override
-            public Boolean create() {
-                File file = getFile(key.getHashCode());
-                if (file.isFile()) {
-                    try {
-                        Closer closer = Closer.create();
-                        FileInputStream stream = closer.register(new FileInputStream(file));
-                        try {
-                            reader.readFrom(stream);
-                            return true;
-                        } finally {
-                            closer.close();
-                        }
-                    } catch (IOException ex) {
-                        throw new UncheckedIOException(ex);
-                    }
-                }
+    public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
+        // Entries are published by an atomic rename and never modified, so they can be read without locking
+        File file = getFile(key.getHashCode());
+        if (!file.isFile()) {
+            return false;
+        }
+        try {
+            Closer closer = Closer.create();
+            FileInputStream stream;
+            try {
+                stream = closer.register(new FileInputStream(file));
+            } catch (FileNotFoundException e) {
+                // Evicted in the meantime
                 return false;
             }
-        });
+            try {
+                reader.readFrom(stream);
+                markAccessed(file);
+                return true;
+            } finally {
+                closer.close();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
     }
 
     @Override
-    public void store(final BuildCacheKey key, final BuildCacheEntryWriter result) throws BuildCacheException {
-        persistentCache.useCache(new Runnable() {
-            @Override
-            public void run() {
-                File file = getFile(key.getHashCode());
+    public void store(BuildCacheKey key, BuildCacheEntryWriter result) throws BuildCacheException {
+        String hashCode = key.getHashCode();
+        File file = getFile(hashCode);
+        if (file.isFile()) {
+            LOGGER.debug("Not storing cache entry {} as it already exists.", hashCode);
+            return;
+        }
+        if (!storesInProgress.add(hashCode)) {
+            LOGGER.debug("Not storing cache entry {} as it is being stored concurrently.", hashCode);
+            return;
+        }
+        try {
+            File tempFile = File.createTempFile(hashCode + "-", TEMP_FILE_SUFFIX, persistentCache.getBaseDir());
+            try {
+                Closer closer = Closer.create();
+                OutputStream output = closer.register(new FileOutputStream(tempFile));
                 try {
-                    Closer closer = Closer.create();
-                    OutputStream output = closer.register(new FileOutputStream(file));
-                    try {
-                        result.writeTo(output);
-                    } finally {
-                        closer.close();
-                    }
-                } catch (IOException ex) {
-                    throw new UncheckedIOException(ex);
+                    result.writeTo(output);
+                } finally {
+                    closer.close();
+                }
+                // Fails when the entry has been stored by another process in the meantime on platforms that do not replace existing files
+                if (!tempFile.renameTo(file) && !file.isFile()) {
+                    throw new IOException(String.format("Could not move temporary file %s to %s.", tempFile, file));
+                }
+            } finally {
+                if (tempFile.exists() && !tempFile.delete()) {
+                    LOGGER.debug("Could not delete temporary file {}.", tempFile);
                 }
             }
-        });
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            storesInProgress.remove(hashCode);
+        }
+    }
+
+    private static void markAccessed(File file) {
+        long now = System.currentTimeMillis();
+        if (now - file.lastModified() > ACCESS_TIME_RESOLUTION) {
+            // The entry may have been evicted in the meantime, in which case this does nothing
+            file.setLastModified(now);
+        }
     }
 
     private File getFile(String key) {
@@ -131,6 +192,8 @@ public class LocalDirectoryBuildCache implements BuildCache {
 
     @Override
     public void close() throws IOException {
+        cleaner.stop();
+        cleanupExecutor.stop();
         persistentCache.close();
     }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.UncheckedIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evicts entries from a local directory build cache, first those that have not been accessed for longer than the maximum age,
+ * then the least recently used ones until the cache is below its target size. The last modification time of an entry is used
+ * as its last access time.
+ *
+ * <p>Several processes may share the cache directory. The cleanup is guarded by a non-blocking lock on a file in the cache directory,
+ * which also records when the cache was last cleaned up, so that at most one process cleans up the directory at a time. Entries are
+ * not locked, so an entry that cannot be deleted or that disappears while cleaning up is skipped.</p>
+ */
+class LocalDirectoryBuildCacheCleaner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalDirectoryBuildCacheCleaner.class);
+    static final String GC_FILE_NAME = "gc.lock";
+    private static final long STALE_TEMP_FILE_AGE = TimeUnit.HOURS.toMillis(1);
+
+    private final File baseDir;
+    private final long targetSizeInBytes;
+    private final long maxAgeInMillis;
+    private final long cleanupIntervalInMillis;
+    private volatile boolean stopped;
+
+    LocalDirectoryBuildCacheCleaner(File baseDir, long targetSizeInBytes, long maxAgeInMillis, long cleanupIntervalInMillis) {
+        this.baseDir = baseDir;
+        this.targetSizeInBytes = targetSizeInBytes;
+        this.maxAgeInMillis = maxAgeInMillis;
+        this.cleanupIntervalInMillis = cleanupIntervalInMillis;
+    }
+
+    /**
+     * Cleans up the cache directory, unless another process is cleaning it up or it has been cleaned up within the cleanup interval.
+     *
+     * @return the evicted entries, or null when the cleanup was skipped.
+     */
+    @Nullable
+    public Result cleanup() {
+        try {
+            RandomAccessFile gcFile = new RandomAccessFile(new File(baseDir, GC_FILE_NAME), "rw");
+            try {
+                FileLock lock = tryLock(gcFile);
+                if (lock == null) {
+                    LOGGER.debug("Not cleaning up {} as it is being cleaned up by another process.", baseDir);
+                    return null;
+                }
+                try {
+                    long now = System.currentTimeMillis();
+                    long lastCleanup = gcFile.length() < 8 ? 0 : gcFile.readLong();
+                    if (now - lastCleanup < cleanupIntervalInMillis) {
+                        return null;
+                    }
+                    Result result = evictEntries(now);
+                    gcFile.seek(0);
+                    gcFile.writeLong(now);
+                    return result;
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                gcFile.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not clean up build cache directory %s.", baseDir), e);
+        }
+    }
+
+    /**
+     * Requests a cleanup in progress to stop as soon as possible.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    @Nullable
+    private static FileLock tryLock(RandomAccessFile gcFile) throws IOException {
+        try {
+            return gcFile.getChannel().tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another cache instance in this process
+            return null;
+        }
+    }
+
+    private Result evictEntries(long now) {
+        File[] files = baseDir.listFiles();
+        if (files == null) {
+            return new Result(0, 0);
+        }
+        List<CacheEntry> entries = new ArrayList<CacheEntry>(files.length);
+        long totalSize = 0;
+        for (File file : files) {
+            if (isStaleTempFile(file, now)) {
+                // Left behind by a store that did not complete, e.g. because the process was killed
+                file.delete();
+                continue;
+            }
+            if (!isCacheEntry(file)) {
+                continue;
+            }
+            CacheEntry entry = new CacheEntry(file, file.length(), file.lastModified());
+            if (entry.lastAccessed == 0) {
+                // Removed in the meantime
+                continue;
+            }
+            entries.add(entry);
+            totalSize += entry.size;
+        }
+        Collections.sort(entries, new Comparator<CacheEntry>() {
+            @Override
+            public int compare(CacheEntry o1, CacheEntry o2) {
+                return o1.lastAccessed < o2.lastAccessed ? -1 : o1.lastAccessed > o2.lastAccessed ? 1 : 0;
+            }
+        });
+
+        long expiredBefore = now - maxAgeInMillis;
+        int evictedEntries = 0;
+        long evictedBytes = 0;
+        for (CacheEntry entry : entries) {
+            if (stopped) {
+                break;
+            }
+            if (entry.lastAccessed >= expiredBefore && totalSize <= targetSizeInBytes) {
+                // All remaining entries have been accessed more recently
+                break;
+            }
+            if (entry.file.lastModified() != entry.lastAccessed) {
+                // Accessed or removed since the directory was listed
+                continue;
+            }
+            if (entry.file.delete()) {
+                evictedEntries++;
+                evictedBytes += entry.size;
+                totalSize -= entry.size;
+            }
+        }
+        Result result = new Result(evictedEntries, evictedBytes);
+        LOGGER.info("Evicted {} entries ({} bytes) from build cache directory {}, {} bytes remaining.", evictedEntries, evictedBytes, baseDir, totalSize);
+        return result;
+    }
+
+    private static boolean isStaleTempFile(File file, long now) {
+        return file.getName().endsWith(LocalDirectoryBuildCache.TEMP_FILE_SUFFIX) && now - file.lastModified() > STALE_TEMP_FILE_AGE;
+    }
+
+    private static boolean isCacheEntry(File file) {
+        // Entries are named after the hash of their key, all other files have an extension
+        return file.getName().indexOf('.') < 0 && file.isFile();
+    }
+
+    private static class CacheEntry {
+        private final File file;
+        private final long size;
+        private final long lastAccessed;
+
+        CacheEntry(File file, long size, long lastAccessed) {
+            this.file = file;
+            this.size = size;
+            this.lastAccessed = lastAccessed;
+        }
+    }
+
+    public static class Result {
+        private final int evictedEntries;
+        private final long evictedBytes;
+
+        Result(int evictedEntries, long evictedBytes) {
+            this.evictedEntries = evictedEntries;
+            this.evictedBytes = evictedBytes;
+        }
+
+        public int getEvictedEntries() {
+            return evictedEntries;
+        }
+
+        public long getEvictedBytes() {
+            return evictedBytes;
+        }
+    }
+}
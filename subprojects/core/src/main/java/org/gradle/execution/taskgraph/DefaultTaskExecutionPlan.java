@@ -57,11 +57,14 @@ import java.util.concurrent.locks.ReentrantLock;
 public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     public static final String INTRA_PROJECT_TOGGLE = "org.gradle.parallel.intra";
+    public static final String READY_QUEUE_TOGGLE = "org.gradle.parallel.readyqueue";
+    public static final String CRITICAL_PATH_TOGGLE = "org.gradle.parallel.criticalpath";
 
     private final static Logger LOGGER = Logging.getLogger(DefaultTaskExecutionPlan.class);
 
     private final Lock lock = new ReentrantLock();
     private final Condition condition = lock.newCondition();
+    private final Condition taskReady = lock.newCondition();
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
@@ -78,16 +81,26 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Map<Task, Set<String>> canonicalizedOutputCache = Maps.newIdentityHashMap();
     private final Map<Task, Boolean> isParallelSafeCache = Maps.newIdentityHashMap();
     private boolean tasksCancelled;
+    private ReadyTaskQueue readyQueue;
 
     private final boolean intraProjectParallelization;
+    private final boolean readyQueueScheduling;
 
-    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization, boolean readyQueueScheduling) {
         this.cancellationToken = cancellationToken;
         this.intraProjectParallelization = intraProjectParallelization;
+        this.readyQueueScheduling = readyQueueScheduling;
 
         if (intraProjectParallelization) {
             LOGGER.info("intra project task parallelization is enabled");
         }
+        if (readyQueueScheduling) {
+            LOGGER.info("ready queue task scheduling is enabled");
+        }
+    }
+
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+        this(cancellationToken, intraProjectParallelization, Boolean.getBoolean(READY_QUEUE_TOGGLE) || Boolean.getBoolean(CRITICAL_PATH_TOGGLE));
     }
 
     public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken) {
@@ -309,6 +322,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         executionQueue.clear();
         executionQueue.addAll(executionPlan.values());
+        if (readyQueueScheduling) {
+            readyQueue = new ReadyTaskQueue(executionPlan.values());
+        }
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Stack<GraphEdge> walkedShouldRunAfterEdges, TaskInfo taskNode) {
@@ -452,6 +468,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             entryTasks.clear();
             executionPlan.clear();
             executionQueue.clear();
+            readyQueue = null;
             failures.clear();
             projectsWithRunningTasks.clear();
             projectsWithRunningNonParallelizableTasks.clear();
@@ -467,6 +484,39 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         return new ArrayList<Task>(executionPlan.keySet());
     }
 
+    /**
+     * Starts the tasks with the longest chain of tasks depending on them first, estimating the duration of each task from its previous execution.
+     * Only has an effect when ready queue scheduling is enabled, and must be called after {@link #determineExecutionPlan()}.
+     */
+    public void prioritiseByCriticalPath(TaskDurationHistory taskDurationHistory) {
+        lock.lock();
+        try {
+            if (readyQueue == null) {
+                return;
+            }
+            Map<TaskInfo, Long> estimatedDurations = Maps.newHashMap();
+            List<TaskInfo> tasksWithoutHistory = Lists.newArrayList();
+            long totalDuration = 0;
+            for (TaskInfo taskInfo : executionPlan.values()) {
+                Long duration = taskDurationHistory.getPreviousDuration(taskInfo.getTask());
+                if (duration == null) {
+                    tasksWithoutHistory.add(taskInfo);
+                } else {
+                    estimatedDurations.put(taskInfo, duration);
+                    totalDuration += duration;
+                }
+            }
+            // Assume that a task that has not been executed before takes as long as an average task
+            long averageDuration = estimatedDurations.isEmpty() ? 1 : totalDuration / estimatedDurations.size();
+            for (TaskInfo taskInfo : tasksWithoutHistory) {
+                estimatedDurations.put(taskInfo, averageDuration);
+            }
+            readyQueue.prioritiseByCriticalPath(estimatedDurations);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public void useFilter(Spec<? super Task> filter) {
         this.filter = filter;
     }
@@ -478,6 +528,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     public TaskInfo getTaskToExecute() {
         lock.lock();
         try {
+            if (readyQueue != null) {
+                return takeReadyTask();
+            }
             while (true) {
                 if (cancellationToken.isCancellationRequested()) {
                     if (abortExecution()) {
@@ -521,28 +574,93 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
+    private TaskInfo takeReadyTask() {
+        while (true) {
+            if (cancellationToken.isCancellationRequested()) {
+                if (abortExecution()) {
+                    tasksCancelled = true;
+                }
+            }
+            TaskInfo nextMatching = pollRunnableTask();
+            if (nextMatching == null) {
+                if (runningTasks.isEmpty()) {
+                    // Nothing is running and nothing is ready, so all tasks are complete
+                    taskReady.signalAll();
+                    condition.signalAll();
+                    return null;
+                }
+                try {
+                    taskReady.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            } else {
+                if (nextMatching.allDependenciesSuccessful()) {
+                    nextMatching.startExecution();
+                    recordTaskStarted(nextMatching);
+                    return nextMatching;
+                } else {
+                    nextMatching.skipExecution();
+                    releaseDependents(nextMatching);
+                }
+            }
+        }
+    }
+
+    private TaskInfo pollRunnableTask() {
+        TaskInfo candidate;
+        while ((candidate = readyQueue.poll()) != null) {
+            String blockingProjectPath = findBlockingProject(candidate);
+            if (blockingProjectPath == null) {
+                return candidate;
+            }
+            readyQueue.park(candidate, blockingProjectPath);
+        }
+        return null;
+    }
+
+    private void releaseDependents(TaskInfo taskInfo) {
+        if (readyQueue != null) {
+            signalReadyTasks(readyQueue.taskCompleted(taskInfo));
+        }
+    }
+
+    private void signalReadyTasks(int count) {
+        for (int i = 0; i < count; i++) {
+            taskReady.signal();
+        }
+    }
+
     private boolean canRunWithWithCurrentlyExecutedTasks(TaskInfo taskInfo) {
+        return findBlockingProject(taskInfo) == null;
+    }
+
+    /**
+     * Returns the path of the project whose running tasks prevent the given task from starting, or null if the task can start.
+     */
+    @Nullable
+    private String findBlockingProject(TaskInfo taskInfo) {
         TaskInternal task = taskInfo.getTask();
         String projectPath = task.getProject().getPath();
 
         if (isParallelizable(task)) {
             if (projectsWithRunningNonParallelizableTasks.contains(projectPath)) {
-                return false;
+                return projectPath;
             }
         } else {
             if (projectsWithRunningTasks.contains(projectPath)) {
-                return false;
+                return projectPath;
             }
         }
 
         Pair<TaskInternal, String> overlap = firstTaskWithOverlappingOutput(task);
         if (overlap == null) {
-            return true;
+            return null;
         } else {
             LOGGER.info("Cannot execute task {} in parallel with task {} due to overlapping output: {}", task.getPath(), overlap.left.getPath(), overlap.right);
         }
 
-        return false;
+        return overlap.left.getProject().getPath();
     }
 
     private Set<String> canonicalizedOutputPaths(TaskInternal task) {
@@ -649,6 +767,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         canonicalizedOutputCache.remove(task);
         isParallelSafeCache.remove(task);
         runningTasks.remove(task);
+        if (readyQueue != null) {
+            signalReadyTasks(readyQueue.release(projectPath));
+        }
     }
 
     public void taskComplete(TaskInfo taskInfo) {
@@ -660,7 +781,12 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             }
 
             taskInfo.finishExecution();
+            releaseDependents(taskInfo);
             recordTaskCompleted(taskInfo);
+            if (readyQueue != null && runningTasks.isEmpty()) {
+                // Let idle workers check whether there is anything left to do
+                taskReady.signalAll();
+            }
             condition.signalAll();
         } finally {
             lock.unlock();
@@ -687,7 +813,11 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 candidateNodes.addAll(node.getDependencySuccessors());
 
                 if (node.isMustNotRun() || node.isRequired()) {
+                    boolean wasComplete = node.isComplete();
                     node.enforceRun();
+                    if (readyQueue != null) {
+                        signalReadyTasks(readyQueue.taskEnforced(node, wasComplete));
+                    }
                 }
             }
         }
@@ -719,6 +849,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         for (TaskInfo taskInfo : executionPlan.values()) {
             if (taskInfo.isRequired()) {
                 taskInfo.skipExecution();
+                releaseDependents(taskInfo);
                 aborted = true;
             }
         }
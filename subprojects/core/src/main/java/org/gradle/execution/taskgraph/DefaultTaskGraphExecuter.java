@@ -18,6 +18,7 @@ package org.gradle.execution.taskgraph;
 
 import groovy.lang.Closure;
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.Task;
 import org.gradle.api.execution.TaskExecutionAdapter;
 import org.gradle.api.execution.TaskExecutionGraph;
@@ -68,12 +69,16 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private final InternalTaskExecutionListener internalTaskListener;
     private final DefaultTaskExecutionPlan taskExecutionPlan;
     private final BuildOperationExecutor buildOperationExecutor;
+    // Lazy for the same reason as the task executer
+    private final Factory<? extends TaskDurationHistory> taskDurationHistory;
+    private final boolean criticalPathScheduling = Boolean.getBoolean(DefaultTaskExecutionPlan.CRITICAL_PATH_TOGGLE);
     private TaskGraphState taskGraphState = TaskGraphState.EMPTY;
 
-    public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, BuildCancellationToken cancellationToken, BuildOperationExecutor buildOperationExecutor) {
+    public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, BuildCancellationToken cancellationToken, BuildOperationExecutor buildOperationExecutor, Factory<? extends TaskDurationHistory> taskDurationHistory) {
         this.taskPlanExecutor = taskPlanExecutor;
         this.taskExecuter = taskExecuter;
         this.buildOperationExecutor = buildOperationExecutor;
+        this.taskDurationHistory = taskDurationHistory;
         graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class);
         taskListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class);
         internalTaskListener = listenerManager.getBroadcaster(InternalTaskExecutionListener.class);
@@ -108,9 +113,15 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         Timer clock = Timers.startTimer();
         ensurePopulated();
 
+        TaskDurationHistory durationHistory = null;
+        if (criticalPathScheduling) {
+            durationHistory = taskDurationHistory.create();
+            taskExecutionPlan.prioritiseByCriticalPath(durationHistory);
+        }
+
         graphListeners.getSource().graphPopulated(this);
         try {
-            taskPlanExecutor.process(taskExecutionPlan, new EventFiringTaskWorker(taskExecuter.create(), buildOperationExecutor.getCurrentOperation()));
+            taskPlanExecutor.process(taskExecutionPlan, new EventFiringTaskWorker(taskExecuter.create(), buildOperationExecutor.getCurrentOperation(), durationHistory));
             LOGGER.debug("Timing: Executing the DAG took " + clock.getElapsed());
         } finally {
             taskExecutionPlan.clear();
@@ -215,10 +226,12 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private class EventFiringTaskWorker implements Action<TaskInternal> {
         private final TaskExecuter taskExecuter;
         private final BuildOperationExecutor.Operation parentOperation;
+        private final TaskDurationHistory durationHistory;
 
-        EventFiringTaskWorker(TaskExecuter taskExecuter, BuildOperationExecutor.Operation parentOperation) {
+        EventFiringTaskWorker(TaskExecuter taskExecuter, BuildOperationExecutor.Operation parentOperation, @Nullable TaskDurationHistory durationHistory) {
             this.taskExecuter = taskExecuter;
             this.parentOperation = parentOperation;
+            this.durationHistory = durationHistory;
         }
 
         @Override
@@ -233,7 +246,11 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
                     internalTaskListener.beforeExecute(legacyOperation, new OperationStartEvent(0));
                     TaskStateInternal state = task.getState();
                     taskListeners.getSource().beforeExecute(task);
+                    Timer timer = Timers.startTimer();
                     taskExecuter.execute(task, state, new DefaultTaskExecutionContext());
+                    if (durationHistory != null && state.getExecuted() && !state.getSkipped()) {
+                        durationHistory.recordDuration(task, timer.getElapsedMillis());
+                    }
                     taskListeners.getSource().afterExecute(task, state);
                     buildOperationContext.failed(state.getFailure());
                     internalTaskListener.afterExecute(legacyOperation, new OperationResult(0, 0, state.getFailure()));
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import org.gradle.api.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Keeps track of the tasks of an execution plan that are ready to execute, so that the next task can be selected without scanning the whole plan.
+ *
+ * <p>Every task in the plan has a counter of its dependencies (both hard dependencies and must run after ordering) that are not complete yet.
+ * A task is added to the ready set when its counter drops to zero and it is required to run. Ready tasks are handed out in plan order,
+ * unless the queue has been asked to prioritise them by critical path.</p>
+ *
+ * <p>Ready tasks that cannot start because of tasks that are currently running are parked against the path of the project that blocks them,
+ * and become ready again when a task of that project completes.</p>
+ *
+ * <p>This class is not thread-safe, callers must synchronize access.</p>
+ */
+class ReadyTaskQueue {
+    private final Map<TaskInfo, Entry> entries = Maps.newHashMap();
+    private final List<Entry> entriesInPlanOrder = new ArrayList<Entry>();
+    private final TreeSet<Entry> readyTasks = new TreeSet<Entry>();
+    private final ListMultimap<String, Entry> parkedTasks = ArrayListMultimap.create();
+
+    ReadyTaskQueue(Collection<TaskInfo> executionPlan) {
+        int index = 0;
+        for (TaskInfo taskInfo : executionPlan) {
+            Entry entry = new Entry(taskInfo, index++);
+            entries.put(taskInfo, entry);
+            entriesInPlanOrder.add(entry);
+        }
+        for (Entry entry : entriesInPlanOrder) {
+            for (TaskInfo dependency : Iterables.concat(entry.taskInfo.getMustSuccessors(), entry.taskInfo.getDependencySuccessors())) {
+                Entry dependencyEntry = entries.get(dependency);
+                if (dependencyEntry == null) {
+                    // Not part of the plan, so never executed
+                    continue;
+                }
+                dependencyEntry.dependents.add(entry);
+                if (!dependency.isComplete()) {
+                    entry.incompleteDependencies++;
+                }
+            }
+        }
+        for (Entry entry : entriesInPlanOrder) {
+            maybeReady(entry);
+        }
+    }
+
+    /**
+     * Hands out ready tasks by the estimated duration of the longest chain of tasks that starts with them, longest first, so that long chains are
+     * not started late. Tasks with the same estimate are handed out in plan order.
+     *
+     * @param estimatedDurations the estimated duration of each task that is required to run. Tasks without an estimate are treated as taking no time.
+     */
+    public void prioritiseByCriticalPath(Map<TaskInfo, Long> estimatedDurations) {
+        // The plan is topologically sorted, so every dependent is visited before the tasks it depends on
+        for (int i = entriesInPlanOrder.size() - 1; i >= 0; i--) {
+            Entry entry = entriesInPlanOrder.get(i);
+            long longestDependentPath = 0;
+            for (Entry dependent : entry.dependents) {
+                longestDependentPath = Math.max(longestDependentPath, dependent.criticalPath);
+            }
+            Long duration = estimatedDurations.get(entry.taskInfo);
+            entry.criticalPath = longestDependentPath + (duration == null ? 0 : duration);
+        }
+        List<Entry> ready = new ArrayList<Entry>(readyTasks);
+        readyTasks.clear();
+        readyTasks.addAll(ready);
+    }
+
+    /**
+     * Takes the first ready task in plan order, or returns null when no task is ready.
+     */
+    @Nullable
+    public TaskInfo poll() {
+        while (!readyTasks.isEmpty()) {
+            Entry entry = readyTasks.pollFirst();
+            // The state of a task may have changed since it was added, e.g. because execution was aborted
+            if (entry.isReady()) {
+                return entry.taskInfo;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Notifies this queue that the given task has reached a complete state.
+     *
+     * @return the number of tasks that became ready as a result.
+     */
+    public int taskCompleted(TaskInfo taskInfo) {
+        Entry entry = entries.get(taskInfo);
+        if (entry == null) {
+            return 0;
+        }
+        int ready = 0;
+        for (Entry dependent : entry.dependents) {
+            dependent.incompleteDependencies--;
+            if (maybeReady(dependent)) {
+                ready++;
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * Notifies this queue that the given task has been enforced to run, for example because it finalizes a task that has executed.
+     *
+     * @param wasComplete whether the task was in a complete state before it was enforced.
+     * @return the number of tasks that became ready as a result.
+     */
+    public int taskEnforced(TaskInfo taskInfo, boolean wasComplete) {
+        Entry entry = entries.get(taskInfo);
+        if (entry == null) {
+            return 0;
+        }
+        if (wasComplete) {
+            for (Entry dependent : entry.dependents) {
+                dependent.incompleteDependencies++;
+            }
+        }
+        return maybeReady(entry) ? 1 : 0;
+    }
+
+    /**
+     * Parks a ready task that cannot start until a task of the given project completes.
+     */
+    public void park(TaskInfo taskInfo, String blockingProjectPath) {
+        parkedTasks.put(blockingProjectPath, entries.get(taskInfo));
+    }
+
+    /**
+     * Releases the tasks parked against the given project.
+     *
+     * @return the number of tasks that became ready as a result.
+     */
+    public int release(String projectPath) {
+        if (!parkedTasks.containsKey(projectPath)) {
+            return 0;
+        }
+        int ready = 0;
+        for (Entry entry : parkedTasks.removeAll(projectPath)) {
+            if (maybeReady(entry)) {
+                ready++;
+            }
+        }
+        return ready;
+    }
+
+    private boolean maybeReady(Entry entry) {
+        if (entry.isReady()) {
+            readyTasks.add(entry);
+            return true;
+        }
+        return false;
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private final TaskInfo taskInfo;
+        private final int index;
+        private final List<Entry> dependents = new ArrayList<Entry>();
+        private int incompleteDependencies;
+        private long criticalPath;
+
+        Entry(TaskInfo taskInfo, int index) {
+            this.taskInfo = taskInfo;
+            this.index = index;
+        }
+
+        boolean isReady() {
+            return incompleteDependencies == 0 && taskInfo.isReady();
+        }
+
+        public int compareTo(Entry other) {
+            if (criticalPath != other.criticalPath) {
+                return criticalPath > other.criticalPath ? -1 : 1;
+            }
+            return index - other.index;
+        }
+    }
+}
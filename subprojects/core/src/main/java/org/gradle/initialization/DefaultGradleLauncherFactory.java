@@ -17,10 +17,14 @@
 package org.gradle.initialization;
 
 import com.google.common.collect.ImmutableList;
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
 import org.gradle.StartParameter;
 import org.gradle.api.internal.ExceptionAnalyser;
 import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.changedetection.state.DefaultFileSystemMirror;
 import org.gradle.api.internal.changedetection.state.GlobalScopeFileTimeStampInspector;
+import org.gradle.api.invocation.Gradle;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.logging.StandardOutputListener;
 import org.gradle.api.logging.configuration.ShowStacktrace;
@@ -112,6 +116,19 @@ public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
         GlobalScopeFileTimeStampInspector timeStampInspector = sessionScopeServices.get(GlobalScopeFileTimeStampInspector.class);
         launcher.addListener(timeStampInspector);
 
+        final DefaultFileSystemMirror fileSystemMirror = sessionScopeServices.get(DefaultFileSystemMirror.class);
+        launcher.addListener(new BuildAdapter() {
+            @Override
+            public void buildStarted(Gradle gradle) {
+                fileSystemMirror.beforeBuild();
+            }
+
+            @Override
+            public void buildFinished(BuildResult result) {
+                fileSystemMirror.afterBuild();
+            }
+        });
+
         return launcher;
     }
 
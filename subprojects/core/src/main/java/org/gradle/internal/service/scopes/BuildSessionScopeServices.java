@@ -116,8 +116,8 @@ public class BuildSessionScopeServices extends DefaultServiceRegistry {
         return new WorkerProcessClassPathProvider(cacheRepository);
     }
 
-    BuildCacheConfigurationInternal createBuildCacheConfiguration(CacheRepository cacheRepository, StartParameter startParameter) {
-        return new DefaultBuildCacheConfiguration(cacheRepository, startParameter);
+    BuildCacheConfigurationInternal createBuildCacheConfiguration(CacheRepository cacheRepository, ExecutorFactory executorFactory, StartParameter startParameter) {
+        return new DefaultBuildCacheConfiguration(cacheRepository, executorFactory, startParameter);
     }
 
     GeneratedGradleJarCache createGeneratedGradleJarCache(CacheRepository cacheRepository) {
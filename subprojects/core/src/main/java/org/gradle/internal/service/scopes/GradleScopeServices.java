@@ -53,6 +53,7 @@ import org.gradle.execution.TaskSelector;
 import org.gradle.execution.commandline.CommandLineTaskConfigurer;
 import org.gradle.execution.commandline.CommandLineTaskParser;
 import org.gradle.execution.taskgraph.DefaultTaskGraphExecuter;
+import org.gradle.execution.taskgraph.TaskDurationHistory;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
 import org.gradle.initialization.BuildCancellationToken;
 import org.gradle.internal.Factory;
@@ -144,7 +145,13 @@ public class GradleScopeServices extends DefaultServiceRegistry {
                 return get(TaskExecuter.class);
             }
         };
-        return new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, taskExecuterFactory, cancellationToken, buildOperationExecutor);
+        Factory<TaskDurationHistory> taskDurationHistoryFactory = new Factory<TaskDurationHistory>() {
+            @Override
+            public TaskDurationHistory create() {
+                return get(TaskDurationHistory.class);
+            }
+        };
+        return new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, taskExecuterFactory, cancellationToken, buildOperationExecutor, taskDurationHistoryFactory);
     }
 
     ServiceRegistryFactory createServiceRegistryFactory(final ServiceRegistry services) {
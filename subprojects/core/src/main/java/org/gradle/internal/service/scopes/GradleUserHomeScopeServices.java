@@ -19,6 +19,7 @@ package org.gradle.internal.service.scopes;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.CachingFileHasher;
 import org.gradle.api.internal.changedetection.state.CrossBuildFileHashCache;
+import org.gradle.api.internal.changedetection.state.DefaultFileSystemMirror;
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
 import org.gradle.api.internal.changedetection.state.GlobalScopeFileTimeStampInspector;
 import org.gradle.api.internal.hash.DefaultFileHasher;
@@ -42,6 +43,7 @@ import org.gradle.internal.classpath.CachedClasspathTransformer;
 import org.gradle.internal.classpath.CachedJarFileStore;
 import org.gradle.internal.classpath.DefaultCachedClasspathTransformer;
 import org.gradle.internal.file.JarCache;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.ServiceRegistry;
 
@@ -76,6 +78,10 @@ public class GradleUserHomeScopeServices {
         return fileHasher;
     }
 
+    DefaultFileSystemMirror createFileSystemMirror(FileSystem fileSystem) {
+        return new DefaultFileSystemMirror(fileSystem);
+    }
+
     CrossBuildInMemoryCachingScriptClassCache createCachingScriptCompiler(FileHasher hasher) {
         return new CrossBuildInMemoryCachingScriptClassCache(hasher);
     }
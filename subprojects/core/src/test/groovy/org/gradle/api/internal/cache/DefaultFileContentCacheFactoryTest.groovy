@@ -17,6 +17,7 @@
 package org.gradle.api.internal.cache
 
 import com.google.common.hash.HashCode
+import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.changedetection.state.FileSystemMirror
 import org.gradle.api.internal.hash.FileHasher
 import org.gradle.api.internal.tasks.execution.TaskOutputsGenerationListener
@@ -125,7 +126,7 @@ class DefaultFileContentCacheFactoryTest extends Specification {
         0 * _
 
         when:
-        listenerManager.getBroadcaster(TaskOutputsGenerationListener).beforeTaskOutputsGenerated()
+        listenerManager.getBroadcaster(TaskOutputsGenerationListener).beforeTaskOutputsGenerated(Stub(TaskInternal))
         result = cache.get(file)
 
         then:
@@ -152,7 +153,7 @@ class DefaultFileContentCacheFactoryTest extends Specification {
         0 * _
 
         when:
-        listenerManager.getBroadcaster(TaskOutputsGenerationListener).beforeTaskOutputsGenerated()
+        listenerManager.getBroadcaster(TaskOutputsGenerationListener).beforeTaskOutputsGenerated(Stub(TaskInternal))
         result = cache.get(file)
 
         then:
@@ -180,7 +181,7 @@ class DefaultFileContentCacheFactoryTest extends Specification {
         0 * _
 
         when:
-        listenerManager.getBroadcaster(TaskOutputsGenerationListener).beforeTaskOutputsGenerated()
+        listenerManager.getBroadcaster(TaskOutputsGenerationListener).beforeTaskOutputsGenerated(Stub(TaskInternal))
         result = cache.get(file)
 
         then:
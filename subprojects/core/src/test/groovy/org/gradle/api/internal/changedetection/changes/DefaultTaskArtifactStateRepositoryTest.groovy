@@ -33,15 +33,18 @@ import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot
 import org.gradle.api.internal.changedetection.state.FileTimeStampInspector
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache
 import org.gradle.api.internal.changedetection.state.OutputFilesSnapshotter
+import org.gradle.api.internal.changedetection.state.ParallelFileHasher
 import org.gradle.api.internal.changedetection.state.TaskHistoryRepository
 import org.gradle.api.internal.changedetection.state.TaskHistoryStore
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.hash.DefaultFileHasher
+import org.gradle.api.internal.hash.HashAlgorithm
 import org.gradle.api.tasks.incremental.InputFileDetails
 import org.gradle.cache.CacheRepository
 import org.gradle.cache.internal.CacheScopeMapping
 import org.gradle.cache.internal.DefaultCacheRepository
 import org.gradle.internal.classloader.ConfigurableClassLoaderHierarchyHasher
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.id.RandomLongIdGenerator
 import org.gradle.internal.reflect.DirectInstantiator
 import org.gradle.internal.serialize.DefaultSerializerRegistry
@@ -83,8 +86,8 @@ public class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuild
         TaskHistoryStore cacheAccess = new DefaultTaskHistoryStore(gradle, cacheRepository, new InMemoryTaskArtifactCache(false))
         def stringInterner = new StringInterner()
         def snapshotter = new CachingFileHasher(new DefaultFileHasher(), cacheAccess, stringInterner, Stub(FileTimeStampInspector), "fileCaches")
-        fileSystemMirror = new DefaultFileSystemMirror()
-        fileCollectionSnapshotter = new DefaultGenericFileCollectionSnapshotter(snapshotter, stringInterner, TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), fileSystemMirror)
+        fileSystemMirror = new DefaultFileSystemMirror(TestFiles.fileSystem())
+        fileCollectionSnapshotter = new DefaultGenericFileCollectionSnapshotter(snapshotter, stringInterner, TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), fileSystemMirror, new ParallelFileHasher(new DefaultExecutorFactory(), 1))
         OutputFilesSnapshotter outputFilesSnapshotter = new OutputFilesSnapshotter()
         def classLoaderHierarchyHasher = Mock(ConfigurableClassLoaderHierarchyHasher) {
             getClassLoaderHash(_) >> HashCode.fromInt(123)
@@ -92,7 +95,7 @@ public class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuild
         SerializerRegistry serializerRegistry = new DefaultSerializerRegistry();
         fileCollectionSnapshotter.registerSerializers(serializerRegistry);
         TaskHistoryRepository taskHistoryRepository = new CacheBackedTaskHistoryRepository(cacheAccess, new CacheBackedFileSnapshotRepository(cacheAccess, serializerRegistry.build(FileCollectionSnapshot), new RandomLongIdGenerator()), stringInterner)
-        repository = new DefaultTaskArtifactStateRepository(taskHistoryRepository, DirectInstantiator.INSTANCE, outputFilesSnapshotter, new DefaultFileCollectionSnapshotterRegistry([fileCollectionSnapshotter]), TestFiles.fileCollectionFactory(), classLoaderHierarchyHasher)
+        repository = new DefaultTaskArtifactStateRepository(taskHistoryRepository, DirectInstantiator.INSTANCE, outputFilesSnapshotter, new DefaultFileCollectionSnapshotterRegistry([fileCollectionSnapshotter]), TestFiles.fileCollectionFactory(), classLoaderHierarchyHasher, HashAlgorithm.MD5)
     }
 
     def artifactsAreNotUpToDateWhenCacheIsEmpty() {
@@ -361,7 +364,7 @@ public class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuild
         when:
         TaskArtifactState state = repository.getStateFor(task1)
         state.isUpToDate([])
-        fileSystemMirror.beforeTaskOutputsGenerated()
+        fileSystemMirror.beforeBuild()
         outputDirFile.createFile()
         state.afterTask()
 
@@ -369,7 +372,7 @@ public class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuild
         !state.upToDate
 
         when:
-        fileSystemMirror.beforeTaskOutputsGenerated()
+        fileSystemMirror.beforeBuild()
         outputDir.deleteDir()
 
         and:
@@ -380,7 +383,7 @@ public class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuild
         !state.isUpToDate([])
 
         when:
-        fileSystemMirror.beforeTaskOutputsGenerated()
+        fileSystemMirror.beforeBuild()
         outputDirFile2.createFile()
         state.afterTask()
 
@@ -494,7 +497,7 @@ public class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuild
 
         when:
         task.execute()
-        fileSystemMirror.beforeTaskOutputsGenerated()
+        fileSystemMirror.beforeBuild()
         otherFile.write("new content")
         state.afterTask()
         otherFile.delete()
@@ -532,7 +535,7 @@ public class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuild
         upToDate noInputsTask
 
         when:
-        fileSystemMirror.beforeTaskOutputsGenerated()
+        fileSystemMirror.beforeBuild()
         outputDirFile.delete()
 
         then:
@@ -625,12 +628,12 @@ public class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuild
             TaskArtifactState state = repository.getStateFor(task)
             state.isUpToDate([])
             // reset state
-            fileSystemMirror.beforeTaskOutputsGenerated()
+            fileSystemMirror.beforeBuild()
             task.execute()
             state.afterTask()
         }
         // reset state
-        fileSystemMirror.beforeTaskOutputsGenerated()
+        fileSystemMirror.beforeBuild()
     }
 
     private static class ChangedFiles {
@@ -43,7 +43,7 @@ class CachingFileHasherTest extends Specification {
 
     def setup() {
         file.write("some-content")
-        1 * cacheAccess.createCache("fileHashes", _, _, _, _) >> cache
+        1 * cacheAccess.createFileHashCache("fileHashes", _, _) >> cache
         hasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes")
     }
 
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import com.google.common.hash.HashCode
+import com.google.common.hash.Hashing
+import org.gradle.api.internal.changedetection.state.CachingFileHasher.FileInfo
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+
+class CompactFileInfoCacheTest extends Specification {
+    def cache = new CompactFileInfoCache(1000)
+
+    def "stores and returns file info"() {
+        def hash = Hashing.md5().hashInt(42)
+
+        when:
+        cache.put("/some/file", new FileInfo(hash, 12, 34))
+        def info = cache.getIfPresent("/some/file")
+
+        then:
+        info.hash == hash
+        info.length == 12
+        info.timestamp == 34
+        cache.size() == 1
+        cache.getIfPresent("/some/other") == null
+    }
+
+    def "replaces file info for same path"() {
+        when:
+        cache.put("/some/file", fileInfo(1))
+        cache.put("/some/file", fileInfo(2))
+
+        then:
+        cache.getIfPresent("/some/file").hash == fileInfo(2).hash
+        cache.size() == 1
+    }
+
+    def "does not keep missing entries or hashes that are not 128 bits"() {
+        when:
+        cache.put("/some/file", fileInfo(1))
+        cache.put("/some/file", new Object())
+        cache.put("/other/file", new FileInfo(HashCode.fromInt(1), 1, 2))
+
+        then:
+        cache.getIfPresent("/some/file") == null
+        cache.getIfPresent("/other/file") == null
+        cache.size() == 0
+    }
+
+    def "loads and keeps missing entry"() {
+        def loader = Mock(Callable)
+
+        when:
+        def first = cache.get("/some/file", loader)
+        def second = cache.get("/some/file", loader)
+
+        then:
+        1 * loader.call() >> fileInfo(1)
+        first.hash == fileInfo(1).hash
+        second.hash == fileInfo(1).hash
+    }
+
+    def "keeps entries reachable when many entries are added and removed"() {
+        def paths = (0..<5000).collect { "/project/src/main/java/File${it}.java" as String }
+
+        when:
+        def cache = new CompactFileInfoCache(10000)
+        paths.each { cache.put(it, fileInfo(it.hashCode())) }
+        paths.eachWithIndex { path, i ->
+            if (i % 3 == 0) {
+                cache.invalidate(path)
+            }
+        }
+
+        then:
+        cache.size() == paths.size() - (int) Math.ceil(paths.size() / 3)
+        paths.eachWithIndex { path, i ->
+            def info = cache.getIfPresent(path)
+            if (i % 3 == 0) {
+                assert info == null
+            } else {
+                assert info.hash == fileInfo(path.hashCode()).hash
+            }
+        }
+    }
+
+    def "evicts entries not used since last eviction when full"() {
+        def cache = new CompactFileInfoCache(4)
+
+        when:
+        (1..5).each { cache.put("/file$it" as String, fileInfo(it)) }
+
+        then:
+        cache.size() == 3
+        cache.getIfPresent("/file5") != null
+
+        when:
+        cache.put("/file6", fileInfo(6))
+        cache.put("/file7", fileInfo(7))
+
+        then:
+        cache.size() == 3
+        (1..4).every { cache.getIfPresent("/file$it" as String) == null }
+        (5..7).every { cache.getIfPresent("/file$it" as String) != null }
+    }
+
+    def "discards everything when invalidated"() {
+        when:
+        cache.put("/some/file", fileInfo(1))
+        cache.invalidateAll()
+
+        then:
+        cache.size() == 0
+        cache.getIfPresent("/some/file") == null
+    }
+
+    private static FileInfo fileInfo(int value) {
+        return new FileInfo(Hashing.md5().hashInt(value), value, value)
+    }
+}
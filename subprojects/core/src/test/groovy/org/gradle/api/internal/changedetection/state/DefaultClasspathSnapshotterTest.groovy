@@ -25,6 +25,7 @@ import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory
 import org.gradle.api.internal.file.collections.SimpleFileCollection
 import org.gradle.api.internal.hash.FileHasher
 import org.gradle.api.tasks.util.PatternSet
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.test.fixtures.file.CleanupTestDirectory
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -49,7 +50,7 @@ class DefaultClasspathSnapshotterTest extends Specification {
     def fileSystem = TestFiles.fileSystem()
     def directoryFileTreeFactory = Mock(DirectoryFileTreeFactory)
     def fileSystemMirror = Mock(FileSystemMirror)
-    def snapshotter = new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror)
+    def snapshotter = new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, new ParallelFileHasher(new DefaultExecutorFactory(), 1))
 
     def "root elements are unsorted, non-root elements are sorted amongst themselves"() {
         given:
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import com.google.common.hash.HashCode
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.internal.nativeintegration.filesystem.DefaultFileMetadata
+import org.gradle.internal.nativeintegration.filesystem.FileSystem
+import org.gradle.internal.nativeintegration.filesystem.FileType
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class DefaultFileSystemMirrorTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def fileSystem = Stub(FileSystem) {
+        stat(_) >> { File file ->
+            file.isFile() ? DefaultFileMetadata.file(file.lastModified(), file.length()) : file.isDirectory() ? DefaultFileMetadata.directory() : DefaultFileMetadata.missing()
+        }
+    }
+    def mirror = new DefaultFileSystemMirror(fileSystem)
+    def past = System.currentTimeMillis() - 60000
+
+    def "invalidates only state under and containing the declared outputs of a task"() {
+        def sources = tree(tmpDir.createDir("src"), "A.java")
+        def outputs = tree(tmpDir.createDir("build/classes"), "A.class")
+        def build = tree(tmpDir.file("build"), "classes/A.class")
+        def sourceFile = file(tmpDir.file("src/A.java"))
+        def outputFile = file(tmpDir.file("build/classes/A.class"))
+        [sources, outputs, build].each { mirror.putDirectory(it) }
+        [sourceFile, outputFile].each { mirror.putFile(it) }
+
+        when:
+        mirror.beforeTaskOutputsGenerated(taskWithOutputs(tmpDir.file("build/classes")))
+
+        then:
+        mirror.getDirectoryTree(sources.path) == sources
+        mirror.getFile(sourceFile.path) == sourceFile
+        mirror.getDirectoryTree(outputs.path) == null
+        mirror.getDirectoryTree(build.path) == null
+        mirror.getFile(outputFile.path) == null
+    }
+
+    def "does not invalidate paths that only share a prefix with the outputs"() {
+        def sources = tree(tmpDir.createDir("build-src"), "A.java")
+        mirror.putDirectory(sources)
+
+        when:
+        mirror.beforeTaskOutputsGenerated(taskWithOutputs(tmpDir.file("build")))
+
+        then:
+        mirror.getDirectoryTree(sources.path) == sources
+    }
+
+    def "invalidates all state when task does not declare outputs"() {
+        def sources = tree(tmpDir.createDir("src"), "A.java")
+        mirror.putDirectory(sources)
+        def outputs = Stub(TaskOutputsInternal) {
+            hasDeclaredOutputs() >> false
+        }
+
+        when:
+        mirror.beforeTaskOutputsGenerated(Stub(TaskInternal) { getOutputs() >> outputs })
+
+        then:
+        mirror.getDirectoryTree(sources.path) == null
+    }
+
+    def "reuses unchanged directory tree in next build"() {
+        def sources = tree(tmpDir.createDir("src"), "A.java", "pkg/B.java")
+        def sourceFile = file(tmpDir.file("src/A.java"))
+        mirror.putDirectory(sources)
+        mirror.putFile(sourceFile)
+
+        when:
+        mirror.afterBuild()
+        mirror.beforeBuild()
+
+        then:
+        mirror.getDirectoryTree(sources.path) == sources
+        mirror.getFile(sourceFile.path) == null
+
+        when:
+        mirror.afterBuild()
+        mirror.beforeBuild()
+
+        then:
+        mirror.getDirectoryTree(sources.path) == sources
+    }
+
+    def "does not reuse directory tree in next build when #change"() {
+        def sources = tree(tmpDir.createDir("src"), "A.java", "pkg/B.java")
+        mirror.putDirectory(sources)
+
+        when:
+        mirror.afterBuild()
+        mirror.beforeBuild()
+        action.call(tmpDir.file("src"))
+
+        then:
+        mirror.getDirectoryTree(sources.path) == null
+
+        where:
+        change                  | action
+        "a file is modified"    | { File dir -> def file = new File(dir, "pkg/B.java"); file.text = "changed"; file.lastModified = System.currentTimeMillis() - 30000 }
+        "a file is added"       | { File dir -> new File(dir, "pkg/C.java").text = "new" }
+        "a file is removed"     | { File dir -> new File(dir, "A.java").delete() }
+        "the directory is gone" | { File dir -> dir.deleteDir() }
+    }
+
+    def "does not keep directory tree with recent timestamps for next build"() {
+        def sources = tree(tmpDir.createDir("src"), "A.java")
+        tmpDir.file("src/A.java").lastModified = System.currentTimeMillis()
+        mirror.putDirectory(sources)
+
+        when:
+        mirror.afterBuild()
+        mirror.beforeBuild()
+
+        then:
+        mirror.getDirectoryTree(sources.path) == null
+    }
+
+    def "does not keep directory tree for next build when file changed after it was hashed"() {
+        def sources = tree(tmpDir.createDir("src"), "A.java")
+        tmpDir.file("src/A.java").lastModified = past - 10000
+        mirror.putDirectory(sources)
+
+        when:
+        mirror.afterBuild()
+        mirror.beforeBuild()
+
+        then:
+        mirror.getDirectoryTree(sources.path) == null
+    }
+
+    def "does not keep directory tree with timestamps after the start of the build for next build"() {
+        def sources = tree(tmpDir.createDir("src"), "A.java")
+        mirror.beforeBuild()
+        tmpDir.file("src/B.java").text = "added during build"
+        tmpDir.file("src").lastModified = System.currentTimeMillis() + 5000
+        mirror.putDirectory(sources)
+
+        when:
+        mirror.afterBuild()
+        mirror.beforeBuild()
+
+        then:
+        mirror.getDirectoryTree(sources.path) == null
+    }
+
+    private DirectoryTreeDetails tree(File dir, String... paths) {
+        def elements = []
+        def dirs = [] as Set
+        paths.each { path ->
+            def segments = path.split("/")
+            for (int i = 1; i < segments.length; i++) {
+                def dirPath = segments[0..<i].join("/")
+                if (dirs.add(dirPath)) {
+                    def subDir = new File(dir, dirPath)
+                    subDir.mkdirs()
+                    elements << new DefaultFileDetails(subDir.absolutePath, RelativePath.parse(false, dirPath), FileType.Directory, false, DirSnapshot.getInstance())
+                }
+            }
+            def file = new File(dir, path)
+            file.text = path
+            file.lastModified = past
+            elements << new DefaultFileDetails(file.absolutePath, RelativePath.parse(true, path), FileType.RegularFile, false, new FileHashSnapshot(HashCode.fromInt(path.hashCode()), past))
+        }
+        dirs.each { new File(dir, it).lastModified = past }
+        dir.lastModified = past
+        return new DirectoryTreeDetails(dir.absolutePath, elements)
+    }
+
+    private static FileDetails file(File file) {
+        return new DefaultFileDetails(file.absolutePath, RelativePath.parse(true, file.name), FileType.RegularFile, true, new FileHashSnapshot(HashCode.fromInt(1)))
+    }
+
+    private TaskInternal taskWithOutputs(File... outputs) {
+        def taskOutputs = Stub(TaskOutputsInternal) {
+            hasDeclaredOutputs() >> true
+            getFiles() >> new SimpleFileCollection(outputs)
+        }
+        return Stub(TaskInternal) {
+            getOutputs() >> taskOutputs
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package org.gradle.api.internal.changedetection.state
 
 import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.hash.HashAlgorithm
 import org.gradle.cache.CacheBuilder
 import org.gradle.cache.CacheRepository
 import org.gradle.cache.PersistentCache
@@ -41,4 +42,18 @@ class DefaultTaskHistoryStoreTest extends Specification {
         1 * cacheBuilder.open() >> backingCache
         0 * _._
     }
+
+    def "uses separate backing cache for other hash algorithms"() {
+        CacheBuilder cacheBuilder = Mock()
+
+        when:
+        new DefaultTaskHistoryStore(gradle, cacheRepository, new InMemoryTaskArtifactCache(false), HashAlgorithm.MURMUR3_128)
+
+        then:
+        1 * cacheRepository.cache(gradle, "taskHistory-murmur3-128") >> cacheBuilder
+        1 * cacheBuilder.withDisplayName(_) >> cacheBuilder
+        1 * cacheBuilder.withLockOptions(_) >> cacheBuilder
+        1 * cacheBuilder.open() >> Mock(PersistentCache)
+        0 * _._
+    }
 }
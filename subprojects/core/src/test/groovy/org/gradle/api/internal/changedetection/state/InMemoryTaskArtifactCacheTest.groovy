@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import com.google.common.hash.Hashing
 import org.gradle.cache.internal.AsyncCacheAccess
 import org.gradle.cache.internal.CrossProcessCacheAccess
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache
@@ -90,7 +91,7 @@ class InMemoryTaskArtifactCacheTest extends Specification {
 
         and:
         1 * crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
-        1 * asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+        0 * asyncCacheAccess._
         1 * target.get("key") >> "result 2"
         0 * target._
     }
@@ -200,4 +201,34 @@ class InMemoryTaskArtifactCacheTest extends Specification {
         0 * target._
     }
 
+    def "keeps file info in compact in-memory store"() {
+        def fileInfo = new CachingFileHasher.FileInfo(Hashing.md5().hashInt(1), 10, 20)
+
+        given:
+        def cache = cacheFactory.fileInfoDecorator(100).decorate("path/fileHashes.bin", "fileHashes", target, crossProcessCacheAccess, asyncCacheAccess)
+
+        when:
+        def result = cache.get("key")
+
+        then:
+        result.hash == fileInfo.hash
+        result.length == 10
+        result.timestamp == 20
+
+        and:
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        1 * asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+        1 * target.get("key") >> fileInfo
+        0 * target._
+
+        when:
+        result = cache.get("key")
+
+        then:
+        result.hash == fileInfo.hash
+
+        and:
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        0 * target._
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import com.google.common.hash.HashCode
+import org.gradle.api.internal.hash.FileHasher
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.nativeintegration.filesystem.DefaultFileMetadata
+import org.gradle.internal.nativeintegration.filesystem.FileMetadataSnapshot
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArraySet
+
+class ParallelFileHasherTest extends Specification {
+    def threads = new CopyOnWriteArraySet<Thread>()
+    def hasher = Stub(FileHasher) {
+        hash(_ as File, _ as FileMetadataSnapshot) >> { File file, FileMetadataSnapshot metadata ->
+            threads.add(Thread.currentThread())
+            HashCode.fromInt(metadata.length as int)
+        }
+    }
+    ParallelFileHasher parallelFileHasher
+
+    def cleanup() {
+        parallelFileHasher?.stop()
+    }
+
+    def "returns hashes in the order of the files"() {
+        parallelFileHasher = new ParallelFileHasher(new DefaultExecutorFactory(), 4)
+        def files = (0..<1000).collect { new File("file" + it) }
+        def metadata = (0..<1000).collect { DefaultFileMetadata.file(0, it) }
+
+        when:
+        def hashes = parallelFileHasher.hash(hasher, files, metadata)
+
+        then:
+        hashes as List == (0..<1000).collect { HashCode.fromInt(it) }
+    }
+
+    def "hashes small batches on the calling thread"() {
+        parallelFileHasher = new ParallelFileHasher(new DefaultExecutorFactory(), 4)
+
+        when:
+        def hashes = parallelFileHasher.hash(hasher, [new File("a"), new File("b")], [DefaultFileMetadata.file(0, 1), DefaultFileMetadata.file(0, 2)])
+
+        then:
+        hashes as List == [HashCode.fromInt(1), HashCode.fromInt(2)]
+        threads == [Thread.currentThread()] as Set
+    }
+
+    def "hashes on the calling thread when limited to a single thread"() {
+        parallelFileHasher = new ParallelFileHasher(new DefaultExecutorFactory(), 1)
+        def files = (0..<1000).collect { new File("file" + it) }
+        def metadata = (0..<1000).collect { DefaultFileMetadata.file(0, it) }
+
+        when:
+        parallelFileHasher.hash(hasher, files, metadata)
+
+        then:
+        threads == [Thread.currentThread()] as Set
+    }
+
+    def "propagates failure to hash a file"() {
+        def failure = new RuntimeException("broken")
+        def failingHasher = Stub(FileHasher) {
+            hash(_ as File, _ as FileMetadataSnapshot) >> { File file, FileMetadataSnapshot metadata ->
+                if (file.name == "file500") {
+                    throw failure
+                }
+                HashCode.fromInt(0)
+            }
+        }
+        parallelFileHasher = new ParallelFileHasher(new DefaultExecutorFactory(), 4)
+        def files = (0..<1000).collect { new File("file" + it) }
+        def metadata = (0..<1000).collect { DefaultFileMetadata.file(0, it) }
+
+        when:
+        parallelFileHasher.hash(failingHasher, files, metadata)
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+    }
+}
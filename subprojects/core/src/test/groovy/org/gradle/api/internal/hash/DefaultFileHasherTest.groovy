@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash
+
+import org.gradle.internal.nativeintegration.filesystem.DefaultFileMetadata
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class DefaultFileHasherTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    @Unroll
+    def "hashes file of #size bytes read into direct buffers the same as through the heap"() {
+        def file = tmpDir.file("file")
+        def content = new byte[size]
+        new Random(42).nextBytes(content)
+        file.bytes = content
+
+        def heapHasher = new DefaultFileHasher(HashAlgorithm.MD5, Long.MAX_VALUE)
+        def directHasher = new DefaultFileHasher(HashAlgorithm.MD5, 0)
+
+        expect:
+        def hash = heapHasher.hash(file)
+        directHasher.hash(file) == hash
+        directHasher.hash(file, DefaultFileMetadata.file(file.lastModified(), file.length())) == hash
+        directHasher.hash(new ByteArrayInputStream(content)) == hash
+
+        where:
+        size << [0, 1, 8192, 256 * 1024, 256 * 1024 + 1, 3 * 1024 * 1024 + 17]
+    }
+
+    def "hashes file whose length changed since its metadata was captured"() {
+        def file = tmpDir.file("file")
+        file.text = "content"
+        def hasher = new DefaultFileHasher(HashAlgorithm.MD5, 1024)
+
+        expect:
+        hasher.hash(file, DefaultFileMetadata.file(0, 2048)) == hasher.hash(new ByteArrayInputStream("content".bytes))
+    }
+
+    def "hashes large file with algorithm that is not available as a message digest"() {
+        def file = tmpDir.file("file")
+        def content = new byte[3 * 1024 * 1024]
+        new Random(42).nextBytes(content)
+        file.bytes = content
+        def hasher = new DefaultFileHasher(HashAlgorithm.MURMUR3_128, 0)
+
+        expect:
+        hasher.hash(file) == hasher.hash(new ByteArrayInputStream(content))
+        hasher.hash(file).bits() == 128
+    }
+
+    def "hashes with different algorithms produce different hashes"() {
+        def file = tmpDir.file("file")
+        file.text = "content"
+
+        expect:
+        new DefaultFileHasher(HashAlgorithm.MD5).hash(file) != new DefaultFileHasher(HashAlgorithm.MURMUR3_128).hash(file)
+        new DefaultFileHasher().hash(file) == new DefaultFileHasher(HashAlgorithm.MD5).hash(file)
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash
+
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class HashAlgorithmTest extends Specification {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    def "uses md5 by default"() {
+        expect:
+        HashAlgorithm.current() == HashAlgorithm.MD5
+    }
+
+    def "selects algorithm from system property"() {
+        System.setProperty(HashAlgorithm.ALGORITHM_PROPERTY, "murmur3-128")
+
+        expect:
+        HashAlgorithm.current() == HashAlgorithm.MURMUR3_128
+    }
+
+    def "fails for unknown algorithm"() {
+        System.setProperty(HashAlgorithm.ALGORITHM_PROPERTY, "crc32")
+
+        when:
+        HashAlgorithm.current()
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Unknown hash algorithm 'crc32'. Supported algorithms are: md5, murmur3-128."
+    }
+
+    def "keeps cache names for md5 and qualifies them for other algorithms"() {
+        expect:
+        HashAlgorithm.MD5.qualifyCacheName("taskHistory") == "taskHistory"
+        HashAlgorithm.MURMUR3_128.qualifyCacheName("taskHistory") == "taskHistory-murmur3-128"
+    }
+
+    def "message digest produces the same hashes as the hash function"() {
+        def digest = HashAlgorithm.MD5.createMessageDigest()
+        digest.update("content".bytes)
+
+        expect:
+        digest.digest() == HashAlgorithm.MD5.hashFunction.hashBytes("content".bytes).asBytes()
+        HashAlgorithm.MURMUR3_128.createMessageDigest() == null
+    }
+}
@@ -91,7 +91,7 @@ public class ExecuteActionsTaskExecuterTest extends Specification {
         then:
         1 * publicListener.beforeActions(task)
         then:
-        1 * internalListener.beforeTaskOutputsGenerated()
+        1 * internalListener.beforeTaskOutputsGenerated(task)
         then:
         1 * standardOutputCapture.start()
         then:
@@ -137,7 +137,7 @@ public class ExecuteActionsTaskExecuterTest extends Specification {
         then:
         1 * publicListener.beforeActions(task)
         then:
-        1 * internalListener.beforeTaskOutputsGenerated()
+        1 * internalListener.beforeTaskOutputsGenerated(task)
         then:
         1 * standardOutputCapture.start()
 
@@ -170,7 +170,7 @@ public class ExecuteActionsTaskExecuterTest extends Specification {
         then:
         1 * publicListener.beforeActions(task)
         then:
-        1 * internalListener.beforeTaskOutputsGenerated()
+        1 * internalListener.beforeTaskOutputsGenerated(task)
         then:
         1 * standardOutputCapture.start()
         then:
@@ -203,7 +203,7 @@ public class ExecuteActionsTaskExecuterTest extends Specification {
         then:
         1 * publicListener.beforeActions(task)
         then:
-        1 * internalListener.beforeTaskOutputsGenerated()
+        1 * internalListener.beforeTaskOutputsGenerated(task)
         then:
         1 * standardOutputCapture.start()
         then:
@@ -235,7 +235,7 @@ public class ExecuteActionsTaskExecuterTest extends Specification {
         then:
         1 * publicListener.beforeActions(task)
         then:
-        1 * internalListener.beforeTaskOutputsGenerated()
+        1 * internalListener.beforeTaskOutputsGenerated(task)
         then:
         1 * standardOutputCapture.start()
         then:
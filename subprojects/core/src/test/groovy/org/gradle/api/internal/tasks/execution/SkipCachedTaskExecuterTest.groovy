@@ -79,7 +79,7 @@ class SkipCachedTaskExecuterTest extends Specification {
             reader.readFrom(inputStream)
             return true
         }
-        1 * internalTaskExecutionListener.beforeTaskOutputsGenerated()
+        1 * internalTaskExecutionListener.beforeTaskOutputsGenerated(task)
         1 * taskOutputOriginFactory.createReader(task) >> originReader
         1 * taskOutputPacker.unpack(outputs, inputStream, originReader)
 
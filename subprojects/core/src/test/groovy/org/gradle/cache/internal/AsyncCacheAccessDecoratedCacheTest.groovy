@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal
+
+import org.gradle.internal.Factory
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class AsyncCacheAccessDecoratedCacheTest extends Specification {
+    def asyncCacheAccess = Mock(AsyncCacheAccess)
+    def persistentCache = Mock(MultiProcessSafePersistentIndexedCache)
+    def cache = new AsyncCacheAccessDecoratedCache<String, String>(asyncCacheAccess, persistentCache)
+    def updates = []
+    def completion = Mock(Runnable)
+
+    def "opens backing cache using async access and then reads on calling thread"() {
+        when:
+        def result = cache.get("key")
+
+        then:
+        result == "value"
+        1 * asyncCacheAccess.read(_) >> { Factory factory -> factory.create() }
+        1 * persistentCache.get("key") >> "value"
+        0 * _
+
+        when:
+        result = cache.get("other")
+
+        then:
+        result == "other value"
+        1 * persistentCache.get("other") >> "other value"
+        0 * _
+    }
+
+    def "opens backing cache using async access again after work has finished"() {
+        given:
+        asyncCacheAccess.read(_) >> { Factory factory -> factory.create() }
+        cache.get("key")
+
+        when:
+        cache.finishWork()
+        cache.get("key")
+
+        then:
+        1 * persistentCache.finishWork()
+        1 * asyncCacheAccess.read(_) >> { Factory factory -> factory.create() }
+        1 * persistentCache.get("key")
+        0 * _
+    }
+
+    def "finishes work only after reads on other threads have completed"() {
+        def reading = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def events = Collections.synchronizedList([])
+        def backingCache = [
+            get: { key ->
+                if (key == "slow") {
+                    reading.countDown()
+                    release.await()
+                }
+                events << "get $key".toString()
+                "value"
+            },
+            finishWork: { events << "finishWork" }
+        ] as MultiProcessSafePersistentIndexedCache
+        def cache = new AsyncCacheAccessDecoratedCache<String, String>(asyncCacheAccess, backingCache)
+        asyncCacheAccess.read(_) >> { Factory factory -> factory.create() }
+        cache.get("key")
+
+        when:
+        def reader = Thread.start { cache.get("slow") }
+        reading.await()
+        def finisher = Thread.start { cache.finishWork() }
+        finisher.join(200)
+        release.countDown()
+        reader.join(TimeUnit.SECONDS.toMillis(10))
+        finisher.join(TimeUnit.SECONDS.toMillis(10))
+
+        then:
+        events == ["get key", "get slow", "finishWork"]
+    }
+
+    def "reads value of pending update"() {
+        given:
+        asyncCacheAccess.enqueue(_) >> { Runnable runnable -> updates << runnable }
+
+        when:
+        cache.putLater("key", "new value", completion)
+
+        then:
+        cache.get("key") == "new value"
+        0 * persistentCache._
+
+        when:
+        cache.removeLater("key", completion)
+
+        then:
+        cache.get("key") == null
+        0 * persistentCache._
+
+        when:
+        updates*.run()
+
+        then:
+        1 * persistentCache.put("key", "new value")
+        1 * persistentCache.remove("key")
+        2 * completion.run()
+
+        when:
+        def result = cache.get("key")
+
+        then:
+        result == "value"
+        1 * asyncCacheAccess.read(_) >> { Factory factory -> factory.create() }
+        1 * persistentCache.get("key") >> "value"
+    }
+
+    def "discards pending update when update fails"() {
+        given:
+        asyncCacheAccess.enqueue(_) >> { Runnable runnable -> updates << runnable }
+        cache.putLater("key", "new value", completion)
+
+        when:
+        updates*.run()
+
+        then:
+        1 * persistentCache.put("key", "new value") >> { throw new RuntimeException("broken") }
+        1 * completion.run()
+        thrown(RuntimeException)
+
+        when:
+        def result = cache.get("key")
+
+        then:
+        result == "value"
+        1 * asyncCacheAccess.read(_) >> { Factory factory -> factory.create() }
+        1 * persistentCache.get("key") >> "value"
+    }
+}
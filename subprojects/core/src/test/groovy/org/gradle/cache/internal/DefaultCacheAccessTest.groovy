@@ -21,11 +21,14 @@ import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
 import org.gradle.internal.Factory
 import org.gradle.internal.serialize.BaseSerializerFactory
 import org.gradle.internal.serialize.Serializer
+import org.gradle.test.fixtures.ConcurrentTestUtil
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Unroll
 
+import java.util.concurrent.atomic.AtomicReference
+
 import static org.gradle.cache.internal.FileLockManager.LockMode.*
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode
 
@@ -600,6 +603,52 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         0 * lock._
     }
 
+    def "compacts caches before closing them when cache is closed"() {
+        def access = newAccess(None)
+
+        given:
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>") >> lock
+        lock.writeFile(_) >> { Runnable r -> r.run() }
+        access.open()
+        def cache = access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class))
+        access.useCache { cache.get("key") }
+
+        when:
+        access.close()
+
+        then:
+        1 * backingCache.compactIfFragmented()
+
+        then:
+        1 * backingCache.close()
+        1 * lock.close()
+    }
+
+    def "does not compact caches when the lock is released on contention"() {
+        def access = newAccess(None)
+
+        given:
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>") >> lock
+        lock.writeFile(_) >> { Runnable r -> r.run() }
+        access.open()
+        def cache = access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class))
+        access.useCache { cache.get("key") }
+
+        when:
+        access.whenContended().run()
+
+        then:
+        0 * backingCache.compactIfFragmented()
+        1 * backingCache.close()
+        1 * lock.close()
+
+        when:
+        access.close()
+
+        then:
+        0 * backingCache._
+    }
+
     def "releases lock acquired by cache decorator when contended"() {
         def decorator = Mock(CacheDecorator)
         def access = newAccess(None)
@@ -635,6 +684,64 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         access?.close()
     }
 
+    def "reads on other threads complete while the lock is released on contention"() {
+        def decorator = Mock(CacheDecorator)
+        def access = newAccess(None)
+        def contendingThread = new AtomicReference<Thread>()
+        AsyncCacheAccessDecoratedCache asyncCache
+
+        given:
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>") >> lock
+        lock.readFile(_) >> { Factory factory -> factory.create() }
+        lock.writeFile(_) >> { Runnable r -> r.run() }
+        backingCache.get("key") >> 1
+        backingCache.get("other") >> 2
+        decorator.decorate(_, _, _, _, _) >> { String cacheId, String cacheName, MultiProcessSafePersistentIndexedCache persistentCache, CrossProcessCacheAccess crossProcessCacheAccess, AsyncCacheAccess asyncCacheAccess ->
+            def blockingCache = [
+                get: { key ->
+                    if (key == "other") {
+                        instant.reading
+                        // Continue once the contending thread waits for this read to complete, while holding the state lock
+                        ConcurrentTestUtil.poll { assert contendingThread.get()?.state == Thread.State.WAITING }
+                    }
+                    persistentCache.get(key)
+                },
+                afterLockAcquire: { state -> persistentCache.afterLockAcquire(state) },
+                finishWork: { persistentCache.finishWork() },
+                beforeLockRelease: { state -> persistentCache.beforeLockRelease(state) }
+            ] as MultiProcessSafePersistentIndexedCache
+            asyncCache = new AsyncCacheAccessDecoratedCache(asyncCacheAccess, blockingCache)
+            new CrossProcessSynchronizingCache(asyncCache, crossProcessCacheAccess)
+        }
+        access.open()
+        def cache = access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class).cacheDecorator(decorator))
+        // Open the backing cache, and wait for the cache worker to finish its work
+        cache.get("key")
+        ConcurrentTestUtil.poll { assert access.owner == null }
+
+        when:
+        def value
+        start {
+            value = asyncCache.get("other")
+            instant.read
+        }
+        start {
+            thread.blockUntil.reading
+            contendingThread.set(Thread.currentThread())
+            access.whenContended().run()
+            instant.released
+        }
+        thread.blockUntil.read
+        thread.blockUntil.released
+
+        then:
+        value == 2
+        1 * lock.close()
+
+        cleanup:
+        access?.close()
+    }
+
     def "returns the same cache object when using same cache parameters"() {
         def access = newAccess(None)
 
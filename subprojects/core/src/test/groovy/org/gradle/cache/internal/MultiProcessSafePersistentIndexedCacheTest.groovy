@@ -102,6 +102,51 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def "holds write lock while compacting cache"() {
+        given:
+        cacheOpened()
+
+        when:
+        cache.compactIfFragmented()
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.compactIfFragmented()
+        0 * _._
+    }
+
+    def "keeps cache open when compacting fails"() {
+        def failure = new RuntimeException()
+
+        given:
+        cacheOpened()
+
+        when:
+        cache.compactIfFragmented()
+
+        then:
+        noExceptionThrown()
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.compactIfFragmented() >> { throw failure }
+        0 * _._
+
+        when:
+        cache.get("value")
+
+        then:
+        1 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
+        1 * backingCache.get("value")
+        0 * _._
+    }
+
+    def "does not compact cache when cache is not open"() {
+        when:
+        cache.compactIfFragmented()
+
+        then:
+        0 * _._
+    }
+
     def "does nothing on close when cache is not open"() {
         when:
         cache.finishWork()
@@ -233,6 +233,68 @@ public class BTreePersistentIndexedCacheTest {
         cache.close();
     }
 
+    @Test
+    public void compactsFileWhenMostOfItIsFree() {
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, stringSerializer, stringSerializer, (short) 4, 100);
+        String value = largeValue();
+        for (int i = 0; i < 400; i++) {
+            cache.put("key_" + i, value);
+        }
+        for (int i = 0; i < 400; i += 5) {
+            cache.put("key_" + i, value + i);
+        }
+        for (int i = 0; i < 400; i++) {
+            if (i % 5 != 0) {
+                cache.remove("key_" + i);
+            }
+        }
+
+        long len = cacheFile.length();
+        cache.compactIfFragmented();
+        assertThat(cacheFile.length(), lessThan(len / 2));
+        assertThat(tmpDir.file("cache.bin.compact").exists(), equalTo(false));
+
+        for (int i = 0; i < 400; i++) {
+            assertThat(cache.get("key_" + i), equalTo(i % 5 == 0 ? value + i : null));
+        }
+        cache.put("key_new", value);
+        assertThat(cache.get("key_new"), equalTo(value));
+        cache.verify();
+        cache.close();
+
+        cache = new BTreePersistentIndexedCache<String, String>(cacheFile, stringSerializer, stringSerializer, (short) 4, 100);
+        assertThat(cache.get("key_5"), equalTo(value + 5));
+        assertThat(cache.get("key_new"), equalTo(value));
+        cache.verify();
+        cache.close();
+    }
+
+    @Test
+    public void doesNotCompactFileWhenLittleOfItIsFree() {
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, stringSerializer, stringSerializer, (short) 4, 100);
+        String value = largeValue();
+        for (int i = 0; i < 400; i++) {
+            cache.put("key_" + i, value);
+        }
+        for (int i = 0; i < 100; i++) {
+            cache.remove("key_" + i);
+        }
+
+        long len = cacheFile.length();
+        cache.compactIfFragmented();
+        assertThat(cacheFile.length(), equalTo(len));
+        assertThat(cache.get("key_200"), equalTo(value));
+        cache.close();
+    }
+
+    private static String largeValue() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 4096; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        return builder.toString();
+    }
+
     @Test
     public void canHandleLargeNumberOfEntries() {
         createCache();
@@ -357,6 +419,50 @@ public class BTreePersistentIndexedCacheTest {
         cache.close();
     }
 
+    @Test
+    public void canReadEntriesFromMultipleThreadsWhileUpdatingEntries() throws Exception {
+        createCache();
+        final int count = 500;
+        for (int i = 0; i < count; i++) {
+            cache.put(String.format("key_%d", i), i);
+        }
+
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int thread = 0; thread < 8; thread++) {
+            final int offset = thread;
+            Thread reader = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 5 * count; i++) {
+                            int value = (i * 7 + offset) % count;
+                            Integer result = cache.get(String.format("key_%d", value));
+                            // Either the original or the updated value
+                            assertThat(result, anyOf(equalTo(value), equalTo(value + count)));
+                        }
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    }
+                }
+            };
+            reader.start();
+            readers.add(reader);
+        }
+        for (int i = 0; i < count; i++) {
+            cache.put(String.format("key_%d", i), i + count);
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertThat(failures, equalTo(Collections.<Throwable>emptyList()));
+        for (int i = 0; i < count; i++) {
+            assertThat(cache.get(String.format("key_%d", i)), equalTo(i + count));
+        }
+        verifyAndCloseCache();
+    }
+
     @Test
     public void canUseFileAsKey() {
         BTreePersistentIndexedCache<File, Integer> cache = new BTreePersistentIndexedCache<File, Integer>(cacheFile, new DefaultSerializer<File>(), integerSerializer);
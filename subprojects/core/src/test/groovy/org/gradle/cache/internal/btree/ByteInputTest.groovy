@@ -20,6 +20,8 @@ import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.nio.channels.ClosedByInterruptException
+
 class ByteInputTest extends Specification {
     @Rule
     TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
@@ -27,11 +29,13 @@ class ByteInputTest extends Specification {
     ByteInput input
 
     def setup() {
-        file = new RandomAccessFile(tmpDir.file("test.bin"), "rw")
-        input = new ByteInput(file)
+        def testFile = tmpDir.file("test.bin")
+        file = new RandomAccessFile(testFile, "rw")
+        input = new ByteInput(testFile)
     }
 
     def cleanup() {
+        input.close()
         file.close()
     }
 
@@ -43,26 +47,87 @@ class ByteInputTest extends Specification {
         file.writeInt(456)
 
         expect:
-        def stream = input.start(0)
+        def stream = input.read(0, 8)
         stream.readInt() == 123
         stream.readInt() == 321
-        input.done()
 
-        def stream2 = input.start(4)
+        def stream2 = input.read(4, 8)
         stream2.readInt() == 321
         stream2.readInt() == 456
-        input.done()
 
-        def stream3 = input.start(0)
+        def stream3 = input.read(0, 4)
         stream3.readInt() == 123
-        input.done()
+    }
+
+    def "reads bytes written after file was opened"() {
+        given:
+        file.writeInt(123)
+        input.read(0, 4)
+
+        when:
+        file.writeInt(321)
+
+        then:
+        input.read(4, 4).readInt() == 321
     }
 
     def "cannot read beyond end of file"() {
         when:
-        input.start(123).readInt()
+        input.read(123, 4)
+
+        then:
+        EOFException e = thrown()
+    }
+
+    def "cannot read beyond requested length"() {
+        given:
+        file.writeInt(123)
+        file.writeInt(321)
+
+        when:
+        def stream = input.read(0, 4)
+        stream.readInt()
+        stream.readInt()
 
         then:
         EOFException e = thrown()
     }
+
+    def "can read from multiple threads at the same time"() {
+        given:
+        1000.times { file.writeInt(it) }
+
+        when:
+        def values = new int[8][1000]
+        def threads = (0..<8).collect { thread ->
+            Thread.start {
+                1000.times { i ->
+                    def index = (i * 7 + thread) % 1000
+                    values[thread][index] = input.read(index * 4, 4).readInt()
+                }
+            }
+        }
+        threads*.join()
+
+        then:
+        values.every { it as List == (0..<1000) }
+    }
+
+    def "opens file again when a thread reading from it is interrupted"() {
+        given:
+        file.writeInt(123)
+
+        when:
+        Thread.currentThread().interrupt()
+        input.read(0, 4)
+
+        then:
+        thrown(ClosedByInterruptException)
+
+        when:
+        Thread.interrupted()
+
+        then:
+        input.read(0, 4).readInt() == 123
+    }
 }
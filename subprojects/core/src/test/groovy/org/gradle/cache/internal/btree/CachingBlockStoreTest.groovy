@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import spock.lang.Specification
+
+class CachingBlockStoreTest extends Specification {
+    def backingStore = Mock(BlockStore)
+    def store = new CachingBlockStore(backingStore, 250, CachedPayload)
+
+    def "reads cacheable block from backing store once"() {
+        def block = block(CachedPayload, 0, 100)
+
+        when:
+        def first = store.read(new BlockPointer(0), CachedPayload)
+        def second = store.read(new BlockPointer(0), CachedPayload)
+
+        then:
+        first.is(block)
+        second.is(block)
+        1 * backingStore.read(new BlockPointer(0), CachedPayload) >> block
+        store.hitCount == 1
+        store.missCount == 1
+    }
+
+    def "does not cache blocks of other types"() {
+        def block = block(OtherPayload, 0, 100)
+
+        when:
+        store.read(new BlockPointer(0), OtherPayload)
+        store.read(new BlockPointer(0), OtherPayload)
+
+        then:
+        2 * backingStore.read(new BlockPointer(0), OtherPayload) >> block
+        store.hitCount == 0
+        store.missCount == 0
+    }
+
+    def "evicts least recently used blocks when total size of blocks exceeds maximum"() {
+        def block1 = block(CachedPayload, 0, 100)
+        def block2 = block(CachedPayload, 100, 100)
+        def block3 = block(CachedPayload, 200, 100)
+        backingStore.read(new BlockPointer(0), CachedPayload) >> block1
+        backingStore.read(new BlockPointer(100), CachedPayload) >> block2
+        backingStore.read(new BlockPointer(200), CachedPayload) >> block3
+
+        given:
+        store.read(new BlockPointer(0), CachedPayload)
+        store.read(new BlockPointer(100), CachedPayload)
+        store.read(new BlockPointer(0), CachedPayload)
+
+        when:
+        store.read(new BlockPointer(200), CachedPayload)
+        store.read(new BlockPointer(0), CachedPayload)
+        store.read(new BlockPointer(200), CachedPayload)
+        store.read(new BlockPointer(100), CachedPayload)
+
+        then:
+        store.hitCount == 3
+        store.missCount == 4
+    }
+
+    def "keeps block that is larger than maximum until another block is used"() {
+        def large = block(CachedPayload, 0, 1000)
+        def small = block(CachedPayload, 1000, 100)
+        backingStore.read(new BlockPointer(0), CachedPayload) >> large
+        backingStore.read(new BlockPointer(1000), CachedPayload) >> small
+
+        when:
+        store.read(new BlockPointer(0), CachedPayload)
+        store.read(new BlockPointer(0), CachedPayload)
+        store.read(new BlockPointer(1000), CachedPayload)
+        store.read(new BlockPointer(0), CachedPayload)
+
+        then:
+        store.hitCount == 1
+        store.missCount == 3
+    }
+
+    def "discards removed block"() {
+        def block = block(CachedPayload, 0, 100)
+
+        given:
+        backingStore.read(new BlockPointer(0), CachedPayload) >> block
+        store.read(new BlockPointer(0), CachedPayload)
+
+        when:
+        store.remove(block)
+        store.read(new BlockPointer(0), CachedPayload)
+
+        then:
+        1 * backingStore.remove(block)
+        store.missCount == 2
+    }
+
+    def block(Class<? extends BlockPayload> type, long pos, int size) {
+        def payload = type.newInstance()
+        def block = Stub(Block) {
+            getPos() >> new BlockPointer(pos)
+            getSize() >> size
+        }
+        payload.block = block
+        return payload
+    }
+
+    static class CachedPayload extends TestPayload {
+    }
+
+    static class OtherPayload extends TestPayload {
+    }
+
+    static class TestPayload extends BlockPayload {
+        @Override
+        protected int getSize() {
+            return 0
+        }
+
+        @Override
+        protected byte getType() {
+            return 0
+        }
+
+        @Override
+        protected void read(DataInputStream inputStream) throws Exception {
+        }
+
+        @Override
+        protected void write(DataOutputStream outputStream) throws Exception {
+        }
+    }
+}
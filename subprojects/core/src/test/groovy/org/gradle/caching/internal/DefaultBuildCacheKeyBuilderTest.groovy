@@ -16,6 +16,9 @@
 
 package org.gradle.caching.internal
 
+import com.google.common.base.Charsets
+import com.google.common.hash.Hashing
+import org.gradle.api.internal.hash.HashAlgorithm
 import spock.lang.Specification
 
 class DefaultBuildCacheKeyBuilderTest extends Specification {
@@ -32,6 +35,17 @@ class DefaultBuildCacheKeyBuilderTest extends Specification {
         hashStrings(["abc", "de"]).hashCode != hashStrings(["ab", "cde"]).hashCode
     }
 
+    def 'keys of different hash algorithms differ'() {
+        def md5 = new DefaultBuildCacheKeyBuilder(HashAlgorithm.MD5).putString("abc").build()
+        def murmur3 = new DefaultBuildCacheKeyBuilder(HashAlgorithm.MURMUR3_128).putString("abc").build()
+        def plainMurmur3 = Hashing.murmur3_128().newHasher().putInt(3).putString("abc", Charsets.UTF_8).hash()
+
+        expect:
+        md5.hashCode == Hashing.md5().newHasher().putInt(3).putString("abc", Charsets.UTF_8).hash().toString()
+        murmur3.hashCode != plainMurmur3.toString()
+        murmur3.hashCode != md5.hashCode
+    }
+
     def hashStrings(List<String> strings) {
         def builder = new DefaultBuildCacheKeyBuilder()
         strings.each { builder.putString(it) }
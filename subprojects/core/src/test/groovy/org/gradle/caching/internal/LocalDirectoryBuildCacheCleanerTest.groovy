@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal
+
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class LocalDirectoryBuildCacheCleanerTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def cacheDir = temporaryFolder.createDir("cache")
+    def now = System.currentTimeMillis()
+
+    def "evicts least recently used entries until cache is below target size"() {
+        def cleaner = new LocalDirectoryBuildCacheCleaner(cacheDir, 250, TimeUnit.DAYS.toMillis(7), 0)
+        def oldest = entry("0123", 100, 3)
+        def older = entry("4567", 100, 2)
+        def newest = entry("89ab", 100, 1)
+
+        when:
+        def result = cleaner.cleanup()
+
+        then:
+        result.evictedEntries == 1
+        result.evictedBytes == 100
+        !oldest.exists()
+        older.exists()
+        newest.exists()
+    }
+
+    def "evicts entries that have not been used for longer than the maximum age"() {
+        def cleaner = new LocalDirectoryBuildCacheCleaner(cacheDir, 1000, TimeUnit.DAYS.toMillis(7), 0)
+        def expired = entry("0123", 100, TimeUnit.DAYS.toMinutes(8))
+        def recent = entry("4567", 100, TimeUnit.DAYS.toMinutes(6))
+
+        when:
+        def result = cleaner.cleanup()
+
+        then:
+        result.evictedEntries == 1
+        result.evictedBytes == 100
+        !expired.exists()
+        recent.exists()
+    }
+
+    def "does not evict files that are not cache entries"() {
+        def cleaner = new LocalDirectoryBuildCacheCleaner(cacheDir, 0, 0, 0)
+        def properties = entry("cache.properties", 100, 10)
+        def entry = entry("0123", 100, 10)
+
+        when:
+        def result = cleaner.cleanup()
+
+        then:
+        result.evictedEntries == 1
+        properties.exists()
+        !entry.exists()
+    }
+
+    def "does not clean up again within the cleanup interval"() {
+        def cleaner = new LocalDirectoryBuildCacheCleaner(cacheDir, 0, 0, TimeUnit.HOURS.toMillis(1))
+
+        expect:
+        cleaner.cleanup() != null
+
+        when:
+        def entry = entry("0123", 100, 10)
+
+        then:
+        cleaner.cleanup() == null
+        entry.exists()
+    }
+
+    def "skips cleanup while cache is being cleaned up by another cleaner"() {
+        def cleaner = new LocalDirectoryBuildCacheCleaner(cacheDir, 0, 0, 0)
+        def entry = entry("0123", 100, 10)
+        def gcFile = new RandomAccessFile(cacheDir.file(LocalDirectoryBuildCacheCleaner.GC_FILE_NAME), "rw")
+        def lock = gcFile.channel.lock()
+
+        when:
+        def result = cleaner.cleanup()
+
+        then:
+        result == null
+        entry.exists()
+
+        cleanup:
+        lock.release()
+        gcFile.close()
+    }
+
+    def "does not evict anything when stopped"() {
+        def cleaner = new LocalDirectoryBuildCacheCleaner(cacheDir, 0, 0, 0)
+        def entry = entry("0123", 100, 10)
+
+        when:
+        cleaner.stop()
+        def result = cleaner.cleanup()
+
+        then:
+        result.evictedEntries == 0
+        entry.exists()
+    }
+
+    private TestFile entry(String name, int size, long minutesSinceLastAccess) {
+        def file = cacheDir.file(name)
+        file.bytes = new byte[size]
+        file.setLastModified(now - TimeUnit.MINUTES.toMillis(minutesSinceLastAccess))
+        return file
+    }
+}
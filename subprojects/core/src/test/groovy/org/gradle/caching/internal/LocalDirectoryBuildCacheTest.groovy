@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal
+
+import org.gradle.api.UncheckedIOException
+import org.gradle.cache.CacheBuilder
+import org.gradle.cache.CacheRepository
+import org.gradle.cache.PersistentCache
+import org.gradle.caching.BuildCacheEntryReader
+import org.gradle.caching.BuildCacheEntryWriter
+import org.gradle.caching.BuildCacheKey
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class LocalDirectoryBuildCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def cacheDir = temporaryFolder.createDir("cache")
+    def persistentCache = Mock(PersistentCache) {
+        getBaseDir() >> cacheDir
+    }
+    def cacheBuilder = Mock(CacheBuilder) {
+        withDisplayName(_) >> { cacheBuilder }
+        withLockOptions(_) >> { cacheBuilder }
+        open() >> persistentCache
+    }
+    def cacheRepository = Mock(CacheRepository) {
+        cache(cacheDir) >> cacheBuilder
+    }
+    def executorFactory = Mock(ExecutorFactory) {
+        create(_) >> Mock(StoppableExecutor)
+    }
+    def cache = new LocalDirectoryBuildCache(cacheRepository, cacheDir, executorFactory, 10, 7)
+    def key = Mock(BuildCacheKey) {
+        getHashCode() >> "0123abcd"
+    }
+
+    def "stores entry through temporary file"() {
+        when:
+        cache.store(key, writer("data"))
+
+        then:
+        cacheDir.file("0123abcd").text == "data"
+        cacheDir.list() as List == ["0123abcd"]
+        0 * persistentCache.useCache(_)
+    }
+
+    def "loads stored entry"() {
+        def reader = Mock(BuildCacheEntryReader)
+        cacheDir.file("0123abcd").text = "data"
+
+        when:
+        def found = cache.load(key, reader)
+
+        then:
+        found
+        1 * reader.readFrom(_) >> { InputStream input ->
+            assert input.text == "data"
+        }
+        0 * persistentCache.useCache(_)
+    }
+
+    def "does not load missing entry"() {
+        def reader = Mock(BuildCacheEntryReader)
+
+        when:
+        def found = cache.load(key, reader)
+
+        then:
+        !found
+        0 * reader._
+    }
+
+    def "skips storing existing entry"() {
+        def writer = Mock(BuildCacheEntryWriter)
+        cacheDir.file("0123abcd").text = "data"
+
+        when:
+        cache.store(key, writer)
+
+        then:
+        0 * writer._
+        cacheDir.file("0123abcd").text == "data"
+    }
+
+    def "skips storing entry that is being stored concurrently"() {
+        def concurrentWriter = Mock(BuildCacheEntryWriter)
+
+        when:
+        cache.store(key, new BuildCacheEntryWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                cache.store(key, concurrentWriter)
+                output.write("data".bytes)
+            }
+        })
+
+        then:
+        0 * concurrentWriter._
+        cacheDir.file("0123abcd").text == "data"
+    }
+
+    def "removes temporary file when store fails"() {
+        def failure = new IOException("failed")
+
+        when:
+        cache.store(key, new BuildCacheEntryWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                output.write("partial".bytes)
+                throw failure
+            }
+        })
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.cause == failure
+        cacheDir.list().length == 0
+    }
+
+    private static BuildCacheEntryWriter writer(String content) {
+        return new BuildCacheEntryWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                output.write(content.bytes)
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.Task
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.initialization.BuildCancellationToken
+import org.gradle.test.fixtures.AbstractProjectBuilderSpec
+
+import static org.gradle.util.TestUtil.createRootProject
+
+class DefaultTaskExecutionPlanCriticalPathTest extends AbstractProjectBuilderSpec {
+    Map<String, Long> durations = [:]
+    def taskDurationHistory = Stub(TaskDurationHistory) {
+        getPreviousDuration(_) >> { TaskInternal task -> durations[task.name] }
+    }
+    DefaultTaskExecutionPlan executionPlan = new DefaultTaskExecutionPlan(Stub(BuildCancellationToken), false, true)
+    ProjectInternal root
+
+    def setup() {
+        root = createRootProject(temporaryFolder.testDirectory)
+    }
+
+    def "starts tasks with the longest chain of dependent tasks first"() {
+        given:
+        Task a = root.task("a")
+        Task b = root.task("b")
+        Task c = root.task("c")
+        Task d = root.task("d").dependsOn(c)
+        durations = [a: 10L, b: 10L, c: 5L, d: 100L]
+
+        when:
+        addToGraphAndPrioritise(a, b, d)
+
+        then:
+        executionPlan.tasks == [a, b, c, d]
+        executedTasks == [c, d, a, b]
+    }
+
+    def "estimates tasks without history as taking an average amount of time"() {
+        given:
+        Task a = root.task("a")
+        Task b = root.task("b")
+        Task c = root.task("c")
+        Task d = root.task("d").dependsOn(c)
+        durations = [a: 10L, b: 30L]
+
+        when:
+        addToGraphAndPrioritise(a, b, d)
+
+        then:
+        executedTasks == [c, b, d, a]
+    }
+
+    def "treats all tasks as taking the same time when there is no history"() {
+        given:
+        Task a = root.task("a")
+        Task b = root.task("b")
+        Task c = root.task("c")
+        Task d = root.task("d").dependsOn(c)
+
+        when:
+        addToGraphAndPrioritise(a, b, d)
+
+        then:
+        executedTasks == [c, a, b, d]
+    }
+
+    private void addToGraphAndPrioritise(Task... tasks) {
+        executionPlan.addToTaskGraph(Arrays.asList(tasks))
+        executionPlan.determineExecutionPlan()
+        executionPlan.prioritiseByCriticalPath(taskDurationHistory)
+    }
+
+    private List<Task> getExecutedTasks() {
+        def tasks = []
+        def taskInfo
+        while ((taskInfo = executionPlan.taskToExecute) != null) {
+            tasks << taskInfo.task
+            executionPlan.taskComplete(taskInfo)
+        }
+        return tasks
+    }
+}
@@ -57,6 +57,114 @@ task showMissing { doLast { println configurations.missing.files } }
         succeeds('showMissing')
     }
 
+    def "requests fixed version from repository that does not have it only once"() {
+        given:
+        def repo1 = mavenHttpRepo("repo1")
+        def repo2 = mavenHttpRepo("repo2")
+        def moduleInRepo1 = repo1.module("group", "projectA", "1.2")
+        def moduleInRepo2 = repo2.module("group", "projectA", "1.2").publish()
+
+        buildFile << """
+repositories {
+    maven { url "${repo1.uri}" }
+    maven { url "${repo2.uri}" }
+}
+configurations { compile }
+dependencies {
+    compile 'group:projectA:1.2'
+}
+task retrieve(type: Sync) {
+    into 'libs'
+    from configurations.compile
+}
+"""
+
+        when:
+        // No version listing is requested for a fixed version
+        moduleInRepo1.pom.expectGetMissing()
+        moduleInRepo1.artifact.expectHeadMissing()
+        moduleInRepo2.pom.expectGet()
+        moduleInRepo2.artifact.expectGet()
+
+        then:
+        succeeds 'retrieve'
+
+        when:
+        server.resetExpectations()
+
+        then:
+        // Missing status in repo1 is cached for the version, and the module is found in the cache of repo2
+        succeeds 'retrieve'
+
+        when:
+        server.resetExpectations()
+        file('libs').deleteDir()
+
+        then:
+        succeeds 'retrieve'
+        file('libs').assertHasDescendants('projectA-1.2.jar')
+    }
+
+    def "does not request other versions of a module from repository that does not have it"() {
+        given:
+        def repo1 = mavenHttpRepo("repo1")
+        def repo2 = mavenHttpRepo("repo2")
+        def module12InRepo1 = repo1.module("group", "projectA", "1.2")
+        def module12InRepo2 = repo2.module("group", "projectA", "1.2").publish()
+        def module13InRepo2 = repo2.module("group", "projectA", "1.3").publish()
+        def module14InRepo1 = repo1.module("group", "projectA", "1.4").publish()
+        def module14InRepo2 = repo2.module("group", "projectA", "1.4")
+
+        buildFile << """
+repositories {
+    maven { url "${repo1.uri}" }
+    maven { url "${repo2.uri}" }
+}
+configurations { compile }
+dependencies {
+    compile "group:projectA:\${project.version}"
+}
+task retrieve(type: Sync) {
+    into 'libs'
+    from configurations.compile
+}
+"""
+
+        when:
+        module12InRepo1.pom.expectGetMissing()
+        module12InRepo1.artifact.expectHeadMissing()
+        module12InRepo2.pom.expectGet()
+        module12InRepo2.artifact.expectGet()
+
+        then:
+        executer.withArguments("-Pversion=1.2")
+        succeeds 'retrieve'
+
+        when:
+        server.resetExpectations()
+        // Missing status of the module in repo1 is cached, so the new version is only requested from repo2
+        module13InRepo2.pom.expectGet()
+        module13InRepo2.artifact.expectGet()
+
+        then:
+        executer.withArguments("-Pversion=1.3")
+        succeeds 'retrieve'
+        file('libs').assertHasDescendants('projectA-1.3.jar')
+
+        when:
+        server.resetExpectations()
+        // A version that no other repository has is still requested from repo1
+        module14InRepo2.pom.expectGetMissing()
+        module14InRepo2.artifact.expectHeadMissing()
+        module14InRepo1.pom.expectGet()
+        module14InRepo1.artifact.expectGet()
+
+        then:
+        executer.withArguments("-Pversion=1.4")
+        succeeds 'retrieve'
+        file('libs').assertHasDescendants('projectA-1.4.jar')
+    }
+
     def "checks for missing modules in each repository when run with --refresh-dependencies"() {
         given:
         def repo1 = ivyHttpRepo("repo1")
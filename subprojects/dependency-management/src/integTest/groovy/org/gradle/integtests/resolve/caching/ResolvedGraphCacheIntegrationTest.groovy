@@ -0,0 +1,261 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.integtests.resolve.caching
+
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.ResolvedGraphCache
+import org.gradle.integtests.fixtures.AbstractHttpDependencyResolutionTest
+
+class ResolvedGraphCacheIntegrationTest extends AbstractHttpDependencyResolutionTest {
+    private static final String CACHE_HIT = "Using cached dependency graph for configuration ':compile'."
+
+    def setup() {
+        requireOwnGradleUserHomeDir()
+        buildFile << """
+repositories {
+    maven { url "${mavenHttpRepo.uri}" }
+}
+configurations {
+    compile
+    other
+}
+task show {
+    doLast {
+        def result = configurations.compile.incoming.resolutionResult
+        result.allComponents.sort { it.id.displayName }.each { component ->
+            def dependencies = component.dependencies.collect { "\${it.requested.displayName}->\${it.selected.id.displayName}" }.sort()
+            println "graph: component \${component.id.displayName} \${dependencies}"
+        }
+        configurations.compile.resolvedConfiguration.firstLevelModuleDependencies.each { println "graph: first level \${it.name}" }
+        configurations.compile.each { println "graph: file \${it.name}" }
+    }
+}
+task showOther {
+    doLast {
+        configurations.other.files
+    }
+}
+"""
+    }
+
+    def "restores the graph that was resolved when the inputs of the configuration are unchanged"() {
+        given:
+        def c = mavenHttpRepo.module("org", "c", "1.0").publish().allowAll()
+        def b = mavenHttpRepo.module("org", "b", "1.0").dependsOn(c).publish().allowAll()
+        mavenHttpRepo.module("org", "a", "1.0").dependsOn(b).publish().allowAll()
+        buildFile << """
+dependencies {
+    compile 'org:a:1.0'
+}
+"""
+
+        when:
+        def fresh = resolve()
+
+        then:
+        !output.contains(CACHE_HIT)
+        fresh.contains("graph: component org:c:1.0 []")
+        fresh.contains("graph: file c-1.0.jar")
+
+        when:
+        def restored = resolve()
+
+        then:
+        outputContains(CACHE_HIT)
+        restored == fresh
+    }
+
+    def "does not use the cache unless it is enabled"() {
+        given:
+        mavenHttpRepo.module("org", "a", "1.0").publish().allowAll()
+        buildFile << """
+dependencies {
+    compile 'org:a:1.0'
+}
+"""
+
+        when:
+        def enabled = resolve()
+        run "show", "--info"
+
+        then:
+        !output.contains(CACHE_HIT)
+        graphLines() == enabled
+    }
+
+    def "resolves the graph again when a declared dependency changes"() {
+        given:
+        mavenHttpRepo.module("org", "a", "1.0").publish().allowAll()
+        mavenHttpRepo.module("org", "b", "1.0").publish().allowAll()
+        buildFile << """
+dependencies {
+    compile 'org:a:1.0'
+}
+"""
+        resolve()
+
+        when:
+        buildFile << """
+dependencies {
+    compile 'org:b:1.0'
+}
+"""
+        def changed = resolve()
+
+        then:
+        !output.contains(CACHE_HIT)
+        changed.contains("graph: first level org:b:1.0")
+
+        when:
+        def restored = resolve()
+
+        then:
+        outputContains(CACHE_HIT)
+        restored == changed
+    }
+
+    def "resolves the graph again when the meta-data of a selected module changes"() {
+        given:
+        def c = mavenHttpRepo.module("org", "c", "1.0").publish().allowAll()
+        def b = mavenHttpRepo.module("org", "b", "1.0").publish().allowAll()
+        buildFile << """
+dependencies {
+    compile 'org:b:1.0'
+    other 'org:b:1.0'
+}
+"""
+        resolve()
+
+        when:
+        b.dependsOn(c).publish()
+        // Refreshes the cached meta-data of the module without resolving the cached configuration
+        run "showOther", "--refresh-dependencies"
+        def changed = resolve()
+
+        then:
+        !output.contains(CACHE_HIT)
+        changed.contains("graph: component org:b:1.0 [org:c:1.0->org:c:1.0]")
+        changed.contains("graph: file c-1.0.jar")
+
+        when:
+        def restored = resolve()
+
+        then:
+        outputContains(CACHE_HIT)
+        restored == changed
+    }
+
+    def "resolves the graph again when the meta-data of an evicted module changes"() {
+        given:
+        def c = mavenHttpRepo.module("org", "c", "1.0").publish().allowAll()
+        def a1 = mavenHttpRepo.module("org", "a", "1.0").publish().allowAll()
+        def a2 = mavenHttpRepo.module("org", "a", "2.0").publish().allowAll()
+        mavenHttpRepo.module("org", "b", "1.0").dependsOn(a2).publish().allowAll()
+        buildFile << """
+dependencies {
+    compile 'org:a:1.0', 'org:b:1.0'
+    other 'org:a:1.0'
+}
+"""
+        def original = resolve()
+
+        expect:
+        original.contains("graph: component org:a:2.0 []")
+
+        when:
+        a1.dependsOn(c).publish()
+        run "showOther", "--refresh-dependencies"
+        def changed = resolve()
+
+        then:
+        !output.contains(CACHE_HIT)
+        changed == original
+
+        when:
+        def restored = resolve()
+
+        then:
+        outputContains(CACHE_HIT)
+        restored == original
+    }
+
+    def "restores the graph of a configuration with project dependencies"() {
+        given:
+        mavenHttpRepo.module("org", "b", "1.0").publish().allowAll()
+        mavenHttpRepo.module("org", "c", "1.0").publish().allowAll()
+        settingsFile << "include 'lib'"
+        buildFile << """
+dependencies {
+    compile project(path: ':lib', configuration: 'conf')
+}
+project(':lib') {
+    repositories {
+        maven { url "${mavenHttpRepo.uri}" }
+    }
+    configurations {
+        conf
+    }
+    dependencies {
+        conf 'org:b:1.0'
+    }
+    task jar(type: Zip) {
+        from file('src')
+        archiveName = 'lib.jar'
+    }
+    artifacts {
+        conf jar
+    }
+}
+"""
+        file("lib/src/lib.txt") << "lib"
+
+        when:
+        def fresh = resolve()
+
+        then:
+        !output.contains(CACHE_HIT)
+        fresh.contains("graph: component project :lib [org:b:1.0->org:b:1.0]")
+        fresh.contains("graph: file lib.jar")
+        fresh.contains("graph: file b-1.0.jar")
+
+        when:
+        def restored = resolve()
+
+        then:
+        outputContains(CACHE_HIT)
+        restored == fresh
+
+        when:
+        buildFile.text = buildFile.text.replace("conf 'org:b:1.0'", "conf 'org:c:1.0'")
+        def changed = resolve()
+
+        then:
+        !output.contains(CACHE_HIT)
+        changed.contains("graph: component project :lib [org:c:1.0->org:c:1.0]")
+        changed.contains("graph: file c-1.0.jar")
+    }
+
+    private List<String> resolve() {
+        executer.withArgument("-D${ResolvedGraphCache.ENABLED_PROPERTY}=true")
+        run "show", "--info"
+        return graphLines()
+    }
+
+    private List<String> graphLines() {
+        return output.readLines().findAll { it.startsWith("graph: ") }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.api.internal.attributes.DefaultImmutableAttributesFactory;
+import org.gradle.api.internal.attributes.ImmutableAttributes;
+import org.gradle.api.internal.attributes.ImmutableAttributesFactory;
+import org.gradle.api.internal.tasks.TaskDependencies;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactIdentifier;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.model.DefaultIvyArtifactName;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.operations.BuildOperationWorkerRegistry;
+import org.gradle.internal.operations.DefaultBuildOperationProcessor;
+import org.gradle.internal.operations.DefaultBuildOperationQueueFactory;
+import org.gradle.internal.operations.DefaultBuildOperationWorkerRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the files of the artifacts of a configuration in order, as {@link DefaultLenientConfiguration} does, with each download taking a fixed
+ * time to simulate the latency of a remote repository. With more than one download, the files are first downloaded using the
+ * {@link ParallelArtifactDownloader}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ArtifactDownloadBenchmark {
+    private static final int ARTIFACT_COUNT = 64;
+
+    @Param({"1", "8"})
+    int downloads;
+
+    @Param({"20"})
+    int latencyMillis;
+
+    private final ImmutableAttributesFactory attributesFactory = new DefaultImmutableAttributesFactory();
+    private DefaultExecutorFactory executorFactory;
+    private BuildOperationWorkerRegistry workerRegistry;
+    private ParallelArtifactDownloader downloader;
+    private List<ResolvedArtifact> artifacts;
+
+    @Setup(Level.Trial)
+    public void createDownloader() {
+        executorFactory = new DefaultExecutorFactory();
+        workerRegistry = new DefaultBuildOperationWorkerRegistry(downloads);
+        downloader = new ParallelArtifactDownloader(new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(workerRegistry), executorFactory, downloads), downloads);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDownloader() {
+        executorFactory.stop();
+    }
+
+    @Setup(Level.Invocation)
+    public void createArtifacts() {
+        artifacts = new ArrayList<ResolvedArtifact>(ARTIFACT_COUNT);
+        for (int i = 0; i < ARTIFACT_COUNT; i++) {
+            ModuleVersionIdentifier id = DefaultModuleVersionIdentifier.newId("org.example", "module" + i, "1.0");
+            ModuleComponentIdentifier componentId = DefaultModuleComponentIdentifier.newId(id);
+            DefaultIvyArtifactName artifactName = new DefaultIvyArtifactName(id.getName(), "jar", "jar");
+            artifacts.add(new DefaultResolvedArtifact(id, artifactName, new DefaultModuleComponentArtifactIdentifier(componentId, artifactName), TaskDependencies.EMPTY,
+                new SlowDownload(new File(id.getName() + ".jar")), ImmutableAttributes.EMPTY, attributesFactory));
+        }
+    }
+
+    @Benchmark
+    public void resolveFiles(Blackhole blackhole) {
+        // The resolving thread holds a worker lease, as when resolving during task execution
+        BuildOperationWorkerRegistry.Completion completion = workerRegistry.operationStart();
+        try {
+            downloader.download(artifacts);
+            for (ResolvedArtifact artifact : artifacts) {
+                blackhole.consume(artifact.getFile());
+            }
+        } finally {
+            completion.operationFinish();
+        }
+    }
+
+    private class SlowDownload implements Factory<File> {
+        private final File file;
+
+        SlowDownload(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public File create() {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            return file;
+        }
+    }
+}
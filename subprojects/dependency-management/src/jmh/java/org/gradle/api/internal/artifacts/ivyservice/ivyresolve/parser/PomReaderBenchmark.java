@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.gradle.internal.resource.local.DefaultLocallyAvailableExternalResource;
+import org.gradle.internal.resource.local.DefaultLocallyAvailableResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.w3c.dom.Document;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the POMs of a real-world module cache, comparing the streaming {@link PomReader} with a parse of each whole POM into a DOM, as the reader
+ * previously did. The streaming reader also resolves the dependencies of the POM, so the DOM parse alone is a lower bound for the previous reader.
+ * Run with {@code -prof gc} to compare the allocation per POM.
+ *
+ * <p>The POMs are taken from the directory given by the {@code pomDir} system property, or from the module cache of the current user.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PomReaderBenchmark {
+    @Param({"dom", "stax"})
+    String reader;
+
+    private File[] poms;
+    private DocumentBuilder documentBuilder;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void findPoms() throws Exception {
+        File pomDir = new File(System.getProperty("pomDir", new File(System.getProperty("user.home"), ".gradle/caches/modules-2/files-2.1").getPath()));
+        List<File> files = new ArrayList<File>(FileUtils.listFiles(pomDir, new String[]{"pom"}, true));
+        if (files.isEmpty()) {
+            throw new IllegalStateException("No POMs found in " + pomDir);
+        }
+        poms = files.toArray(new File[0]);
+
+        final byte[] entities = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setValidating(false);
+        documentBuilder = factory.newDocumentBuilder();
+        documentBuilder.setEntityResolver(new EntityResolver() {
+            public InputSource resolveEntity(String publicId, String systemId) {
+                if (systemId != null && systemId.endsWith("m2-entities.ent")) {
+                    return new InputSource(new ByteArrayInputStream(entities));
+                }
+                return null;
+            }
+        });
+    }
+
+    @Benchmark
+    public Object read() throws Exception {
+        next = (next + 1) % poms.length;
+        File pom = poms[next];
+        if (reader.equals("dom")) {
+            return parseToDom(pom);
+        }
+        PomReader pomReader = new PomReader(new DefaultLocallyAvailableExternalResource(pom.toURI(), new DefaultLocallyAvailableResource(pom)));
+        return pomReader.getDependencies();
+    }
+
+    private Document parseToDom(File pom) throws Exception {
+        InputStream inputStream = new FileInputStream(pom);
+        try {
+            return documentBuilder.parse(new AddDTDFilterInputStream(inputStream), pom.toURI().toASCIIString());
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleVersionSelector;
+import org.gradle.internal.component.external.descriptor.Artifact;
+import org.gradle.internal.component.external.descriptor.DefaultExclude;
+import org.gradle.internal.component.external.descriptor.MavenScope;
+import org.gradle.internal.component.external.descriptor.MutableModuleDescriptorState;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.external.model.DefaultMutableMavenModuleResolveMetadata;
+import org.gradle.internal.component.external.model.MavenDependencyMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.component.model.Exclude;
+import org.gradle.internal.nativeintegration.services.NativeServices;
+import org.gradle.internal.resource.local.PathKeyFileStore;
+import org.gradle.util.GFileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the cached meta-data of 1000 modules, as warm resolution of a graph of 1000 modules does, comparing reads of a descriptor file per module
+ * with reads from the {@link PackedModuleMetadataStore}. Each module has a description and 10 dependencies in different scopes, some with
+ * exclusions, in the range of a typical POM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ModuleMetadataStoreBenchmark {
+    private static final int MODULES = 1000;
+    private static final int DEPENDENCIES = 10;
+
+    @Param({"files", "packed"})
+    String store;
+
+    private File cacheDir;
+    private ModuleMetadataStore metadataStore;
+    private ModuleComponentAtRepositoryKey[] keys;
+    private BigInteger[] hashes;
+
+    @Setup(Level.Trial)
+    public void createStore() throws IOException {
+        cacheDir = File.createTempFile("jmh", "");
+        cacheDir.delete();
+        NativeServices.initialize(new File(cacheDir, "native"));
+        PackedModuleMetadataStore packedStore = new PackedModuleMetadataStore(new File(cacheDir, "descriptors-packed"));
+        if (store.equals("files")) {
+            packedStore = new PackedModuleMetadataStore(cacheDir) {
+                @Override
+                public byte[] get(ModuleComponentAtRepositoryKey key, BigInteger descriptorHash) {
+                    return null;
+                }
+
+                @Override
+                public void put(ModuleComponentAtRepositoryKey key, BigInteger descriptorHash, byte[] data) {
+                }
+            };
+        }
+        metadataStore = new ModuleMetadataStore(new PathKeyFileStore(new File(cacheDir, "descriptors")), packedStore, new ModuleMetadataSerializer());
+        keys = new ModuleComponentAtRepositoryKey[MODULES];
+        hashes = new BigInteger[MODULES];
+        for (int i = 0; i < MODULES; i++) {
+            ModuleComponentIdentifier id = DefaultModuleComponentIdentifier.newId("org.gradle.sample" + i / 100, "module" + i, "1." + i);
+            MutableModuleDescriptorState descriptor = new MutableModuleDescriptorState(id, "release", false);
+            descriptor.setDescription("Sample module " + i + " of the meta-data store benchmark, with a description of typical length");
+            DefaultMutableMavenModuleResolveMetadata metadata = new DefaultMutableMavenModuleResolveMetadata(id, descriptor, "jar", false, dependencies(i));
+            keys[i] = new ModuleComponentAtRepositoryKey("0123456789abcdef0123456789abcdef", id);
+            hashes[i] = metadataStore.putModuleDescriptor(keys[i], metadata.asImmutable()).getSha1().asBigInteger();
+        }
+    }
+
+    private static List<DependencyMetadata> dependencies(int module) {
+        List<DependencyMetadata> dependencies = new ArrayList<DependencyMetadata>(DEPENDENCIES);
+        for (int i = 0; i < DEPENDENCIES; i++) {
+            int target = (module + i + 1) % MODULES;
+            MavenScope scope = MavenScope.values()[i % 4];
+            List<Exclude> excludes = i % 4 == 0
+                ? Collections.<Exclude>singletonList(new DefaultExclude("org.gradle.excluded", "excluded" + i))
+                : Collections.<Exclude>emptyList();
+            dependencies.add(new MavenDependencyMetadata(scope, i == DEPENDENCIES - 1, DefaultModuleVersionSelector.newSelector("org.gradle.sample" + target / 100, "module" + target, "1." + target), Collections.<Artifact>emptyList(), excludes));
+        }
+        return dependencies;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteStore() {
+        GFileUtils.deleteDirectory(cacheDir);
+    }
+
+    @Benchmark
+    public int loadAll() {
+        int count = 0;
+        for (int i = 0; i < MODULES; i++) {
+            if (metadataStore.getModuleDescriptor(keys[i], hashes[i]) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
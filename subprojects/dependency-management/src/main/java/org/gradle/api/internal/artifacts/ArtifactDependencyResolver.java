@@ -16,6 +16,7 @@
 package org.gradle.api.internal.artifacts;
 
 import org.gradle.api.attributes.AttributesSchema;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ComponentResolvers;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
 import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
@@ -32,4 +33,11 @@ public interface ArtifactDependencyResolver {
                  DependencyGraphVisitor graphVisitor,
                  DependencyArtifactsVisitor artifactsVisitor,
                  AttributesSchema attributesSchema);
+
+    /**
+     * Creates the resolvers for the meta-data and artifacts of components of the build and from the given repositories, without resolving a dependency graph.
+     */
+    ComponentResolvers createResolvers(ResolveContext resolveContext,
+                                       List<? extends ResolutionAwareRepository> repositories,
+                                       GlobalDependencyResolutionRules metadataHandler);
 }
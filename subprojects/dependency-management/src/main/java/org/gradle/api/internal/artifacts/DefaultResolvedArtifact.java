@@ -37,8 +37,8 @@ public class DefaultResolvedArtifact implements ResolvedArtifact, Buildable {
     private final ComponentArtifactIdentifier artifactId;
     private final TaskDependency buildDependencies;
     private final AttributeContainer attributes;
-    private Factory<File> artifactSource;
-    private File file;
+    private volatile Factory<File> artifactSource;
+    private volatile File file;
 
     public DefaultResolvedArtifact(ModuleVersionIdentifier owner, IvyArtifactName artifact, ComponentArtifactIdentifier artifactId, TaskDependency buildDependencies, Factory<File> artifactSource, AttributeContainerInternal parentAttributes, ImmutableAttributesFactory attributesFactory) {
         this.owner = owner;
@@ -116,10 +116,19 @@ public class DefaultResolvedArtifact implements ResolvedArtifact, Buildable {
     }
 
     public File getFile() {
-        if (file == null) {
-            file = artifactSource.create();
-            artifactSource = null;
+        // Not synchronized, as creating the file may need the cache lock, which the caller may hold. The file may be created more than once
+        // when the artifact is used from several threads, and is then published in an order that other threads can rely on
+        File result = file;
+        if (result != null) {
+            return result;
         }
-        return file;
+        Factory<File> source = artifactSource;
+        if (source == null) {
+            return file;
+        }
+        result = source.create();
+        file = result;
+        artifactSource = null;
+        return result;
     }
 }
@@ -23,8 +23,10 @@ import org.gradle.api.internal.artifacts.component.DefaultBuildIdentifier;
 import org.gradle.api.internal.artifacts.component.DefaultComponentIdentifierFactory;
 import org.gradle.api.internal.artifacts.dsl.dependencies.DependencyFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheMetaData;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockReleasingBuildOperationProcessor;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingArtifactDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.ParallelArtifactDownloader;
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.ModuleVersionsCache;
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.SingleFileBackedModuleVersionsCache;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ComponentResolvers;
@@ -33,12 +35,15 @@ import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolveIvyFactory
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolverProviderFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.StartParameterResolutionOverride;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache.InMemoryCachedRepositoryFactory;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.ParentPomCache;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionComparator;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.DefaultMissingModuleCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.DefaultModuleArtifactsCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.DefaultModuleMetaDataCache;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.MissingModuleCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleArtifactsCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetaDataCache;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.ConfigurationComponentMetaDataBuilder;
@@ -55,6 +60,7 @@ import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectDepende
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectLocalComponentProvider;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectPublicationRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultArtifactDependencyResolver;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.ResolvedGraphCache;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
 import org.gradle.api.internal.artifacts.mvnsettings.DefaultLocalMavenRepositoryLocator;
 import org.gradle.api.internal.artifacts.mvnsettings.DefaultMavenFileLocations;
@@ -80,6 +86,8 @@ import org.gradle.initialization.ProjectAccessListener;
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetadata;
 import org.gradle.internal.installation.CurrentGradleInstallation;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationWorkerRegistry;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.cached.ByUrlCachedExternalResourceIndex;
 import org.gradle.internal.resource.cached.ivy.ArtifactAtRepositoryCachedArtifactIndex;
@@ -154,6 +162,13 @@ class DependencyManagementBuildScopeServices {
         );
     }
 
+    MissingModuleCache createMissingModuleCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager) {
+        return new DefaultMissingModuleCache(
+            timeProvider,
+            cacheLockingManager
+        );
+    }
+
     ModuleArtifactsCache createModuleArtifactsCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager) {
         return new DefaultModuleArtifactsCache(
             timeProvider,
@@ -205,6 +220,10 @@ class DependencyManagementBuildScopeServices {
         return finderFactory.create();
     }
 
+    ParentPomCache createParentPomCache() {
+        return new ParentPomCache();
+    }
+
     VersionSelectorScheme createVersionSelectorScheme(VersionComparator versionComparator) {
         return new DefaultVersionSelectorScheme(versionComparator);
     }
@@ -229,7 +248,7 @@ class DependencyManagementBuildScopeServices {
         );
     }
 
-    ResolveIvyFactory createResolveIvyFactory(StartParameter startParameter, ModuleVersionsCache moduleVersionsCache, ModuleMetaDataCache moduleMetaDataCache, ModuleArtifactsCache moduleArtifactsCache,
+    ResolveIvyFactory createResolveIvyFactory(StartParameter startParameter, ModuleVersionsCache moduleVersionsCache, ModuleMetaDataCache moduleMetaDataCache, ModuleArtifactsCache moduleArtifactsCache, MissingModuleCache missingModuleCache,
                                               ArtifactAtRepositoryCachedArtifactIndex artifactAtRepositoryCachedArtifactIndex, CacheLockingManager cacheLockingManager,
                                               BuildCommencedTimeProvider buildCommencedTimeProvider, InMemoryCachedRepositoryFactory inMemoryCachedRepositoryFactory,
                                               VersionSelectorScheme versionSelectorScheme, VersionComparator versionComparator) {
@@ -238,6 +257,7 @@ class DependencyManagementBuildScopeServices {
             moduleVersionsCache,
             moduleMetaDataCache,
             moduleArtifactsCache,
+            missingModuleCache,
             artifactAtRepositoryCachedArtifactIndex,
             cacheLockingManager,
             startParameterResolutionOverride,
@@ -252,18 +272,32 @@ class DependencyManagementBuildScopeServices {
                                                                 CacheLockingManager cacheLockingManager,
                                                                 VersionComparator versionComparator,
                                                                 ServiceRegistry serviceRegistry,
-                                                                ImmutableAttributesFactory cache) {
+                                                                ImmutableAttributesFactory cache,
+                                                                BuildOperationProcessor buildOperationProcessor,
+                                                                BuildOperationWorkerRegistry buildOperationWorkerRegistry) {
         ArtifactDependencyResolver resolver = new DefaultArtifactDependencyResolver(
             serviceRegistry,
             resolveIvyFactory,
             dependencyDescriptorFactory,
             cacheLockingManager,
             versionComparator,
-            cache
+            cache,
+            new CacheLockReleasingBuildOperationProcessor(buildOperationProcessor, buildOperationWorkerRegistry, cacheLockingManager)
         );
         return new CacheLockingArtifactDependencyResolver(cacheLockingManager, resolver);
     }
 
+    ParallelArtifactDownloader createParallelArtifactDownloader(BuildOperationProcessor buildOperationProcessor, BuildOperationWorkerRegistry buildOperationWorkerRegistry,
+                                                                CacheLockingManager cacheLockingManager) {
+        return new ParallelArtifactDownloader(new CacheLockReleasingBuildOperationProcessor(buildOperationProcessor, buildOperationWorkerRegistry, cacheLockingManager));
+    }
+
+    ResolvedGraphCache createResolvedGraphCache(CacheLockingManager cacheLockingManager, ModuleMetaDataCache moduleMetaDataCache, ComponentIdentifierFactory componentIdentifierFactory,
+                                                VersionSelectorScheme versionSelectorScheme, BuildCommencedTimeProvider timeProvider, StartParameter startParameter) {
+        return new ResolvedGraphCache(cacheLockingManager, moduleMetaDataCache, componentIdentifierFactory, versionSelectorScheme, timeProvider, startParameter.isRefreshDependencies(),
+            "true".equalsIgnoreCase(System.getProperty(ResolvedGraphCache.ENABLED_PROPERTY)));
+    }
+
     ResolutionResultsStoreFactory createResolutionResultsStoreFactory(TemporaryFileProvider temporaryFileProvider) {
         return new ResolutionResultsStoreFactory(temporaryFileProvider);
     }
@@ -36,4 +36,11 @@ public interface ArtifactCacheMetaData {
      * @return Metadata store location
      */
     File getMetaDataStoreDirectory();
+
+    /**
+     * Returns the root directory for the packed meta-data store, which keeps the meta-data of each repository in a single file.
+     *
+     * @return Packed metadata store location
+     */
+    File getPackedMetaDataStoreDirectory();
 }
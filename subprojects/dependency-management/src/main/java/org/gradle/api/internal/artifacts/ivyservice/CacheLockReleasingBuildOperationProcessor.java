@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.Action;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
+import org.gradle.internal.operations.BuildOperationWorkerRegistry;
+import org.gradle.internal.operations.RunnableBuildOperation;
+
+/**
+ * Runs build operations from within dependency resolution. The cache lock is released while waiting for the operations, so that they can
+ * use the cache. As dependencies can be resolved outside of task execution, the calling thread takes a worker lease for the operations, once
+ * the cache lock has been released.
+ */
+public class CacheLockReleasingBuildOperationProcessor implements BuildOperationProcessor {
+    private final BuildOperationProcessor delegate;
+    private final BuildOperationWorkerRegistry workerRegistry;
+    private final CacheLockingManager cacheLockingManager;
+
+    public CacheLockReleasingBuildOperationProcessor(BuildOperationProcessor delegate, BuildOperationWorkerRegistry workerRegistry, CacheLockingManager cacheLockingManager) {
+        this.delegate = delegate;
+        this.workerRegistry = workerRegistry;
+        this.cacheLockingManager = cacheLockingManager;
+    }
+
+    @Override
+    public <T extends BuildOperation> void run(final BuildOperationWorker<T> worker, final Action<BuildOperationQueue<T>> generator) {
+        run(new Runnable() {
+            @Override
+            public void run() {
+                delegate.run(worker, generator);
+            }
+        });
+    }
+
+    @Override
+    public <T extends RunnableBuildOperation> void run(final Action<BuildOperationQueue<T>> generator) {
+        run(new Runnable() {
+            @Override
+            public void run() {
+                delegate.run(generator);
+            }
+        });
+    }
+
+    private void run(final Runnable action) {
+        // Take the lease without holding the cache lock, as the threads holding the other leases may be waiting for the cache lock
+        cacheLockingManager.longRunningOperation(new Runnable() {
+            @Override
+            public void run() {
+                // Reuses the lease of the current operation, if any
+                BuildOperationWorkerRegistry.Completion completion = workerRegistry.operationStart();
+                try {
+                    action.run();
+                } finally {
+                    completion.operationFinish();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
+
+/**
+ * Takes the cache lock for each component that is resolved, so that metadata can be resolved by threads other than the one that is resolving
+ * the dependency graph.
+ */
+public class CacheLockingComponentMetaDataResolver implements ComponentMetaDataResolver {
+    private final CacheLockingManager lockingManager;
+    private final ComponentMetaDataResolver delegate;
+
+    public CacheLockingComponentMetaDataResolver(CacheLockingManager lockingManager, ComponentMetaDataResolver delegate) {
+        this.lockingManager = lockingManager;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void resolve(final ComponentIdentifier identifier, final ComponentOverrideMetadata componentOverrideMetadata, final BuildableComponentResolveResult result) {
+        lockingManager.useCache(new Runnable() {
+            public void run() {
+                delegate.resolve(identifier, componentOverrideMetadata, result);
+            }
+        });
+    }
+}
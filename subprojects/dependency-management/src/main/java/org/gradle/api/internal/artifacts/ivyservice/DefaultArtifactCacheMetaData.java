@@ -48,6 +48,10 @@ public class DefaultArtifactCacheMetaData implements ArtifactCacheMetaData, Cach
         return new File(createCacheRelativeDir(CacheLayout.META_DATA), "descriptors");
     }
 
+    public File getPackedMetaDataStoreDirectory() {
+        return new File(createCacheRelativeDir(CacheLayout.META_DATA), "descriptors-packed");
+    }
+
     private File createCacheRelativeDir(CacheLayout cacheLayout) {
         return cacheLayout.getPath(getCacheDir());
     }
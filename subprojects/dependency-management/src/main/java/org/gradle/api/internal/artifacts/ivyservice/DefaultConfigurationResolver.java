@@ -18,6 +18,7 @@ package org.gradle.api.internal.artifacts.ivyservice;
 
 import com.google.common.collect.ImmutableList;
 import org.gradle.api.artifacts.ProjectDependency;
+import org.gradle.api.artifacts.UnresolvedDependency;
 import org.gradle.api.artifacts.dsl.RepositoryHandler;
 import org.gradle.api.artifacts.result.ResolvedComponentResult;
 import org.gradle.api.attributes.AttributesSchema;
@@ -28,6 +29,7 @@ import org.gradle.api.internal.artifacts.ResolverResults;
 import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
 import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.BuildDependenciesOnlyVisitedArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultResolvedArtifactResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultResolvedArtifactsBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.VisitedArtifactsResults;
@@ -35,7 +37,12 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.Visit
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyArtifactsVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.CachedResolvedGraph;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.ResolvedGraphCache;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.ResolvedGraphKey;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.ResolvedGraphRecorder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.DefaultResolvedConfigurationBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.DefaultResolvedGraphResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedConfigurationDependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedGraphResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.TransientConfigurationResults;
@@ -57,6 +64,7 @@ import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
 import org.gradle.internal.component.model.DependencyMetadata;
 import org.gradle.util.CollectionUtils;
 
+import java.util.Collections;
 import java.util.List;
 
 public class DefaultConfigurationResolver implements ConfigurationResolver {
@@ -74,11 +82,14 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
     private final boolean buildProjectDependencies;
     private final AttributesSchema attributesSchema;
     private final ArtifactTransforms artifactTransforms;
+    private final ParallelArtifactDownloader artifactDownloader;
+    private final ResolvedGraphCache graphCache;
 
     public DefaultConfigurationResolver(ArtifactDependencyResolver resolver, RepositoryHandler repositories,
                                         GlobalDependencyResolutionRules metadataHandler, CacheLockingManager cacheLockingManager,
                                         ResolutionResultsStoreFactory storeFactory, boolean buildProjectDependencies,
-                                        AttributesSchema attributesSchema, ArtifactTransforms artifactTransforms) {
+                                        AttributesSchema attributesSchema, ArtifactTransforms artifactTransforms, ParallelArtifactDownloader artifactDownloader,
+                                        ResolvedGraphCache graphCache) {
         this.resolver = resolver;
         this.repositories = repositories;
         this.metadataHandler = metadataHandler;
@@ -87,6 +98,8 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
         this.buildProjectDependencies = buildProjectDependencies;
         this.attributesSchema = attributesSchema;
         this.artifactTransforms = artifactTransforms;
+        this.artifactDownloader = artifactDownloader;
+        this.graphCache = graphCache;
     }
 
     @Override
@@ -104,12 +117,29 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
 
         BinaryStore oldModelStore = stores.nextBinaryStore();
         Store<TransientConfigurationResults> oldModelCache = stores.oldModelCache();
+        BinaryStore newModelStore = stores.nextBinaryStore();
+        Store<ResolvedComponentResult> newModelCache = stores.newModelCache();
+
+        ResolvedGraphKey graphKey = graphCache.createKey(configuration, resolutionAwareRepositories, metadataHandler);
+        if (graphKey != null) {
+            CachedResolvedGraph cachedGraph = graphCache.get(graphKey, configuration, metadataHandler);
+            DefaultResolvedArtifactResults cachedArtifacts = cachedGraph == null ? null
+                : cachedGraph.getArtifactResults(resolver.createResolvers(configuration, resolutionAwareRepositories, metadataHandler), configuration.getAttributesCache());
+            if (cachedArtifacts != null) {
+                restoreGraph(configuration, cachedGraph, cachedArtifacts, oldModelStore, oldModelCache, newModelStore, newModelCache, results);
+                return;
+            }
+        }
+        ResolvedGraphRecorder graphRecorder = graphKey == null ? null : graphCache.createRecorder(configuration, metadataHandler);
+        if (graphRecorder != null) {
+            oldModelStore = graphRecorder.recordOldModel(oldModelStore);
+            newModelStore = graphRecorder.recordNewModel(newModelStore);
+        }
+
         TransientConfigurationResultsBuilder oldTransientModelBuilder = new TransientConfigurationResultsBuilder(oldModelStore, oldModelCache);
         DefaultResolvedConfigurationBuilder oldModelBuilder = new DefaultResolvedConfigurationBuilder(oldTransientModelBuilder);
         ResolvedConfigurationDependencyGraphVisitor oldModelVisitor = new ResolvedConfigurationDependencyGraphVisitor(oldModelBuilder);
 
-        BinaryStore newModelStore = stores.nextBinaryStore();
-        Store<ResolvedComponentResult> newModelCache = stores.newModelCache();
         StreamingResolutionResultBuilder newModelBuilder = new StreamingResolutionResultBuilder(newModelStore, newModelCache);
 
         ResolvedLocalComponentsResultGraphVisitor localComponentsVisitor = new ResolvedLocalComponentsResultGraphVisitor();
@@ -117,15 +147,43 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
         DefaultResolvedArtifactsBuilder artifactsBuilder = new DefaultResolvedArtifactsBuilder(buildProjectDependencies, configuration.getResolutionStrategy().getSortOrder());
         FileDependencyCollectingGraphVisitor fileDependencyVisitor = new FileDependencyCollectingGraphVisitor();
 
-        DependencyGraphVisitor graphVisitor = new CompositeDependencyGraphVisitor(oldModelVisitor, newModelBuilder, localComponentsVisitor, fileDependencyVisitor);
-        DependencyArtifactsVisitor artifactsVisitor = new CompositeDependencyArtifactsVisitor(oldModelVisitor, artifactsBuilder);
+        DependencyGraphVisitor graphVisitor;
+        DependencyArtifactsVisitor artifactsVisitor;
+        if (graphRecorder != null) {
+            graphVisitor = new CompositeDependencyGraphVisitor(oldModelVisitor, newModelBuilder, localComponentsVisitor, fileDependencyVisitor, graphRecorder);
+            artifactsVisitor = new CompositeDependencyArtifactsVisitor(oldModelVisitor, artifactsBuilder, graphRecorder);
+        } else {
+            graphVisitor = new CompositeDependencyGraphVisitor(oldModelVisitor, newModelBuilder, localComponentsVisitor, fileDependencyVisitor);
+            artifactsVisitor = new CompositeDependencyArtifactsVisitor(oldModelVisitor, artifactsBuilder);
+        }
 
         resolver.resolve(configuration, resolutionAwareRepositories, metadataHandler, Specs.<DependencyMetadata>satisfyAll(), graphVisitor, artifactsVisitor, attributesSchema);
 
-        VisitedArtifactsResults artifactsResults = artifactsBuilder.complete();
+        DefaultResolvedArtifactResults artifactsResults = artifactsBuilder.complete();
         results.graphResolved(newModelBuilder.complete(), localComponentsVisitor, new BuildDependenciesOnlyVisitedArtifactSet(artifactsResults, fileDependencyVisitor, artifactTransforms));
 
         results.retainState(new ArtifactResolveState(oldModelBuilder.complete(), artifactsResults, fileDependencyVisitor, oldTransientModelBuilder));
+
+        if (graphRecorder != null) {
+            CachedResolvedGraph resolvedGraph = graphRecorder.complete(artifactsResults);
+            if (resolvedGraph != null) {
+                graphCache.put(graphKey, resolvedGraph);
+            }
+        }
+    }
+
+    private void restoreGraph(ConfigurationInternal configuration, CachedResolvedGraph cachedGraph, DefaultResolvedArtifactResults artifactsResults,
+                              BinaryStore oldModelStore, Store<TransientConfigurationResults> oldModelCache,
+                              BinaryStore newModelStore, Store<ResolvedComponentResult> newModelCache, ResolverResults results) {
+        TransientConfigurationResultsBuilder oldTransientModelBuilder = new TransientConfigurationResultsBuilder(oldModelStore, oldModelCache);
+        oldTransientModelBuilder.replay(cachedGraph.getOldModelData());
+        ResolvedGraphResults graphResults = new DefaultResolvedGraphResults(Collections.<UnresolvedDependency>emptySet(), cachedGraph.getFirstLevelDependencies(configuration));
+
+        StreamingResolutionResultBuilder newModelBuilder = new StreamingResolutionResultBuilder(newModelStore, newModelCache);
+        FileDependencyCollectingGraphVisitor fileDependencyVisitor = new FileDependencyCollectingGraphVisitor();
+
+        results.graphResolved(newModelBuilder.replay(cachedGraph.getNewModelData()), cachedGraph.getLocalComponentsResult(), new BuildDependenciesOnlyVisitedArtifactSet(artifactsResults, fileDependencyVisitor, artifactTransforms));
+        results.retainState(new ArtifactResolveState(graphResults, artifactsResults, fileDependencyVisitor, oldTransientModelBuilder));
     }
 
     public void resolveArtifacts(ConfigurationInternal configuration, ResolverResults results) {
@@ -136,7 +194,7 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
 
         TransientConfigurationResultsLoader transientConfigurationResultsFactory = new TransientConfigurationResultsLoader(transientConfigurationResultsBuilder, graphResults);
 
-        DefaultLenientConfiguration result = new DefaultLenientConfiguration(configuration, cacheLockingManager, graphResults.getUnresolvedDependencies(), artifactResults, resolveState.fileDependencyResults, transientConfigurationResultsFactory, artifactTransforms);
+        DefaultLenientConfiguration result = new DefaultLenientConfiguration(configuration, cacheLockingManager, graphResults.getUnresolvedDependencies(), artifactResults, resolveState.fileDependencyResults, transientConfigurationResultsFactory, artifactTransforms, artifactDownloader);
         results.artifactsResolved(new DefaultResolvedConfiguration(result, configuration.getAttributes()), result);
     }
 
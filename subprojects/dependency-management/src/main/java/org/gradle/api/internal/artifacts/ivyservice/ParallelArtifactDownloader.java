@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Downloads the files of external artifacts concurrently, so that they are already in the file store when the artifacts are later used one at a
+ * time, in order. The number of concurrent downloads is set by the {@value #PARALLELISM_PROPERTY} system property, and is also limited by the
+ * maximum number of workers. Artifacts are only downloaded as they are used when the property is not set.
+ *
+ * <p>Failures are ignored here. The file of an artifact that could not be downloaded is resolved again when it is used, which reports the failure.</p>
+ */
+public class ParallelArtifactDownloader {
+    public final static String PARALLELISM_PROPERTY = "org.gradle.resolution.artifactdownloads";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelArtifactDownloader.class);
+    private final BuildOperationProcessor buildOperationProcessor;
+    private final int parallelism;
+
+    public ParallelArtifactDownloader(BuildOperationProcessor buildOperationProcessor) {
+        this(buildOperationProcessor, Integer.getInteger(PARALLELISM_PROPERTY, 1));
+    }
+
+    ParallelArtifactDownloader(BuildOperationProcessor buildOperationProcessor, int parallelism) {
+        this.buildOperationProcessor = buildOperationProcessor;
+        this.parallelism = parallelism;
+    }
+
+    public void download(Collection<? extends ResolvedArtifact> artifacts) {
+        if (parallelism < 2) {
+            return;
+        }
+        final Queue<ResolvedArtifact> pending = new ConcurrentLinkedQueue<ResolvedArtifact>();
+        for (ResolvedArtifact artifact : artifacts) {
+            if (artifact.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier) {
+                pending.add(artifact);
+            }
+        }
+        if (pending.size() < 2) {
+            return;
+        }
+
+        final int downloaders = Math.min(parallelism, pending.size());
+        LOGGER.debug("Downloading {} artifacts using {} concurrent downloads.", pending.size(), downloaders);
+        buildOperationProcessor.run(new Action<BuildOperationQueue<DownloadOperation>>() {
+            public void execute(BuildOperationQueue<DownloadOperation> queue) {
+                for (int i = 0; i < downloaders; i++) {
+                    queue.add(new DownloadOperation(pending));
+                }
+            }
+        });
+    }
+
+    /**
+     * Downloads artifacts from the shared queue until it is empty, so that the number of operations bounds the number of concurrent downloads.
+     */
+    private static class DownloadOperation implements RunnableBuildOperation {
+        private final Queue<ResolvedArtifact> pending;
+
+        DownloadOperation(Queue<ResolvedArtifact> pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public String getDescription() {
+            return "downloading artifacts";
+        }
+
+        @Override
+        public void run() {
+            ResolvedArtifact artifact = pending.poll();
+            while (artifact != null) {
+                try {
+                    artifact.getFile();
+                } catch (Throwable t) {
+                    LOGGER.debug("Could not download {}. The failure is reported when the artifact is used.", artifact, t);
+                }
+                artifact = pending.poll();
+            }
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
 import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier;
 import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.ModuleVersionsCache;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.MissingModuleCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleArtifactsCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetaDataCache;
 import org.gradle.api.internal.component.ArtifactType;
@@ -56,6 +57,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.math.BigInteger;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class CachingModuleComponentRepository implements ModuleComponentRepository {
     private static final Logger LOGGER = LoggerFactory.getLogger(CachingModuleComponentRepository.class);
@@ -63,6 +65,7 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
     private final ModuleVersionsCache moduleVersionsCache;
     private final ModuleMetaDataCache moduleMetaDataCache;
     private final ModuleArtifactsCache moduleArtifactsCache;
+    private final MissingModuleCache missingModuleCache;
     private final CachedArtifactIndex artifactAtRepositoryCachedResolutionIndex;
 
     private final CachePolicy cachePolicy;
@@ -70,17 +73,19 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
     private final ModuleComponentRepository delegate;
     private final BuildCommencedTimeProvider timeProvider;
     private final ComponentMetadataProcessor metadataProcessor;
+    private final AtomicInteger skippedRequests = new AtomicInteger();
     private LocateInCacheRepositoryAccess locateInCacheRepositoryAccess = new LocateInCacheRepositoryAccess();
     private ResolveAndCacheRepositoryAccess resolveAndCacheRepositoryAccess = new ResolveAndCacheRepositoryAccess();
 
     public CachingModuleComponentRepository(ModuleComponentRepository delegate, ModuleVersionsCache moduleVersionsCache, ModuleMetaDataCache moduleMetaDataCache,
-                                            ModuleArtifactsCache moduleArtifactsCache, CachedArtifactIndex artifactAtRepositoryCachedResolutionIndex,
+                                            ModuleArtifactsCache moduleArtifactsCache, MissingModuleCache missingModuleCache, CachedArtifactIndex artifactAtRepositoryCachedResolutionIndex,
                                             CachePolicy cachePolicy, BuildCommencedTimeProvider timeProvider,
                                             ComponentMetadataProcessor metadataProcessor) {
         this.delegate = delegate;
         this.moduleMetaDataCache = moduleMetaDataCache;
         this.moduleVersionsCache = moduleVersionsCache;
         this.moduleArtifactsCache = moduleArtifactsCache;
+        this.missingModuleCache = missingModuleCache;
         this.artifactAtRepositoryCachedResolutionIndex = artifactAtRepositoryCachedResolutionIndex;
         this.timeProvider = timeProvider;
         this.cachePolicy = cachePolicy;
@@ -108,10 +113,21 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
         return resolveAndCacheRepositoryAccess;
     }
 
+    /**
+     * Returns the number of meta-data requests to this repository that were answered from the cache of missing modules, instead of being made to the repository.
+     */
+    public int getSkippedRequestCount() {
+        return skippedRequests.get();
+    }
+
     private DefaultModuleIdentifier getCacheKey(ModuleVersionSelector requested) {
         return new DefaultModuleIdentifier(requested.getGroup(), requested.getName());
     }
 
+    private DefaultModuleIdentifier getCacheKey(ModuleComponentIdentifier id) {
+        return new DefaultModuleIdentifier(id.getGroup(), id.getModule());
+    }
+
     private class LocateInCacheRepositoryAccess implements ModuleComponentRepositoryAccess {
         @Override
         public String toString() {
@@ -164,6 +180,7 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
         private void resolveComponentMetaDataFromCache(ModuleComponentIdentifier moduleComponentIdentifier, ComponentOverrideMetadata requestMetaData, BuildableModuleComponentMetaDataResolveResult result) {
             ModuleMetaDataCache.CachedMetaData cachedMetaData = moduleMetaDataCache.getCachedModuleDescriptor(delegate, moduleComponentIdentifier);
             if (cachedMetaData == null) {
+                resolveMissingModuleFromCache(moduleComponentIdentifier, result);
                 return;
             }
             if (cachedMetaData.isMissing()) {
@@ -172,6 +189,7 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
                     return;
                 }
                 LOGGER.debug("Detected non-existence of module '{}' in resolver cache '{}'", moduleComponentIdentifier, delegate.getName());
+                skippedRequests.incrementAndGet();
                 result.missing();
                 // When age == 0, verified since the start of this build, assume still missing
                 result.setAuthoritative(cachedMetaData.getAgeMillis() == 0);
@@ -199,6 +217,26 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
             result.setAuthoritative(cachedMetaData.getAgeMillis() == 0);
         }
 
+        /**
+         * Treats a version of a module as missing when a request to the repository for another version of the module was answered as not
+         * found, so that modules that only live in a later repository are not requested from this one for each new version. The result is
+         * never authoritative, so the repository is still searched when no other repository has the version.
+         */
+        private void resolveMissingModuleFromCache(ModuleComponentIdentifier moduleComponentIdentifier, BuildableModuleComponentMetaDataResolveResult result) {
+            MissingModuleCache.CachedMissingModule cachedMissingModule = missingModuleCache.getCachedMissingModule(delegate, getCacheKey(moduleComponentIdentifier));
+            if (cachedMissingModule == null) {
+                return;
+            }
+            if (cachePolicy.mustRefreshMissingModule(moduleComponentIdentifier, cachedMissingModule.getAgeMillis())) {
+                LOGGER.debug("Cached missing module is expired: will perform fresh resolve of '{}' in '{}'", moduleComponentIdentifier, delegate.getName());
+                return;
+            }
+            LOGGER.debug("Detected non-existence of module '{}' from other versions in resolver cache '{}'", moduleComponentIdentifier, delegate.getName());
+            skippedRequests.incrementAndGet();
+            result.missing();
+            result.setAuthoritative(false);
+        }
+
         @Override
         public void resolveArtifactsWithType(ComponentResolveMetadata component, ArtifactType artifactType, BuildableArtifactSetResolveResult result) {
             final CachingModuleSource cachedModuleSource = (CachingModuleSource) component.getSource();
@@ -313,8 +351,10 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
             switch (result.getState()) {
                 case Missing:
                     moduleMetaDataCache.cacheMissing(delegate, moduleComponentIdentifier);
+                    missingModuleCache.cacheMissing(delegate, getCacheKey(moduleComponentIdentifier));
                     break;
                 case Resolved:
+                    missingModuleCache.cachePresent(delegate, getCacheKey(moduleComponentIdentifier));
                     ModuleComponentResolveMetadata metaData = result.getMetaData();
                     ModuleSource moduleSource = metaData.getSource();
                     ModuleMetaDataCache.CachedMetaData cachedMetaData = moduleMetaDataCache.cacheMetaData(delegate, metaData);
@@ -375,7 +415,7 @@ public class CachingModuleComponentRepository implements ModuleComponentReposito
         return new ArtifactAtRepositoryKey(delegate.getId(), artifact.getId());
     }
 
-    static class CachingModuleSource implements ModuleSource {
+    public static class CachingModuleSource implements ModuleSource {
         private final BigInteger descriptorHash;
         private final boolean changingModule;
         private final ModuleSource delegate;
@@ -50,9 +50,15 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
     private static final String DEPENDENCY_IMPORT_SCOPE = "import";
     private final VersionSelectorScheme gradleVersionSelectorScheme;
     private final VersionSelectorScheme mavenVersionSelectorScheme;
+    private final ParentPomCache parentPomCache;
 
     public GradlePomModuleDescriptorParser(VersionSelectorScheme gradleVersionSelectorScheme) {
+        this(gradleVersionSelectorScheme, new ParentPomCache());
+    }
+
+    public GradlePomModuleDescriptorParser(VersionSelectorScheme gradleVersionSelectorScheme, ParentPomCache parentPomCache) {
         this.gradleVersionSelectorScheme = gradleVersionSelectorScheme;
+        this.parentPomCache = parentPomCache;
         mavenVersionSelectorScheme = new MavenVersionSelectorScheme(gradleVersionSelectorScheme);
     }
 
@@ -201,9 +207,14 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
      */
     private PomReader parseOtherPom(DescriptorParseContext parseContext, ModuleComponentIdentifier parentId) throws IOException, SAXException {
         LocallyAvailableExternalResource localResource = parseContext.getMetaDataArtifact(parentId, ArtifactType.MAVEN_POM);
-        PomReader pomReader = new PomReader(localResource);
+        PomReader pomReader = parentPomCache.get(parentId, localResource.getLocalResource());
+        if (pomReader != null) {
+            return pomReader;
+        }
+        pomReader = new PomReader(localResource);
         GradlePomModuleDescriptorBuilder mdBuilder = new GradlePomModuleDescriptorBuilder(pomReader, gradleVersionSelectorScheme, mavenVersionSelectorScheme);
         doParsePom(parseContext, mdBuilder, pomReader);
+        parentPomCache.put(parentId, localResource.getLocalResource(), pomReader);
         return pomReader;
     }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.internal.resource.local.LocallyAvailableResource;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the parent and imported POMs parsed by {@link GradlePomModuleDescriptorParser} for the duration of the build, keyed by their
+ * coordinates. Many modules share the same few parent POMs and BOMs, which would otherwise be parsed again for every module that
+ * refers to them.
+ *
+ * <p>An entry is only used when it was parsed from the same local file, with the same length and timestamp, as the one resolved for
+ * the current request. This way a changing or refreshed POM is parsed again.</p>
+ */
+public class ParentPomCache {
+    private final ConcurrentMap<ModuleComponentIdentifier, CachedPom> entries = new ConcurrentHashMap<ModuleComponentIdentifier, CachedPom>();
+
+    @Nullable
+    public PomReader get(ModuleComponentIdentifier id, LocallyAvailableResource resource) {
+        CachedPom cachedPom = entries.get(id);
+        if (cachedPom == null || !cachedPom.isFor(resource)) {
+            return null;
+        }
+        return cachedPom.pomReader;
+    }
+
+    public void put(ModuleComponentIdentifier id, LocallyAvailableResource resource, PomReader pomReader) {
+        entries.put(id, new CachedPom(resource, pomReader));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private static class CachedPom {
+        private final File file;
+        private final long lastModified;
+        private final long length;
+        private final PomReader pomReader;
+
+        CachedPom(LocallyAvailableResource resource, PomReader pomReader) {
+            this.file = resource.getFile();
+            this.lastModified = resource.getLastModified();
+            this.length = resource.getContentLength();
+            this.pomReader = pomReader;
+        }
+
+        boolean isFor(LocallyAvailableResource resource) {
+            return file.equals(resource.getFile()) && lastModified == resource.getLastModified() && length == resource.getContentLength();
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import org.apache.commons.io.IOUtils;
 import org.apache.ivy.core.IvyPatternHelper;
@@ -29,19 +30,13 @@ import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.data.PomPr
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.classloader.ClassLoaderUtils;
 import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.EntityResolver;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.ByteArrayInputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -50,11 +45,20 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.PomDomParser.*;
 
 /**
  * Copied from org.apache.ivy.plugins.parser.m2.PomReader.
+ *
+ * <p>The POM is read with a streaming parser into a tree of {@link PomElement}s that only holds the parts of the POM that are used to build the meta-data
+ * of the module, rather than into a DOM of the whole POM. The entities that Maven allows in a POM are replaced without parsing a DTD.</p>
+ *
+ * <p>Parent and imported POMs are shared between the modules that refer to them, see {@link ParentPomCache}, so the lazily resolved dependencies
+ * are guarded.</p>
  */
 public class PomReader implements PomParent {
 
@@ -84,40 +88,42 @@ public class PomReader implements PomParent {
     private static final String PROFILE_ACTIVATION = "activation";
     private static final String PROFILE_ACTIVATION_ACTIVE_BY_DEFAULT = "activeByDefault";
     private static final String PROFILE_ACTIVATION_PROPERTY = "property";
-    private static final byte[] M2_ENTITIES_RESOURCE;
-    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY;
+    private static final Set<String> PROJECT_ELEMENTS = ImmutableSet.of(GROUP_ID, ARTIFACT_ID, VERSION, PACKAGING, DESCRIPTION, PARENT, PROPERTIES, DEPENDENCIES, DEPENDENCY_MGT, DISTRIBUTION_MGT, PROFILES);
+    private static final Set<String> PROFILE_ELEMENTS = ImmutableSet.of(PROFILE_ID, PROFILE_ACTIVATION, PROPERTIES, DEPENDENCIES, DEPENDENCY_MGT);
+    private static final Pattern M2_ENTITY_DECLARATION = Pattern.compile("<!ENTITY\\s+(\\w+)\\s+\"&#(\\d+);\">");
+    private static final Map<String, String> M2_ENTITIES;
+    private static final XMLInputFactory XML_INPUT_FACTORY;
 
     static {
-        byte[] bytes;
+        String declarations;
         try {
-            bytes = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+            declarations = IOUtils.toString(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"), "UTF-8");
         } catch (IOException e) {
             throw UncheckedException.throwAsUncheckedException(e);
         }
-        M2_ENTITIES_RESOURCE = bytes;
+        Map<String, String> entities = new HashMap<String, String>();
+        Matcher matcher = M2_ENTITY_DECLARATION.matcher(declarations);
+        while (matcher.find()) {
+            entities.put(matcher.group(1), String.valueOf((char) Integer.parseInt(matcher.group(2))));
+        }
+        M2_ENTITIES = entities;
 
         // Set the context classloader the bootstrap classloader, to work around the way that JAXP locates implementation classes
         // This should ensure that the JAXP classes provided by the JVM are used, rather than some other implementation
         ClassLoader original = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
         try {
-            DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
-            DOCUMENT_BUILDER_FACTORY.setValidating(false);
+            XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_VALIDATING, false);
+            // The entities that Maven allows are replaced from M2_ENTITIES, rather than by parsing a DTD for every POM
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
         } finally {
             Thread.currentThread().setContextClassLoader(original);
         }
     }
 
-    private static final EntityResolver M2_ENTITY_RESOLVER = new EntityResolver() {
-        public InputSource resolveEntity(String publicId, String systemId)
-            throws SAXException, IOException {
-            if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
-                return new InputSource(new ByteArrayInputStream(M2_ENTITIES_RESOURCE));
-            }
-            return null;
-        }
-    };
-
     private PomParent pomParent = new RootPomParent();
     private final Map<String, String> properties = new HashMap<String, String>();
     private List<PomDependencyMgt> declaredDependencyMgts;
@@ -126,22 +132,22 @@ public class PomReader implements PomParent {
     private final Map<MavenDependencyKey, PomDependencyMgt> importedDependencyMgts = new LinkedHashMap<MavenDependencyKey, PomDependencyMgt>();
     private Map<MavenDependencyKey, PomDependencyData> resolvedDependencies;
 
-    private final Element projectElement;
-    private final Element parentElement;
+    private final String systemId;
+    private final PomElement projectElement;
+    private final PomElement parentElement;
 
     public PomReader(final LocallyAvailableExternalResource resource) throws SAXException {
-        final String systemId = resource.getLocalResource().getFile().toURI().toASCIIString();
-        Document pomDomDoc = resource.withContent(new Transformer<Document, InputStream>() {
-            public Document transform(InputStream inputStream) {
+        systemId = resource.getLocalResource().getFile().toURI().toASCIIString();
+        projectElement = resource.withContent(new Transformer<PomElement, InputStream>() {
+            public PomElement transform(InputStream inputStream) {
                 try {
-                    return parseToDom(inputStream, systemId);
+                    return parseToElement(inputStream, systemId);
                 } catch (Exception e) {
                     throw new MetaDataParseException("POM", resource, e);
                 }
             }
         });
-        projectElement = pomDomDoc.getDocumentElement();
-        if (!PROJECT.equals(projectElement.getNodeName()) && !MODEL.equals(projectElement.getNodeName())) {
+        if (!PROJECT.equals(projectElement.getName()) && !MODEL.equals(projectElement.getName())) {
             throw new SAXParseException("project must be the root tag", systemId, systemId, 0, 0);
         }
         parentElement = getFirstChildElement(projectElement, PARENT);
@@ -224,34 +230,76 @@ public class PomReader implements PomParent {
 
     @Override
     public String toString() {
-        return projectElement.getOwnerDocument().getDocumentURI();
+        return systemId;
     }
 
-    private static DocumentBuilder getDocBuilder(EntityResolver entityResolver) {
-        try {
-            DocumentBuilder docBuilder = DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
-            if (entityResolver != null) {
-                docBuilder.setEntityResolver(entityResolver);
-            }
-            return docBuilder;
-        } catch (ParserConfigurationException e) {
-            throw UncheckedException.throwAsUncheckedException(e);
-        }
-    }
-
-    private static Document parseToDom(InputStream stream, String systemId) throws IOException, SAXException {
+    private static PomElement parseToElement(InputStream stream, String systemId) throws IOException, XMLStreamException {
         // Set the context classloader the bootstrap classloader, to work around the way that JAXP locates implementation classes
         // This should ensure that the JAXP classes provided by the JVM are used, rather than some other implementation
         ClassLoader original = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
         try {
-            InputStream dtdStream = new AddDTDFilterInputStream(stream);
-            return getDocBuilder(M2_ENTITY_RESOLVER).parse(dtdStream, systemId);
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(systemId, stream);
+            try {
+                while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    // Skip the prolog
+                }
+                return readElement(reader, 0, false);
+            } finally {
+                reader.close();
+            }
         } finally {
             Thread.currentThread().setContextClassLoader(original);
         }
     }
 
+    /**
+     * Reads the element at the current position of the reader, skipping the child elements that are not used to build the meta-data.
+     */
+    private static PomElement readElement(XMLStreamReader reader, int depth, boolean inProfiles) throws XMLStreamException {
+        PomElement element = new PomElement(reader.getLocalName());
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String name = reader.getLocalName();
+                    if ((depth == 0 && !PROJECT_ELEMENTS.contains(name)) || (inProfiles && depth == 2 && !PROFILE_ELEMENTS.contains(name))) {
+                        skipElement(reader);
+                    } else {
+                        element.addChild(readElement(reader, depth + 1, inProfiles || (depth == 0 && PROFILES.equals(name))));
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    element.appendText(reader.getText());
+                    break;
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    // An undeclared entity is left out, as with the DTD
+                    String replacement = M2_ENTITIES.get(reader.getLocalName());
+                    if (replacement != null) {
+                        element.appendText(replacement);
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    return element;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
     public boolean hasParent() {
         return parentElement != null;
     }
@@ -347,8 +395,8 @@ public class PomReader implements PomParent {
     }
 
     public ModuleVersionIdentifier getRelocation() {
-        Element distrMgt = getFirstChildElement(projectElement, DISTRIBUTION_MGT);
-        Element relocation = getFirstChildElement(distrMgt , RELOCATION);
+        PomElement distrMgt = getFirstChildElement(projectElement, DISTRIBUTION_MGT);
+        PomElement relocation = getFirstChildElement(distrMgt , RELOCATION);
         if (relocation == null) {
             return null;
         } else {
@@ -365,7 +413,7 @@ public class PomReader implements PomParent {
     /**
      * Returns all dependencies for this POM, including those inherited from parent POMs.
      */
-    public Map<MavenDependencyKey, PomDependencyData> getDependencies() {
+    public synchronized Map<MavenDependencyKey, PomDependencyData> getDependencies() {
         if (resolvedDependencies == null) {
             resolvedDependencies = resolveDependencies();
         }
@@ -395,16 +443,12 @@ public class PomReader implements PomParent {
         return dependencies;
     }
 
-    private List<PomDependencyData> getDependencyData(Element parentElement) {
+    private List<PomDependencyData> getDependencyData(PomElement parentElement) {
         List<PomDependencyData> depElements = new ArrayList<PomDependencyData>();
-        Element dependenciesElement = getFirstChildElement(parentElement, DEPENDENCIES);
-        if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    depElements.add(new PomDependencyData((Element) node));
-                }
+        PomElement dependenciesElement = getFirstChildElement(parentElement, DEPENDENCIES);
+        for (PomElement node : getAllChilds(dependenciesElement)) {
+            if (DEPENDENCY.equals(node.getName())) {
+                depElements.add(new PomDependencyData(node));
             }
         }
 
@@ -414,7 +458,7 @@ public class PomReader implements PomParent {
     /**
      * Returns all dependency management elements for this POM, including those inherited from parent and imported POMs.
      */
-    public Map<MavenDependencyKey, PomDependencyMgt> getDependencyMgt() {
+    public synchronized Map<MavenDependencyKey, PomDependencyMgt> getDependencyMgt() {
         if(resolvedDependencyMgts == null) {
             resolvedDependencyMgts = resolveDependencyMgt();
         }
@@ -436,7 +480,7 @@ public class PomReader implements PomParent {
      *
      * @return Parsed dependency management elements
      */
-    public List<PomDependencyMgt> parseDependencyMgt() {
+    public synchronized List<PomDependencyMgt> parseDependencyMgt() {
         if(declaredDependencyMgts == null) {
             List<PomDependencyMgt> dependencyMgts = getDependencyMgt(projectElement);
 
@@ -452,18 +496,14 @@ public class PomReader implements PomParent {
         return declaredDependencyMgts;
     }
 
-    private List<PomDependencyMgt> getDependencyMgt(Element parentElement) {
+    private List<PomDependencyMgt> getDependencyMgt(PomElement parentElement) {
         List<PomDependencyMgt> depMgmtElements = new ArrayList<PomDependencyMgt>();
-        Element dependenciesElement = getFirstChildElement(parentElement, DEPENDENCY_MGT);
+        PomElement dependenciesElement = getFirstChildElement(parentElement, DEPENDENCY_MGT);
         dependenciesElement = getFirstChildElement(dependenciesElement, DEPENDENCIES);
 
-        if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    depMgmtElements.add(new PomDependencyMgtElement((Element) node));
-                }
+        for (PomElement node : getAllChilds(dependenciesElement)) {
+            if (DEPENDENCY.equals(node.getName())) {
+                depMgmtElements.add(new PomDependencyMgtElement(node));
             }
         }
 
@@ -487,9 +527,9 @@ public class PomReader implements PomParent {
     }
 
     public class PomDependencyMgtElement implements PomDependencyMgt {
-        private final Element depElement;
+        private final PomElement depElement;
 
-        PomDependencyMgtElement(Element depElement) {
+        PomDependencyMgtElement(PomElement depElement) {
             this.depElement = depElement;
         }
 
@@ -545,15 +585,13 @@ public class PomReader implements PomParent {
         }
 
         public List<ModuleIdentifier> getExcludedModules() {
-            Element exclusionsElement = getFirstChildElement(depElement, EXCLUSIONS);
+            PomElement exclusionsElement = getFirstChildElement(depElement, EXCLUSIONS);
             if (exclusionsElement != null) {
-                NodeList childs = exclusionsElement.getChildNodes();
                 List<ModuleIdentifier> exclusions = Lists.newArrayList();
-                for (int i = 0; i < childs.getLength(); i++) {
-                    Node node = childs.item(i);
-                    if (node instanceof Element && EXCLUSION.equals(node.getNodeName())) {
-                        String groupId = getFirstChildText((Element) node, GROUP_ID);
-                        String artifactId = getFirstChildText((Element) node, ARTIFACT_ID);
+                for (PomElement node : getAllChilds(exclusionsElement)) {
+                    if (EXCLUSION.equals(node.getName())) {
+                        String groupId = getFirstChildText(node, GROUP_ID);
+                        String artifactId = getFirstChildText(node, ARTIFACT_ID);
                         if ((groupId != null) && (artifactId != null)) {
                             exclusions.add(DefaultModuleIdentifier.newId(groupId, artifactId));
                         }
@@ -566,24 +604,24 @@ public class PomReader implements PomParent {
     }
 
     public class PomDependencyData extends PomDependencyMgtElement {
-        private final Element depElement;
-        PomDependencyData(Element depElement) {
+        private final PomElement depElement;
+        PomDependencyData(PomElement depElement) {
             super(depElement);
             this.depElement = depElement;
         }
 
         public boolean isOptional() {
-            Element e = getFirstChildElement(depElement, OPTIONAL);
+            PomElement e = getFirstChildElement(depElement, OPTIONAL);
             return (e != null) && "true".equalsIgnoreCase(getTextContent(e));
         }
     }
 
     public class PomProfileElement implements PomProfile {
-        private final Element element;
+        private final PomElement element;
         private List<PomDependencyMgt> declaredDependencyMgts;
         private List<PomDependencyData> declaredDependencies;
 
-        PomProfileElement(Element element) {
+        PomProfileElement(PomElement element) {
             this.element = element;
         }
 
@@ -621,12 +659,12 @@ public class PomReader implements PomParent {
         if(declaredActivePomProfiles == null) {
             List<PomProfile> activeByDefaultPomProfiles = new ArrayList<PomProfile>();
             List<PomProfile> activeByAbsenceOfPropertyPomProfiles = new ArrayList<PomProfile>();
-            Element profilesElement = getFirstChildElement(projectElement, PROFILES);
+            PomElement profilesElement = getFirstChildElement(projectElement, PROFILES);
 
             if(profilesElement != null) {
-                for(Element profileElement : getAllChilds(profilesElement)) {
-                    if(PROFILE.equals(profileElement.getNodeName())) {
-                        Element activationElement = getFirstChildElement(profileElement, PROFILE_ACTIVATION);
+                for(PomElement profileElement : getAllChilds(profilesElement)) {
+                    if(PROFILE.equals(profileElement.getName())) {
+                        PomElement activationElement = getFirstChildElement(profileElement, PROFILE_ACTIVATION);
 
                         if(activationElement != null) {
                             String activeByDefault = getFirstChildText(activationElement, PROFILE_ACTIVATION_ACTIVE_BY_DEFAULT);
@@ -634,7 +672,7 @@ public class PomReader implements PomParent {
                             if(activeByDefault != null && "true".equals(activeByDefault)) {
                                 activeByDefaultPomProfiles.add(new PomProfileElement(profileElement));
                             } else {
-                                Element propertyElement = getFirstChildElement(activationElement, PROFILE_ACTIVATION_PROPERTY);
+                                PomElement propertyElement = getFirstChildElement(activationElement, PROFILE_ACTIVATION_PROPERTY);
 
                                 if(propertyElement != null) {
                                     if(isActivationPropertyActivated(propertyElement)) {
@@ -672,7 +710,7 @@ public class PomReader implements PomParent {
      * @return Activation indicator
      * @see <a href="http://books.sonatype.com/mvnref-book/reference/profiles-sect-activation.html#profiles-sect-activation-config">Maven documentation</a>
      */
-    private boolean isActivationPropertyActivated(Element propertyElement) {
+    private boolean isActivationPropertyActivated(PomElement propertyElement) {
         String propertyName = getFirstChildText(propertyElement, "name");
         return propertyName.startsWith("!");
     }
@@ -684,14 +722,11 @@ public class PomReader implements PomParent {
         return getPomProperties(projectElement);
     }
 
-    private Map<String, String> getPomProperties(Element parentElement) {
+    private Map<String, String> getPomProperties(PomElement parentElement) {
         Map<String, String> pomProperties = new HashMap<String, String>();
-        Element propsEl = getFirstChildElement(parentElement, PROPERTIES);
-        if (propsEl != null) {
-            propsEl.normalize();
-        }
-        for (Element prop : getAllChilds(propsEl)) {
-            pomProperties.put(prop.getNodeName(), getTextContent(prop));
+        PomElement propsEl = getFirstChildElement(parentElement, PROPERTIES);
+        for (PomElement prop : getAllChilds(propsEl)) {
+            pomProperties.put(prop.getName(), getTextContent(prop));
         }
         return pomProperties;
     }
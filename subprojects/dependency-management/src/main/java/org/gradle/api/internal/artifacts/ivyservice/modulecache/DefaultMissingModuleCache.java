@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.util.BuildCommencedTimeProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DefaultMissingModuleCache implements MissingModuleCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultMissingModuleCache.class);
+
+    private final BuildCommencedTimeProvider timeProvider;
+    private final CacheLockingManager cacheLockingManager;
+    private PersistentIndexedCache<ModuleKey, ModuleMetadataCacheEntry> cache;
+
+    public DefaultMissingModuleCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager) {
+        this.timeProvider = timeProvider;
+        this.cacheLockingManager = cacheLockingManager;
+    }
+
+    private PersistentIndexedCache<ModuleKey, ModuleMetadataCacheEntry> getCache() {
+        if (cache == null) {
+            cache = initCache();
+        }
+        return cache;
+    }
+
+    private PersistentIndexedCache<ModuleKey, ModuleMetadataCacheEntry> initCache() {
+        return cacheLockingManager.createCache("module-missing", new ModuleKeySerializer(), new ModuleMetadataCacheEntrySerializer());
+    }
+
+    public void cacheMissing(ModuleComponentRepository repository, ModuleIdentifier moduleId) {
+        LOGGER.debug("Recording absence of module '{}' in repository '{}'", moduleId, repository.getName());
+        getCache().put(createKey(repository, moduleId), ModuleMetadataCacheEntry.forMissingModule(timeProvider.getCurrentTime()));
+    }
+
+    public void cachePresent(ModuleComponentRepository repository, ModuleIdentifier moduleId) {
+        ModuleKey key = createKey(repository, moduleId);
+        if (getCache().get(key) != null) {
+            LOGGER.debug("Removing recorded absence of module '{}' in repository '{}'", moduleId, repository.getName());
+            getCache().remove(key);
+        }
+    }
+
+    public CachedMissingModule getCachedMissingModule(ModuleComponentRepository repository, ModuleIdentifier moduleId) {
+        final ModuleMetadataCacheEntry entry = getCache().get(createKey(repository, moduleId));
+        if (entry == null) {
+            return null;
+        }
+        return new CachedMissingModule() {
+            public long getAgeMillis() {
+                return timeProvider.getCurrentTime() - entry.createTimestamp;
+            }
+        };
+    }
+
+    private ModuleKey createKey(ModuleComponentRepository repository, ModuleIdentifier moduleId) {
+        return new ModuleKey(repository.getId(), moduleId);
+    }
+
+    private static class ModuleKey {
+        private final String repositoryId;
+        private final ModuleIdentifier moduleId;
+
+        private ModuleKey(String repositoryId, ModuleIdentifier moduleId) {
+            this.repositoryId = repositoryId;
+            this.moduleId = moduleId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == null || !(o instanceof ModuleKey)) {
+                return false;
+            }
+            ModuleKey other = (ModuleKey) o;
+            return repositoryId.equals(other.repositoryId) && moduleId.equals(other.moduleId);
+        }
+
+        @Override
+        public int hashCode() {
+            return repositoryId.hashCode() ^ moduleId.hashCode();
+        }
+    }
+
+    private static class ModuleKeySerializer extends AbstractSerializer<ModuleKey> {
+        public void write(Encoder encoder, ModuleKey value) throws Exception {
+            encoder.writeString(value.repositoryId);
+            encoder.writeString(value.moduleId.getGroup());
+            encoder.writeString(value.moduleId.getName());
+        }
+
+        public ModuleKey read(Decoder decoder) throws Exception {
+            String repositoryId = decoder.readString();
+            String group = decoder.readString();
+            String module = decoder.readString();
+            return new ModuleKey(repositoryId, new DefaultModuleIdentifier(group, module));
+        }
+    }
+}
@@ -34,6 +34,8 @@ import org.gradle.util.BuildCommencedTimeProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigInteger;
+
 public class DefaultModuleMetaDataCache implements ModuleMetaDataCache {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultModuleMetaDataCache.class);
 
@@ -47,7 +49,8 @@ public class DefaultModuleMetaDataCache implements ModuleMetaDataCache {
         this.timeProvider = timeProvider;
         this.cacheLockingManager = cacheLockingManager;
 
-        moduleMetadataStore = new ModuleMetadataStore(new PathKeyFileStore(artifactCacheMetaData.getMetaDataStoreDirectory()), new ModuleMetadataSerializer());
+        moduleMetadataStore = new ModuleMetadataStore(new PathKeyFileStore(artifactCacheMetaData.getMetaDataStoreDirectory()),
+            new PackedModuleMetadataStore(artifactCacheMetaData.getPackedMetaDataStoreDirectory()), new ModuleMetadataSerializer());
     }
 
     private PersistentIndexedCache<ModuleComponentAtRepositoryKey, ModuleMetadataCacheEntry> getCache() {
@@ -70,7 +73,7 @@ public class DefaultModuleMetaDataCache implements ModuleMetaDataCache {
         if (entry.isMissing()) {
             return new DefaultCachedMetaData(entry, null, timeProvider);
         }
-        MutableModuleComponentResolveMetadata metadata = moduleMetadataStore.getModuleDescriptor(key);
+        MutableModuleComponentResolveMetadata metadata = moduleMetadataStore.getModuleDescriptor(key, entry.moduleDescriptorHash);
         if (metadata == null) {
             // Descriptor file has been deleted - ignore the entry
             getCache().remove(key);
@@ -79,6 +82,15 @@ public class DefaultModuleMetaDataCache implements ModuleMetaDataCache {
         return new DefaultCachedMetaData(entry, entry.configure(metadata), timeProvider);
     }
 
+    @Override
+    public BigInteger getCachedDescriptorHash(String repositoryId, ModuleComponentIdentifier componentId) {
+        ModuleMetadataCacheEntry entry = getCache().get(new ModuleComponentAtRepositoryKey(repositoryId, componentId));
+        if (entry == null || entry.isMissing()) {
+            return null;
+        }
+        return entry.moduleDescriptorHash;
+    }
+
     public CachedMetaData cacheMissing(ModuleComponentRepository repository, ModuleComponentIdentifier id) {
         LOGGER.debug("Recording absence of module descriptor in cache: {} [changing = {}]", id, false);
         ModuleMetadataCacheEntry entry = ModuleMetadataCacheEntry.forMissingModule(timeProvider.getCurrentTime());
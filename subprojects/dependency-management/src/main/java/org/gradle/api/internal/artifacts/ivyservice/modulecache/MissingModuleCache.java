@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
+
+/**
+ * Records the modules that a repository was found not to contain, because a request for a version of the module was answered as not found.
+ */
+public interface MissingModuleCache {
+    void cacheMissing(ModuleComponentRepository repository, ModuleIdentifier moduleId);
+
+    /**
+     * Forgets that the module is missing from the repository, once a version of it has been found there.
+     */
+    void cachePresent(ModuleComponentRepository repository, ModuleIdentifier moduleId);
+
+    @Nullable
+    CachedMissingModule getCachedMissingModule(ModuleComponentRepository repository, ModuleIdentifier moduleId);
+
+    interface CachedMissingModule {
+        long getAgeMillis();
+    }
+}
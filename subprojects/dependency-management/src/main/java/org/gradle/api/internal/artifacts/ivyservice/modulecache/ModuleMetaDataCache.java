@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.modulecache;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.ResolvedModuleVersion;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
@@ -30,6 +31,13 @@ public interface ModuleMetaDataCache {
 
     CachedMetaData getCachedModuleDescriptor(ModuleComponentRepository repository, ModuleComponentIdentifier id);
 
+    /**
+     * Returns the hash of the cached descriptor for the given module in the repository with the given id, without loading the descriptor.
+     * Returns null when the module is not cached or is cached as missing.
+     */
+    @Nullable
+    BigInteger getCachedDescriptorHash(String repositoryId, ModuleComponentIdentifier id);
+
     interface CachedMetaData {
         ResolvedModuleVersion getModuleVersion();
 
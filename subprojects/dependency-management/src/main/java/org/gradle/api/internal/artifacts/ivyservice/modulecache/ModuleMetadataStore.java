@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.modulecache;
 
+import com.google.common.io.Files;
 import org.gradle.api.Action;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.internal.UncheckedException;
@@ -25,54 +26,89 @@ import org.gradle.internal.resource.local.PathKeyFileStore;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
 
 public class ModuleMetadataStore {
 
     private final PathKeyFileStore metaDataStore;
+    private final PackedModuleMetadataStore packedMetaDataStore;
     private final ModuleMetadataSerializer moduleMetadataSerializer;
 
-    public ModuleMetadataStore(PathKeyFileStore metaDataStore, ModuleMetadataSerializer moduleMetadataSerializer) {
+    public ModuleMetadataStore(PathKeyFileStore metaDataStore, PackedModuleMetadataStore packedMetaDataStore, ModuleMetadataSerializer moduleMetadataSerializer) {
         this.metaDataStore = metaDataStore;
+        this.packedMetaDataStore = packedMetaDataStore;
         this.moduleMetadataSerializer = moduleMetadataSerializer;
     }
 
-    public MutableModuleComponentResolveMetadata getModuleDescriptor(ModuleComponentAtRepositoryKey component) {
+    /**
+     * Loads the meta-data with the given descriptor hash. The meta-data is read from the packed store when it holds a copy of the descriptor, and from
+     * the descriptor file otherwise, in which case a copy is added to the packed store.
+     */
+    public MutableModuleComponentResolveMetadata getModuleDescriptor(ModuleComponentAtRepositoryKey component, BigInteger descriptorHash) {
+        byte[] data = packedMetaDataStore.get(component, descriptorHash);
+        if (data != null) {
+            return decode(data, component.getComponentId().getDisplayName());
+        }
         String filePath = getFilePath(component);
         final LocallyAvailableResource resource = metaDataStore.get(filePath);
         if (resource != null) {
             try {
-                KryoBackedDecoder decoder = new KryoBackedDecoder(new FileInputStream(resource.getFile()));
-                try {
-                    return moduleMetadataSerializer.read(decoder);
-                } finally {
-                    decoder.close();
-                }
+                data = Files.toByteArray(resource.getFile());
             } catch (Exception e) {
                 throw new RuntimeException("Could not load module metadata from " + resource.getDisplayName(), e);
             }
+            MutableModuleComponentResolveMetadata metadata = decode(data, resource.getDisplayName());
+            // Store the copy under the hash it is looked up with, so that it is found the next time
+            packedMetaDataStore.put(component, descriptorHash, data);
+            return metadata;
         }
         return null;
     }
 
     public LocallyAvailableResource putModuleDescriptor(ModuleComponentAtRepositoryKey component, final ModuleComponentResolveMetadata metadata) {
         String filePath = getFilePath(component);
-        return metaDataStore.add(filePath, new Action<File>() {
+        final byte[] data = encode(metadata);
+        LocallyAvailableResource resource = metaDataStore.add(filePath, new Action<File>() {
             public void execute(File moduleDescriptorFile) {
                 try {
-                    KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(moduleDescriptorFile));
-                    try {
-                        moduleMetadataSerializer.write(encoder, metadata);
-                    } finally {
-                        encoder.close();
-                    }
+                    Files.write(data, moduleDescriptorFile);
                 } catch (Exception e) {
                     throw UncheckedException.throwAsUncheckedException(e);
                 }
             }
         });
+        packedMetaDataStore.put(component, resource.getSha1().asBigInteger(), data);
+        return resource;
+    }
+
+    private MutableModuleComponentResolveMetadata decode(byte[] data, String displayName) {
+        try {
+            KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(data));
+            try {
+                return moduleMetadataSerializer.read(decoder);
+            } finally {
+                decoder.close();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Could not load module metadata from " + displayName, e);
+        }
+    }
+
+    private byte[] encode(ModuleComponentResolveMetadata metadata) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(bytes);
+        try {
+            moduleMetadataSerializer.write(encoder, metadata);
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            encoder.close();
+        }
+        return bytes.toByteArray();
     }
 
     private String getFilePath(ModuleComponentAtRepositoryKey componentId) {
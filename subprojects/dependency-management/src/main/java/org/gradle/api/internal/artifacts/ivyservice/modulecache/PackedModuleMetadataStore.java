@@ -0,0 +1,463 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import com.google.common.base.Charsets;
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the serialized module meta-data of each repository in a single file, so that warm resolution can read it from a memory mapped buffer
+ * instead of opening a descriptor file per module.
+ *
+ * <p>Records are appended, and an index of the records in each file is built the first time the file is used. Each record holds the
+ * hash of the descriptor it was copied from, and is only returned when that hash matches the one the caller expects. This way the store never
+ * returns stale meta-data, also when other processes or Gradle versions that do not use the store update the descriptor files. Callers fall back
+ * to the descriptor file when no matching record is found.</p>
+ *
+ * <p>Records that have been superseded are dropped by rewriting the file once they take up more than half of it. A file is also rewritten when a
+ * record does not fit below the maximum file size, starting again with an empty file when the live records alone do not leave enough room. Each
+ * rewritten file gets a new generation in its header, which tells other stores to read the file again.</p>
+ *
+ * <p>The store must only be used while holding the lock of the artifact cache.</p>
+ */
+class PackedModuleMetadataStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PackedModuleMetadataStore.class);
+
+    private static final int FILE_MAGIC = 0x474d4453;
+    private static final int FORMAT_VERSION = 2;
+    private static final int GENERATION_OFFSET = 8;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_MARKER = 0x4d524543;
+    private static final int MIN_COMPACTION_SIZE = 1024 * 1024;
+    private static final int MAX_FILE_SIZE = Integer.MAX_VALUE;
+    private static final int MAX_UNUSED_PERCENT = 50;
+
+    private final File baseDir;
+    private final int minCompactionSize;
+    private final int maxFileSize;
+    private final Map<String, RepositoryFile> files = new HashMap<String, RepositoryFile>();
+
+    PackedModuleMetadataStore(File baseDir) {
+        this(baseDir, MIN_COMPACTION_SIZE, MAX_FILE_SIZE);
+    }
+
+    PackedModuleMetadataStore(File baseDir, int minCompactionSize, int maxFileSize) {
+        this.baseDir = baseDir;
+        this.minCompactionSize = minCompactionSize;
+        this.maxFileSize = maxFileSize;
+    }
+
+    /**
+     * Returns the serialized meta-data of the given component, or null when there is no record for it with the given descriptor hash.
+     */
+    @Nullable
+    public synchronized byte[] get(ModuleComponentAtRepositoryKey key, BigInteger descriptorHash) {
+        return getFile(key.getRepositoryId()).get(key.getComponentId(), descriptorHash);
+    }
+
+    public synchronized void put(ModuleComponentAtRepositoryKey key, BigInteger descriptorHash, byte[] data) {
+        getFile(key.getRepositoryId()).put(key.getComponentId(), descriptorHash, data);
+    }
+
+    private RepositoryFile getFile(String repositoryId) {
+        RepositoryFile file = files.get(repositoryId);
+        if (file == null) {
+            file = new RepositoryFile(new File(baseDir, repositoryId + ".bin"), minCompactionSize, maxFileSize);
+            files.put(repositoryId, file);
+        }
+        return file;
+    }
+
+    private static class RepositoryFile {
+        private static final Random GENERATIONS = new Random();
+
+        private final File file;
+        private final int minCompactionSize;
+        private final int maxFileSize;
+        private final Map<ModuleComponentIdentifier, Record> index = new HashMap<ModuleComponentIdentifier, Record>();
+        private MappedByteBuffer buffer;
+        // The end of the last valid record read or written, or 0 when the file header has not been read yet
+        private int end;
+        private long generation;
+        // The number of bytes used by the records in the index
+        private long liveBytes;
+        private boolean outdated;
+        private boolean unusable;
+
+        RepositoryFile(File file, int minCompactionSize, int maxFileSize) {
+            this.file = file;
+            this.minCompactionSize = minCompactionSize;
+            this.maxFileSize = maxFileSize;
+        }
+
+        @Nullable
+        byte[] get(ModuleComponentIdentifier id, BigInteger descriptorHash) {
+            Record record = index.get(id);
+            if (!isReadable(record, descriptorHash)) {
+                // Another process may have added the record since the file was last read
+                refresh();
+                record = index.get(id);
+                if (!isReadable(record, descriptorHash)) {
+                    return null;
+                }
+            }
+            byte[] data = new byte[record.length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(record.offset);
+            view.get(data);
+            if (checksum(data) != record.checksum) {
+                LOGGER.debug("Ignoring corrupt meta-data record for {} in {}", id, file);
+                remove(id);
+                return null;
+            }
+            return data;
+        }
+
+        private boolean isReadable(@Nullable Record record, BigInteger descriptorHash) {
+            return record != null && record.descriptorHash.equals(descriptorHash) && buffer != null && record.offset + record.length <= buffer.capacity();
+        }
+
+        void put(ModuleComponentIdentifier id, BigInteger descriptorHash, byte[] data) {
+            refresh();
+            if (unusable) {
+                return;
+            }
+            byte[] record;
+            try {
+                record = encode(id, descriptorHash, data);
+            } catch (IOException e) {
+                LOGGER.debug("Could not encode meta-data record for {}", id, e);
+                return;
+            }
+            if (record.length > maxFileSize - HEADER_SIZE) {
+                LOGGER.warn("Meta-data of {} is too large to be stored in {}.", id, file);
+                return;
+            }
+            if (outdated) {
+                rewrite(Collections.<Record>emptyList());
+            } else if (!fits(record)) {
+                compact();
+                if (!fits(record)) {
+                    LOGGER.warn("Meta-data file {} has reached its maximum size of {} bytes, starting a new file.", file, maxFileSize);
+                    rewrite(Collections.<Record>emptyList());
+                }
+            }
+            if (unusable || !fits(record)) {
+                return;
+            }
+            append(id, descriptorHash, data, record);
+            long size = end - HEADER_SIZE;
+            if (end >= minCompactionSize && (size - liveBytes) * 100 > size * MAX_UNUSED_PERCENT) {
+                compact();
+            }
+        }
+
+        private boolean fits(byte[] record) {
+            return (long) Math.max(end, HEADER_SIZE) + record.length <= maxFileSize;
+        }
+
+        private void append(ModuleComponentIdentifier id, BigInteger descriptorHash, byte[] data, byte[] record) {
+            // Append after the last valid record, which also overwrites what is left of a record that was not completely written
+            int start = Math.max(end, HEADER_SIZE);
+            try {
+                file.getParentFile().mkdirs();
+                RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+                try {
+                    if (end == 0) {
+                        generation = GENERATIONS.nextLong();
+                        writeHeader(randomAccessFile, generation);
+                    }
+                    randomAccessFile.seek(start);
+                    randomAccessFile.write(record);
+                } finally {
+                    randomAccessFile.close();
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Could not write meta-data record for {} to {}", id, file, e);
+                return;
+            }
+            end = start + record.length;
+            add(id, new Record(start, end - data.length, data.length, checksum(data), descriptorHash));
+        }
+
+        /**
+         * Writes the live records to a new file that replaces the current one.
+         */
+        private void compact() {
+            if (buffer == null || buffer.capacity() < end) {
+                map(end);
+                if (unusable) {
+                    return;
+                }
+            }
+            List<Record> records = new ArrayList<Record>(index.values());
+            Collections.sort(records, new Comparator<Record>() {
+                @Override
+                public int compare(Record left, Record right) {
+                    return left.start < right.start ? -1 : left.start == right.start ? 0 : 1;
+                }
+            });
+            rewrite(records);
+        }
+
+        private void rewrite(List<Record> records) {
+            File newFile = new File(file.getParentFile(), file.getName() + ".new");
+            try {
+                file.getParentFile().mkdirs();
+                RandomAccessFile randomAccessFile = new RandomAccessFile(newFile, "rw");
+                try {
+                    randomAccessFile.setLength(0);
+                    writeHeader(randomAccessFile, GENERATIONS.nextLong());
+                    for (Record record : records) {
+                        byte[] bytes = new byte[record.offset + record.length - record.start];
+                        ByteBuffer view = buffer.duplicate();
+                        view.position(record.start);
+                        view.get(bytes);
+                        randomAccessFile.write(bytes);
+                    }
+                } finally {
+                    randomAccessFile.close();
+                }
+                reset();
+                if (!newFile.renameTo(file) && !(file.delete() && newFile.renameTo(file))) {
+                    throw new IOException("Could not rename " + newFile + " to " + file);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Could not rewrite meta-data file {}.", file, e);
+                newFile.delete();
+                reset();
+            }
+            refresh();
+        }
+
+        /**
+         * Returns true when the file has been deleted, or replaced by another store, since it was last read.
+         */
+        private boolean isReplaced() {
+            if (end == 0) {
+                return false;
+            }
+            try {
+                RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+                try {
+                    if (randomAccessFile.length() < HEADER_SIZE) {
+                        return true;
+                    }
+                    randomAccessFile.seek(GENERATION_OFFSET);
+                    return randomAccessFile.readLong() != generation;
+                } finally {
+                    randomAccessFile.close();
+                }
+            } catch (IOException e) {
+                return true;
+            }
+        }
+
+        private void refresh() {
+            long length = Math.min(file.length(), maxFileSize);
+            if (length < end || isReplaced()) {
+                reset();
+            }
+            if (unusable || length == 0 || buffer != null && buffer.capacity() >= length) {
+                return;
+            }
+            map(length);
+            if (unusable) {
+                return;
+            }
+            scan();
+        }
+
+        private void reset() {
+            index.clear();
+            unmap();
+            end = 0;
+            liveBytes = 0;
+            outdated = false;
+            unusable = false;
+        }
+
+        private void map(long length) {
+            unmap();
+            try {
+                RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+                try {
+                    buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+                } finally {
+                    randomAccessFile.close();
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Could not map meta-data file {}", file, e);
+                unusable = true;
+            }
+        }
+
+        /**
+         * Drops the current mapping, which is released when the buffer is garbage collected. The channel is closed as soon as the file is
+         * mapped, and all reads copy the data out of the buffer, so nothing else refers to the mapping.
+         */
+        private void unmap() {
+            buffer = null;
+        }
+
+        private void scan() {
+            ByteBuffer view = buffer.duplicate();
+            if (end == 0) {
+                if (view.limit() >= 4 && view.getInt(0) != FILE_MAGIC) {
+                    LOGGER.debug("Ignoring meta-data file {} with unknown format", file);
+                    unusable = true;
+                    return;
+                }
+                if (view.limit() >= 8 && view.getInt(4) != FORMAT_VERSION) {
+                    // Written by an earlier version of the store, start a new file on the next write
+                    outdated = true;
+                    return;
+                }
+                if (view.limit() < HEADER_SIZE) {
+                    return;
+                }
+                generation = view.getLong(GENERATION_OFFSET);
+                end = HEADER_SIZE;
+            }
+            view.position(end);
+            try {
+                while (view.hasRemaining()) {
+                    int start = view.position();
+                    if (view.getInt() != RECORD_MARKER) {
+                        break;
+                    }
+                    ModuleComponentIdentifier id = DefaultModuleComponentIdentifier.newId(readString(view), readString(view), readString(view));
+                    byte[] hash = new byte[view.get() & 0xff];
+                    view.get(hash);
+                    int checksum = view.getInt();
+                    int length = view.getInt();
+                    if (length < 0 || length > view.remaining()) {
+                        break;
+                    }
+                    add(id, new Record(start, view.position(), length, checksum, new BigInteger(hash)));
+                    view.position(view.position() + length);
+                    end = view.position();
+                }
+            } catch (BufferUnderflowException e) {
+                // The last record was not completely written
+            }
+        }
+
+        private void add(ModuleComponentIdentifier id, Record record) {
+            remove(id);
+            index.put(id, record);
+            liveBytes += record.size();
+        }
+
+        private void remove(ModuleComponentIdentifier id) {
+            Record previous = index.remove(id);
+            if (previous != null) {
+                liveBytes -= previous.size();
+            }
+        }
+
+        private static void writeHeader(RandomAccessFile randomAccessFile, long generation) throws IOException {
+            randomAccessFile.seek(0);
+            randomAccessFile.writeInt(FILE_MAGIC);
+            randomAccessFile.writeInt(FORMAT_VERSION);
+            randomAccessFile.writeLong(generation);
+        }
+
+        private static String readString(ByteBuffer view) {
+            byte[] bytes = new byte[view.getShort() & 0xffff];
+            view.get(bytes);
+            return new String(bytes, Charsets.UTF_8);
+        }
+
+        private static byte[] encode(ModuleComponentIdentifier id, BigInteger descriptorHash, byte[] data) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + 128);
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(RECORD_MARKER);
+            writeString(output, id.getGroup());
+            writeString(output, id.getModule());
+            writeString(output, id.getVersion());
+            byte[] hash = descriptorHash.toByteArray();
+            output.writeByte(hash.length);
+            output.write(hash);
+            output.writeInt(checksum(data));
+            output.writeInt(data.length);
+            output.write(data);
+            output.flush();
+            return bytes.toByteArray();
+        }
+
+        private static void writeString(DataOutputStream output, String value) throws IOException {
+            byte[] bytes = value.getBytes(Charsets.UTF_8);
+            if (bytes.length > 0xffff) {
+                throw new IOException("Value is too long to be stored: " + value);
+            }
+            output.writeShort(bytes.length);
+            output.write(bytes);
+        }
+
+        private static int checksum(byte[] data) {
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            return (int) crc.getValue();
+        }
+    }
+
+    private static class Record {
+        // The start of the record, followed by the component id, hash and checksum
+        final int start;
+        // The start and length of the data
+        final int offset;
+        final int length;
+        final int checksum;
+        final BigInteger descriptorHash;
+
+        Record(int start, int offset, int length, int checksum, BigInteger descriptorHash) {
+            this.start = start;
+            this.offset = offset;
+            this.length = length;
+            this.checksum = checksum;
+            this.descriptorHash = descriptorHash;
+        }
+
+        int size() {
+            return offset + length - start;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.gradle.api.internal.artifacts.ResolveContext;
 import org.gradle.api.internal.artifacts.configurations.ConflictResolution;
 import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingArtifactResolver;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingComponentMetaDataResolver;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
 import org.gradle.api.internal.artifacts.ivyservice.clientmodule.ClientModuleResolver;
 import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionResolver;
@@ -45,6 +46,7 @@ import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
 import org.gradle.api.internal.attributes.ImmutableAttributesFactory;
 import org.gradle.api.specs.Spec;
 import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.operations.BuildOperationProcessor;
 import org.gradle.internal.resolve.resolver.ArtifactResolver;
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
@@ -57,6 +59,8 @@ import org.slf4j.LoggerFactory;
 import java.util.List;
 
 public class DefaultArtifactDependencyResolver implements ArtifactDependencyResolver {
+    public final static String PARALLEL_METADATA_PROPERTY = "org.gradle.resolution.parallelmetadata";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultArtifactDependencyResolver.class);
     private final ServiceRegistry serviceRegistry;
     private final DependencyDescriptorFactory dependencyDescriptorFactory;
@@ -64,30 +68,60 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
     private final CacheLockingManager cacheLockingManager;
     private final VersionComparator versionComparator;
     private final ImmutableAttributesFactory attributesFactory;
+    private final BuildOperationProcessor buildOperationProcessor;
 
     public DefaultArtifactDependencyResolver(ServiceRegistry serviceRegistry, ResolveIvyFactory ivyFactory, DependencyDescriptorFactory dependencyDescriptorFactory,
-                                             CacheLockingManager cacheLockingManager, VersionComparator versionComparator, ImmutableAttributesFactory attributesFactory) {
+                                             CacheLockingManager cacheLockingManager, VersionComparator versionComparator, ImmutableAttributesFactory attributesFactory,
+                                             BuildOperationProcessor buildOperationProcessor) {
         this.serviceRegistry = serviceRegistry;
         this.ivyFactory = ivyFactory;
         this.dependencyDescriptorFactory = dependencyDescriptorFactory;
         this.cacheLockingManager = cacheLockingManager;
         this.versionComparator = versionComparator;
         this.attributesFactory = attributesFactory;
+        this.buildOperationProcessor = buildOperationProcessor;
     }
 
     @Override
     public void resolve(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler, Spec<? super DependencyMetadata> edgeFilter, DependencyGraphVisitor graphVisitor, DependencyArtifactsVisitor artifactsVisitor, AttributesSchema attributesSchema) {
         LOGGER.debug("Resolving {}", resolveContext);
-        ComponentResolvers resolvers = createResolvers(resolveContext, repositories, metadataHandler);
+        ComponentResolvers resolvers = createComponentResolvers(resolveContext, repositories, metadataHandler);
         DependencyGraphBuilder builder = createDependencyGraphBuilder(resolvers, resolveContext.getResolutionStrategy(), metadataHandler, edgeFilter, attributesSchema);
 
-        ArtifactResolver artifactResolver = new ErrorHandlingArtifactResolver(new CacheLockingArtifactResolver(cacheLockingManager, resolvers.getArtifactResolver()));
+        ArtifactResolver artifactResolver = createArtifactResolver(resolvers);
         DependencyGraphVisitor artifactsGraphVisitor = new ResolvedArtifactsGraphVisitor(artifactsVisitor, artifactResolver, attributesFactory);
 
         // Resolve the dependency graph
         builder.resolve(resolveContext, new CompositeDependencyGraphVisitor(graphVisitor, artifactsGraphVisitor));
     }
 
+    @Override
+    public ComponentResolvers createResolvers(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler) {
+        final ComponentResolvers resolvers = createComponentResolvers(resolveContext, repositories, metadataHandler);
+        final ComponentMetaDataResolver componentResolver = new CacheLockingComponentMetaDataResolver(cacheLockingManager, resolvers.getComponentResolver());
+        final ArtifactResolver artifactResolver = createArtifactResolver(resolvers);
+        return new ComponentResolvers() {
+            @Override
+            public DependencyToComponentIdResolver getComponentIdResolver() {
+                return resolvers.getComponentIdResolver();
+            }
+
+            @Override
+            public ComponentMetaDataResolver getComponentResolver() {
+                return componentResolver;
+            }
+
+            @Override
+            public ArtifactResolver getArtifactResolver() {
+                return artifactResolver;
+            }
+        };
+    }
+
+    private ArtifactResolver createArtifactResolver(ComponentResolvers resolvers) {
+        return new ErrorHandlingArtifactResolver(new CacheLockingArtifactResolver(cacheLockingManager, resolvers.getArtifactResolver()));
+    }
+
     private DependencyGraphBuilder createDependencyGraphBuilder(ComponentResolvers componentSource, ResolutionStrategyInternal resolutionStrategy, GlobalDependencyResolutionRules globalRules, Spec<? super DependencyMetadata> edgeFilter, AttributesSchema attributesSchema) {
 
         DependencyToComponentIdResolver componentIdResolver = new DependencySubstitutionResolver(componentSource.getComponentIdResolver(), resolutionStrategy.getDependencySubstitutionRule());
@@ -96,10 +130,15 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
         ResolveContextToComponentResolver requestResolver = createResolveContextConverter();
         ConflictHandler conflictHandler = createConflictHandler(resolutionStrategy, globalRules);
 
+        if ("true".equalsIgnoreCase(System.getProperty(PARALLEL_METADATA_PROPERTY))) {
+            // Metadata is resolved by worker threads, which need to take the cache lock
+            componentMetaDataResolver = new CacheLockingComponentMetaDataResolver(cacheLockingManager, componentMetaDataResolver);
+            return new DependencyGraphBuilder(componentIdResolver, componentMetaDataResolver, requestResolver, conflictHandler, edgeFilter, attributesSchema, buildOperationProcessor);
+        }
         return new DependencyGraphBuilder(componentIdResolver, componentMetaDataResolver, requestResolver, conflictHandler, edgeFilter, attributesSchema);
     }
 
-    private ComponentResolversChain createResolvers(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler) {
+    private ComponentResolversChain createComponentResolvers(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler) {
         List<ResolverProviderFactory> resolverFactories = allServices(ResolverProviderFactory.class);
         List<ComponentResolvers> resolvers = Lists.newArrayList();
         for (ResolverProviderFactory factory : resolverFactories) {
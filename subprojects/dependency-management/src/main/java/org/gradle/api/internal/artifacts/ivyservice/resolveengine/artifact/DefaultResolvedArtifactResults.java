@@ -37,6 +37,20 @@ public class DefaultResolvedArtifactResults implements VisitedArtifactsResults {
         this.buildableArtifacts = buildableArtifacts;
     }
 
+    /**
+     * Returns the artifact sets of the graph, in result order.
+     */
+    public Map<Long, ArtifactSet> getArtifactSets() {
+        return artifactsById;
+    }
+
+    /**
+     * Returns true when the build dependencies of the given artifact set are included in the build dependencies of the results.
+     */
+    public boolean isBuildable(long id) {
+        return buildableArtifacts.contains(id);
+    }
+
     @Override
     public SelectedArtifactResults select(Spec<? super ComponentIdentifier> componentFilter, Transformer<HasAttributes, Collection<? extends HasAttributes>> selector) {
         Set<ResolvedArtifactSet> allArtifactSets = newLinkedHashSet();
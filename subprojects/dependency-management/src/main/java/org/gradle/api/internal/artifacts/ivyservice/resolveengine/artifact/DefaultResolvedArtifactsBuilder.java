@@ -132,7 +132,7 @@ public class DefaultResolvedArtifactsBuilder implements DependencyArtifactsVisit
     public void finishArtifacts() {
     }
 
-    public VisitedArtifactsResults complete() {
+    public DefaultResolvedArtifactResults complete() {
         Map<Long, ArtifactSet> artifactsById = newLinkedHashMap();
 
         if (sortOrder != ResolutionStrategy.SortOrder.DEFAULT) {
@@ -16,12 +16,14 @@
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.ModuleDependency;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.ModuleVersionSelector;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.result.ComponentSelectionReason;
 import org.gradle.api.attributes.AttributesSchema;
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
@@ -45,6 +47,9 @@ import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
 import org.gradle.internal.component.model.DependencyMetadata;
 import org.gradle.internal.id.IdGenerator;
 import org.gradle.internal.id.LongIdGenerator;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.resolve.ModuleVersionResolveException;
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
@@ -59,6 +64,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -75,16 +82,29 @@ public class DependencyGraphBuilder {
     private final DependencyToComponentIdResolver idResolver;
     private final ComponentMetaDataResolver metaDataResolver;
     private final AttributesSchema attributesSchema;
+    private final BuildOperationProcessor buildOperationProcessor;
 
     public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
                                   ResolveContextToComponentResolver resolveContextToComponentResolver,
                                   ConflictHandler conflictHandler, Spec<? super DependencyMetadata> edgeFilter, AttributesSchema attributesSchema) {
+        this(componentIdResolver, componentMetaDataResolver, resolveContextToComponentResolver, conflictHandler, edgeFilter, attributesSchema, null);
+    }
+
+    /**
+     * @param buildOperationProcessor Used to resolve the metadata of several external components at the same time, or null to resolve metadata one
+     * component at a time. The metadata resolver must be thread-safe when a processor is given.
+     */
+    public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
+                                  ResolveContextToComponentResolver resolveContextToComponentResolver,
+                                  ConflictHandler conflictHandler, Spec<? super DependencyMetadata> edgeFilter, AttributesSchema attributesSchema,
+                                  @Nullable BuildOperationProcessor buildOperationProcessor) {
         this.idResolver = componentIdResolver;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
         this.conflictHandler = conflictHandler;
         this.edgeFilter = edgeFilter;
         this.attributesSchema = attributesSchema;
+        this.buildOperationProcessor = buildOperationProcessor;
     }
 
     public void resolve(ResolveContext resolveContext, DependencyGraphVisitor modelVisitor) {
@@ -110,6 +130,9 @@ public class DependencyGraphBuilder {
         List<DependencyEdge> dependencies = new ArrayList<DependencyEdge>();
         while (resolveState.peek() != null || conflictHandler.hasConflicts()) {
             if (resolveState.peek() != null) {
+                // Fetch the metadata of the components that the next level of the graph is likely to select up front, as this may take a while
+                maybeFetchMetaDataInParallel(resolveState);
+
                 ConfigurationNode node = resolveState.pop();
                 LOGGER.debug("Visiting configuration {}.", node);
 
@@ -178,6 +201,66 @@ public class DependencyGraphBuilder {
         }
     }
 
+    /**
+     * When the next configuration to visit starts a new level of the graph, fetches the metadata of the components that the configurations queued
+     * for that level are likely to select, when there is more than one to fetch. The fetched metadata is not used directly. Instead, the resolvers
+     * cache it, and the graph is then traversed as usual. This way, the result of the traversal does not depend on the order in which metadata is fetched.
+     */
+    private void maybeFetchMetaDataInParallel(ResolveState resolveState) {
+        if (buildOperationProcessor == null) {
+            return;
+        }
+        List<ConfigurationNode> level = resolveState.startNextLevel();
+        if (level.isEmpty()) {
+            return;
+        }
+        List<DependencyMetadata> dependencies = new ArrayList<DependencyMetadata>();
+        for (ConfigurationNode node : level) {
+            node.collectPendingDependencies(dependencies);
+        }
+        final Map<ComponentIdentifier, DependencyMetadata> requiringMetaData = new LinkedHashMap<ComponentIdentifier, DependencyMetadata>();
+        for (DependencyMetadata dependency : dependencies) {
+            ComponentIdResolveResult idResolveResult = resolveState.resolveComponentId(dependency);
+            if (idResolveResult.getFailure() == null && idResolveResult.getMetaData() == null && idResolveResult.getId() instanceof ModuleComponentIdentifier
+                && !requiringMetaData.containsKey(idResolveResult.getId()) && resolveState.isMetaDataRequired(idResolveResult.getModuleVersionId())) {
+                requiringMetaData.put(idResolveResult.getId(), dependency);
+            }
+        }
+        if (requiringMetaData.size() < 2) {
+            return;
+        }
+
+        LOGGER.debug("Fetching metadata of {} components in parallel for {} configurations.", requiringMetaData.size(), level.size());
+        buildOperationProcessor.run(new Action<BuildOperationQueue<FetchMetaDataOperation>>() {
+            public void execute(BuildOperationQueue<FetchMetaDataOperation> queue) {
+                for (Map.Entry<ComponentIdentifier, DependencyMetadata> entry : requiringMetaData.entrySet()) {
+                    queue.add(new FetchMetaDataOperation(entry.getKey(), entry.getValue()));
+                }
+            }
+        });
+    }
+
+    private class FetchMetaDataOperation implements RunnableBuildOperation {
+        private final ComponentIdentifier componentId;
+        private final DependencyMetadata dependencyMetadata;
+
+        FetchMetaDataOperation(ComponentIdentifier componentId, DependencyMetadata dependencyMetadata) {
+            this.componentId = componentId;
+            this.dependencyMetadata = dependencyMetadata;
+        }
+
+        @Override
+        public String getDescription() {
+            return "fetching metadata for " + componentId.getDisplayName();
+        }
+
+        @Override
+        public void run() {
+            // Failures are reported when the metadata is resolved again during the traversal
+            metaDataResolver.resolve(componentId, DefaultComponentOverrideMetadata.forDependency(dependencyMetadata), new DefaultBuildableComponentResolveResult());
+        }
+    }
+
     /**
      * Populates the result from the graph traversal state.
      */
@@ -365,6 +448,10 @@ public class DependencyGraphBuilder {
         private final ComponentMetaDataResolver metaDataResolver;
         private final Set<ConfigurationNode> queued = new HashSet<ConfigurationNode>();
         private final LinkedList<ConfigurationNode> queue = new LinkedList<ConfigurationNode>();
+        // Configurations whose dependencies have been considered for fetching metadata up front
+        private final Set<ConfigurationNode> prefetched = new HashSet<ConfigurationNode>();
+        // Component ids resolved before a selector for the requested module version was created
+        private final Map<ModuleVersionSelector, BuildableComponentIdResolveResult> resolvedComponentIds = new HashMap<ModuleVersionSelector, BuildableComponentIdResolveResult>();
         private final AttributesSchema attributesSchema;
 
         public ResolveState(IdGenerator<Long> idGenerator, ComponentResolveResult rootResult, String rootConfigurationName, DependencyToComponentIdResolver idResolver,
@@ -422,10 +509,70 @@ public class DependencyGraphBuilder {
             return resolveState;
         }
 
+        /**
+         * Resolves the component that the given dependency refers to, without changing the graph.
+         */
+        public ComponentIdResolveResult resolveComponentId(DependencyMetadata dependencyMetadata) {
+            ModuleVersionSelector requested = dependencyMetadata.getRequested();
+            ModuleVersionSelectorResolveState selector = selectors.get(requested);
+            if (selector != null) {
+                return selector.resolveComponentId();
+            }
+            BuildableComponentIdResolveResult idResolveResult = resolvedComponentIds.get(requested);
+            if (idResolveResult == null) {
+                idResolveResult = new DefaultBuildableComponentIdResolveResult();
+                idResolver.resolve(dependencyMetadata, idResolveResult);
+                resolvedComponentIds.put(requested, idResolveResult);
+            }
+            return idResolveResult;
+        }
+
+        /**
+         * Returns the component id resolved for the given requested module version before its selector was created, if any.
+         */
+        @Nullable
+        public BuildableComponentIdResolveResult takeResolvedComponentId(ModuleVersionSelector requested) {
+            return resolvedComponentIds.remove(requested);
+        }
+
+        /**
+         * Returns true when the given component version may be selected, and its metadata has not been resolved yet. Does not change the graph.
+         */
+        public boolean isMetaDataRequired(ModuleVersionIdentifier id) {
+            ModuleResolveState module = modules.get(id.getModule());
+            if (module == null) {
+                return true;
+            }
+            if (module.selected != null && !module.selected.id.equals(id)) {
+                // Only needed when selected by conflict resolution
+                return false;
+            }
+            ModuleVersionResolveState moduleRevision = module.versions.get(id);
+            return moduleRevision == null || moduleRevision.metaData == null && moduleRevision.failure == null;
+        }
+
         public ConfigurationNode peek() {
             return queue.isEmpty() ? null : queue.getFirst();
         }
 
+        /**
+         * Returns the queued configurations when the next configuration to visit has not been considered for fetching metadata up front, and
+         * marks them as considered. The queue is traversed breadth-wise, so these are the configurations of the next level of the graph.
+         * Returns an empty list otherwise.
+         */
+        public List<ConfigurationNode> startNextLevel() {
+            if (queue.isEmpty() || prefetched.contains(queue.getFirst())) {
+                return Collections.emptyList();
+            }
+            List<ConfigurationNode> level = new ArrayList<ConfigurationNode>();
+            for (ConfigurationNode configuration : queue) {
+                if (prefetched.add(configuration)) {
+                    level.add(configuration);
+                }
+            }
+            return level;
+        }
+
         public ConfigurationNode pop() {
             ConfigurationNode next = queue.removeFirst();
             queued.remove(next);
@@ -770,12 +917,7 @@ public class DependencyGraphBuilder {
                 return;
             }
 
-            List<DependencyEdge> transitiveIncoming = new ArrayList<DependencyEdge>();
-            for (DependencyEdge edge : incomingEdges) {
-                if (edge.isTransitive()) {
-                    transitiveIncoming.add(edge);
-                }
-            }
+            List<DependencyEdge> transitiveIncoming = getTransitiveIncomingEdges();
 
             if (transitiveIncoming.isEmpty() && this != resolveState.root) {
                 if (previousTraversalExclusions != null) {
@@ -811,6 +953,35 @@ public class DependencyGraphBuilder {
             previousTraversalExclusions = resolutionFilter;
         }
 
+        /**
+         * Collects the dependencies that visiting this configuration for the first time would traverse. Does not change the graph.
+         */
+        public void collectPendingDependencies(Collection<DependencyMetadata> target) {
+            if (moduleRevision.state != ModuleState.Selected || previousTraversalExclusions != null) {
+                return;
+            }
+            List<DependencyEdge> transitiveIncoming = getTransitiveIncomingEdges();
+            if (transitiveIncoming.isEmpty() && this != resolveState.root) {
+                return;
+            }
+            ModuleExclusion resolutionFilter = getModuleResolutionFilter(transitiveIncoming);
+            for (DependencyMetadata dependency : metaData.getDependencies()) {
+                if (!isExcluded(resolutionFilter, dependency)) {
+                    target.add(dependency);
+                }
+            }
+        }
+
+        private List<DependencyEdge> getTransitiveIncomingEdges() {
+            List<DependencyEdge> transitiveIncoming = new ArrayList<DependencyEdge>();
+            for (DependencyEdge edge : incomingEdges) {
+                if (edge.isTransitive()) {
+                    transitiveIncoming.add(edge);
+                }
+            }
+            return transitiveIncoming;
+        }
+
         private boolean isExcluded(ModuleExclusion selector, DependencyMetadata dependency) {
             if (!resolveState.edgeFilter.isSatisfiedBy(dependency)) {
                 LOGGER.debug("{} is filtered.", dependency);
@@ -932,6 +1103,11 @@ public class DependencyGraphBuilder {
             return dependencyMetadata.getSelector();
         }
 
+        @Override
+        public Collection<ModuleVersionResolveState> getCandidates() {
+            return targetModule.getVersions();
+        }
+
         private ModuleVersionResolveException getFailure() {
             return failure != null ? failure : targetModuleRevision.getFailure();
         }
@@ -948,6 +1124,20 @@ public class DependencyGraphBuilder {
             return targetModule;
         }
 
+        /**
+         * Resolves the component that this selector refers to, without changing the graph.
+         */
+        public ComponentIdResolveResult resolveComponentId() {
+            if (idResolveResult == null) {
+                idResolveResult = resolveState.takeResolvedComponentId(dependencyMetadata.getRequested());
+            }
+            if (idResolveResult == null) {
+                idResolveResult = new DefaultBuildableComponentIdResolveResult();
+                resolver.resolve(dependencyMetadata, idResolveResult);
+            }
+            return idResolveResult;
+        }
+
         /**
          * @return The module version, or null if there is a failure to resolve this selector.
          */
@@ -959,8 +1149,7 @@ public class DependencyGraphBuilder {
                 return null;
             }
 
-            idResolveResult = new DefaultBuildableComponentIdResolveResult();
-            resolver.resolve(dependencyMetadata, idResolveResult);
+            resolveComponentId();
             if (idResolveResult.getFailure() != null) {
                 failure = idResolveResult.getFailure();
                 return null;
@@ -18,6 +18,8 @@ package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
 
 import org.gradle.api.artifacts.component.ComponentSelector;
 
+import java.util.Collection;
+
 /**
  * A dependency selector in the dependency graph
  */
@@ -32,4 +34,10 @@ public interface DependencyGraphSelector {
      * Returns the requested dependency.
      */
     ComponentSelector getRequested();
+
+    /**
+     * Returns the versions of the requested module that were considered while resolving the graph, including versions that were evicted by
+     * conflict resolution. The meta-data of a version is null when it was not needed to resolve the graph.
+     */
+    Collection<? extends DependencyGraphComponent> getCandidates();
 }
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ComponentResolvers;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultResolvedArtifactResults;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.projectresult.ResolvedLocalComponentsResult;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.projectresult.ResolvedProjectConfiguration;
+import org.gradle.api.internal.attributes.ImmutableAttributes;
+import org.gradle.api.internal.attributes.ImmutableAttributesFactory;
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactMetadata;
+import org.gradle.internal.component.model.ComponentArtifactMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.ConfigurationMetadata;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DefaultVariantMetadata;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.component.model.VariantMetadata;
+import org.gradle.internal.resolve.result.BuildableComponentArtifactsResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentArtifactsResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The results of resolving the dependency graph of a configuration, as kept by {@link ResolvedGraphCache}. Holds the data written by the result builders
+ * while the graph was resolved, along with the artifact sets of the graph, the project configurations in the graph and the cached module meta-data that
+ * the graph was resolved from.
+ */
+public class CachedResolvedGraph {
+    private final long timestamp;
+    private final byte[] newModelData;
+    private final byte[] oldModelData;
+    private final Map<Long, Integer> firstLevelDependencies;
+    private final List<CachedComponent> components;
+    private final List<ResolvedProjectConfiguration> projectConfigurations;
+    private final List<CachedArtifactSet> artifactSets;
+
+    CachedResolvedGraph(long timestamp, byte[] newModelData, byte[] oldModelData, Map<Long, Integer> firstLevelDependencies, List<CachedComponent> components,
+                        List<ResolvedProjectConfiguration> projectConfigurations, List<CachedArtifactSet> artifactSets) {
+        this.timestamp = timestamp;
+        this.newModelData = newModelData;
+        this.oldModelData = oldModelData;
+        this.firstLevelDependencies = firstLevelDependencies;
+        this.components = components;
+        this.projectConfigurations = projectConfigurations;
+        this.artifactSets = artifactSets;
+    }
+
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    List<CachedComponent> getComponents() {
+        return components;
+    }
+
+    Map<Long, Integer> getFirstLevelDependencyIndexes() {
+        return firstLevelDependencies;
+    }
+
+    List<ResolvedProjectConfiguration> getProjectConfigurations() {
+        return projectConfigurations;
+    }
+
+    List<CachedArtifactSet> getArtifactSets() {
+        return artifactSets;
+    }
+
+    /**
+     * Returns the data written by the builder of the resolution result.
+     */
+    public byte[] getNewModelData() {
+        return newModelData;
+    }
+
+    /**
+     * Returns the data written by the builder of the transient configuration results.
+     */
+    public byte[] getOldModelData() {
+        return oldModelData;
+    }
+
+    /**
+     * Returns the declared dependencies of the given configuration that the first level nodes of the graph were resolved for, by node id.
+     */
+    public Map<Long, ModuleDependency> getFirstLevelDependencies(ConfigurationInternal configuration) {
+        List<Dependency> dependencies = Lists.newArrayList(configuration.getAllDependencies());
+        Map<Long, ModuleDependency> result = Maps.newHashMap();
+        for (Map.Entry<Long, Integer> entry : firstLevelDependencies.entrySet()) {
+            result.put(entry.getKey(), (ModuleDependency) dependencies.get(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the configurations of other projects in the graph.
+     */
+    public ResolvedLocalComponentsResult getLocalComponentsResult() {
+        return new ResolvedLocalComponentsResult() {
+            @Override
+            public Iterable<ResolvedProjectConfiguration> getResolvedProjectConfigurations() {
+                return projectConfigurations;
+            }
+        };
+    }
+
+    /**
+     * Creates the artifact sets of the graph. Artifacts are resolved using the given resolvers when their files are requested. The artifacts of projects
+     * are taken from the current meta-data of each project.
+     *
+     * @return the artifact sets, or null when a project no longer has one of the artifacts of the graph.
+     */
+    @Nullable
+    public DefaultResolvedArtifactResults getArtifactResults(ComponentResolvers resolvers, ImmutableAttributesFactory attributesFactory) {
+        Map<ComponentArtifactIdentifier, ResolvedArtifact> allResolvedArtifacts = Maps.newHashMap();
+        Map<Long, ArtifactSet> artifactsById = Maps.newLinkedHashMap();
+        Set<Long> buildableArtifactSets = Sets.newHashSet();
+        for (CachedArtifactSet artifactSet : artifactSets) {
+            ComponentIdentifier componentId = artifactSet.componentId;
+            ModuleVersionIdentifier moduleVersionId = artifactSet.moduleVersionId;
+            ModuleSource moduleSource = artifactSet.moduleSource;
+            Map<IvyArtifactName, ComponentArtifactMetadata> projectArtifacts = null;
+            if (componentId instanceof ProjectComponentIdentifier) {
+                ComponentResolveMetadata project = resolveProject((ProjectComponentIdentifier) componentId, resolvers);
+                projectArtifacts = project == null ? null : getArtifacts(project, artifactSet.configuration, resolvers);
+                if (projectArtifacts == null) {
+                    return null;
+                }
+                componentId = project.getComponentId();
+                moduleVersionId = project.getId();
+                moduleSource = project.getSource();
+            }
+            Set<VariantMetadata> variants = Sets.newLinkedHashSet();
+            for (CachedVariant variant : artifactSet.variants) {
+                ImmutableAttributes attributes = ImmutableAttributes.EMPTY;
+                for (Map.Entry<String, String> attribute : variant.attributes.entrySet()) {
+                    attributes = attributesFactory.concat(attributes, Attribute.of(attribute.getKey(), String.class), attribute.getValue());
+                }
+                Set<ComponentArtifactMetadata> artifacts = Sets.newLinkedHashSet();
+                for (IvyArtifactName artifactName : variant.artifacts) {
+                    if (projectArtifacts == null) {
+                        artifacts.add(new DefaultModuleComponentArtifactMetadata((ModuleComponentIdentifier) componentId, artifactName));
+                    } else if (projectArtifacts.containsKey(artifactName)) {
+                        artifacts.add(projectArtifacts.get(artifactName));
+                    } else {
+                        return null;
+                    }
+                }
+                variants.add(new DefaultVariantMetadata(attributes, artifacts));
+            }
+            ArtifactSet restored = new DefaultArtifactSet(componentId, moduleVersionId, moduleSource, ModuleExclusions.excludeNone(),
+                variants, resolvers.getArtifactResolver(), allResolvedArtifacts, artifactSet.id, attributesFactory);
+            artifactsById.put(artifactSet.id, restored.snapshot());
+            if (artifactSet.buildable) {
+                buildableArtifactSets.add(artifactSet.id);
+            }
+        }
+        return new DefaultResolvedArtifactResults(artifactsById, buildableArtifactSets);
+    }
+
+    @Nullable
+    private static ComponentResolveMetadata resolveProject(ProjectComponentIdentifier projectId, ComponentResolvers resolvers) {
+        DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+        resolvers.getComponentResolver().resolve(projectId, new DefaultComponentOverrideMetadata(), result);
+        if (!result.hasResult() || result.getFailure() != null) {
+            return null;
+        }
+        return result.getMetaData();
+    }
+
+    @Nullable
+    private static Map<IvyArtifactName, ComponentArtifactMetadata> getArtifacts(ComponentResolveMetadata project, String configurationName, ComponentResolvers resolvers) {
+        ConfigurationMetadata configuration = project.getConfiguration(configurationName);
+        if (configuration == null) {
+            return null;
+        }
+        BuildableComponentArtifactsResolveResult result = new DefaultBuildableComponentArtifactsResolveResult();
+        resolvers.getArtifactResolver().resolveArtifacts(project, result);
+        Map<IvyArtifactName, ComponentArtifactMetadata> artifacts = Maps.newHashMap();
+        for (VariantMetadata variant : result.getResult().getVariantsFor(configuration)) {
+            for (ComponentArtifactMetadata artifact : variant.getArtifacts()) {
+                artifacts.put(artifact.getName(), artifact);
+            }
+        }
+        return artifacts;
+    }
+
+    static class CachedComponent {
+        final ModuleComponentIdentifier id;
+        final String repositoryId;
+        final BigInteger descriptorHash;
+        final ModuleIdentifier replacement;
+
+        CachedComponent(ModuleComponentIdentifier id, String repositoryId, BigInteger descriptorHash, @Nullable ModuleIdentifier replacement) {
+            this.id = id;
+            this.repositoryId = repositoryId;
+            this.descriptorHash = descriptorHash;
+            this.replacement = replacement;
+        }
+    }
+
+    static class CachedArtifactSet {
+        final long id;
+        final ComponentIdentifier componentId;
+        final ModuleVersionIdentifier moduleVersionId;
+        final String configuration;
+        final ModuleSource moduleSource;
+        final boolean buildable;
+        final List<CachedVariant> variants;
+
+        CachedArtifactSet(long id, ComponentIdentifier componentId, ModuleVersionIdentifier moduleVersionId, String configuration, @Nullable ModuleSource moduleSource,
+                          boolean buildable, List<CachedVariant> variants) {
+            this.id = id;
+            this.componentId = componentId;
+            this.moduleVersionId = moduleVersionId;
+            this.configuration = configuration;
+            this.moduleSource = moduleSource;
+            this.buildable = buildable;
+            this.variants = variants;
+        }
+    }
+
+    static class CachedVariant {
+        final Map<String, String> attributes;
+        final List<IvyArtifactName> artifacts;
+
+        CachedVariant(Map<String, String> attributes, List<IvyArtifactName> artifacts) {
+            this.attributes = attributes;
+            this.artifacts = artifacts;
+        }
+    }
+}
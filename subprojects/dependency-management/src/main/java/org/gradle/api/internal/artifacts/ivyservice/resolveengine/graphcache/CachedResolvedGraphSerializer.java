@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.ModuleVersionIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.CachedResolvedGraph.CachedArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.CachedResolvedGraph.CachedComponent;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.CachedResolvedGraph.CachedVariant;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.projectresult.DefaultResolvedProjectConfiguration;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.projectresult.ResolvedProjectConfiguration;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentIdentifierSerializer;
+import org.gradle.internal.component.model.DefaultIvyArtifactName;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.DefaultSerializer;
+import org.gradle.internal.serialize.Encoder;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+class CachedResolvedGraphSerializer extends AbstractSerializer<CachedResolvedGraph> {
+    private final ComponentIdentifierSerializer componentIdSerializer = new ComponentIdentifierSerializer();
+    private final ModuleVersionIdentifierSerializer moduleVersionIdSerializer = new ModuleVersionIdentifierSerializer();
+    private final DefaultSerializer<ModuleSource> moduleSourceSerializer = new DefaultSerializer<ModuleSource>(ModuleSource.class.getClassLoader());
+
+    @Override
+    public void write(Encoder encoder, CachedResolvedGraph value) throws Exception {
+        encoder.writeLong(value.getTimestamp());
+        encoder.writeBinary(value.getNewModelData());
+        encoder.writeBinary(value.getOldModelData());
+
+        Map<Long, Integer> firstLevelDependencies = value.getFirstLevelDependencyIndexes();
+        encoder.writeSmallInt(firstLevelDependencies.size());
+        for (Map.Entry<Long, Integer> entry : firstLevelDependencies.entrySet()) {
+            encoder.writeSmallLong(entry.getKey());
+            encoder.writeSmallInt(entry.getValue());
+        }
+
+        List<CachedComponent> components = value.getComponents();
+        encoder.writeSmallInt(components.size());
+        for (CachedComponent component : components) {
+            componentIdSerializer.write(encoder, component.id);
+            encoder.writeString(component.repositoryId);
+            encoder.writeBinary(component.descriptorHash.toByteArray());
+            if (component.replacement == null) {
+                encoder.writeBoolean(false);
+            } else {
+                encoder.writeBoolean(true);
+                encoder.writeString(component.replacement.getGroup());
+                encoder.writeString(component.replacement.getName());
+            }
+        }
+
+        List<ResolvedProjectConfiguration> projectConfigurations = value.getProjectConfigurations();
+        encoder.writeSmallInt(projectConfigurations.size());
+        for (ResolvedProjectConfiguration projectConfiguration : projectConfigurations) {
+            componentIdSerializer.write(encoder, projectConfiguration.getId());
+            encoder.writeString(projectConfiguration.getTargetConfiguration());
+        }
+
+        List<CachedArtifactSet> artifactSets = value.getArtifactSets();
+        encoder.writeSmallInt(artifactSets.size());
+        for (CachedArtifactSet artifactSet : artifactSets) {
+            encoder.writeSmallLong(artifactSet.id);
+            componentIdSerializer.write(encoder, artifactSet.componentId);
+            moduleVersionIdSerializer.write(encoder, artifactSet.moduleVersionId);
+            encoder.writeString(artifactSet.configuration);
+            if (artifactSet.moduleSource == null) {
+                encoder.writeBoolean(false);
+            } else {
+                encoder.writeBoolean(true);
+                moduleSourceSerializer.write(encoder, artifactSet.moduleSource);
+            }
+            encoder.writeBoolean(artifactSet.buildable);
+            encoder.writeSmallInt(artifactSet.variants.size());
+            for (CachedVariant variant : artifactSet.variants) {
+                writeVariant(encoder, variant);
+            }
+        }
+    }
+
+    private void writeVariant(Encoder encoder, CachedVariant variant) throws IOException {
+        encoder.writeSmallInt(variant.attributes.size());
+        for (Map.Entry<String, String> attribute : variant.attributes.entrySet()) {
+            encoder.writeString(attribute.getKey());
+            encoder.writeString(attribute.getValue());
+        }
+        encoder.writeSmallInt(variant.artifacts.size());
+        for (IvyArtifactName artifact : variant.artifacts) {
+            encoder.writeString(artifact.getName());
+            encoder.writeString(artifact.getType());
+            encoder.writeNullableString(artifact.getExtension());
+            encoder.writeNullableString(artifact.getClassifier());
+        }
+    }
+
+    @Override
+    public CachedResolvedGraph read(Decoder decoder) throws Exception {
+        long timestamp = decoder.readLong();
+        byte[] newModelData = decoder.readBinary();
+        byte[] oldModelData = decoder.readBinary();
+
+        int count = decoder.readSmallInt();
+        Map<Long, Integer> firstLevelDependencies = Maps.newHashMap();
+        for (int i = 0; i < count; i++) {
+            firstLevelDependencies.put(decoder.readSmallLong(), decoder.readSmallInt());
+        }
+
+        count = decoder.readSmallInt();
+        List<CachedComponent> components = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            ModuleComponentIdentifier id = (ModuleComponentIdentifier) componentIdSerializer.read(decoder);
+            String repositoryId = decoder.readString();
+            BigInteger descriptorHash = new BigInteger(decoder.readBinary());
+            ModuleIdentifier replacement = null;
+            if (decoder.readBoolean()) {
+                replacement = DefaultModuleIdentifier.newId(decoder.readString(), decoder.readString());
+            }
+            components.add(new CachedComponent(id, repositoryId, descriptorHash, replacement));
+        }
+
+        count = decoder.readSmallInt();
+        List<ResolvedProjectConfiguration> projectConfigurations = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            ProjectComponentIdentifier id = (ProjectComponentIdentifier) componentIdSerializer.read(decoder);
+            projectConfigurations.add(new DefaultResolvedProjectConfiguration(id, decoder.readString()));
+        }
+
+        count = decoder.readSmallInt();
+        List<CachedArtifactSet> artifactSets = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            long id = decoder.readSmallLong();
+            ComponentIdentifier componentId = componentIdSerializer.read(decoder);
+            ModuleVersionIdentifier moduleVersionId = moduleVersionIdSerializer.read(decoder);
+            String configuration = decoder.readString();
+            ModuleSource moduleSource = decoder.readBoolean() ? moduleSourceSerializer.read(decoder) : null;
+            boolean buildable = decoder.readBoolean();
+            int variantCount = decoder.readSmallInt();
+            List<CachedVariant> variants = Lists.newArrayListWithCapacity(variantCount);
+            for (int j = 0; j < variantCount; j++) {
+                variants.add(readVariant(decoder));
+            }
+            artifactSets.add(new CachedArtifactSet(id, componentId, moduleVersionId, configuration, moduleSource, buildable, variants));
+        }
+
+        return new CachedResolvedGraph(timestamp, newModelData, oldModelData, firstLevelDependencies, components, projectConfigurations, artifactSets);
+    }
+
+    private CachedVariant readVariant(Decoder decoder) throws IOException {
+        int count = decoder.readSmallInt();
+        Map<String, String> attributes = Maps.newLinkedHashMap();
+        for (int i = 0; i < count; i++) {
+            attributes.put(decoder.readString(), decoder.readString());
+        }
+        count = decoder.readSmallInt();
+        List<IvyArtifactName> artifacts = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            artifacts.add(new DefaultIvyArtifactName(decoder.readString(), decoder.readString(), decoder.readNullableString(), decoder.readNullableString()));
+        }
+        return new CachedVariant(attributes, artifacts);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.cache.BinaryStore;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
+
+/**
+ * A {@link BinaryStore} that keeps a copy of the data written to the target store, so that the data can be written to another store later.
+ * Stops keeping the data once it grows beyond the given size.
+ */
+class RecordingBinaryStore implements BinaryStore {
+    private final BinaryStore delegate;
+    private final int maxSize;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final KryoBackedEncoder encoder = new KryoBackedEncoder(buffer);
+    private ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+
+    RecordingBinaryStore(BinaryStore delegate, int maxSize) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public void write(WriteAction write) {
+        final byte[] data;
+        try {
+            buffer.reset();
+            write.write(encoder);
+            encoder.flush();
+            data = buffer.toByteArray();
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+        if (recorded != null) {
+            if (recorded.size() + data.length > maxSize) {
+                recorded = null;
+            } else {
+                recorded.write(data, 0, data.length);
+            }
+        }
+        delegate.write(new WriteAction() {
+            @Override
+            public void write(Encoder encoder) throws IOException {
+                encoder.writeBytes(data);
+            }
+        });
+    }
+
+    @Override
+    public BinaryData done() {
+        return delegate.done();
+    }
+
+    /**
+     * Returns the data written to this store, or null when the data was too large to keep.
+     */
+    @Nullable
+    byte[] getRecordedData() {
+        return recorded == null ? null : recorded.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
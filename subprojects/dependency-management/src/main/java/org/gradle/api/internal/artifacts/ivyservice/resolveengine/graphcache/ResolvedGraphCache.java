@@ -0,0 +1,369 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.gradle.api.Named;
+import org.gradle.api.Nullable;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyArtifact;
+import org.gradle.api.artifacts.ExcludeRule;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.ConfigurationVariant;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.ProjectDependency;
+import org.gradle.api.artifacts.PublishArtifact;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.Module;
+import org.gradle.api.internal.artifacts.component.ComponentIdentifierFactory;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.DefaultResolvedModuleVersion;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetaDataCache;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.CachedResolvedGraph.CachedComponent;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Factory;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.util.BuildCommencedTimeProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A persistent cache of resolved dependency graphs, keyed by the inputs of the configuration that was resolved. Allows a configuration whose inputs
+ * are unchanged to be resolved without traversing its dependency graph again.
+ *
+ * <p>Only configurations of external module and project dependencies are cached, and only when no rules that can change the graph are present. The
+ * configurations of the projects in the graph are part of the key. A cached graph is used only while the cached meta-data of each module that was
+ * considered during resolution is unchanged and the cache policy of the configuration does not require the modules to be refreshed.</p>
+ *
+ * <p>The cache is disabled unless the {@value #ENABLED_PROPERTY} system property is set to {@code true}.</p>
+ */
+public class ResolvedGraphCache {
+    public static final String ENABLED_PROPERTY = "org.gradle.resolution.graphcache";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResolvedGraphCache.class);
+
+    private final CacheLockingManager cacheLockingManager;
+    private final ModuleMetaDataCache moduleMetaDataCache;
+    private final ComponentIdentifierFactory componentIdentifierFactory;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final BuildCommencedTimeProvider timeProvider;
+    private final boolean refreshDependencies;
+    private final boolean enabled;
+    // Repositories are assumed not to change once they have been used for resolution
+    private final Map<ResolutionAwareRepository, String> repositoryIds = Collections.synchronizedMap(Maps.<ResolutionAwareRepository, String>newIdentityHashMap());
+    private PersistentIndexedCache<String, CachedResolvedGraph> cache;
+
+    public ResolvedGraphCache(CacheLockingManager cacheLockingManager, ModuleMetaDataCache moduleMetaDataCache, ComponentIdentifierFactory componentIdentifierFactory,
+                              VersionSelectorScheme versionSelectorScheme, BuildCommencedTimeProvider timeProvider, boolean refreshDependencies, boolean enabled) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.moduleMetaDataCache = moduleMetaDataCache;
+        this.componentIdentifierFactory = componentIdentifierFactory;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.timeProvider = timeProvider;
+        this.refreshDependencies = refreshDependencies;
+        this.enabled = enabled;
+    }
+
+    private PersistentIndexedCache<String, CachedResolvedGraph> getCache() {
+        if (cache == null) {
+            cache = cacheLockingManager.createCache("resolved-graphs", BaseSerializerFactory.STRING_SERIALIZER, new CachedResolvedGraphSerializer());
+        }
+        return cache;
+    }
+
+    /**
+     * Calculates the key for the given configuration, or returns null when the dependency graph of the configuration cannot be cached.
+     */
+    @Nullable
+    public ResolvedGraphKey createKey(ConfigurationInternal configuration, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler) {
+        if (!enabled) {
+            return null;
+        }
+        ResolutionStrategyInternal resolutionStrategy = configuration.getResolutionStrategy();
+        if (resolutionStrategy.resolveGraphToDetermineTaskDependencies()
+            || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            || metadataHandler.getComponentMetadataProcessor().hasRules()) {
+            return null;
+        }
+
+        Hasher hasher = Hashing.md5().newHasher();
+        Module module = configuration.getModule();
+        putString(hasher, componentIdentifierFactory.createComponentIdentifier(module).getDisplayName());
+        putString(hasher, module.getGroup());
+        putString(hasher, module.getName());
+        putString(hasher, module.getVersion());
+        putString(hasher, module.getStatus());
+        putString(hasher, configuration.getPath());
+        if (!putAttributes(hasher, configuration.getAttributes())) {
+            return null;
+        }
+
+        Set<Project> visitedProjects = Sets.newHashSet();
+        for (Configuration extended : configuration.getHierarchy()) {
+            putString(hasher, extended.getName());
+            hasher.putBoolean(extended.isTransitive());
+            putExcludeRules(hasher, extended.getExcludeRules());
+            if (!putDependencies(hasher, extended.getDependencies(), visitedProjects)) {
+                return null;
+            }
+        }
+
+        putString(hasher, resolutionStrategy.getConflictResolution().getClass().getName());
+        putString(hasher, resolutionStrategy.getSortOrder().name());
+        hasher.putInt(resolutionStrategy.getForcedModules().size());
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            putString(hasher, forcedModule.getGroup());
+            putString(hasher, forcedModule.getName());
+            putString(hasher, forcedModule.getVersion());
+        }
+
+        ImmutableList.Builder<String> repositoryIds = ImmutableList.builder();
+        for (ResolutionAwareRepository repository : repositories) {
+            String repositoryId = getRepositoryId(repository);
+            putString(hasher, repositoryId);
+            repositoryIds.add(repositoryId);
+        }
+        return new ResolvedGraphKey(hasher.hash().toString(), repositoryIds.build());
+    }
+
+    /**
+     * Returns the cached graph for the given key, or null when no graph is cached or the cached graph is out of date.
+     */
+    @Nullable
+    public CachedResolvedGraph get(final ResolvedGraphKey key, final ConfigurationInternal configuration, final GlobalDependencyResolutionRules metadataHandler) {
+        if (refreshDependencies) {
+            return null;
+        }
+        return cacheLockingManager.useCache(new Factory<CachedResolvedGraph>() {
+            @Override
+            public CachedResolvedGraph create() {
+                CachedResolvedGraph graph = getCache().get(key.getHash());
+                if (graph == null || !isUpToDate(key, graph, configuration, metadataHandler)) {
+                    return null;
+                }
+                LOGGER.info("Using cached dependency graph for {}.", configuration);
+                return graph;
+            }
+        });
+    }
+
+    private boolean isUpToDate(ResolvedGraphKey key, CachedResolvedGraph graph, ConfigurationInternal configuration, GlobalDependencyResolutionRules metadataHandler) {
+        long ageMillis = timeProvider.getCurrentTime() - graph.getTimestamp();
+        CachePolicy cachePolicy = configuration.getResolutionStrategy().getCachePolicy();
+        ModuleReplacementsData moduleReplacements = metadataHandler.getModuleMetadataProcessor().getModuleReplacements();
+        String firstRepositoryId = key.getRepositoryIds().isEmpty() ? null : key.getRepositoryIds().get(0);
+        for (CachedComponent component : graph.getComponents()) {
+            if (!component.descriptorHash.equals(moduleMetaDataCache.getCachedDescriptorHash(component.repositoryId, component.id))) {
+                return false;
+            }
+            if (cachePolicy.mustRefreshModule(component.id, new DefaultResolvedModuleVersion(DefaultModuleVersionIdentifier.newId(component.id)), ageMillis)) {
+                return false;
+            }
+            // The module was not found in the preceding repositories, which are checked again once the cached absence expires
+            if (!component.repositoryId.equals(firstRepositoryId) && cachePolicy.mustRefreshMissingModule(component.id, ageMillis)) {
+                return false;
+            }
+            if (!Objects.equal(component.replacement, moduleReplacements.getReplacementFor(DefaultModuleIdentifier.newId(component.id.getGroup(), component.id.getModule())))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a recorder for the results of resolving the given configuration.
+     */
+    public ResolvedGraphRecorder createRecorder(ConfigurationInternal configuration, GlobalDependencyResolutionRules metadataHandler) {
+        return new ResolvedGraphRecorder(timeProvider.getCurrentTime(), configuration.getAllDependencies(), versionSelectorScheme, metadataHandler.getModuleMetadataProcessor().getModuleReplacements());
+    }
+
+    public void put(final ResolvedGraphKey key, final CachedResolvedGraph graph) {
+        cacheLockingManager.useCache(new Runnable() {
+            @Override
+            public void run() {
+                getCache().put(key.getHash(), graph);
+            }
+        });
+    }
+
+    private String getRepositoryId(ResolutionAwareRepository repository) {
+        String repositoryId = repositoryIds.get(repository);
+        if (repositoryId == null) {
+            repositoryId = repository.createResolver().getId();
+            repositoryIds.put(repository, repositoryId);
+        }
+        return repositoryId;
+    }
+
+    private static boolean putDependencies(Hasher hasher, Set<Dependency> dependencies, Set<Project> visitedProjects) {
+        hasher.putInt(dependencies.size());
+        for (Dependency dependency : dependencies) {
+            if (dependency instanceof ProjectDependency) {
+                if (!putProjectDependency(hasher, (ProjectDependency) dependency, visitedProjects)) {
+                    return false;
+                }
+            } else if (dependency instanceof ExternalModuleDependency && !(dependency instanceof ClientModule)) {
+                putDependency(hasher, (ExternalModuleDependency) dependency);
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean putProjectDependency(Hasher hasher, ProjectDependency dependency, Set<Project> visitedProjects) {
+        Project project = dependency.getDependencyProject();
+        putString(hasher, project.getPath());
+        putString(hasher, dependency.getTargetConfiguration());
+        hasher.putBoolean(dependency.isTransitive());
+        putExcludeRules(hasher, dependency.getExcludeRules());
+        putArtifacts(hasher, dependency.getArtifacts());
+        if (!visitedProjects.add(project)) {
+            return true;
+        }
+
+        // The graph depends on the meta-data of each configuration of the target project, which is hashed once per project
+        putString(hasher, String.valueOf(project.getGroup()));
+        putString(hasher, project.getName());
+        putString(hasher, String.valueOf(project.getVersion()));
+        putString(hasher, String.valueOf(project.getStatus()));
+        hasher.putInt(project.getConfigurations().size());
+        for (Configuration configuration : project.getConfigurations()) {
+            putString(hasher, configuration.getName());
+            hasher.putBoolean(configuration.isCanBeConsumed());
+            hasher.putBoolean(configuration.isTransitive());
+            if (!putAttributes(hasher, configuration.getAttributes())) {
+                return false;
+            }
+            Set<String> extendsFrom = Sets.newTreeSet();
+            for (Configuration extended : configuration.getExtendsFrom()) {
+                extendsFrom.add(extended.getName());
+            }
+            hasher.putInt(extendsFrom.size());
+            for (String name : extendsFrom) {
+                putString(hasher, name);
+            }
+            putExcludeRules(hasher, configuration.getExcludeRules());
+            if (!putDependencies(hasher, configuration.getDependencies(), visitedProjects)) {
+                return false;
+            }
+            putPublishArtifacts(hasher, configuration.getArtifacts());
+            hasher.putInt(configuration.getOutgoing().getVariants().size());
+            for (ConfigurationVariant variant : configuration.getOutgoing().getVariants()) {
+                putString(hasher, variant.getName());
+                if (!putAttributes(hasher, variant.getAttributes())) {
+                    return false;
+                }
+                putPublishArtifacts(hasher, variant.getArtifacts());
+            }
+        }
+        return true;
+    }
+
+    private static void putPublishArtifacts(Hasher hasher, Set<PublishArtifact> artifacts) {
+        hasher.putInt(artifacts.size());
+        for (PublishArtifact artifact : artifacts) {
+            putString(hasher, artifact.getName());
+            putString(hasher, artifact.getType());
+            putString(hasher, artifact.getExtension());
+            putString(hasher, artifact.getClassifier());
+        }
+    }
+
+    private static void putDependency(Hasher hasher, ExternalModuleDependency dependency) {
+        putString(hasher, dependency.getGroup());
+        putString(hasher, dependency.getName());
+        putString(hasher, dependency.getVersion());
+        putString(hasher, dependency.getTargetConfiguration());
+        hasher.putBoolean(dependency.isTransitive());
+        hasher.putBoolean(dependency.isForce());
+        hasher.putBoolean(dependency.isChanging());
+        putExcludeRules(hasher, dependency.getExcludeRules());
+        putArtifacts(hasher, dependency.getArtifacts());
+    }
+
+    private static void putArtifacts(Hasher hasher, Set<DependencyArtifact> artifacts) {
+        hasher.putInt(artifacts.size());
+        for (DependencyArtifact artifact : artifacts) {
+            putString(hasher, artifact.getName());
+            putString(hasher, artifact.getType());
+            putString(hasher, artifact.getExtension());
+            putString(hasher, artifact.getClassifier());
+            putString(hasher, artifact.getUrl());
+        }
+    }
+
+    private static void putExcludeRules(Hasher hasher, Set<ExcludeRule> excludeRules) {
+        hasher.putInt(excludeRules.size());
+        for (ExcludeRule excludeRule : excludeRules) {
+            putString(hasher, excludeRule.getGroup());
+            putString(hasher, excludeRule.getModule());
+        }
+    }
+
+    private static boolean putAttributes(Hasher hasher, AttributeContainer attributes) {
+        hasher.putInt(attributes.keySet().size());
+        for (Attribute<?> attribute : attributes.keySet()) {
+            Object value = attributes.getAttribute(attribute);
+            String valueString;
+            if (value instanceof String || value instanceof Boolean || value instanceof Enum) {
+                valueString = value.toString();
+            } else if (value instanceof Named) {
+                valueString = ((Named) value).getName();
+            } else {
+                return false;
+            }
+            putString(hasher, attribute.getName());
+            putString(hasher, attribute.getType().getName());
+            putString(hasher, valueString);
+        }
+        return true;
+    }
+
+    private static void putString(Hasher hasher, @Nullable String value) {
+        if (value == null) {
+            hasher.putByte((byte) 0);
+        } else {
+            hasher.putByte((byte) 1);
+            hasher.putInt(value.length());
+            hasher.putUnencodedChars(value);
+        }
+    }
+}
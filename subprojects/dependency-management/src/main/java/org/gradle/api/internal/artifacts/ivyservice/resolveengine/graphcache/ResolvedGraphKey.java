@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache;
+
+import java.util.List;
+
+/**
+ * Identifies the inputs of resolving the dependency graph of a configuration.
+ */
+public class ResolvedGraphKey {
+    private final String hash;
+    private final List<String> repositoryIds;
+
+    ResolvedGraphKey(String hash, List<String> repositoryIds) {
+        this.hash = hash;
+        this.repositoryIds = repositoryIds;
+    }
+
+    /**
+     * The hash of the declared dependencies, excludes, attributes, resolution strategy and repositories of the configuration.
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    public List<String> getRepositoryIds() {
+        return repositoryIds;
+    }
+
+    @Override
+    public String toString() {
+        return hash;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentSelector;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.internal.artifacts.ArtifactAttributes;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.CachingModuleComponentRepository.CachingModuleSource;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.RepositoryChainModuleSource;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultResolvedArtifactResults;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvedVariant;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.CachedResolvedGraph.CachedArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.CachedResolvedGraph.CachedComponent;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.CachedResolvedGraph.CachedVariant;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.projectresult.DefaultResolvedProjectConfiguration;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.projectresult.ResolvedProjectConfiguration;
+import org.gradle.api.internal.cache.BinaryStore;
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactIdentifier;
+import org.gradle.internal.component.model.DefaultIvyArtifactName;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.component.model.ModuleSource;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records the results of resolving a dependency graph, so that they can be kept by a {@link ResolvedGraphCache}.
+ *
+ * <p>Results are only recorded for graphs that can be restored without resolving them again: graphs of projects and external modules selected by fixed
+ * versions, resolved without failures from the meta-data cache of remote repositories, for modules that are not changing. Every module version whose
+ * meta-data was used is recorded, including versions that were evicted by conflict resolution, so that a change to any of them invalidates the graph.</p>
+ */
+public class ResolvedGraphRecorder implements DependencyGraphVisitor, DependencyArtifactsVisitor {
+    private static final int MAX_RECORDED_SIZE = 4 * 1024 * 1024;
+
+    private final long timestamp;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ModuleReplacementsData moduleReplacements;
+    private final Map<Dependency, Integer> dependencyIndexes = new IdentityHashMap<Dependency, Integer>();
+    private final Map<ComponentIdentifier, CachedComponent> components = Maps.newLinkedHashMap();
+    private final List<ResolvedProjectConfiguration> projectConfigurations = Lists.newArrayList();
+    private final Map<Long, Integer> firstLevelDependencies = Maps.newHashMap();
+    private final Map<Long, DependencyGraphNode> artifactSetNodes = Maps.newHashMap();
+    private RecordingBinaryStore newModelStore;
+    private RecordingBinaryStore oldModelStore;
+    private DependencyGraphNode root;
+    private boolean cacheable = true;
+
+    ResolvedGraphRecorder(long timestamp, Iterable<? extends Dependency> declaredDependencies, VersionSelectorScheme versionSelectorScheme, ModuleReplacementsData moduleReplacements) {
+        this.timestamp = timestamp;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.moduleReplacements = moduleReplacements;
+        for (Dependency dependency : declaredDependencies) {
+            dependencyIndexes.put(dependency, dependencyIndexes.size());
+        }
+    }
+
+    /**
+     * Returns a store that records the data written by the builder of the resolution result.
+     */
+    public BinaryStore recordNewModel(BinaryStore store) {
+        newModelStore = new RecordingBinaryStore(store, MAX_RECORDED_SIZE);
+        return newModelStore;
+    }
+
+    /**
+     * Returns a store that records the data written by the builder of the transient configuration results.
+     */
+    public BinaryStore recordOldModel(BinaryStore store) {
+        oldModelStore = new RecordingBinaryStore(store, MAX_RECORDED_SIZE);
+        return oldModelStore;
+    }
+
+    @Override
+    public void start(DependencyGraphNode root) {
+        this.root = root;
+    }
+
+    @Override
+    public void visitNode(DependencyGraphNode node) {
+        if (!cacheable || node == root) {
+            return;
+        }
+        ComponentIdentifier componentId = node.getOwner().getComponentId();
+        if (componentId instanceof ProjectComponentIdentifier) {
+            if (!componentId.equals(root.getOwner().getComponentId())) {
+                projectConfigurations.add(new DefaultResolvedProjectConfiguration((ProjectComponentIdentifier) componentId, node.getResolvedConfigurationId().getConfiguration()));
+            }
+            return;
+        }
+        recordComponent(node.getOwner());
+    }
+
+    @Override
+    public void visitSelector(DependencyGraphSelector selector) {
+        ComponentSelector requested = selector.getRequested();
+        if (requested instanceof ProjectComponentSelector) {
+            return;
+        }
+        if (!(requested instanceof ModuleComponentSelector) || versionSelectorScheme.parseSelector(((ModuleComponentSelector) requested).getVersion()).isDynamic()) {
+            cacheable = false;
+            return;
+        }
+        // Versions that were evicted by conflict resolution can still change the graph, so record each version whose meta-data was used
+        for (DependencyGraphComponent candidate : selector.getCandidates()) {
+            if (cacheable && candidate.getMetadata() != null) {
+                recordComponent(candidate);
+            }
+        }
+    }
+
+    private void recordComponent(DependencyGraphComponent component) {
+        ComponentIdentifier componentId = component.getMetadata().getComponentId();
+        if (!(componentId instanceof ModuleComponentIdentifier)) {
+            cacheable = false;
+            return;
+        }
+        if (components.containsKey(componentId)) {
+            return;
+        }
+        ModuleSource source = component.getMetadata().getSource();
+        if (!(source instanceof RepositoryChainModuleSource) || !(((RepositoryChainModuleSource) source).getDelegate() instanceof CachingModuleSource)) {
+            // Not resolved from the meta-data cache of a remote repository
+            cacheable = false;
+            return;
+        }
+        RepositoryChainModuleSource repositorySource = (RepositoryChainModuleSource) source;
+        CachingModuleSource cachedSource = (CachingModuleSource) repositorySource.getDelegate();
+        if (cachedSource.isChangingModule()) {
+            cacheable = false;
+            return;
+        }
+        components.put(componentId, new CachedComponent((ModuleComponentIdentifier) componentId, repositorySource.getRepositoryId(), cachedSource.getDescriptorHash(),
+            moduleReplacements.getReplacementFor(component.getModuleVersion().getModule())));
+    }
+
+    @Override
+    public void visitEdges(DependencyGraphNode node) {
+        for (DependencyGraphEdge edge : node.getOutgoingEdges()) {
+            if (edge.getFailure() != null) {
+                cacheable = false;
+            }
+        }
+        for (DependencyGraphEdge edge : node.getIncomingEdges()) {
+            if (edge.getFrom() == root) {
+                ModuleDependency moduleDependency = edge.getModuleDependency();
+                Integer index = moduleDependency == null ? null : dependencyIndexes.get(moduleDependency);
+                if (index == null) {
+                    cacheable = false;
+                } else {
+                    firstLevelDependencies.put(node.getNodeId(), index);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void finish(DependencyGraphNode root) {
+    }
+
+    @Override
+    public void startArtifacts(DependencyGraphNode root) {
+    }
+
+    @Override
+    public void visitArtifacts(DependencyGraphNode from, DependencyGraphNode to, ArtifactSet artifacts) {
+        artifactSetNodes.put(artifacts.getId(), to);
+    }
+
+    @Override
+    public void finishArtifacts() {
+    }
+
+    /**
+     * Returns the recorded results, or null when the graph cannot be restored from recorded results.
+     */
+    @Nullable
+    public CachedResolvedGraph complete(DefaultResolvedArtifactResults artifactResults) {
+        if (!cacheable || newModelStore == null || oldModelStore == null) {
+            return null;
+        }
+        byte[] newModelData = newModelStore.getRecordedData();
+        byte[] oldModelData = oldModelStore.getRecordedData();
+        if (newModelData == null || oldModelData == null) {
+            return null;
+        }
+        List<CachedArtifactSet> artifactSets = Lists.newArrayList();
+        for (Map.Entry<Long, ArtifactSet> entry : artifactResults.getArtifactSets().entrySet()) {
+            CachedArtifactSet artifactSet = recordArtifactSet(entry.getKey(), entry.getValue(), artifactResults.isBuildable(entry.getKey()));
+            if (artifactSet == null) {
+                return null;
+            }
+            artifactSets.add(artifactSet);
+        }
+        return new CachedResolvedGraph(timestamp, newModelData, oldModelData, firstLevelDependencies, Lists.newArrayList(components.values()), projectConfigurations, artifactSets);
+    }
+
+    @Nullable
+    private CachedArtifactSet recordArtifactSet(long id, ArtifactSet artifactSet, boolean buildable) {
+        DependencyGraphNode node = artifactSetNodes.get(id);
+        if (node == null) {
+            return null;
+        }
+        DependencyGraphComponent owner = node.getOwner();
+        ComponentIdentifier componentId = owner.getComponentId();
+        boolean project = componentId instanceof ProjectComponentIdentifier;
+        if (!project && !(componentId instanceof ModuleComponentIdentifier)) {
+            return null;
+        }
+        ModuleVersionIdentifier moduleVersionId = owner.getModuleVersion();
+        List<CachedVariant> variants = Lists.newArrayList();
+        for (ResolvedVariant variant : artifactSet.getVariants()) {
+            Map<String, String> attributes = recordAttributes(variant.getAttributes());
+            Set<ResolvedArtifact> resolvedArtifacts = variant.getArtifacts().getArtifacts();
+            if (attributes == null || (resolvedArtifacts.size() == 1 && !attributes.containsKey(ArtifactAttributes.ARTIFACT_FORMAT.getName()))) {
+                // The artifact type would be added again when the artifact set is restored
+                return null;
+            }
+            List<IvyArtifactName> artifacts = Lists.newArrayListWithCapacity(resolvedArtifacts.size());
+            for (ResolvedArtifact resolvedArtifact : resolvedArtifacts) {
+                IvyArtifactName artifactName = new DefaultIvyArtifactName(resolvedArtifact.getName(), resolvedArtifact.getType(), resolvedArtifact.getExtension(), resolvedArtifact.getClassifier());
+                // The artifacts of a project are looked up by name when the artifact set is restored
+                if (!project && !resolvedArtifact.getId().equals(new DefaultModuleComponentArtifactIdentifier((ModuleComponentIdentifier) componentId, artifactName))) {
+                    return null;
+                }
+                artifacts.add(artifactName);
+            }
+            variants.add(new CachedVariant(attributes, artifacts));
+        }
+        ModuleSource moduleSource = project ? null : owner.getMetadata().getSource();
+        return new CachedArtifactSet(id, componentId, moduleVersionId, node.getResolvedConfigurationId().getConfiguration(), moduleSource, buildable, variants);
+    }
+
+    @Nullable
+    private static Map<String, String> recordAttributes(AttributeContainer attributes) {
+        Map<String, String> result = Maps.newLinkedHashMap();
+        for (Attribute<?> attribute : attributes.keySet()) {
+            Object value = attributes.getAttribute(attribute);
+            if (!attribute.getType().equals(String.class) || !(value instanceof String)) {
+                return null;
+            }
+            result.put(attribute.getName(), (String) value);
+        }
+        return result;
+    }
+}
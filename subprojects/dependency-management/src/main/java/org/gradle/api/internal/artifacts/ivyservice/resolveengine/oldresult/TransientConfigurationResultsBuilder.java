@@ -87,6 +87,19 @@ public class TransientConfigurationResultsBuilder {
         binaryData = binaryStore.done();
     }
 
+    /**
+     * Completes the results from data previously written by a builder, including the root, instead of visiting the graph.
+     */
+    public void replay(final byte[] data) {
+        binaryStore.write(new BinaryStore.WriteAction() {
+            @Override
+            public void write(Encoder encoder) throws IOException {
+                encoder.writeBytes(data);
+            }
+        });
+        binaryData = binaryStore.done();
+    }
+
     public void firstLevelDependency(final Long id) {
         binaryStore.write(new BinaryStore.WriteAction() {
             @Override
@@ -36,12 +36,13 @@ import org.gradle.internal.component.local.model.LocalFileDependencyMetadata;
 import org.gradle.internal.component.model.ConfigurationMetadata;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
 public class FileDependencyCollectingGraphVisitor implements DependencyGraphVisitor, VisitedFileDependencyResults, SelectedFileDependencyResults {
     private final SetMultimap<Long, ResolvedArtifactSet> filesByConfiguration = LinkedHashMultimap.create();
-    private Map<FileCollectionDependency, ResolvedArtifactSet> rootFiles;
+    private Map<FileCollectionDependency, ResolvedArtifactSet> rootFiles = Collections.emptyMap();
 
     @Override
     public void start(DependencyGraphNode root) {
@@ -73,6 +73,18 @@ public class StreamingResolutionResultBuilder implements DependencyGraphVisitor
         return new DefaultResolutionResult(rootSource);
     }
 
+    /**
+     * Completes the result from data previously written by a builder for a graph without failures, instead of visiting the graph.
+     */
+    public ResolutionResult replay(final byte[] data) {
+        store.write(new BinaryStore.WriteAction() {
+            public void write(Encoder encoder) throws IOException {
+                encoder.writeBytes(data);
+            }
+        });
+        return complete();
+    }
+
     @Override
     public void start(final DependencyGraphNode root) {
     }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.Action
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
+import org.gradle.internal.operations.DefaultBuildOperationQueueFactory
+import org.gradle.internal.operations.DefaultBuildOperationWorkerRegistry
+import org.gradle.internal.operations.RunnableBuildOperation
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.locks.ReentrantLock
+
+class CacheLockReleasingBuildOperationProcessorTest extends Specification {
+    def workerRegistry = new DefaultBuildOperationWorkerRegistry(1)
+    def executorFactory = new DefaultExecutorFactory()
+    def cacheLock = new ReentrantLock()
+    def cacheLockingManager = [
+        longRunningOperation: { action ->
+            assert cacheLock.heldByCurrentThread
+            cacheLock.unlock()
+            try {
+                return action instanceof Factory ? action.create() : action.run()
+            } finally {
+                cacheLock.lock()
+            }
+        }
+    ] as CacheLockingManager
+    def processor = new CacheLockReleasingBuildOperationProcessor(new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(workerRegistry), executorFactory, 2), workerRegistry, cacheLockingManager)
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    @Timeout(30)
+    def "releases the cache lock before waiting for a worker lease"() {
+        def leaseTaken = new CountDownLatch(1)
+        def cacheLocked = new CountDownLatch(1)
+        def operations = Collections.synchronizedList([])
+
+        given:
+        // Another thread holds the only lease, and needs the cache lock to finish
+        def other = Thread.start {
+            def completion = workerRegistry.operationStart()
+            try {
+                leaseTaken.countDown()
+                cacheLocked.await()
+                cacheLock.lock()
+                cacheLock.unlock()
+            } finally {
+                completion.operationFinish()
+            }
+        }
+        leaseTaken.await()
+        cacheLock.lock()
+        cacheLocked.countDown()
+
+        when:
+        processor.run(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+            void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                2.times { i ->
+                    queue.add(new TestOperation(operations, "operation $i".toString()))
+                }
+            }
+        })
+
+        then:
+        cacheLock.heldByCurrentThread
+        operations.sort() == ["operation 0", "operation 1"]
+
+        cleanup:
+        if (cacheLock.heldByCurrentThread) {
+            cacheLock.unlock()
+        }
+        other.join()
+    }
+
+    private static class TestOperation implements RunnableBuildOperation {
+        final List operations
+        final String description
+
+        TestOperation(List operations, String description) {
+            this.operations = operations
+            this.description = description
+        }
+
+        @Override
+        void run() {
+            operations << description
+        }
+    }
+}
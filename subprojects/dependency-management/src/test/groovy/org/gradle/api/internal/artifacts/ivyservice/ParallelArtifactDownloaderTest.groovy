@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.Action
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier
+import org.gradle.internal.operations.BuildOperationProcessor
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.RunnableBuildOperation
+import org.gradle.internal.resolve.ArtifactResolveException
+import spock.lang.Specification
+
+class ParallelArtifactDownloaderTest extends Specification {
+    def processor = Mock(BuildOperationProcessor)
+    def operations = []
+    def queue = Stub(BuildOperationQueue) {
+        add(_) >> { RunnableBuildOperation operation -> operations << operation }
+    }
+
+    def "downloads external artifacts using at most the configured number of operations"() {
+        def downloader = new ParallelArtifactDownloader(processor, 2)
+        def artifacts = (1..3).collect { externalArtifact() }
+
+        when:
+        downloader.download(artifacts)
+
+        then:
+        1 * processor.run(_) >> { Action<BuildOperationQueue> action -> action.execute(queue) }
+        operations.size() == 2
+
+        when:
+        operations.each { it.run() }
+
+        then:
+        artifacts.each { 1 * it.getFile() }
+    }
+
+    def "does not download artifacts of local components"() {
+        def downloader = new ParallelArtifactDownloader(processor, 4)
+        def external = externalArtifact()
+        def local = artifact(Stub(ProjectComponentIdentifier))
+
+        when:
+        downloader.download([external, local])
+
+        then:
+        0 * processor._
+        0 * external.getFile()
+        0 * local.getFile()
+    }
+
+    def "does not download artifacts when parallel downloads are not enabled"() {
+        def downloader = new ParallelArtifactDownloader(processor, 1)
+
+        when:
+        downloader.download([externalArtifact(), externalArtifact()])
+
+        then:
+        0 * processor._
+    }
+
+    def "continues downloading when an artifact cannot be downloaded"() {
+        def downloader = new ParallelArtifactDownloader(processor, 2)
+        def broken = externalArtifact()
+        def other = externalArtifact()
+        processor.run(_) >> { Action<BuildOperationQueue> action -> action.execute(queue) }
+
+        when:
+        downloader.download([broken, other])
+        operations.first().run()
+
+        then:
+        1 * broken.getFile() >> { throw new ArtifactResolveException("broken") }
+        1 * other.getFile()
+        noExceptionThrown()
+    }
+
+    def externalArtifact() {
+        artifact(Stub(ModuleComponentIdentifier))
+    }
+
+    def artifact(componentId) {
+        def id = Stub(ComponentArtifactIdentifier) {
+            getComponentIdentifier() >> componentId
+        }
+        def artifact = Mock(ResolvedArtifact)
+        artifact.id >> id
+        artifact
+    }
+}
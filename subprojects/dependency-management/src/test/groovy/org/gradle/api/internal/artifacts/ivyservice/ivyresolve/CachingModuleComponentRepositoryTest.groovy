@@ -18,11 +18,14 @@ package org.gradle.api.internal.artifacts.ivyservice.ivyresolve
 
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier
 import org.gradle.api.internal.artifacts.ComponentMetadataProcessor
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.ModuleVersionsCache
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.MissingModuleCache
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleArtifactsCache
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetaDataCache
 import org.gradle.api.internal.component.ArtifactType
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
 import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetadata
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata
@@ -33,6 +36,7 @@ import org.gradle.internal.component.model.ComponentResolveMetadata
 import org.gradle.internal.component.model.DependencyMetadata
 import org.gradle.internal.component.model.ModuleSource
 import org.gradle.internal.resolve.result.BuildableArtifactResolveResult
+import org.gradle.internal.resolve.result.BuildableModuleComponentMetaDataResolveResult
 import org.gradle.internal.resolve.result.DefaultBuildableArtifactSetResolveResult
 import org.gradle.internal.resolve.result.DefaultBuildableComponentArtifactsResolveResult
 import org.gradle.internal.resolve.result.DefaultBuildableModuleComponentMetaDataResolveResult
@@ -54,10 +58,11 @@ class CachingModuleComponentRepositoryTest extends Specification {
     def moduleResolutionCache = Stub(ModuleVersionsCache)
     def moduleDescriptorCache = Mock(ModuleMetaDataCache)
     def moduleArtifactsCache = Mock(ModuleArtifactsCache)
+    def missingModuleCache = Mock(MissingModuleCache)
     def artifactAtRepositoryCache = Mock(CachedArtifactIndex)
     def cachePolicy = Stub(CachePolicy)
     def metadataProcessor = Stub(ComponentMetadataProcessor)
-    def repo = new CachingModuleComponentRepository(realRepo, moduleResolutionCache, moduleDescriptorCache, moduleArtifactsCache, artifactAtRepositoryCache,
+    def repo = new CachingModuleComponentRepository(realRepo, moduleResolutionCache, moduleDescriptorCache, moduleArtifactsCache, missingModuleCache, artifactAtRepositoryCache,
             cachePolicy, new BuildCommencedTimeProvider(), metadataProcessor)
 
     @Unroll
@@ -157,4 +162,133 @@ class CachingModuleComponentRepositoryTest extends Specification {
         }
         0 * _
     }
+
+    def "treats module version as missing when repository did not have another version of the module"() {
+        def componentId = DefaultModuleComponentIdentifier.newId("group", "name", "1.0")
+        def prescribedMetaData = Mock(ComponentOverrideMetadata)
+        def result = new DefaultBuildableModuleComponentMetaDataResolveResult()
+        def missingModule = Stub(MissingModuleCache.CachedMissingModule) {
+            getAgeMillis() >> 1000
+        }
+
+        given:
+        cachePolicy.mustRefreshMissingModule(componentId, 1000) >> false
+
+        when:
+        repo.localAccess.resolveComponentMetaData(componentId, prescribedMetaData, result)
+
+        then:
+        1 * moduleDescriptorCache.getCachedModuleDescriptor(realRepo, componentId) >> null
+        1 * missingModuleCache.getCachedMissingModule(realRepo, DefaultModuleIdentifier.newId("group", "name")) >> missingModule
+        result.state == BuildableModuleComponentMetaDataResolveResult.State.Missing
+        !result.authoritative
+        repo.skippedRequestCount == 1
+    }
+
+    @Unroll
+    def "does not treat module version as missing when missing module entry is expired or absent - expired = #expired"() {
+        def componentId = DefaultModuleComponentIdentifier.newId("group", "name", "1.0")
+        def prescribedMetaData = Mock(ComponentOverrideMetadata)
+        def result = new DefaultBuildableModuleComponentMetaDataResolveResult()
+        def missingModule = Stub(MissingModuleCache.CachedMissingModule) {
+            getAgeMillis() >> 1000
+        }
+
+        given:
+        cachePolicy.mustRefreshMissingModule(componentId, 1000) >> expired
+
+        when:
+        repo.localAccess.resolveComponentMetaData(componentId, prescribedMetaData, result)
+
+        then:
+        1 * moduleDescriptorCache.getCachedModuleDescriptor(realRepo, componentId) >> null
+        1 * missingModuleCache.getCachedMissingModule(realRepo, DefaultModuleIdentifier.newId("group", "name")) >> (cached ? missingModule : null)
+        !result.hasResult()
+        repo.skippedRequestCount == 0
+
+        where:
+        cached | expired
+        true   | true
+        false  | false
+    }
+
+    def "does not treat module as missing when repository listed no versions for it"() {
+        def componentId = DefaultModuleComponentIdentifier.newId("group", "name", "1.0")
+        def prescribedMetaData = Mock(ComponentOverrideMetadata)
+        def result = new DefaultBuildableModuleComponentMetaDataResolveResult()
+        def versionList = Stub(ModuleVersionsCache.CachedModuleVersionList) {
+            getModuleVersions() >> ([] as Set)
+            getAgeMillis() >> 1000
+        }
+
+        given:
+        moduleResolutionCache.getCachedModuleResolution(realRepo, DefaultModuleIdentifier.newId("group", "name")) >> versionList
+        cachePolicy.mustRefreshMissingModule(componentId, 1000) >> false
+
+        when:
+        repo.localAccess.resolveComponentMetaData(componentId, prescribedMetaData, result)
+
+        then:
+        1 * moduleDescriptorCache.getCachedModuleDescriptor(realRepo, componentId) >> null
+        !result.hasResult()
+        repo.skippedRequestCount == 0
+    }
+
+    def "caches missing module version when repository does not have it"() {
+        def componentId = DefaultModuleComponentIdentifier.newId("group", "name", "1.0")
+        def prescribedMetaData = Mock(ComponentOverrideMetadata)
+        def result = new DefaultBuildableModuleComponentMetaDataResolveResult()
+
+        when:
+        repo.remoteAccess.resolveComponentMetaData(componentId, prescribedMetaData, result)
+
+        then:
+        1 * realRemoteAccess.resolveComponentMetaData(componentId, _, result) >> { result.missing() }
+        1 * moduleDescriptorCache.cacheMissing(realRepo, componentId)
+        1 * missingModuleCache.cacheMissing(realRepo, DefaultModuleIdentifier.newId("group", "name"))
+        result.state == BuildableModuleComponentMetaDataResolveResult.State.Missing
+    }
+
+    def "forgets missing module when repository has a version of it"() {
+        def componentId = DefaultModuleComponentIdentifier.newId("group", "name", "1.0")
+        def prescribedMetaData = Mock(ComponentOverrideMetadata)
+        def result = new DefaultBuildableModuleComponentMetaDataResolveResult()
+        def metaData = Stub(ModuleComponentResolveMetadata) {
+            getSource() >> Stub(ModuleSource)
+        }
+
+        when:
+        repo.remoteAccess.resolveComponentMetaData(componentId, prescribedMetaData, result)
+
+        then:
+        1 * realRemoteAccess.resolveComponentMetaData(componentId, _, result) >> { result.resolved(metaData) }
+        1 * missingModuleCache.cachePresent(realRepo, DefaultModuleIdentifier.newId("group", "name"))
+        1 * moduleDescriptorCache.cacheMetaData(realRepo, metaData) >> Stub(ModuleMetaDataCache.CachedMetaData)
+        result.state == BuildableModuleComponentMetaDataResolveResult.State.Resolved
+    }
+
+    @Unroll
+    def "treats module version as missing from cached missing entry - expired = #expired"() {
+        def componentId = DefaultModuleComponentIdentifier.newId("group", "name", "1.0")
+        def prescribedMetaData = Mock(ComponentOverrideMetadata)
+        def result = new DefaultBuildableModuleComponentMetaDataResolveResult()
+        def cachedMetaData = Stub(ModuleMetaDataCache.CachedMetaData) {
+            isMissing() >> true
+            getAgeMillis() >> 1000
+        }
+
+        given:
+        cachePolicy.mustRefreshMissingModule(componentId, 1000) >> expired
+
+        when:
+        repo.localAccess.resolveComponentMetaData(componentId, prescribedMetaData, result)
+
+        then:
+        1 * moduleDescriptorCache.getCachedModuleDescriptor(realRepo, componentId) >> cachedMetaData
+        result.hasResult() == !expired
+        repo.skippedRequestCount == (expired ? 0 : 1)
+
+        where:
+        expired << [false, true]
+    }
 }
@@ -25,6 +25,7 @@ import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.ModuleVersio
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache.InMemoryCachedRepositoryFactory
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionComparator
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.MissingModuleCache
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleArtifactsCache
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetaDataCache
 import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository
@@ -44,6 +45,7 @@ class ResolveIvyFactoryTest extends Specification {
     ModuleVersionsCache moduleVersionsCache
     ModuleMetaDataCache moduleMetaDataCache
     ModuleArtifactsCache moduleArtifactsCache
+    MissingModuleCache missingModuleCache
     CachedArtifactIndex cachedArtifactIndex
     CacheLockingManager cacheLockingManager
     StartParameterResolutionOverride startParameterResolutionOverride
@@ -56,6 +58,7 @@ class ResolveIvyFactoryTest extends Specification {
         moduleVersionsCache = Mock(ModuleVersionsCache)
         moduleMetaDataCache = Mock(ModuleMetaDataCache)
         moduleArtifactsCache = Mock(ModuleArtifactsCache)
+        missingModuleCache = Mock(MissingModuleCache)
         cachedArtifactIndex = Mock(CachedArtifactIndex)
         cacheLockingManager = Mock(CacheLockingManager)
         startParameterResolutionOverride = Mock(StartParameterResolutionOverride) {
@@ -68,7 +71,7 @@ class ResolveIvyFactoryTest extends Specification {
         versionSelectorScheme = Mock(VersionSelectorScheme)
         versionComparator = Mock(VersionComparator)
 
-        resolveIvyFactory = new ResolveIvyFactory(moduleVersionsCache, moduleMetaDataCache, moduleArtifactsCache,
+        resolveIvyFactory = new ResolveIvyFactory(moduleVersionsCache, moduleMetaDataCache, moduleArtifactsCache, missingModuleCache,
               cachedArtifactIndex, cacheLockingManager, startParameterResolutionOverride, buildCommencedTimeProvider,
               inMemoryCachedRepositoryFactory, versionSelectorScheme, versionComparator)
     }
@@ -152,6 +152,67 @@ class GradlePomModuleDescriptorParserTest extends AbstractGradlePomModuleDescrip
         inheritedDep.scope == MavenScope.Compile
     }
 
+    def "reuses parent pom until it changes"() {
+        given:
+        def parent = tmpDir.file("parent.xml")
+        def parentText = { String version -> """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>parent</artifactId>
+    <version>version-one</version>
+
+    <dependencies>
+        <dependency>
+            <groupId>group-two</groupId>
+            <artifactId>artifact-two</artifactId>
+            <version>${version}</version>
+        </dependency>
+    </dependencies>
+</project>
+""" }
+        parent.text = parentText("1.2")
+        def lastModified = parent.lastModified()
+
+        pomFile << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+
+    <parent>
+        <groupId>group-one</groupId>
+        <artifactId>parent</artifactId>
+        <version>version-one</version>
+    </parent>
+</project>
+"""
+        and:
+        parseContext.getMetaDataArtifact(_, MAVEN_POM) >> { new DefaultLocallyAvailableExternalResource(parent.toURI(), new DefaultLocallyAvailableResource(parent)) }
+
+        when:
+        parsePom()
+
+        then:
+        single(metadata.dependencies).requested == moduleId('group-two', 'artifact-two', '1.2')
+
+        when:
+        parent.text = parentText("1.3")
+        parent.lastModified = lastModified
+        parsePom()
+
+        then:
+        single(metadata.dependencies).requested == moduleId('group-two', 'artifact-two', '1.2')
+
+        when:
+        parent.lastModified = lastModified + 2000
+        parsePom()
+
+        then:
+        single(metadata.dependencies).requested == moduleId('group-two', 'artifact-two', '1.3')
+    }
+
     def "uses dependency management section to provide default values for a dependency"() {
         given:
         pomFile << """
@@ -20,6 +20,8 @@ import org.gradle.api.artifacts.component.ModuleComponentIdentifier
 import org.gradle.internal.component.external.descriptor.MutableModuleDescriptorState
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
 import org.gradle.internal.component.external.model.DefaultMutableMavenModuleResolveMetadata
+import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata
+import org.gradle.internal.hash.HashUtil
 import org.gradle.internal.resource.local.LocallyAvailableResource
 import org.gradle.internal.resource.local.PathKeyFileStore
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -34,33 +36,93 @@ class ModuleMetadataStoreTest extends Specification {
     LocallyAvailableResource fileStoreEntry = Mock()
     ModuleComponentIdentifier moduleComponentIdentifier = DefaultModuleComponentIdentifier.newId("org.test", "testArtifact", "1.0")
     ModuleMetadataSerializer serializer = Mock()
-    ModuleMetadataStore store = new ModuleMetadataStore(pathKeyFileStore, serializer);
+    PackedModuleMetadataStore packedStore = Mock()
+    ModuleMetadataStore store = new ModuleMetadataStore(pathKeyFileStore, packedStore, serializer);
+    def key = new ModuleComponentAtRepositoryKey(repository, moduleComponentIdentifier)
 
     def "getModuleDescriptorFile returns null for not cached descriptors"() {
         when:
+        packedStore.get(key, 1234G) >> null
         pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/descriptor.bin") >> null
         then:
-        null == store.getModuleDescriptor(new ModuleComponentAtRepositoryKey(repository, moduleComponentIdentifier))
+        null == store.getModuleDescriptor(key, 1234G)
     }
 
     def "getModuleDescriptorFile uses PathKeyFileStore to get file"() {
         when:
-        store.getModuleDescriptor(new ModuleComponentAtRepositoryKey(repository, moduleComponentIdentifier));
+        store.getModuleDescriptor(key, 1234G);
         then:
+        1 * packedStore.get(key, 1234G) >> null
         1 * pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/descriptor.bin") >> null
     }
 
+    def "getModuleDescriptorFile reads descriptor from packed store when it holds a copy"() {
+        def metadata = Stub(MutableModuleComponentResolveMetadata)
+
+        when:
+        def result = store.getModuleDescriptor(key, 1234G)
+
+        then:
+        result == metadata
+        1 * packedStore.get(key, 1234G) >> ([1, 2, 3] as byte[])
+        1 * serializer.read(_) >> metadata
+        0 * pathKeyFileStore._
+    }
+
+    def "getModuleDescriptorFile adds descriptor file to packed store"() {
+        def metadata = Stub(MutableModuleComponentResolveMetadata)
+        def data = [1, 2, 3] as byte[]
+        File descriptorFile = temporaryFolder.createFile("fileStoreEntry")
+        descriptorFile.bytes = data
+
+        when:
+        def result = store.getModuleDescriptor(key, 1234G)
+
+        then:
+        result == metadata
+        1 * packedStore.get(key, 1234G) >> null
+        1 * pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/descriptor.bin") >> fileStoreEntry
+        _ * fileStoreEntry.getFile() >> descriptorFile
+        1 * serializer.read(_) >> metadata
+        1 * packedStore.put(key, 1234G, data)
+    }
+
+    def "getModuleDescriptorFile reads descriptor from packed store once it has been added"() {
+        def metadata = Stub(MutableModuleComponentResolveMetadata)
+        def store = new ModuleMetadataStore(pathKeyFileStore, new PackedModuleMetadataStore(temporaryFolder.file("packed")), serializer)
+        File descriptorFile = temporaryFolder.createFile("fileStoreEntry")
+        descriptorFile.bytes = [1, 2, 3] as byte[]
+
+        when:
+        store.getModuleDescriptor(key, 1234G)
+
+        then:
+        1 * pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/descriptor.bin") >> fileStoreEntry
+        _ * fileStoreEntry.getFile() >> descriptorFile
+        1 * serializer.read(_) >> metadata
+
+        when:
+        def result = store.getModuleDescriptor(key, 1234G)
+
+        then:
+        result == metadata
+        1 * serializer.read(_) >> metadata
+        0 * pathKeyFileStore._
+    }
+
     def "putModuleDescriptor uses PathKeyFileStore to write file"() {
         setup:
         File descriptorFile = temporaryFolder.createFile("fileStoreEntry")
         def descriptor = new DefaultMutableMavenModuleResolveMetadata(moduleComponentIdentifier, new MutableModuleDescriptorState(moduleComponentIdentifier), "packaging", false, []).asImmutable()
 
         when:
-        store.putModuleDescriptor(new ModuleComponentAtRepositoryKey(repository, moduleComponentIdentifier), descriptor)
+        store.putModuleDescriptor(key, descriptor)
         then:
         1 * pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/descriptor.bin", _) >> { path, action ->
             action.execute(descriptorFile); fileStoreEntry
         };
         1 * serializer.write(_, descriptor)
+        _ * fileStoreEntry.getSha1() >> { HashUtil.sha1(descriptorFile) }
+        1 * packedStore.put(key, _, _)
     }
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class PackedModuleMetadataStoreTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder
+    def key = new ModuleComponentAtRepositoryKey("repo", DefaultModuleComponentIdentifier.newId("org.test", "testArtifact", "1.0"))
+    def otherKey = new ModuleComponentAtRepositoryKey("repo", DefaultModuleComponentIdentifier.newId("org.test", "testArtifact", "2.0"))
+
+    def "returns stored data for matching descriptor hash only"() {
+        def store = new PackedModuleMetadataStore(temporaryFolder.file("packed"))
+
+        when:
+        store.put(key, 12G, [1, 2, 3] as byte[])
+        store.put(otherKey, 34G, [4, 5] as byte[])
+
+        then:
+        store.get(key, 12G) == [1, 2, 3] as byte[]
+        store.get(otherKey, 34G) == [4, 5] as byte[]
+        store.get(key, 34G) == null
+        store.get(new ModuleComponentAtRepositoryKey("other", key.componentId), 12G) == null
+    }
+
+    def "keeps data of each repository in a single file"() {
+        def store = new PackedModuleMetadataStore(temporaryFolder.file("packed"))
+
+        when:
+        store.put(key, 12G, [1, 2, 3] as byte[])
+        store.put(otherKey, 34G, [4, 5] as byte[])
+        store.put(new ModuleComponentAtRepositoryKey("other", key.componentId), 12G, [1, 2, 3] as byte[])
+
+        then:
+        temporaryFolder.file("packed").list() as Set == ["repo.bin", "other.bin"] as Set
+    }
+
+    def "reads data written by another store and replaces superseded records"() {
+        def store = new PackedModuleMetadataStore(temporaryFolder.file("packed"))
+        def otherStore = new PackedModuleMetadataStore(temporaryFolder.file("packed"))
+
+        given:
+        store.put(key, 12G, [1, 2, 3] as byte[])
+        otherStore.get(key, 12G)
+
+        when:
+        store.put(key, 56G, [6] as byte[])
+        store.put(otherKey, 34G, [4, 5] as byte[])
+
+        then:
+        otherStore.get(key, 56G) == [6] as byte[]
+        otherStore.get(key, 12G) == null
+        otherStore.get(otherKey, 34G) == [4, 5] as byte[]
+        new PackedModuleMetadataStore(temporaryFolder.file("packed")).get(key, 56G) == [6] as byte[]
+    }
+
+    def "ignores and overwrites record that was not completely written"() {
+        def file = temporaryFolder.file("packed/repo.bin")
+        def store = new PackedModuleMetadataStore(temporaryFolder.file("packed"))
+
+        given:
+        store.put(key, 12G, [1, 2, 3] as byte[])
+        def length = file.length()
+        store.put(otherKey, 34G, [4, 5] as byte[])
+        def bytes = file.bytes
+        file.bytes = bytes[0..<(bytes.length - 1)] as byte[]
+
+        when:
+        def otherStore = new PackedModuleMetadataStore(temporaryFolder.file("packed"))
+
+        then:
+        otherStore.get(key, 12G) == [1, 2, 3] as byte[]
+        otherStore.get(otherKey, 34G) == null
+
+        when:
+        otherStore.put(otherKey, 34G, [4, 5] as byte[])
+
+        then:
+        file.length() == bytes.length
+        file.length() > length
+        new PackedModuleMetadataStore(temporaryFolder.file("packed")).get(otherKey, 34G) == [4, 5] as byte[]
+    }
+
+    def "ignores record with corrupt data"() {
+        def file = temporaryFolder.file("packed/repo.bin")
+        def store = new PackedModuleMetadataStore(temporaryFolder.file("packed"))
+
+        given:
+        store.put(key, 12G, [1, 2, 3] as byte[])
+        def bytes = file.bytes
+        bytes[bytes.length - 1] = 9
+        file.bytes = bytes
+
+        expect:
+        new PackedModuleMetadataStore(temporaryFolder.file("packed")).get(key, 12G) == null
+    }
+
+    def "starts again when file is deleted"() {
+        def file = temporaryFolder.file("packed/repo.bin")
+        def store = new PackedModuleMetadataStore(temporaryFolder.file("packed"))
+
+        given:
+        store.put(key, 12G, [1, 2, 3] as byte[])
+        store.put(otherKey, 34G, [4, 5] as byte[])
+
+        when:
+        file.delete()
+        store.put(otherKey, 34G, [4, 5] as byte[])
+
+        then:
+        store.get(key, 12G) == null
+        store.get(otherKey, 34G) == [4, 5] as byte[]
+        new PackedModuleMetadataStore(temporaryFolder.file("packed")).get(otherKey, 34G) == [4, 5] as byte[]
+    }
+
+    def "ignores file with unknown format"() {
+        def file = temporaryFolder.file("packed/repo.bin")
+        file.parentFile.mkdirs()
+        file.bytes = [0, 1, 2, 3, 4, 5, 6, 7, 8, 9] as byte[]
+        def store = new PackedModuleMetadataStore(temporaryFolder.file("packed"))
+
+        when:
+        store.put(key, 12G, [1, 2, 3] as byte[])
+
+        then:
+        store.get(key, 12G) == null
+        file.bytes == [0, 1, 2, 3, 4, 5, 6, 7, 8, 9] as byte[]
+    }
+
+    def "rewrites file once superseded records take up more than half of it"() {
+        def file = temporaryFolder.file("packed/repo.bin")
+        def store = new PackedModuleMetadataStore(temporaryFolder.file("packed"), 0, Integer.MAX_VALUE)
+        def otherStore = new PackedModuleMetadataStore(temporaryFolder.file("packed"))
+        def data = new byte[100]
+
+        given:
+        store.put(key, 12G, data)
+        store.put(otherKey, 34G, [4, 5] as byte[])
+        otherStore.get(key, 12G)
+        def length = file.length()
+
+        when:
+        store.put(key, 56G, data)
+        store.put(key, 78G, data)
+
+        then:
+        file.length() == length
+        store.get(key, 78G) == data
+        store.get(otherKey, 34G) == [4, 5] as byte[]
+        otherStore.get(key, 78G) == data
+        otherStore.get(otherKey, 34G) == [4, 5] as byte[]
+        otherStore.get(key, 12G) == null
+        temporaryFolder.file("packed").list() as List == ["repo.bin"]
+    }
+
+    def "appends to file rewritten by another store"() {
+        def store = new PackedModuleMetadataStore(temporaryFolder.file("packed"), 0, Integer.MAX_VALUE)
+        def otherStore = new PackedModuleMetadataStore(temporaryFolder.file("packed"))
+        def thirdKey = new ModuleComponentAtRepositoryKey("repo", DefaultModuleComponentIdentifier.newId("org.test", "testArtifact", "3.0"))
+
+        given:
+        store.put(key, 12G, new byte[100])
+        store.put(otherKey, 34G, [4, 5] as byte[])
+        otherStore.get(key, 12G)
+        store.put(key, 56G, [6] as byte[])
+
+        when:
+        otherStore.put(thirdKey, 90G, [7, 8] as byte[])
+
+        then:
+        otherStore.get(key, 56G) == [6] as byte[]
+        def reader = new PackedModuleMetadataStore(temporaryFolder.file("packed"))
+        reader.get(key, 56G) == [6] as byte[]
+        reader.get(otherKey, 34G) == [4, 5] as byte[]
+        reader.get(thirdKey, 90G) == [7, 8] as byte[]
+    }
+
+    def "starts a new file when a record does not fit below the maximum file size"() {
+        def file = temporaryFolder.file("packed/repo.bin")
+        def store = new PackedModuleMetadataStore(temporaryFolder.file("packed"), Integer.MAX_VALUE, 320)
+
+        when:
+        store.put(key, 12G, new byte[100])
+        store.put(otherKey, 34G, new byte[100])
+
+        then:
+        file.length() > 200
+
+        when:
+        store.put(key, 56G, new byte[100])
+
+        then:
+        file.length() <= 320
+        store.get(otherKey, 34G) == null
+        store.get(key, 56G) == new byte[100]
+        new PackedModuleMetadataStore(temporaryFolder.file("packed")).get(key, 56G) == new byte[100]
+    }
+
+    def "does not store record larger than the maximum file size"() {
+        def store = new PackedModuleMetadataStore(temporaryFolder.file("packed"), Integer.MAX_VALUE, 320)
+
+        when:
+        store.put(key, 12G, [1, 2, 3] as byte[])
+        store.put(otherKey, 34G, new byte[300])
+
+        then:
+        store.get(key, 12G) == [1, 2, 3] as byte[]
+        store.get(otherKey, 34G) == null
+    }
+
+    def "replaces file written by an earlier version of the store"() {
+        def file = temporaryFolder.file("packed/repo.bin")
+        file.parentFile.mkdirs()
+        file.bytes = [0x47, 0x4d, 0x44, 0x53, 0, 0, 0, 1, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9] as byte[]
+        def store = new PackedModuleMetadataStore(temporaryFolder.file("packed"))
+
+        when:
+        store.put(key, 12G, [1, 2, 3] as byte[])
+
+        then:
+        store.get(key, 12G) == [1, 2, 3] as byte[]
+        new PackedModuleMetadataStore(temporaryFolder.file("packed")).get(key, 12G) == [1, 2, 3] as byte[]
+    }
+}
@@ -26,6 +26,8 @@ import org.gradle.api.attributes.AttributesSchema
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
 import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockReleasingBuildOperationProcessor
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphPathResolver
@@ -45,6 +47,10 @@ import org.gradle.internal.component.model.ComponentResolveMetadata
 import org.gradle.internal.component.model.DependencyMetadata
 import org.gradle.internal.component.model.IvyArtifactName
 import org.gradle.internal.component.model.LocalComponentDependencyMetadata
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
+import org.gradle.internal.operations.DefaultBuildOperationQueueFactory
+import org.gradle.internal.operations.DefaultBuildOperationWorkerRegistry
 import org.gradle.internal.resolve.ModuleVersionNotFoundException
 import org.gradle.internal.resolve.ModuleVersionResolveException
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
@@ -70,6 +76,7 @@ class DependencyGraphBuilderTest extends Specification {
     def root = project('root', '1.0', ['root'])
     def moduleResolver = Mock(ResolveContextToComponentResolver)
     def moduleReplacements = Mock(ModuleReplacementsData)
+    def executorFactory = new DefaultExecutorFactory()
 
     DependencyGraphBuilder builder
 
@@ -81,6 +88,17 @@ class DependencyGraphBuilderTest extends Specification {
         builder = new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), Specs.satisfyAll(), attributesSchema)
     }
 
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    private DependencyGraphBuilder parallelBuilder() {
+        def workerRegistry = new DefaultBuildOperationWorkerRegistry(4)
+        def cacheLockingManager = [longRunningOperation: { Runnable action -> action.run() }] as CacheLockingManager
+        def processor = new CacheLockReleasingBuildOperationProcessor(new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(workerRegistry), executorFactory, 4), workerRegistry, cacheLockingManager)
+        return new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), Specs.satisfyAll(), attributesSchema, processor)
+    }
+
     private TestGraphVisitor resolve(DependencyGraphBuilder builder = this.builder) {
         def graphVisitor = new TestGraphVisitor()
         builder.resolve(configuration, graphVisitor)
@@ -944,6 +962,53 @@ class DependencyGraphBuilderTest extends Specification {
         result.components == ids(root, forced, b)
     }
 
+    def "fetches metadata of the dependencies of a component up front when a build operation processor is given"() {
+        given:
+        def builder = parallelBuilder()
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c")
+        [[root, a], [root, b], [a, c]].each { from, to ->
+            selectorResolvesTo(dependsOn(from, to.id), to.componentId, to.id)
+        }
+
+        when:
+        def result = resolve(builder)
+        result.rethrowFailure()
+
+        then:
+        2 * metaDataResolver.resolve(a.componentId, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult resolveResult -> resolveResult.resolved(a) }
+        2 * metaDataResolver.resolve(b.componentId, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult resolveResult -> resolveResult.resolved(b) }
+        1 * metaDataResolver.resolve(c.componentId, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult resolveResult -> resolveResult.resolved(c) }
+
+        and:
+        result.components == ids(root, a, b, c)
+    }
+
+    def "fetches metadata of the dependencies of all components at the same depth together"() {
+        given:
+        def builder = parallelBuilder()
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c")
+        def d = revision("d")
+        [[root, a], [root, b], [a, c], [b, d]].each { from, to ->
+            selectorResolvesTo(dependsOn(from, to.id), to.componentId, to.id)
+        }
+
+        when:
+        def result = resolve(builder)
+        result.rethrowFailure()
+
+        then:
+        [a, b, c, d].each { component ->
+            2 * metaDataResolver.resolve(component.componentId, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult resolveResult -> resolveResult.resolved(component) }
+        }
+
+        and:
+        result.components == ids(root, a, b, c, d)
+    }
+
     def revision(String name, String revision = '1.0') {
         // TODO Shouldn't really be using the local component implementation here
         def id = newId("group", name, revision)
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache
+
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.CachingModuleComponentRepository.CachingModuleSource
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.RepositoryChainModuleSource
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.CachedResolvedGraph.CachedArtifactSet
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.CachedResolvedGraph.CachedComponent
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graphcache.CachedResolvedGraph.CachedVariant
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.projectresult.DefaultResolvedProjectConfiguration
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.model.DefaultIvyArtifactName
+import org.gradle.internal.serialize.SerializerSpec
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+import static org.gradle.internal.component.local.model.TestComponentIdentifiers.newProjectId
+
+class CachedResolvedGraphSerializerTest extends SerializerSpec {
+    def serializer = new CachedResolvedGraphSerializer()
+
+    def "serializes"() {
+        def componentId = new DefaultModuleComponentIdentifier("org", "foo", "1.0")
+        def otherId = new DefaultModuleComponentIdentifier("org", "bar", "2.0")
+        def components = [
+            new CachedComponent(componentId, "repo1", BigInteger.valueOf(123456789L), null),
+            new CachedComponent(otherId, "repo2", BigInteger.valueOf(-42L), DefaultModuleIdentifier.newId("org", "baz"))
+        ]
+        def source = new RepositoryChainModuleSource("repo1", new CachingModuleSource(BigInteger.ONE, false, null))
+        def variants = [
+            new CachedVariant([artifactType: "jar"], [new DefaultIvyArtifactName("foo", "jar", "jar", null)]),
+            new CachedVariant([:], [new DefaultIvyArtifactName("foo", "jar", "jar", "sources"), new DefaultIvyArtifactName("foo", "zip", null, null)])
+        ]
+        def projectId = newProjectId(":lib")
+        def projectConfigurations = [new DefaultResolvedProjectConfiguration(projectId, "default")]
+        def artifactSets = [
+            new CachedArtifactSet(3L, componentId, newId("org", "foo", "1.0"), "runtime", source, false, variants),
+            new CachedArtifactSet(4L, projectId, newId("org", "lib", "1.1"), "default", null, true, [new CachedVariant([:], [new DefaultIvyArtifactName("lib", "jar", "jar", null)])])
+        ]
+        def graph = new CachedResolvedGraph(1234L, [1, 2, 3] as byte[], [4, 5] as byte[], [2L: 0, 5L: 1], components, projectConfigurations, artifactSets)
+
+        when:
+        def result = serialize(graph, serializer)
+
+        then:
+        result.timestamp == 1234L
+        result.newModelData == [1, 2, 3] as byte[]
+        result.oldModelData == [4, 5] as byte[]
+        result.firstLevelDependencyIndexes == [2L: 0, 5L: 1]
+
+        result.components.size() == 2
+        result.components[0].id == componentId
+        result.components[0].repositoryId == "repo1"
+        result.components[0].descriptorHash == BigInteger.valueOf(123456789L)
+        result.components[0].replacement == null
+        result.components[1].id == otherId
+        result.components[1].descriptorHash == BigInteger.valueOf(-42L)
+        result.components[1].replacement == DefaultModuleIdentifier.newId("org", "baz")
+
+        result.projectConfigurations.size() == 1
+        result.projectConfigurations[0].id == projectId
+        result.projectConfigurations[0].targetConfiguration == "default"
+
+        result.artifactSets.size() == 2
+        def artifactSet = result.artifactSets[0]
+        artifactSet.id == 3L
+        artifactSet.componentId == componentId
+        artifactSet.moduleVersionId == newId("org", "foo", "1.0")
+        artifactSet.configuration == "runtime"
+        !artifactSet.buildable
+        artifactSet.moduleSource instanceof RepositoryChainModuleSource
+        artifactSet.moduleSource.repositoryId == "repo1"
+        artifactSet.moduleSource.delegate.descriptorHash == BigInteger.ONE
+        artifactSet.variants.size() == 2
+        artifactSet.variants[0].attributes == [artifactType: "jar"]
+        artifactSet.variants[0].artifacts == [new DefaultIvyArtifactName("foo", "jar", "jar", null)]
+        artifactSet.variants[1].attributes == [:]
+        artifactSet.variants[1].artifacts == [new DefaultIvyArtifactName("foo", "jar", "jar", "sources"), new DefaultIvyArtifactName("foo", "zip", null, null)]
+
+        def projectArtifactSet = result.artifactSets[1]
+        projectArtifactSet.id == 4L
+        projectArtifactSet.componentId == projectId
+        projectArtifactSet.moduleVersionId == newId("org", "lib", "1.1")
+        projectArtifactSet.configuration == "default"
+        projectArtifactSet.moduleSource == null
+        projectArtifactSet.buildable
+        projectArtifactSet.variants.size() == 1
+        projectArtifactSet.variants[0].artifacts == [new DefaultIvyArtifactName("lib", "jar", "jar", null)]
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http
+
+import org.apache.http.client.utils.HttpClientUtils
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.test.fixtures.server.http.HttpServer
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+class HttpConnectionPoolIntegrationTest extends Specification {
+    @Rule HttpServer server = new HttpServer()
+    @Rule TestNameTestDirectoryProvider tempDir = new TestNameTestDirectoryProvider()
+
+    def files = (1..20).collect { tempDir.file("lib-${it}.jar") }
+
+    def setup() {
+        files.each {
+            it.text = "content of ${it.name}"
+            server.allowGetOrHead("/repo/${it.name}", it)
+        }
+        server.start()
+    }
+
+    def "reuses a single connection for sequential requests to the same host"() {
+        def http = httpClient(4)
+
+        when:
+        files.each { get(http, it) }
+
+        then:
+        http.connectionPool.leasedCount == files.size()
+        http.connectionPool.createdCount == 1
+        http.connectionPool.reusedCount == files.size() - 1
+    }
+
+    def "sets up at most the maximum number of connections per host for concurrent requests"() {
+        def http = httpClient(2)
+        def executor = Executors.newFixedThreadPool(8)
+
+        when:
+        def results = executor.invokeAll(files.collect { file -> { -> get(http, file) } as Callable })
+        results*.get()
+
+        then:
+        http.connectionPool.leasedCount == files.size()
+        http.connectionPool.createdCount <= 2
+        http.connectionPool.reusedCount >= files.size() - 2
+
+        cleanup:
+        executor?.shutdown()
+    }
+
+    private HttpClientHelper httpClient(int maxConnectionsPerRoute) {
+        return new HttpClientHelper(new DefaultHttpSettings([], new DefaultSslContextFactory()), maxConnectionsPerRoute)
+    }
+
+    private get(HttpClientHelper http, File file) {
+        def response = http.performGet("${server.uri}/repo/${file.name}", false)
+        assert response.entity.content.text == file.text
+        HttpClientUtils.closeQuietly(response)
+    }
+}
@@ -26,7 +26,10 @@ import org.apache.http.client.config.AuthSchemes;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.DefaultHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.auth.*;
@@ -74,8 +77,24 @@ public class HttpClientConfigurer {
         builder.setDefaultCredentialsProvider(credentialsProvider);
     }
 
+    /**
+     * Creates a pool of connections that uses the SSL settings of this configurer. The pool is used in place of the socket factory configured by
+     * {@link #configure(HttpClientBuilder)} when it is set on the client builder.
+     */
+    public HttpConnectionPool createConnectionPool(int maxConnectionsPerRoute) {
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            .register("https", createSslSocketFactory(httpSettings.getSslContextFactory()))
+            .build();
+        return new HttpConnectionPool(socketFactoryRegistry, maxConnectionsPerRoute);
+    }
+
     private void configureSslSocketConnectionFactory(HttpClientBuilder builder, SslContextFactory sslContextFactory) {
-        builder.setSSLSocketFactory(new SSLConnectionSocketFactory(sslContextFactory.createSslContext(), new DefaultHostnameVerifier(null)));
+        builder.setSSLSocketFactory(createSslSocketFactory(sslContextFactory));
+    }
+
+    private SSLConnectionSocketFactory createSslSocketFactory(SslContextFactory sslContextFactory) {
+        return new SSLConnectionSocketFactory(sslContextFactory.createSslContext(), new DefaultHostnameVerifier(null));
     }
 
     private void configureAuthSchemeRegistry(HttpClientBuilder builder) {
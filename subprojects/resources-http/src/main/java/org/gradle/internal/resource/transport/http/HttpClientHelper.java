@@ -32,6 +32,7 @@ import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.protocol.BasicHttpContext;
+import org.gradle.api.Nullable;
 import org.gradle.api.UncheckedIOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,11 +48,27 @@ public class HttpClientHelper implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientHelper.class);
     private CloseableHttpClient client;
-    private final BasicHttpContext httpContext = new BasicHttpContext();
+    private HttpConnectionPool connectionPool;
+    // A context is not thread-safe, and requests can be made by several threads at the same time
+    private final ThreadLocal<BasicHttpContext> httpContext = new ThreadLocal<BasicHttpContext>() {
+        @Override
+        protected BasicHttpContext initialValue() {
+            return new BasicHttpContext();
+        }
+    };
     private final HttpSettings settings;
+    private final int maxConnectionsPerRoute;
 
     public HttpClientHelper(HttpSettings settings) {
+        this(settings, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param maxConnectionsPerRoute The maximum number of connections to keep open to each host, usually the maximum number of workers.
+     */
+    public HttpClientHelper(HttpSettings settings, int maxConnectionsPerRoute) {
         this.settings = settings;
+        this.maxConnectionsPerRoute = Math.max(1, maxConnectionsPerRoute);
     }
 
     public CloseableHttpResponse performRawHead(String source, boolean revalidate) {
@@ -108,9 +125,10 @@ public class HttpClientHelper implements Closeable {
 
     public CloseableHttpResponse performHttpRequest(HttpRequestBase request) throws IOException {
         // Without this, HTTP Client prohibits multiple redirects to the same location within the same context
-        httpContext.removeAttribute(HttpClientContext.REDIRECT_LOCATIONS);
+        BasicHttpContext context = httpContext.get();
+        context.removeAttribute(HttpClientContext.REDIRECT_LOCATIONS);
         LOGGER.debug("Performing HTTP {}: {}", request.getMethod(), request.getURI());
-        return getClient().execute(request, httpContext);
+        return getClient().execute(request, context);
     }
 
     private CloseableHttpResponse processResponse(String source, String method, CloseableHttpResponse response) {
@@ -131,15 +149,27 @@ public class HttpClientHelper implements Closeable {
         if (client == null) {
             HttpClientBuilder builder = HttpClientBuilder.create();
             builder.setRedirectStrategy(new AlwaysRedirectRedirectStrategy());
-            new HttpClientConfigurer(settings).configure(builder);
+            HttpClientConfigurer configurer = new HttpClientConfigurer(settings);
+            configurer.configure(builder);
+            this.connectionPool = configurer.createConnectionPool(maxConnectionsPerRoute);
+            builder.setConnectionManager(connectionPool);
             this.client = builder.build();
         }
         return client;
     }
 
+    /**
+     * Returns the pool of connections used by this client, or null when no request has been made yet.
+     */
+    @Nullable
+    public synchronized HttpConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
     @Override
     public synchronized void close() throws IOException {
         if (client != null) {
+            LOGGER.debug("Closing HTTP client. Connections: {}.", connectionPool);
             client.close();
         }
     }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of HTTP connections, shared by the requests made through a client. Connections are kept alive between requests, so that requests to the
+ * same host do not have to set up a new connection and repeat the TLS handshake. Connections that have been idle for a while are closed when a
+ * connection is next requested, so that no thread is needed to evict them.
+ *
+ * <p>Counts the connections that are leased and created, so that connection reuse can be reported.</p>
+ */
+public class HttpConnectionPool extends PoolingHttpClientConnectionManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpConnectionPool.class);
+    private static final int MIN_MAX_TOTAL = 20;
+    private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    // Checks that a connection has not been closed by the server before reusing it
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+
+    private final CountingConnectionFactory connectionFactory;
+    private final AtomicInteger leased = new AtomicInteger();
+    private final AtomicLong lastEviction = new AtomicLong(System.currentTimeMillis());
+
+    public HttpConnectionPool(Registry<ConnectionSocketFactory> socketFactoryRegistry, int maxConnectionsPerRoute) {
+        this(socketFactoryRegistry, new CountingConnectionFactory(), maxConnectionsPerRoute);
+    }
+
+    private HttpConnectionPool(Registry<ConnectionSocketFactory> socketFactoryRegistry, CountingConnectionFactory connectionFactory, int maxConnectionsPerRoute) {
+        super(socketFactoryRegistry, connectionFactory);
+        this.connectionFactory = connectionFactory;
+        setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        setMaxTotal(Math.max(MIN_MAX_TOTAL, maxConnectionsPerRoute * 2));
+        setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        maybeCloseIdleConnections();
+        leased.incrementAndGet();
+        return super.requestConnection(route, state);
+    }
+
+    private void maybeCloseIdleConnections() {
+        long now = System.currentTimeMillis();
+        long last = lastEviction.get();
+        if (now - last >= IDLE_TIMEOUT_MILLIS && lastEviction.compareAndSet(last, now)) {
+            closeExpiredConnections();
+            closeIdleConnections(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the number of connections leased from this pool, including those that were created for the lease.
+     */
+    public int getLeasedCount() {
+        return leased.get();
+    }
+
+    /**
+     * Returns the number of connections set up by this pool.
+     */
+    public int getCreatedCount() {
+        return connectionFactory.created.get();
+    }
+
+    /**
+     * Returns the number of times that a connection was reused instead of setting up a new connection.
+     */
+    public int getReusedCount() {
+        return Math.max(0, getLeasedCount() - getCreatedCount());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s leased, %s created, %s reused", getLeasedCount(), getCreatedCount(), getReusedCount());
+    }
+
+    private static class CountingConnectionFactory implements HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> {
+        private final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+            created.incrementAndGet();
+            LOGGER.debug("Opening HTTP connection to {}.", route.getTargetHost());
+            return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+        }
+    }
+}
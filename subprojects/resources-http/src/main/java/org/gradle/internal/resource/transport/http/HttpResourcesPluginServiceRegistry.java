@@ -16,6 +16,7 @@
 
 package org.gradle.internal.resource.transport.http;
 
+import org.gradle.StartParameter;
 import org.gradle.authentication.http.BasicAuthentication;
 import org.gradle.authentication.http.DigestAuthentication;
 import org.gradle.internal.authentication.DefaultBasicAuthentication;
@@ -31,6 +32,7 @@ public class HttpResourcesPluginServiceRegistry implements PluginServiceRegistry
     }
 
     public void registerBuildSessionServices(ServiceRegistration registration) {
+        registration.addProvider(new BuildSessionScopeServices());
     }
 
     public void registerBuildServices(ServiceRegistration registration) {
@@ -47,9 +49,12 @@ public class HttpResourcesPluginServiceRegistry implements PluginServiceRegistry
         SslContextFactory createSslContextFactory() {
             return new DefaultSslContextFactory();
         }
+    }
 
-        ResourceConnectorFactory createHttpConnectorFactory(SslContextFactory sslContextFactory) {
-            return new HttpConnectorFactory(sslContextFactory);
+    private static class BuildSessionScopeServices {
+        ResourceConnectorFactory createHttpConnectorFactory(SslContextFactory sslContextFactory, StartParameter startParameter) {
+            // Allow a connection per worker to each repository host
+            return new HttpConnectorFactory(sslContextFactory, startParameter.getMaxWorkerCount());
         }
     }
 
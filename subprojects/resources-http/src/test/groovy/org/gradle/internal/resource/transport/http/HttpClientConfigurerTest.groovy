@@ -110,4 +110,17 @@ public class HttpClientConfigurerTest extends Specification {
         then:
         httpClientBuilder.userAgent == UriTextResource.userAgentString
     }
+
+    def "creates connection pool with a limit per host"() {
+        httpSettings.sslContextFactory >> sslContextFactory
+
+        when:
+        def pool = configurer.createConnectionPool(6)
+
+        then:
+        pool.defaultMaxPerRoute == 6
+        pool.maxTotal >= 12
+        pool.leasedCount == 0
+        pool.createdCount == 0
+    }
 }
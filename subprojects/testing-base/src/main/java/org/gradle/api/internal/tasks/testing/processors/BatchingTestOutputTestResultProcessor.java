@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link org.gradle.api.internal.tasks.testing.TestResultProcessor} which combines consecutive output events of a test for the same destination into
+ * a single event, so that a test which writes many lines does not send an event for each line.
+ *
+ * <p>Buffered output is forwarded before any other event, so the order of events is kept. It is also forwarded when it reaches the maximum size, and
+ * periodically, so that the output of a test that blocks is not held back for long.</p>
+ */
+public class BatchingTestOutputTestResultProcessor implements TestResultProcessor, Stoppable {
+    public static final int DEFAULT_MAX_BUFFERED_CHARS = 32 * 1024;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 100;
+
+    private final TestResultProcessor processor;
+    private final int maxBufferedChars;
+    private final Object lock = new Object();
+    private final StringBuilder buffer = new StringBuilder();
+    private final ScheduledFuture<?> periodicFlush;
+    private Object bufferedTestId;
+    private TestOutputEvent.Destination bufferedDestination;
+
+    public BatchingTestOutputTestResultProcessor(TestResultProcessor processor, ScheduledExecutorService executor) {
+        this(processor, executor, DEFAULT_MAX_BUFFERED_CHARS, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public BatchingTestOutputTestResultProcessor(TestResultProcessor processor, ScheduledExecutorService executor, int maxBufferedChars, long maxDelayMillis) {
+        this.processor = processor;
+        this.maxBufferedChars = maxBufferedChars;
+        this.periodicFlush = executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (lock) {
+                    flush();
+                }
+            }
+        }, maxDelayMillis, maxDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        synchronized (lock) {
+            flush();
+            processor.started(test, event);
+        }
+    }
+
+    @Override
+    public void completed(Object testId, TestCompleteEvent event) {
+        synchronized (lock) {
+            flush();
+            processor.completed(testId, event);
+        }
+    }
+
+    @Override
+    public void output(Object testId, TestOutputEvent event) {
+        synchronized (lock) {
+            if (buffer.length() > 0 && (event.getDestination() != bufferedDestination || !testId.equals(bufferedTestId))) {
+                flush();
+            }
+            String message = event.getMessage();
+            if (buffer.length() == 0 && message.length() >= maxBufferedChars) {
+                // Nothing to combine with, so forward as is
+                processor.output(testId, event);
+                return;
+            }
+            bufferedTestId = testId;
+            bufferedDestination = event.getDestination();
+            buffer.append(message);
+            if (buffer.length() >= maxBufferedChars) {
+                flush();
+            }
+        }
+    }
+
+    @Override
+    public void failure(Object testId, Throwable result) {
+        synchronized (lock) {
+            flush();
+            processor.failure(testId, result);
+        }
+    }
+
+    /**
+     * Stops flushing periodically, and forwards any buffered output.
+     */
+    @Override
+    public void stop() {
+        periodicFlush.cancel(false);
+        synchronized (lock) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (buffer.length() == 0) {
+            return;
+        }
+        DefaultTestOutputEvent event = new DefaultTestOutputEvent(bufferedDestination, buffer.toString());
+        Object testId = bufferedTestId;
+        buffer.setLength(0);
+        bufferedTestId = null;
+        bufferedDestination = null;
+        processor.output(testId, event);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Holds back test classes until all test classes have been received, then forwards the test classes with the longest expected duration first.
+ * Test classes whose duration is not known are forwarded before all others, as they may take the longest. Starting the longest test classes first
+ * avoids a long test class being started near the end of the test run, when the other processes have run out of work.
+ */
+public class LongestFirstTestClassProcessor implements TestClassProcessor {
+    private final TestClassProcessor delegate;
+    private final TestClassDurations durations;
+    private final List<TestClassRunInfo> testClasses = new ArrayList<TestClassRunInfo>();
+
+    public LongestFirstTestClassProcessor(TestClassProcessor delegate, TestClassDurations durations) {
+        this.delegate = delegate;
+        this.durations = durations;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        delegate.startProcessing(resultProcessor);
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        testClasses.add(testClass);
+    }
+
+    @Override
+    public void stop() {
+        try {
+            // Stable sort, so that classes with the same expected duration keep the order in which they were found
+            Collections.sort(testClasses, new Comparator<TestClassRunInfo>() {
+                @Override
+                public int compare(TestClassRunInfo left, TestClassRunInfo right) {
+                    return compareDurations(right.getTestClassName(), left.getTestClassName());
+                }
+            });
+            for (TestClassRunInfo testClass : testClasses) {
+                delegate.processTestClass(testClass);
+            }
+        } finally {
+            testClasses.clear();
+            delegate.stop();
+        }
+    }
+
+    private int compareDurations(String left, String right) {
+        boolean leftKnown = durations.isKnown(left);
+        boolean rightKnown = durations.isKnown(right);
+        if (leftKnown != rightKnown) {
+            return leftKnown ? -1 : 1;
+        }
+        if (!leftKnown) {
+            return 0;
+        }
+        long leftDuration = durations.getExpectedDuration(left);
+        long rightDuration = durations.getExpectedDuration(right);
+        return leftDuration < rightDuration ? -1 : (leftDuration == rightDuration ? 0 : 1);
+    }
+}
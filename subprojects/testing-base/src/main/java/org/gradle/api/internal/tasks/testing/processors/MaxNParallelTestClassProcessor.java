@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.testing.processors;
 
+import org.gradle.api.Nullable;
 import org.gradle.internal.Factory;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
@@ -31,22 +32,31 @@ import java.util.List;
 
 /**
  * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * processors, or assigns each test class to the processor with the least expected work when the expected durations
+ * of the test classes are known. Processors that share a {@link org.gradle.api.internal.tasks.testing.worker.TestClassQueue}
+ * instead distribute the test classes among themselves as they become free.
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final TestClassDurations durations;
     private TestResultProcessor resultProcessor;
     private int pos;
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
+    private List<Long> expectedWork = new ArrayList<Long>();
     private List<Actor> actors = new ArrayList<Actor>();
     private Actor resultProcessorActor;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, null);
+    }
+
+    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, @Nullable TestClassDurations durations) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.durations = durations;
     }
 
     @Override
@@ -59,20 +69,40 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     @Override
     public void processTestClass(TestClassRunInfo testClass) {
         TestClassProcessor processor;
+        int index;
         if (processors.size() < maxProcessors) {
             processor = factory.create();
             Actor actor = actorFactory.createActor(processor);
             processor = actor.getProxy(TestClassProcessor.class);
             actors.add(actor);
             processors.add(processor);
+            expectedWork.add(0L);
             processor.startProcessing(resultProcessor);
+            index = processors.size() - 1;
+        } else if (durations != null) {
+            index = leastExpectedWork();
+            processor = processors.get(index);
         } else {
+            index = pos;
             processor = processors.get(pos);
             pos = (pos + 1) % processors.size();
         }
+        if (durations != null) {
+            expectedWork.set(index, expectedWork.get(index) + durations.getExpectedDuration(testClass.getTestClassName()));
+        }
         processor.processTestClass(testClass);
     }
 
+    private int leastExpectedWork() {
+        int least = 0;
+        for (int i = 1; i < expectedWork.size(); i++) {
+            if (expectedWork.get(i) < expectedWork.get(least)) {
+                least = i;
+            }
+        }
+        return least;
+    }
+
     @Override
     public void stop() {
         try {
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import java.util.Map;
+
+/**
+ * The expected durations of test classes, based on the durations of earlier executions of the test classes.
+ */
+public class TestClassDurations {
+    private final Map<String, Long> durations;
+    private final long averageDuration;
+
+    /**
+     * @param durations The duration of each test class, by class name.
+     */
+    public TestClassDurations(Map<String, Long> durations) {
+        this.durations = durations;
+        long total = 0;
+        for (Long duration : durations.values()) {
+            total += duration;
+        }
+        this.averageDuration = durations.isEmpty() ? 0 : total / durations.size();
+    }
+
+    public boolean isKnown(String className) {
+        return durations.containsKey(className);
+    }
+
+    /**
+     * Returns the expected duration of the given test class. Uses the average duration of all known test classes when the duration of the class is not known.
+     */
+    public long getExpectedDuration(String className) {
+        Long duration = durations.get(className);
+        return duration == null ? averageDuration : duration;
+    }
+}
@@ -17,6 +17,7 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.classpath.ModuleRegistry;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
@@ -29,6 +30,7 @@ import org.gradle.process.internal.worker.WorkerProcess;
 import org.gradle.process.internal.worker.WorkerProcessBuilder;
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 import org.gradle.util.CollectionUtils;
+import org.gradle.util.GUtil;
 
 import java.io.File;
 import java.net.URL;
@@ -42,12 +44,32 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private final Action<WorkerProcessBuilder> buildConfigAction;
     private final ModuleRegistry moduleRegistry;
     private final BuildOperationWorkerRegistry.Operation owner;
+    private final TestClassQueue testClassQueue;
+    private final TestClassQueue.Consumer testClassConsumer;
+    private final TestWorkerPool testWorkerPool;
+    private final boolean batchOutput;
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
+    private PooledTestWorker pooledWorker;
     private TestResultProcessor resultProcessor;
     private BuildOperationWorkerRegistry.Completion workerCompletion;
 
     public ForkingTestClassProcessor(WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, BuildOperationWorkerRegistry.Operation owner) {
+        this(workerFactory, processorFactory, options, classPath, buildConfigAction, moduleRegistry, owner, new TestClassQueue(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Creates a processor that takes its test classes from the given queue, which may be shared with other processors.
+     */
+    public ForkingTestClassProcessor(WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, BuildOperationWorkerRegistry.Operation owner, TestClassQueue testClassQueue) {
+        this(workerFactory, processorFactory, options, classPath, buildConfigAction, moduleRegistry, owner, testClassQueue, null, false);
+    }
+
+    /**
+     * Creates a processor that takes its test classes from the given queue, and that runs them in a process of the given pool when one is given.
+     * The process combines the output events of the tests before sending them back when batchOutput is true.
+     */
+    public ForkingTestClassProcessor(WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, BuildOperationWorkerRegistry.Operation owner, TestClassQueue testClassQueue, @Nullable TestWorkerPool testWorkerPool, boolean batchOutput) {
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
         this.options = options;
@@ -55,6 +77,11 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         this.buildConfigAction = buildConfigAction;
         this.moduleRegistry = moduleRegistry;
         this.owner = owner;
+        this.testClassQueue = testClassQueue;
+        this.testClassConsumer = testClassQueue.createConsumer();
+        this.testWorkerPool = testWorkerPool;
+        this.batchOutput = batchOutput;
+        testClassQueue.producerStarted();
     }
 
     @Override
@@ -67,13 +94,18 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         if (remoteProcessor == null) {
             workerCompletion = owner.operationStart();
             remoteProcessor = forkProcess();
+            testClassConsumer.start(remoteProcessor);
         }
 
-        remoteProcessor.processTestClass(testClass);
+        testClassQueue.add(testClass);
     }
 
     RemoteTestClassProcessor forkProcess() {
-        WorkerProcessBuilder builder = workerFactory.create(new TestWorker(processorFactory));
+        if (testWorkerPool != null) {
+            return startPooledSession();
+        }
+
+        WorkerProcessBuilder builder = workerFactory.create(new TestWorker(processorFactory, batchOutput));
         builder.setBaseName("Gradle Test Executor");
         builder.setImplementationClasspath(getTestWorkerImplementationClasspath());
         builder.applicationClasspath(classPath);
@@ -86,13 +118,33 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         ObjectConnection connection = workerProcess.getConnection();
         connection.useParameterSerializers(TestEventSerializer.create());
         connection.addIncoming(TestResultProcessor.class, resultProcessor);
+        connection.addIncoming(RemoteTestClassProcessorListener.class, testClassConsumer);
         RemoteTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
         connection.connect();
         remoteProcessor.startProcessing();
         return remoteProcessor;
     }
 
+    private RemoteTestClassProcessor startPooledSession() {
+        WorkerProcessBuilder builder = workerFactory.create(new ReusableTestWorker());
+        builder.setBaseName("Gradle Test Executor");
+        builder.setImplementationClasspath(getReusableTestWorkerImplementationClasspath());
+        options.copyTo(builder.getJavaCommand());
+        buildConfigAction.execute(builder);
+
+        pooledWorker = testWorkerPool.reserve(builder);
+        TestWorkerSessionSpec spec = new TestWorkerSessionSpec(GUtil.serialize(processorFactory), classPath, getTestFrameworkImplementationClasspath(), builder.getSharedPackages(), batchOutput);
+        return pooledWorker.startSession(spec, resultProcessor, testClassConsumer);
+    }
+
     List<URL> getTestWorkerImplementationClasspath() {
+        return CollectionUtils.flattenCollections(URL.class, getReusableTestWorkerImplementationClasspath(), getTestFrameworkImplementationClasspath());
+    }
+
+    /**
+     * The implementation classpath of a reusable test worker process, which does not include the test framework implementation.
+     */
+    private List<URL> getReusableTestWorkerImplementationClasspath() {
         return CollectionUtils.flattenCollections(URL.class,
             moduleRegistry.getModule("gradle-version-info").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getModule("gradle-core").getImplementationClasspath().getAsURLs(),
@@ -102,23 +154,37 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
             moduleRegistry.getModule("gradle-cli").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getModule("gradle-native").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getModule("gradle-testing-base").getImplementationClasspath().getAsURLs(),
-            moduleRegistry.getModule("gradle-testing-jvm").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getExternalModule("guava-jdk5").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getExternalModule("slf4j-api").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getExternalModule("jul-to-slf4j").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getExternalModule("native-platform").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getExternalModule("kryo").getImplementationClasspath().getAsURLs(),
-            moduleRegistry.getExternalModule("commons-lang").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("commons-lang").getImplementationClasspath().getAsURLs()
+        );
+    }
+
+    private List<URL> getTestFrameworkImplementationClasspath() {
+        return CollectionUtils.flattenCollections(URL.class,
+            moduleRegistry.getModule("gradle-testing-jvm").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getExternalModule("junit").getImplementationClasspath().getAsURLs()
         );
     }
 
     @Override
     public void stop() {
+        // The worker process is stopped by the queue, once all test classes have been sent
+        testClassQueue.producerFinished();
         if (remoteProcessor != null) {
             try {
-                remoteProcessor.stop();
-                workerProcess.waitForStop();
+                if (pooledWorker != null) {
+                    try {
+                        pooledWorker.waitForSessionEnd();
+                    } finally {
+                        testWorkerPool.release(pooledWorker);
+                    }
+                } else {
+                    workerProcess.waitForStop();
+                }
             } finally {
                 workerCompletion.operationFinish();
             }
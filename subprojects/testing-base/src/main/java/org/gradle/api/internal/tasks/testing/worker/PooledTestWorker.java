@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.process.internal.worker.WorkerProcess;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A test worker process kept by a {@link TestWorkerPool}, which runs one test session at a time. Forwards the results received from the process
+ * to the current session.
+ */
+class PooledTestWorker implements ReusableTestWorkerListener, Stoppable {
+    private final Object key;
+    private final WorkerProcess workerProcess;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private ReusableTestWorkerProtocol remoteWorker;
+    private TestResultProcessor resultProcessor;
+    private RemoteTestClassProcessorListener processorListener;
+    private boolean sessionRunning;
+    private boolean running = true;
+    private Throwable processFailure;
+    private Throwable sessionFailure;
+
+    PooledTestWorker(Object key, WorkerProcess workerProcess) {
+        this.key = key;
+        this.workerProcess = workerProcess;
+    }
+
+    Object getKey() {
+        return key;
+    }
+
+    void connect() {
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializers(TestEventSerializer.create());
+        connection.addIncoming(ReusableTestWorkerListener.class, this);
+        remoteWorker = connection.addOutgoing(ReusableTestWorkerProtocol.class);
+        connection.connect();
+    }
+
+    /**
+     * Starts a session in this process. Results are sent to the given processor and listener until the session has finished.
+     */
+    RemoteTestClassProcessor startSession(TestWorkerSessionSpec spec, TestResultProcessor resultProcessor, RemoteTestClassProcessorListener processorListener) {
+        lock.lock();
+        try {
+            this.resultProcessor = resultProcessor;
+            this.processorListener = processorListener;
+            sessionRunning = true;
+        } finally {
+            lock.unlock();
+        }
+        remoteWorker.startSession(spec);
+        remoteWorker.startProcessing();
+        return remoteWorker;
+    }
+
+    /**
+     * Waits for the current session to finish, or for the process to stop. Rethrows the failure of the session, or the failure of the process
+     * when it stops abnormally.
+     */
+    void waitForSessionEnd() {
+        lock.lock();
+        try {
+            while (sessionRunning && running) {
+                try {
+                    condition.await();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            sessionRunning = false;
+            resultProcessor = null;
+            processorListener = null;
+            if (processFailure != null) {
+                throw UncheckedException.throwAsUncheckedException(processFailure);
+            }
+            if (sessionFailure != null) {
+                throw UncheckedException.throwAsUncheckedException(sessionFailure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true when the process is running and its last session, if any, has finished successfully. A session that was abandoned while
+     * waiting for it to finish is still running. A process whose session failed may hold state of that session, and is never idle.
+     */
+    boolean isIdle() {
+        lock.lock();
+        try {
+            return running && !sessionRunning && sessionFailure == null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the process to stop. Called from a thread of the pool once the process has been started.
+     */
+    void waitForProcessStop() {
+        Throwable failure = null;
+        try {
+            workerProcess.waitForStop();
+        } catch (Throwable t) {
+            failure = t;
+        }
+        lock.lock();
+        try {
+            running = false;
+            processFailure = failure;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void stop() {
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        remoteWorker.shutdown();
+        lock.lock();
+        try {
+            while (running) {
+                try {
+                    condition.await();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        currentResultProcessor().started(test, event);
+    }
+
+    @Override
+    public void completed(Object testId, TestCompleteEvent event) {
+        currentResultProcessor().completed(testId, event);
+    }
+
+    @Override
+    public void output(Object testId, TestOutputEvent event) {
+        currentResultProcessor().output(testId, event);
+    }
+
+    @Override
+    public void failure(Object testId, Throwable result) {
+        currentResultProcessor().failure(testId, result);
+    }
+
+    @Override
+    public void testClassProcessed() {
+        RemoteTestClassProcessorListener listener;
+        lock.lock();
+        try {
+            listener = processorListener;
+        } finally {
+            lock.unlock();
+        }
+        listener.testClassProcessed();
+    }
+
+    @Override
+    public void sessionFailed(Throwable failure) {
+        lock.lock();
+        try {
+            sessionFailure = failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void sessionFinished() {
+        lock.lock();
+        try {
+            sessionRunning = false;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TestResultProcessor currentResultProcessor() {
+        lock.lock();
+        try {
+            return resultProcessor;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
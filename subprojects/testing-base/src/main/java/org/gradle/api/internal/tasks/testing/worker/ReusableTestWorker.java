@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+import org.gradle.internal.classloader.FilteringClassLoader;
+import org.gradle.internal.classloader.MultiParentClassLoader;
+import org.gradle.internal.classpath.DefaultClassPath;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.dispatch.ContextClassLoaderProxy;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.io.ClassLoaderObjectInputStream;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.service.DefaultServiceRegistry;
+import org.gradle.internal.time.TimeProvider;
+import org.gradle.process.internal.worker.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A test worker that runs the tests of several test tasks, one session after another, in the same process.
+ *
+ * <p>The process is started with an empty application classpath and without the test framework implementation. Each session loads these using
+ * its own ClassLoaders, which are discarded when the session finishes:</p>
+ * <ul>
+ *     <li>The test runtime ClassLoader loads the test classes. Its parent is the system ClassLoader, as for a test worker process that is not reused.</li>
+ *     <li>The test framework ClassLoader loads the test framework implementation. Its parents are the test runtime ClassLoader, filtered to the
+ *     shared packages of the test framework, and the implementation ClassLoader of the process.</li>
+ * </ul>
+ */
+public class ReusableTestWorker implements Action<WorkerProcessContext>, ReusableTestWorkerProtocol, Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReusableTestWorker.class);
+    private transient CountDownLatch shutdown;
+    private transient WorkerProcessContext workerProcessContext;
+    private transient ReusableTestWorkerListener listener;
+    private transient Properties initialSystemProperties;
+    private transient URLClassLoader testRuntimeClassLoader;
+    private transient URLClassLoader testFrameworkClassLoader;
+    private transient DefaultServiceRegistry testServices;
+    private transient TestClassProcessor processor;
+    private transient Throwable sessionFailure;
+
+    @Override
+    public void execute(WorkerProcessContext workerProcessContext) {
+        LOGGER.info("{} started.", workerProcessContext.getDisplayName());
+
+        this.workerProcessContext = workerProcessContext;
+        shutdown = new CountDownLatch(1);
+
+        System.setProperty(TestWorker.WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
+        initialSystemProperties = new Properties();
+        initialSystemProperties.putAll(System.getProperties());
+
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializers(TestEventSerializer.create());
+        listener = serverConnection.addOutgoing(ReusableTestWorkerListener.class);
+        serverConnection.addIncoming(ReusableTestWorkerProtocol.class, this);
+        serverConnection.connect();
+
+        try {
+            shutdown.await();
+        } catch (InterruptedException e) {
+            throw new UncheckedException(e);
+        }
+        LOGGER.info("{} stopped.", workerProcessContext.getDisplayName());
+    }
+
+    @Override
+    public void startSession(TestWorkerSessionSpec spec) {
+        Thread.currentThread().setName("Test worker");
+        LOGGER.info("{} started executing tests.", workerProcessContext.getDisplayName());
+        try {
+            createProcessor(spec);
+        } catch (Throwable t) {
+            // The session does not run any tests, and the failure is reported when the session is stopped
+            sessionFailure = t;
+        }
+    }
+
+    private void createProcessor(TestWorkerSessionSpec spec) {
+        testRuntimeClassLoader = new URLClassLoader(new DefaultClassPath(spec.getTestRuntimeClasspath()).getAsURLArray(), ClassLoader.getSystemClassLoader());
+        FilteringClassLoader.Spec sharedPackages = new FilteringClassLoader.Spec();
+        for (String sharedPackage : spec.getSharedPackages()) {
+            sharedPackages.allowPackage(sharedPackage);
+        }
+        ClassLoader testFrameworkParent = new MultiParentClassLoader(new FilteringClassLoader(testRuntimeClassLoader, sharedPackages), getClass().getClassLoader());
+        testFrameworkClassLoader = new URLClassLoader(spec.getTestFrameworkClasspath().toArray(new URL[0]), testFrameworkParent);
+
+        WorkerTestClassProcessorFactory factory;
+        try {
+            ClassLoaderObjectInputStream instr = new ClassLoaderObjectInputStream(new ByteArrayInputStream(spec.getSerializedProcessorFactory()), testFrameworkClassLoader);
+            factory = (WorkerTestClassProcessorFactory) instr.readObject();
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+
+        testServices = new TestWorker.TestFrameworkServiceRegistry(workerProcessContext);
+        TestClassProcessor targetProcessor = factory.create(testServices);
+        IdGenerator<Object> idGenerator = testServices.get(IdGenerator.class);
+        targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
+                workerProcessContext.getDisplayName(), testServices.get(TimeProvider.class), testServices.get(ExecutorFactory.class), spec.isBatchOutput());
+        ContextClassLoaderProxy<TestClassProcessor> proxy = new ContextClassLoaderProxy<TestClassProcessor>(
+                TestClassProcessor.class, targetProcessor, testRuntimeClassLoader);
+        processor = proxy.getSource();
+    }
+
+    @Override
+    public void startProcessing() {
+        Thread.currentThread().setName("Test worker");
+        if (processor != null) {
+            processor.startProcessing(listener);
+        }
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        Thread.currentThread().setName("Test worker");
+        try {
+            if (processor != null) {
+                processor.processTestClass(testClass);
+            }
+        } finally {
+            // Clean the interrupted status
+            Thread.interrupted();
+            listener.testClassProcessed();
+        }
+    }
+
+    @Override
+    public void stop() {
+        Thread.currentThread().setName("Test worker");
+        try {
+            try {
+                if (processor != null) {
+                    processor.stop();
+                }
+            } finally {
+                finishSession();
+            }
+        } catch (Throwable t) {
+            if (sessionFailure == null) {
+                sessionFailure = t;
+            }
+        } finally {
+            // Always end the session, so that the build does not wait for it
+            Throwable failure = sessionFailure;
+            sessionFailure = null;
+            try {
+                if (failure != null) {
+                    listener.sessionFailed(failure);
+                }
+            } finally {
+                listener.sessionFinished();
+            }
+        }
+    }
+
+    private void finishSession() {
+        LOGGER.info("{} finished executing tests.", workerProcessContext.getDisplayName());
+        try {
+            // Clean out any security manager and system properties the tests might have installed, so they are not seen by the next session
+            System.setSecurityManager(null);
+            Properties systemProperties = new Properties();
+            systemProperties.putAll(initialSystemProperties);
+            System.setProperties(systemProperties);
+            if (testServices != null) {
+                testServices.close();
+            }
+        } finally {
+            ClassLoaderUtils.tryClose(testFrameworkClassLoader);
+            ClassLoaderUtils.tryClose(testRuntimeClassLoader);
+            processor = null;
+            testServices = null;
+            testFrameworkClassLoader = null;
+            testRuntimeClassLoader = null;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown.countDown();
+    }
+}
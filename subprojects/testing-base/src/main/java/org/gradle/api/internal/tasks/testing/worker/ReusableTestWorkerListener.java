@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+/**
+ * The messages sent back by a reusable test worker process. These are all sent over a single channel, so that the end of a session is received
+ * after the results of the session.
+ */
+public interface ReusableTestWorkerListener extends TestResultProcessor, RemoteTestClassProcessorListener {
+    /**
+     * Called when the current session could not be started or finished. Followed by {@link #sessionFinished()}.
+     */
+    void sessionFailed(Throwable failure);
+
+    void sessionFinished();
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+/**
+ * The messages sent to a test worker process that can be reused to run the tests of several test tasks.
+ * Each test task runs a session in the process, which starts with {@link #startSession(TestWorkerSessionSpec)} and finishes with {@link #stop()}.
+ */
+public interface ReusableTestWorkerProtocol extends RemoteTestClassProcessor {
+    void startSession(TestWorkerSessionSpec spec);
+
+    /**
+     * Requests that the worker process stops, once its current session has finished.
+     */
+    void shutdown();
+}
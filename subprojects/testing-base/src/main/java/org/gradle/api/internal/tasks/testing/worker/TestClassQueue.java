@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Sends test classes to one or more forked test processes. Each process is sent test classes only as it finishes processing the test classes it was
+ * previously sent, keeping at most the running test class plus a number of prefetched test classes outstanding at each process. When the queue is
+ * shared by several processes, a process that finishes its test classes early takes the next test class, rather than the test classes being
+ * assigned to the processes up front.
+ *
+ * <p>The processes are stopped once each producer of test classes has finished and every test class has been sent.</p>
+ */
+public class TestClassQueue {
+    private final int prefetch;
+    private final Deque<TestClassRunInfo> pending = new ArrayDeque<TestClassRunInfo>();
+    private final List<Consumer> consumers = new ArrayList<Consumer>();
+    private int producers;
+
+    /**
+     * @param prefetch The number of test classes to send to a process ahead of the test class it is running. Use {@link Integer#MAX_VALUE} to send
+     * each test class as soon as it is added.
+     */
+    public TestClassQueue(int prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Registers a producer of test classes.
+     */
+    public synchronized void producerStarted() {
+        producers++;
+    }
+
+    /**
+     * Notifies this queue that the given producer will not add any further test classes.
+     */
+    public synchronized void producerFinished() {
+        producers--;
+        dispatch();
+    }
+
+    public synchronized void add(TestClassRunInfo testClass) {
+        pending.add(testClass);
+        dispatch();
+    }
+
+    /**
+     * Creates a consumer for a process. The consumer should be notified of each test class that the process has finished processing.
+     */
+    public synchronized Consumer createConsumer() {
+        Consumer consumer = new Consumer();
+        consumers.add(consumer);
+        return consumer;
+    }
+
+    private void dispatch() {
+        for (Consumer consumer : consumers) {
+            while (!pending.isEmpty() && consumer.canAccept()) {
+                consumer.send(pending.remove());
+            }
+        }
+        if (producers == 0 && pending.isEmpty()) {
+            for (Consumer consumer : consumers) {
+                consumer.stop();
+            }
+        }
+    }
+
+    public class Consumer implements RemoteTestClassProcessorListener {
+        private RemoteTestClassProcessor processor;
+        private int outstanding;
+        private boolean stopped;
+
+        /**
+         * Starts sending test classes to the given processor.
+         */
+        public void start(RemoteTestClassProcessor processor) {
+            synchronized (TestClassQueue.this) {
+                this.processor = processor;
+                dispatch();
+            }
+        }
+
+        @Override
+        public void testClassProcessed() {
+            synchronized (TestClassQueue.this) {
+                outstanding--;
+                dispatch();
+            }
+        }
+
+        private boolean canAccept() {
+            return processor != null && !stopped && outstanding <= prefetch;
+        }
+
+        private void send(TestClassRunInfo testClass) {
+            outstanding++;
+            processor.processTestClass(testClass);
+        }
+
+        private void stop() {
+            if (processor != null && !stopped) {
+                stopped = true;
+                processor.stop();
+            }
+        }
+    }
+}
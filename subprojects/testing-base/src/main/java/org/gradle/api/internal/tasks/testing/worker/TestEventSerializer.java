@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.testing.worker;
 
+import com.google.common.base.Charsets;
 import org.gradle.api.internal.tasks.testing.*;
 import org.gradle.api.tasks.testing.TestOutputEvent;
 import org.gradle.api.tasks.testing.TestResult;
@@ -129,14 +130,15 @@ public class TestEventSerializer {
         @Override
         public DefaultTestOutputEvent read(Decoder decoder) throws Exception {
             TestOutputEvent.Destination destination = destinationSerializer.read(decoder);
-            String message = decoder.readString();
+            String message = new String(decoder.readBinary(), Charsets.UTF_8);
             return new DefaultTestOutputEvent(destination, message);
         }
 
         @Override
         public void write(Encoder encoder, DefaultTestOutputEvent value) throws Exception {
             destinationSerializer.write(encoder, value.getDestination());
-            encoder.writeString(value.getMessage());
+            // Output can be large, and is encoded faster as a whole than one character at a time as strings are
+            encoder.writeBinary(value.getMessage().getBytes(Charsets.UTF_8));
         }
     }
 
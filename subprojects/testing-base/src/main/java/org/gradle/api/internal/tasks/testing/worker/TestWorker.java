@@ -46,12 +46,22 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
     private static final Logger LOGGER = LoggerFactory.getLogger(TestWorker.class);
     public static final String WORKER_ID_SYS_PROPERTY = "org.gradle.test.worker";
     private final WorkerTestClassProcessorFactory factory;
+    private final boolean batchOutput;
     private CountDownLatch completed;
     private TestClassProcessor processor;
     private TestResultProcessor resultProcessor;
+    private RemoteTestClassProcessorListener processorListener;
 
     public TestWorker(WorkerTestClassProcessorFactory factory) {
+        this(factory, false);
+    }
+
+    /**
+     * @param batchOutput Whether the output events of the tests are combined before they are sent to the build process.
+     */
+    public TestWorker(WorkerTestClassProcessorFactory factory, boolean batchOutput) {
         this.factory = factory;
+        this.batchOutput = batchOutput;
     }
 
     @Override
@@ -84,7 +94,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         IdGenerator<Object> idGenerator = testServices.get(IdGenerator.class);
 
         targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
-                workerProcessContext.getDisplayName(), testServices.get(TimeProvider.class));
+                workerProcessContext.getDisplayName(), testServices.get(TimeProvider.class), testServices.get(ExecutorFactory.class), batchOutput);
         ContextClassLoaderProxy<TestClassProcessor> proxy = new ContextClassLoaderProxy<TestClassProcessor>(
                 TestClassProcessor.class, targetProcessor, workerProcessContext.getApplicationClassLoader());
         processor = proxy.getSource();
@@ -92,6 +102,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         ObjectConnection serverConnection = workerProcessContext.getServerConnection();
         serverConnection.useParameterSerializers(TestEventSerializer.create());
         this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        this.processorListener = serverConnection.addOutgoing(RemoteTestClassProcessorListener.class);
         serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
         serverConnection.connect();
     }
@@ -110,6 +121,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         } finally {
             // Clean the interrupted status
             Thread.interrupted();
+            processorListener.testClassProcessed();
         }
     }
 
@@ -123,7 +135,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         }
     }
 
-    private static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
+    static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
         private final WorkerProcessContext workerProcessContext;
 
         public TestFrameworkServiceRegistry(WorkerProcessContext workerProcessContext) {
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import com.google.common.base.Objects;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.gradle.process.internal.worker.WorkerProcess;
+import org.gradle.process.internal.worker.WorkerProcessBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps test worker processes alive once their tests have finished, so that they can be reused by later test tasks with the same fork configuration.
+ * A process is reused only by a test task that would start it with exactly the same Java executable, JVM arguments, bootstrap classpath, working
+ * directory and environment. All processes are stopped when the pool is stopped.
+ */
+public class TestWorkerPool implements Stoppable {
+    private static final Logger LOGGER = Logging.getLogger(TestWorkerPool.class);
+
+    private final Object lock = new Object();
+    private final List<PooledTestWorker> allWorkers = new ArrayList<PooledTestWorker>();
+    private final List<PooledTestWorker> idleWorkers = new ArrayList<PooledTestWorker>();
+    private final StoppableExecutor executor;
+    private final int maxIdleWorkers;
+    private int processesStarted;
+    private int sessionsStarted;
+
+    /**
+     * @param maxIdleWorkers The maximum number of idle processes to keep. The processes that have been idle the longest are stopped first.
+     */
+    public TestWorkerPool(ExecutorFactory executorFactory, int maxIdleWorkers) {
+        this.executor = executorFactory.create("Test worker pool");
+        this.maxIdleWorkers = maxIdleWorkers;
+    }
+
+    /**
+     * Reserves an idle process that was started with the same Java command as the given builder would use, or starts a new process using the builder.
+     * The builder must be configured to run a {@link ReusableTestWorker}.
+     */
+    PooledTestWorker reserve(WorkerProcessBuilder builder) {
+        Key key = new Key(builder.getJavaCommand());
+        synchronized (lock) {
+            sessionsStarted++;
+            Iterator<PooledTestWorker> it = idleWorkers.iterator();
+            while (it.hasNext()) {
+                PooledTestWorker candidate = it.next();
+                if (candidate.getKey().equals(key) && candidate.isRunning()) {
+                    it.remove();
+                    LOGGER.debug("Reusing test worker process for {}.", key);
+                    return candidate;
+                }
+            }
+        }
+
+        //allow the processes to be started concurrently
+        WorkerProcess workerProcess = builder.build();
+        workerProcess.start();
+        final PooledTestWorker worker = new PooledTestWorker(key, workerProcess);
+        worker.connect();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                worker.waitForProcessStop();
+            }
+        });
+        synchronized (lock) {
+            processesStarted++;
+            allWorkers.add(worker);
+        }
+        LOGGER.debug("Started test worker process for {}.", key);
+        return worker;
+    }
+
+    /**
+     * Makes the given process available to later test tasks when its session has finished. Stops the process when its session did not finish cleanly,
+     * as the process may still be running tests of the session.
+     */
+    void release(PooledTestWorker worker) {
+        PooledTestWorker expired;
+        synchronized (lock) {
+            if (!worker.isRunning()) {
+                allWorkers.remove(worker);
+                return;
+            }
+            if (worker.isIdle()) {
+                idleWorkers.add(worker);
+                if (idleWorkers.size() <= maxIdleWorkers) {
+                    return;
+                }
+                expired = idleWorkers.remove(0);
+            } else {
+                expired = worker;
+            }
+            allWorkers.remove(expired);
+        }
+        LOGGER.debug("Stopping test worker process for {}.", expired.getKey());
+        expired.stop();
+    }
+
+    /**
+     * Returns the number of processes started by this pool.
+     */
+    public int getProcessesStarted() {
+        synchronized (lock) {
+            return processesStarted;
+        }
+    }
+
+    /**
+     * Returns the number of test sessions run by processes of this pool.
+     */
+    public int getSessionsStarted() {
+        synchronized (lock) {
+            return sessionsStarted;
+        }
+    }
+
+    @Override
+    public void stop() {
+        List<PooledTestWorker> workers;
+        synchronized (lock) {
+            workers = new ArrayList<PooledTestWorker>(allWorkers);
+            allWorkers.clear();
+            idleWorkers.clear();
+            if (sessionsStarted > 0) {
+                LOGGER.info("Started {} test worker process(es) to run {} test worker session(s).", processesStarted, sessionsStarted);
+            }
+        }
+        LOGGER.debug("Stopping {} test worker process(es).", workers.size());
+        CompositeStoppable.stoppable(workers).add(executor).stop();
+    }
+
+    private static class Key {
+        private final String executable;
+        private final List<String> jvmArgs;
+        private final File workingDir;
+        private final Map<String, Object> environment;
+
+        Key(JavaExecHandleBuilder javaCommand) {
+            // The JVM arguments include the system properties, heap sizes and bootstrap classpath
+            this.executable = javaCommand.getExecutable();
+            this.jvmArgs = javaCommand.getAllJvmArgs();
+            this.workingDir = javaCommand.getWorkingDir();
+            this.environment = new HashMap<String, Object>(javaCommand.getEnvironment());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equal(executable, other.executable)
+                && jvmArgs.equals(other.jvmArgs)
+                && Objects.equal(workingDir, other.workingDir)
+                && environment.equals(other.environment);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(executable, jvmArgs, workingDir, environment);
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper("fork options").add("executable", executable).add("jvmArgs", jvmArgs).add("workingDir", workingDir).toString();
+        }
+    }
+}
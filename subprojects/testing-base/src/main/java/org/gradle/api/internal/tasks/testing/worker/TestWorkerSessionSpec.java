@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import java.io.File;
+import java.io.Serializable;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes the tests to be run by a session in a reusable test worker process.
+ */
+public class TestWorkerSessionSpec implements Serializable {
+    private final byte[] serializedProcessorFactory;
+    private final List<File> testRuntimeClasspath;
+    private final List<URL> testFrameworkClasspath;
+    private final List<String> sharedPackages;
+    private final boolean batchOutput;
+
+    /**
+     * @param serializedProcessorFactory The serialized {@link org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory}, which is
+     * deserialized in the ClassLoader of the session.
+     * @param testRuntimeClasspath The classpath to load the test classes from.
+     * @param testFrameworkClasspath The classpath of the test framework implementation.
+     * @param sharedPackages The packages that the test framework implementation loads from the test runtime classpath.
+     * @param batchOutput Whether the output events of the tests are combined before they are sent to the build process.
+     */
+    public TestWorkerSessionSpec(byte[] serializedProcessorFactory, Iterable<File> testRuntimeClasspath, Iterable<URL> testFrameworkClasspath, Iterable<String> sharedPackages, boolean batchOutput) {
+        this.serializedProcessorFactory = serializedProcessorFactory;
+        this.testRuntimeClasspath = toList(testRuntimeClasspath);
+        this.testFrameworkClasspath = toList(testFrameworkClasspath);
+        this.sharedPackages = toList(sharedPackages);
+        this.batchOutput = batchOutput;
+    }
+
+    private static <T> List<T> toList(Iterable<T> values) {
+        List<T> result = new ArrayList<T>();
+        for (T value : values) {
+            result.add(value);
+        }
+        return result;
+    }
+
+    public byte[] getSerializedProcessorFactory() {
+        return serializedProcessorFactory;
+    }
+
+    public List<File> getTestRuntimeClasspath() {
+        return testRuntimeClasspath;
+    }
+
+    public List<URL> getTestFrameworkClasspath() {
+        return testFrameworkClasspath;
+    }
+
+    public List<String> getSharedPackages() {
+        return sharedPackages;
+    }
+
+    public boolean isBatchOutput() {
+        return batchOutput;
+    }
+}
@@ -17,13 +17,44 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.internal.tasks.testing.*;
+import org.gradle.api.internal.tasks.testing.processors.BatchingTestOutputTestResultProcessor;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableScheduledExecutor;
 import org.gradle.internal.time.TimeProvider;
 
 public class WorkerTestClassProcessor extends SuiteTestClassProcessor {
+    private final ExecutorFactory executorFactory;
+    private final boolean batchOutput;
+    private StoppableScheduledExecutor outputFlushExecutor;
+    private BatchingTestOutputTestResultProcessor batchingResultProcessor;
 
     public WorkerTestClassProcessor(TestClassProcessor processor, Object workerSuiteId, String workerDisplayName,
-                                    TimeProvider timeProvider) {
+                                    TimeProvider timeProvider, ExecutorFactory executorFactory, boolean batchOutput) {
         super(new WorkerTestSuiteDescriptor(workerSuiteId, workerDisplayName), processor, timeProvider);
+        this.executorFactory = executorFactory;
+        this.batchOutput = batchOutput;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        if (!batchOutput) {
+            super.startProcessing(resultProcessor);
+            return;
+        }
+        // Combine the output events of chatty tests, rather than sending each line to the build process separately
+        outputFlushExecutor = executorFactory.createScheduled("Test output flush", 1);
+        batchingResultProcessor = new BatchingTestOutputTestResultProcessor(resultProcessor, outputFlushExecutor);
+        super.startProcessing(batchingResultProcessor);
+    }
+
+    @Override
+    public void stop() {
+        try {
+            super.stop();
+        } finally {
+            CompositeStoppable.stoppable(batchingResultProcessor, outputFlushExecutor).stop();
+        }
     }
 
     public static class WorkerTestSuiteDescriptor extends DefaultTestSuiteDescriptor {
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import spock.lang.Specification
+
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdErr
+import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdOut
+
+class BatchingTestOutputTestResultProcessorTest extends Specification {
+    def target = Mock(TestResultProcessor)
+    def future = Mock(ScheduledFuture)
+    def executor = Mock(ScheduledExecutorService)
+    Runnable periodicFlush
+    BatchingTestOutputTestResultProcessor processor
+
+    def setup() {
+        1 * executor.scheduleWithFixedDelay(_, 50, 50, TimeUnit.MILLISECONDS) >> { Runnable action, long initialDelay, long delay, TimeUnit unit ->
+            periodicFlush = action
+            future
+        }
+        processor = new BatchingTestOutputTestResultProcessor(target, executor, 10, 50)
+    }
+
+    def "combines consecutive output of a test for the same destination"() {
+        when:
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "a"))
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "b"))
+
+        then:
+        0 * target._
+
+        when:
+        processor.completed("1", new TestCompleteEvent(100))
+
+        then:
+        1 * target.output("1", new DefaultTestOutputEvent(StdOut, "ab"))
+
+        then:
+        1 * target.completed("1", _)
+        0 * target._
+    }
+
+    def "forwards buffered output when destination or test changes"() {
+        when:
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "a"))
+        processor.output("1", new DefaultTestOutputEvent(StdErr, "b"))
+        processor.output("2", new DefaultTestOutputEvent(StdErr, "c"))
+        processor.stop()
+
+        then:
+        1 * target.output("1", new DefaultTestOutputEvent(StdOut, "a"))
+
+        then:
+        1 * target.output("1", new DefaultTestOutputEvent(StdErr, "b"))
+
+        then:
+        1 * target.output("2", new DefaultTestOutputEvent(StdErr, "c"))
+        1 * future.cancel(false)
+        0 * target._
+    }
+
+    def "forwards buffered output before other events"() {
+        def test = new DefaultTestDescriptor("2", "Foo", "bar")
+        def failure = new RuntimeException()
+
+        when:
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "a"))
+        processor.started(test, new TestStartEvent(100))
+        processor.output("2", new DefaultTestOutputEvent(StdOut, "b"))
+        processor.failure("2", failure)
+
+        then:
+        1 * target.output("1", new DefaultTestOutputEvent(StdOut, "a"))
+
+        then:
+        1 * target.started(test, _)
+
+        then:
+        1 * target.output("2", new DefaultTestOutputEvent(StdOut, "b"))
+
+        then:
+        1 * target.failure("2", failure)
+        0 * target._
+    }
+
+    def "forwards buffered output when it reaches the maximum size"() {
+        when:
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "12345"))
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "67890"))
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "a"))
+
+        then:
+        1 * target.output("1", new DefaultTestOutputEvent(StdOut, "1234567890"))
+        0 * target._
+    }
+
+    def "forwards large output as is"() {
+        def event = new DefaultTestOutputEvent(StdOut, "this is a long line")
+
+        when:
+        processor.output("1", event)
+
+        then:
+        1 * target.output("1", { it.is(event) })
+        0 * target._
+    }
+
+    def "forwards buffered output periodically"() {
+        when:
+        processor.output("1", new DefaultTestOutputEvent(StdOut, "a"))
+        periodicFlush.run()
+
+        then:
+        1 * target.output("1", new DefaultTestOutputEvent(StdOut, "a"))
+        0 * target._
+
+        when:
+        periodicFlush.run()
+
+        then:
+        0 * target._
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import spock.lang.Specification
+
+class LongestFirstTestClassProcessorTest extends Specification {
+    def delegate = Mock(TestClassProcessor)
+    def durations = new TestClassDurations([Short: 10L, Long: 100L, Medium: 50L, AlsoMedium: 50L])
+    def processor = new LongestFirstTestClassProcessor(delegate, durations)
+
+    def "forwards test classes with the longest expected duration first once all test classes have been received"() {
+        def resultProcessor = Mock(TestResultProcessor)
+
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(test("Short"))
+        processor.processTestClass(test("Medium"))
+        processor.processTestClass(test("Unknown"))
+        processor.processTestClass(test("Long"))
+        processor.processTestClass(test("AlsoMedium"))
+        processor.processTestClass(test("AlsoUnknown"))
+
+        then:
+        1 * delegate.startProcessing(resultProcessor)
+        0 * delegate._
+
+        when:
+        processor.stop()
+
+        then:
+        1 * delegate.processTestClass({ it.testClassName == "Unknown" })
+
+        then:
+        1 * delegate.processTestClass({ it.testClassName == "AlsoUnknown" })
+
+        then:
+        1 * delegate.processTestClass({ it.testClassName == "Long" })
+
+        then:
+        1 * delegate.processTestClass({ it.testClassName == "Medium" })
+
+        then:
+        1 * delegate.processTestClass({ it.testClassName == "AlsoMedium" })
+
+        then:
+        1 * delegate.processTestClass({ it.testClassName == "Short" })
+
+        then:
+        1 * delegate.stop()
+    }
+
+    def "stops delegate when forwarding test classes fails"() {
+        def failure = new RuntimeException()
+
+        given:
+        processor.processTestClass(test("Short"))
+
+        when:
+        processor.stop()
+
+        then:
+        1 * delegate.processTestClass(_) >> { throw failure }
+        1 * delegate.stop()
+
+        and:
+        def e = thrown(RuntimeException)
+        e == failure
+    }
+
+    def test(String className) {
+        return new DefaultTestClassRunInfo(className)
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.testing.processors
 
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
@@ -167,4 +168,34 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         then:
         1 * asyncProcessor2.processTestClass(test)
     }
+
+    def assignsTestClassesToProcessorWithLeastExpectedWorkWhenDurationsAreKnown() {
+        def durations = new TestClassDurations([Long: 100L, Medium: 60L, Short: 30L, Shorter: 20L])
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, durations)
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        factory.create() >>> [Mock(TestClassProcessor), Mock(TestClassProcessor)]
+        actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        actorFactory.createActor(_ as TestClassProcessor) >>> [Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor1 }, Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor2 }]
+        processor.startProcessing(resultProcessor)
+
+        when:
+        processor.processTestClass(test("Long"))
+        processor.processTestClass(test("Medium"))
+        processor.processTestClass(test("Short"))
+        processor.processTestClass(test("Shorter"))
+        processor.processTestClass(test("Unknown"))
+
+        then:
+        1 * asyncProcessor1.processTestClass({ it.testClassName == "Long" })
+        1 * asyncProcessor2.processTestClass({ it.testClassName == "Medium" })
+        1 * asyncProcessor2.processTestClass({ it.testClassName == "Short" })
+        1 * asyncProcessor2.processTestClass({ it.testClassName == "Shorter" })
+        1 * asyncProcessor1.processTestClass({ it.testClassName == "Unknown" })
+    }
+
+    def test(String className) {
+        return new DefaultTestClassRunInfo(className)
+    }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import spock.lang.Specification
+
+class TestClassQueueTest extends Specification {
+    def test1 = Mock(TestClassRunInfo)
+    def test2 = Mock(TestClassRunInfo)
+    def test3 = Mock(TestClassRunInfo)
+    def processor1 = Mock(RemoteTestClassProcessor)
+    def processor2 = Mock(RemoteTestClassProcessor)
+
+    def "sends each test class as soon as it is added when prefetch is unbounded"() {
+        def queue = new TestClassQueue(Integer.MAX_VALUE)
+        queue.producerStarted()
+        def consumer = queue.createConsumer()
+
+        when:
+        queue.add(test1)
+        consumer.start(processor1)
+        queue.add(test2)
+
+        then:
+        1 * processor1.processTestClass(test1)
+
+        then:
+        1 * processor1.processTestClass(test2)
+        0 * processor1._
+
+        when:
+        queue.producerFinished()
+
+        then:
+        1 * processor1.stop()
+    }
+
+    def "sends next test class to the process that finished its previous test class"() {
+        def queue = new TestClassQueue(0)
+        queue.producerStarted()
+        queue.producerStarted()
+        def consumer1 = queue.createConsumer()
+        def consumer2 = queue.createConsumer()
+        consumer1.start(processor1)
+        consumer2.start(processor2)
+
+        when:
+        queue.add(test1)
+        queue.add(test2)
+        queue.add(test3)
+
+        then:
+        1 * processor1.processTestClass(test1)
+        1 * processor2.processTestClass(test2)
+        0 * _
+
+        when:
+        consumer2.testClassProcessed()
+
+        then:
+        1 * processor2.processTestClass(test3)
+        0 * _
+    }
+
+    def "sends prefetched test classes ahead of the running test class"() {
+        def queue = new TestClassQueue(1)
+        queue.producerStarted()
+        def consumer = queue.createConsumer()
+        consumer.start(processor1)
+
+        when:
+        queue.add(test1)
+        queue.add(test2)
+        queue.add(test3)
+
+        then:
+        1 * processor1.processTestClass(test1)
+        1 * processor1.processTestClass(test2)
+        0 * _
+
+        when:
+        consumer.testClassProcessed()
+
+        then:
+        1 * processor1.processTestClass(test3)
+        0 * _
+    }
+
+    def "stops processes once all producers have finished and all test classes have been sent"() {
+        def queue = new TestClassQueue(0)
+        queue.producerStarted()
+        queue.producerStarted()
+        def consumer1 = queue.createConsumer()
+        def consumer2 = queue.createConsumer()
+        def unused = queue.createConsumer()
+        consumer1.start(processor1)
+        consumer2.start(processor2)
+        queue.add(test1)
+        queue.add(test2)
+        queue.add(test3)
+
+        when:
+        queue.producerFinished()
+        queue.producerFinished()
+
+        then:
+        0 * processor1.stop()
+        0 * processor2.stop()
+
+        when:
+        consumer1.testClassProcessed()
+
+        then:
+        1 * processor1.processTestClass(test3)
+
+        then:
+        1 * processor1.stop()
+        1 * processor2.stop()
+        0 * _
+
+        when:
+        consumer1.testClassProcessed()
+        consumer2.testClassProcessed()
+        consumer1.testClassProcessed()
+
+        then:
+        0 * _
+    }
+}
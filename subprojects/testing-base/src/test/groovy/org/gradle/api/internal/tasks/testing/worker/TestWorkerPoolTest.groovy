@@ -0,0 +1,262 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.UncheckedIOException
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.remote.ObjectConnection
+import org.gradle.process.ExecResult
+import org.gradle.process.internal.JavaExecHandleBuilder
+import org.gradle.process.internal.worker.WorkerProcess
+import org.gradle.process.internal.worker.WorkerProcessBuilder
+import org.gradle.process.internal.worker.WorkerProcessContext
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+
+class TestWorkerPoolTest extends Specification {
+    def pool = new TestWorkerPool(new DefaultExecutorFactory(), 2)
+    def processes = []
+
+    def cleanup() {
+        processes.each { it.stopLatch.countDown() }
+        pool.stop()
+    }
+
+    def "reuses idle process started with the same fork options"() {
+        when:
+        def worker1 = pool.reserve(builder("-Xmx64m"))
+        pool.release(worker1)
+        def worker2 = pool.reserve(builder("-Xmx64m"))
+
+        then:
+        worker2.is(worker1)
+        pool.processesStarted == 1
+        pool.sessionsStarted == 2
+    }
+
+    def "starts new process for different fork options"() {
+        when:
+        def worker1 = pool.reserve(builder("-Xmx64m"))
+        pool.release(worker1)
+        def worker2 = pool.reserve(builder("-Xmx128m"))
+
+        then:
+        !worker2.is(worker1)
+        pool.processesStarted == 2
+        pool.sessionsStarted == 2
+    }
+
+    def "starts new process when matching process is in use"() {
+        when:
+        def worker1 = pool.reserve(builder("-Xmx64m"))
+        def worker2 = pool.reserve(builder("-Xmx64m"))
+
+        then:
+        !worker2.is(worker1)
+        pool.processesStarted == 2
+    }
+
+    def "stops process that has been idle the longest when there are too many idle processes"() {
+        when:
+        def worker1 = pool.reserve(builder("-Xmx64m"))
+        def worker2 = pool.reserve(builder("-Xmx64m"))
+        def worker3 = pool.reserve(builder("-Xmx64m"))
+        pool.release(worker1)
+        pool.release(worker2)
+        pool.release(worker3)
+
+        then:
+        processes[0].stopped
+        !processes[1].stopped
+        !processes[2].stopped
+
+        when:
+        pool.stop()
+
+        then:
+        processes.every { it.stopped }
+    }
+
+    def "forwards results to current session until the session has finished"() {
+        def resultProcessor = Mock(TestResultProcessor)
+        def listener = Mock(RemoteTestClassProcessorListener)
+        def event = new TestCompleteEvent(100)
+        def worker = pool.reserve(builder("-Xmx64m"))
+
+        when:
+        def remoteProcessor = worker.startSession(spec(), resultProcessor, listener)
+
+        then:
+        remoteProcessor.is(processes[0].remoteWorker)
+        1 * processes[0].remoteWorker.startSession(_)
+
+        then:
+        1 * processes[0].remoteWorker.startProcessing()
+
+        when:
+        worker.completed("id", event)
+        worker.testClassProcessed()
+        worker.sessionFinished()
+        worker.waitForSessionEnd()
+
+        then:
+        1 * resultProcessor.completed("id", event)
+        1 * listener.testClassProcessed()
+        0 * _._
+    }
+
+    def "session finishes when process stops and stopped process is not reused"() {
+        def worker1 = pool.reserve(builder("-Xmx64m"))
+        worker1.startSession(spec(), Mock(TestResultProcessor), Mock(RemoteTestClassProcessorListener))
+
+        when:
+        processes[0].stopLatch.countDown()
+        worker1.waitForSessionEnd()
+        pool.release(worker1)
+        def worker2 = pool.reserve(builder("-Xmx64m"))
+
+        then:
+        !worker2.is(worker1)
+        pool.processesStarted == 2
+    }
+
+    def "stops process whose session has not finished"() {
+        def worker1 = pool.reserve(builder("-Xmx64m"))
+        worker1.startSession(spec(), Mock(TestResultProcessor), Mock(RemoteTestClassProcessorListener))
+
+        when:
+        pool.release(worker1)
+        def worker2 = pool.reserve(builder("-Xmx64m"))
+
+        then:
+        processes[0].stopped
+        !worker2.is(worker1)
+        pool.processesStarted == 2
+    }
+
+    def "session fails when it cannot be started and failed process is not reused"() {
+        def worker1 = pool.reserve(builder("-Xmx64m") { reusableWorkerProcess() })
+        // The spec holds no processor factory, so the worker cannot start the session
+        def remoteProcessor = worker1.startSession(spec(), Mock(TestResultProcessor), Mock(RemoteTestClassProcessorListener))
+        remoteProcessor.stop()
+
+        when:
+        worker1.waitForSessionEnd()
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.cause instanceof EOFException
+
+        when:
+        pool.release(worker1)
+        def worker2 = pool.reserve(builder("-Xmx64m"))
+
+        then:
+        processes[0].stopped
+        !worker2.is(worker1)
+        pool.processesStarted == 2
+    }
+
+    def spec() {
+        return new TestWorkerSessionSpec(new byte[0], [], [], [], false)
+    }
+
+    def builder(String jvmArg, Closure<WorkerProcess> processFactory = { process() }) {
+        def javaCommand = new JavaExecHandleBuilder(TestFiles.resolver())
+        javaCommand.jvmArgs(jvmArg)
+        return Stub(WorkerProcessBuilder) {
+            getJavaCommand() >> javaCommand
+            build() >> { processFactory() }
+        }
+    }
+
+    def process() {
+        def process = new TestProcess()
+        process.remoteWorker = Mock(ReusableTestWorkerProtocol) {
+            shutdown() >> { process.stopLatch.countDown() }
+        }
+        process.connection = Stub(ObjectConnection) {
+            addOutgoing(ReusableTestWorkerProtocol) >> process.remoteWorker
+        }
+        processes << process
+        return process
+    }
+
+    /**
+     * A process that runs a real {@link ReusableTestWorker} on a thread of this process. The connections are not mocks, as the thread of the
+     * worker uses them while the test thread waits for it in a connection.
+     */
+    def reusableWorkerProcess() {
+        def process = new TestProcess()
+        def worker = new ReusableTestWorker()
+        def connected = new CountDownLatch(1)
+        ReusableTestWorkerListener listener = null
+        def workerConnection = [
+            useParameterSerializers: { serializers -> },
+            addOutgoing: { Class type -> listener },
+            addIncoming: { Class type, Object instance -> },
+            connect: { connected.countDown() }
+        ] as ObjectConnection
+        def context = [
+            getDisplayName: { "Test worker process" },
+            getWorkerId: { 1 },
+            getServerConnection: { workerConnection }
+        ] as WorkerProcessContext
+        process.connection = [
+            useParameterSerializers: { serializers -> },
+            addIncoming: { Class type, Object pooledWorker -> listener = pooledWorker },
+            addOutgoing: { Class type -> worker },
+            connect: {
+                Thread.start {
+                    try {
+                        worker.execute(context)
+                    } finally {
+                        process.stopLatch.countDown()
+                    }
+                }
+                connected.await()
+            }
+        ] as ObjectConnection
+        processes << process
+        return process
+    }
+
+    static class TestProcess implements WorkerProcess {
+        final CountDownLatch stopLatch = new CountDownLatch(1)
+        ReusableTestWorkerProtocol remoteWorker
+        ObjectConnection connection
+
+        @Override
+        WorkerProcess start() {
+            return this
+        }
+
+        @Override
+        ExecResult waitForStop() {
+            stopLatch.await()
+            return null
+        }
+
+        boolean isStopped() {
+            return stopLatch.count == 0
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.testing
+
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+import org.gradle.integtests.fixtures.DefaultTestExecutionResult
+
+class TestWorkerReuseIntegrationTest extends AbstractIntegrationSpec {
+
+    def "JUnit and TestNG test tasks with the same fork options share one test process"() {
+        given:
+        buildFile << """
+            apply plugin: 'java'
+            repositories { mavenCentral() }
+            sourceSets {
+                testng
+            }
+            dependencies {
+                testCompile 'junit:junit:4.12'
+                testngCompile 'org.testng:testng:6.3.1'
+            }
+            task testng(type: Test) {
+                useTestNG()
+                testClassesDir = sourceSets.testng.output.classesDir
+                classpath = sourceSets.testng.runtimeClasspath
+                mustRunAfter test
+            }
+            tasks.withType(Test) {
+                reuseTestWorkerProcesses = true
+            }
+            gradle.buildFinished {
+                def pool = gradle.services.get(org.gradle.api.internal.tasks.testing.worker.TestWorkerPool)
+                println "processes started: \${pool.processesStarted}, sessions started: \${pool.sessionsStarted}"
+            }
+        """
+        file("src/test/java/SomeJUnitTest.java") << """
+            public class SomeJUnitTest {
+                @org.junit.Test
+                public void pass() {
+                    System.setProperty("some.property", "junit");
+                }
+            }
+        """
+        file("src/testng/java/SomeTestNGTest.java") << """
+            public class SomeTestNGTest {
+                @org.testng.annotations.Test
+                public void pass() {
+                    // System properties set by the tests of an earlier task are not seen
+                    org.testng.Assert.assertNull(System.getProperty("some.property"));
+                }
+            }
+        """
+
+        when:
+        succeeds "test", "testng"
+
+        then:
+        outputContains("processes started: 1, sessions started: 2")
+        new DefaultTestExecutionResult(testDirectory).assertTestClassesExecuted("SomeJUnitTest")
+        new DefaultTestExecutionResult(testDirectory, "build", "", "", "testng").assertTestClassesExecuted("SomeTestNGTest")
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.internal.hash.FileHasher;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.junit.JUnitDetector;
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.internal.Factory;
+import org.gradle.internal.nativeintegration.filesystem.FileMetadataSnapshot;
+import org.gradle.internal.resource.TextResource;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects the JUnit test classes of a module with 20000 test classes, parsing every class file as test detection did before, and using a
+ * {@link TestClassFactsIndex} that knows the facts of all class files from a previous build.
+ *
+ * <p>The content hashes of the class files are computed up front, as the file hasher of a build already knows these from snapshotting the inputs
+ * of the test task. The index is kept in a persistent cache file, so the cost of reading its entries is included.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TestClassDetectionBenchmark {
+    private static final int CLASS_COUNT = 20000;
+
+    @Param({"none", "warm"})
+    String index;
+
+    private File tmpDir;
+    private File classesDir;
+    private List<File> classFiles;
+    private BTreePersistentIndexedCache<String, TestClassFactsIndex.Entry> indexCache;
+    private TestClassFactsIndex testClassFactsIndex;
+
+    @Setup(Level.Trial)
+    public void generateClasses() throws Exception {
+        tmpDir = Files.createTempDir();
+        classesDir = new File(tmpDir, "classes");
+        classFiles = new ArrayList<File>(CLASS_COUNT);
+        final Map<File, HashCode> hashes = new HashMap<File, HashCode>();
+        String baseClass = "java/lang/Object";
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            String className = "org/gradle/test/p" + (i / 500) + "/Test" + i;
+            byte[] content;
+            if (i % 20 == 0) {
+                // An abstract base class with tests, extended by the following classes without tests of their own
+                content = generateClass(className, "java/lang/Object", true, 3);
+                baseClass = className;
+            } else if (i % 4 == 0) {
+                content = generateClass(className, baseClass, false, 0);
+            } else {
+                content = generateClass(className, "java/lang/Object", false, i % 10 == 1 ? 0 : 5);
+            }
+            File classFile = new File(classesDir, className + ".class");
+            Files.createParentDirs(classFile);
+            Files.write(content, classFile);
+            classFiles.add(classFile);
+            hashes.put(classFile, Hashing.md5().hashBytes(content));
+        }
+
+        if (index.equals("warm")) {
+            indexCache = new BTreePersistentIndexedCache<String, TestClassFactsIndex.Entry>(new File(tmpDir, "testClassFacts.bin"), BaseSerializerFactory.STRING_SERIALIZER, new TestClassFactsIndex.EntrySerializer());
+            testClassFactsIndex = new TestClassFactsIndex(indexCache, new PrecomputedFileHasher(hashes));
+            detect();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteClasses() throws Exception {
+        if (indexCache != null) {
+            indexCache.close();
+        }
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    @Benchmark
+    public int detect() {
+        JUnitDetector detector = new JUnitDetector(new ClassFileExtractionManager(new Factory<File>() {
+            @Override
+            public File create() {
+                return tmpDir;
+            }
+        }));
+        detector.setTestClassesDirectory(classesDir);
+        detector.setTestClassFactsIndex(testClassFactsIndex);
+        CountingTestClassProcessor processor = new CountingTestClassProcessor();
+        detector.startDetection(processor);
+        for (File classFile : classFiles) {
+            detector.processTestClass(classFile);
+        }
+        return processor.count;
+    }
+
+    private static byte[] generateClass(String className, String superClassName, boolean isAbstract, int testMethods) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | (isAbstract ? Opcodes.ACC_ABSTRACT : 0), className, null, superClassName, null);
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, superClassName, "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(1, 1);
+        constructor.visitEnd();
+        for (int i = 0; i < 10; i++) {
+            MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "method" + i, "()V", null, null);
+            if (i < testMethods) {
+                method.visitAnnotation("Lorg/junit/Test;", true).visitEnd();
+            }
+            method.visitCode();
+            method.visitInsn(Opcodes.RETURN);
+            method.visitMaxs(0, 1);
+            method.visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static class CountingTestClassProcessor implements TestClassProcessor {
+        int count;
+
+        @Override
+        public void startProcessing(TestResultProcessor resultProcessor) {
+        }
+
+        @Override
+        public void processTestClass(TestClassRunInfo testClass) {
+            count++;
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    private static class PrecomputedFileHasher implements FileHasher {
+        private final Map<File, HashCode> hashes;
+
+        PrecomputedFileHasher(Map<File, HashCode> hashes) {
+            this.hashes = hashes;
+        }
+
+        @Override
+        public HashCode hash(File file) {
+            return hashes.get(file);
+        }
+
+        @Override
+        public HashCode hash(InputStream inputStream) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public HashCode hash(TextResource resource) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public HashCode hash(FileTreeElement fileDetails) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public HashCode hash(File file, FileMetadataSnapshot fileDetails) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
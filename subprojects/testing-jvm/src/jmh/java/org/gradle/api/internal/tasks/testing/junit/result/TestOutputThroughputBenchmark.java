@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.internal.tasks.testing.processors.BatchingTestOutputTestResultProcessor;
+import org.gradle.api.internal.tasks.testing.worker.TestEventSerializer;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends 100MB of test output, written a line at a time, from a test to the output store of the test task. Each output event is serialized and
+ * deserialized as it would be sent from a test worker to the build process, then written to a {@link TestOutputStore}. Compares sending each line
+ * as an event, as test workers did before, with combining the lines using a {@link BatchingTestOutputTestResultProcessor}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TestOutputThroughputBenchmark {
+    private static final long OUTPUT_SIZE = 100 * 1024 * 1024;
+
+    @Param({"none", "batched"})
+    String batching;
+
+    @Param({"100"})
+    int lineLength;
+
+    private File tmpDir;
+    private String line;
+    private ScheduledExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        tmpDir = Files.createTempDir();
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < lineLength - 1) {
+            builder.append("test output ");
+        }
+        builder.setLength(lineLength - 1);
+        line = builder.append('\n').toString();
+        executor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    @Benchmark
+    public long sendOutput() {
+        TestOutputStore store = new TestOutputStore(tmpDir);
+        TestOutputStore.Writer writer = store.writer();
+        TransportingResultProcessor transport = new TransportingResultProcessor(writer);
+        TestResultProcessor processor = transport;
+        BatchingTestOutputTestResultProcessor batchingProcessor = null;
+        if (batching.equals("batched")) {
+            batchingProcessor = new BatchingTestOutputTestResultProcessor(transport, executor);
+            processor = batchingProcessor;
+        }
+        for (long written = 0; written < OUTPUT_SIZE; written += line.length()) {
+            processor.output("test", new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, line));
+        }
+        if (batchingProcessor != null) {
+            batchingProcessor.stop();
+        }
+        writer.close();
+        return transport.events;
+    }
+
+    /**
+     * Serializes each output event, as the connection to the build process does, and writes the deserialized event to the output store. A new encoder and
+     * decoder is used for each event, standing in for the cost of sending a message over the connection.
+     */
+    private static class TransportingResultProcessor implements TestResultProcessor {
+        private final Serializer<DefaultTestOutputEvent> serializer = TestEventSerializer.create().build(DefaultTestOutputEvent.class);
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final TestOutputStore.Writer writer;
+        long events;
+
+        TransportingResultProcessor(TestOutputStore.Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void output(Object testId, TestOutputEvent event) {
+            try {
+                buffer.reset();
+                KryoBackedEncoder encoder = new KryoBackedEncoder(buffer);
+                serializer.write(encoder, (DefaultTestOutputEvent) event);
+                encoder.flush();
+                DefaultTestOutputEvent received = serializer.read(new KryoBackedDecoder(new ByteArrayInputStream(buffer.toByteArray())));
+                writer.onOutput(1, 1, received);
+                events++;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+        }
+
+        @Override
+        public void completed(Object testId, TestCompleteEvent event) {
+        }
+
+        @Override
+        public void failure(Object testId, Throwable result) {
+        }
+    }
+}
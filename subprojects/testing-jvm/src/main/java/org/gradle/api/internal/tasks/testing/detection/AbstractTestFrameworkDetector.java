@@ -19,8 +19,10 @@ package org.gradle.api.internal.tasks.testing.detection;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.internal.Factory;
 import org.gradle.util.internal.Java9ClassReader;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
@@ -51,6 +53,7 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
 
     private File testClassesDirectory;
     private Set<File> testClasspath;
+    private TestClassFactsIndex testClassFactsIndex;
 
     protected AbstractTestFrameworkDetector(ClassFileExtractionManager classFileExtractionManager) {
         assert classFileExtractionManager != null;
@@ -121,6 +124,38 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClasspath = testClasspath;
     }
 
+    @Override
+    public void setTestClassFactsIndex(@Nullable TestClassFactsIndex testClassFactsIndex) {
+        this.testClassFactsIndex = testClassFactsIndex;
+    }
+
+    /**
+     * Returns the facts of the given class file, from the index when the class file is in one of the test class directories. Class files of jars are
+     * extracted to a new temporary file for each build, so these are always parsed.
+     */
+    protected TestClassFacts classFacts(final File testClassFile) {
+        if (testClassFactsIndex == null || !isInTestClassDirectory(testClassFile)) {
+            return TestClassFacts.of(classVisitor(testClassFile));
+        }
+        return testClassFactsIndex.getFacts(getClass().getName(), testClassFile, new Factory<TestClassFacts>() {
+            @Override
+            public TestClassFacts create() {
+                return TestClassFacts.of(classVisitor(testClassFile));
+            }
+        });
+    }
+
+    private boolean isInTestClassDirectory(File testClassFile) {
+        prepareClasspath();
+        String path = testClassFile.getPath();
+        for (File testClassDirectory : testClassDirectories) {
+            if (path.startsWith(testClassDirectory.getPath() + File.separator)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected TestClassVisitor classVisitor(final File testClassFile) {
         final TestClassVisitor classVisitor = createClassVisitor();
 
@@ -165,9 +200,9 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
      * In none super class mode a test class is published when the class is a test and it is not abstract. In super class mode it must not publish the class otherwise it will get published multiple
      * times (for each extending class).
      */
-    protected void publishTestClass(boolean isTest, TestClassVisitor classVisitor, boolean superClass) {
-        if (isTest && !classVisitor.isAbstract() && !superClass) {
-            String className = Type.getObjectType(classVisitor.getClassName()).getClassName();
+    protected void publishTestClass(boolean isTest, TestClassFacts classFacts, boolean superClass) {
+        if (isTest && !classFacts.isAbstract() && !superClass) {
+            String className = Type.getObjectType(classFacts.getClassName()).getClassName();
             testClassProcessor.processTestClass(new DefaultTestClassRunInfo(className));
         }
     }
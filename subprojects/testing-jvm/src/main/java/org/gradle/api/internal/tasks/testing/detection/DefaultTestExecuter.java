@@ -23,10 +23,15 @@ import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassDurationHistory;
+import org.gradle.api.internal.tasks.testing.processors.LongestFirstTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.TestClassDurations;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.TestClassQueue;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.internal.Factory;
 import org.gradle.internal.actor.ActorFactory;
@@ -47,13 +52,18 @@ public class DefaultTestExecuter implements TestExecuter {
     private final ModuleRegistry moduleRegistry;
     private final BuildOperationWorkerRegistry buildOperationWorkerRegistry;
     private final BuildOperationExecutor buildOperationExecutor;
+    private final TestWorkerPool testWorkerPool;
+    private final TestClassFactsIndex testClassFactsIndex;
 
-    public DefaultTestExecuter(WorkerProcessFactory workerFactory, ActorFactory actorFactory, ModuleRegistry moduleRegistry, BuildOperationWorkerRegistry buildOperationWorkerRegistry, BuildOperationExecutor buildOperationExecutor) {
+    public DefaultTestExecuter(WorkerProcessFactory workerFactory, ActorFactory actorFactory, ModuleRegistry moduleRegistry, BuildOperationWorkerRegistry buildOperationWorkerRegistry, BuildOperationExecutor buildOperationExecutor, TestWorkerPool testWorkerPool,
+                               TestClassFactsIndex testClassFactsIndex) {
         this.workerFactory = workerFactory;
         this.actorFactory = actorFactory;
         this.moduleRegistry = moduleRegistry;
         this.buildOperationWorkerRegistry = buildOperationWorkerRegistry;
         this.buildOperationExecutor = buildOperationExecutor;
+        this.testWorkerPool = testWorkerPool;
+        this.testClassFactsIndex = testClassFactsIndex;
     }
 
     @Override
@@ -62,20 +72,40 @@ public class DefaultTestExecuter implements TestExecuter {
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
         final BuildOperationWorkerRegistry.Operation currentOperation = buildOperationWorkerRegistry.getCurrent();
         final Set<File> classpath = ImmutableSet.copyOf(testTask.getClasspath());
-        final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
-            public TestClassProcessor create() {
-                return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
-                    classpath, testFramework.getWorkerConfigurationAction(), moduleRegistry, currentOperation);
-            }
-        };
-        Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
-            public TestClassProcessor create() {
-                return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testTask.getForkEvery());
-            }
-        };
-
-        TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
-            reforkingProcessorFactory, actorFactory);
+        TestClassDurations durations = null;
+        if (testTask.isScheduleTestClassesByDuration()) {
+            durations = new TestClassDurations(new TestClassDurationHistory(testTask.getTemporaryDir()).read());
+        }
+        // Processes are not reused when the test task asks for fresh processes
+        final TestWorkerPool workerPool = testTask.isReuseTestWorkerProcesses() && testTask.getForkEvery() == 0 ? testWorkerPool : null;
+        final boolean batchTestOutput = testTask.isBatchTestOutput();
+        TestClassProcessor processor;
+        if (testTask.isDistributeTestClassesOnDemand() && testTask.getForkEvery() == 0) {
+            final TestClassQueue testClassQueue = new TestClassQueue(testTask.getTestClassPrefetch());
+            Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
+                public TestClassProcessor create() {
+                    return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
+                        classpath, testFramework.getWorkerConfigurationAction(), moduleRegistry, currentOperation, testClassQueue, workerPool, batchTestOutput);
+                }
+            };
+            processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(), forkingProcessorFactory, actorFactory, durations);
+        } else {
+            final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
+                public TestClassProcessor create() {
+                    return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
+                        classpath, testFramework.getWorkerConfigurationAction(), moduleRegistry, currentOperation, new TestClassQueue(Integer.MAX_VALUE), workerPool, batchTestOutput);
+                }
+            };
+            Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
+                public TestClassProcessor create() {
+                    return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testTask.getForkEvery());
+                }
+            };
+            processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(), reforkingProcessorFactory, actorFactory, durations);
+        }
+        if (durations != null) {
+            processor = new LongestFirstTestClassProcessor(processor, durations);
+        }
 
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
@@ -84,6 +114,7 @@ public class DefaultTestExecuter implements TestExecuter {
             TestFrameworkDetector testFrameworkDetector = testTask.getTestFramework().getDetector();
             testFrameworkDetector.setTestClassesDirectory(testTask.getTestClassesDir());
             testFrameworkDetector.setTestClasspath(classpath);
+            testFrameworkDetector.setTestClassFactsIndex(testClassFactsIndex);
             detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor);
         } else {
             detector = new DefaultTestClassScanner(testClassFiles, null, processor);
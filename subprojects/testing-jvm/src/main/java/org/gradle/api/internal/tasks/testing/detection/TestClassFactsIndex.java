@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import com.google.common.hash.HashCode;
+import org.gradle.api.internal.hash.FileHasher;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Factory;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+
+import java.io.File;
+
+/**
+ * Keeps the {@link TestClassFacts} of class files by their path, along with the hash of the content that the facts were extracted from, so that
+ * test detection does not need to parse class files that have not changed since a previous build. Each class file has a single entry, which is
+ * replaced when the content of the file changes.
+ *
+ * <p>The content hashes are taken from the file hasher of the build, which already knows the hashes of the candidate class files of a test task,
+ * as these are inputs of the task. The facts depend on the framework, so they are also kept by the kind of detector that extracted them.</p>
+ */
+public class TestClassFactsIndex {
+    private final PersistentIndexedCache<String, Entry> cache;
+    private final FileHasher hasher;
+
+    public TestClassFactsIndex(PersistentIndexedCache<String, Entry> cache, FileHasher hasher) {
+        this.cache = cache;
+        this.hasher = hasher;
+    }
+
+    /**
+     * Returns the facts of the given class file, extracting them using the given factory when the index does not know the current content of the file.
+     */
+    public TestClassFacts getFacts(String detectorKind, File classFile, Factory<TestClassFacts> factory) {
+        String key = detectorKind + ":" + classFile.getAbsolutePath();
+        HashCode contentHash = hasher.hash(classFile);
+        Entry entry = cache.get(key);
+        if (entry != null && entry.contentHash.equals(contentHash)) {
+            return entry.facts;
+        }
+        TestClassFacts facts = factory.create();
+        cache.put(key, new Entry(contentHash, facts));
+        return facts;
+    }
+
+    /**
+     * The facts of a class file, and the hash of the content they were extracted from.
+     */
+    public static class Entry {
+        private final HashCode contentHash;
+        private final TestClassFacts facts;
+
+        Entry(HashCode contentHash, TestClassFacts facts) {
+            this.contentHash = contentHash;
+            this.facts = facts;
+        }
+    }
+
+    public static class EntrySerializer extends AbstractSerializer<Entry> {
+        @Override
+        public void write(Encoder encoder, Entry value) throws Exception {
+            encoder.writeBinary(value.contentHash.asBytes());
+            TestClassFacts facts = value.facts;
+            encoder.writeString(facts.getClassName());
+            encoder.writeNullableString(facts.getSuperClassName());
+            encoder.writeBoolean(facts.isAbstract());
+            encoder.writeBoolean(facts.isTest());
+        }
+
+        @Override
+        public Entry read(Decoder decoder) throws Exception {
+            HashCode contentHash = HashCode.fromBytes(decoder.readBinary());
+            TestClassFacts facts = new TestClassFacts(decoder.readString(), decoder.readNullableString(), decoder.readBoolean(), decoder.readBoolean());
+            return new Entry(contentHash, facts);
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 
 import java.io.File;
@@ -28,4 +29,9 @@ public interface TestFrameworkDetector {
     void setTestClassesDirectory(File testClassesDir);
 
     void setTestClasspath(Set<File> classpath);
+
+    /**
+     * Sets the index to look up the facts of class files in the test class directories, rather than parsing class files that have not changed.
+     */
+    void setTestClassFactsIndex(@Nullable TestClassFactsIndex testClassFactsIndex);
 }
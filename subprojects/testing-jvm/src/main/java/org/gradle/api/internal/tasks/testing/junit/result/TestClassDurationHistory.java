@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the duration of each test class across executions of a test task. The durations of the test classes in each execution replace the
+ * durations recorded for those classes by earlier executions, so that classes which were not run, for example because of a test filter, keep
+ * their previous durations.
+ */
+public class TestClassDurationHistory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestClassDurationHistory.class);
+    private static final int HISTORY_VERSION = 1;
+
+    private final File historyFile;
+
+    public TestClassDurationHistory(File historyDir) {
+        this.historyFile = new File(historyDir, "test-class-durations.bin");
+    }
+
+    /**
+     * Returns the recorded duration of each test class, in milliseconds. Returns an empty map when no durations have been recorded, or when the
+     * recorded durations cannot be read.
+     */
+    public Map<String, Long> read() {
+        Map<String, Long> durations = new HashMap<String, Long>();
+        if (!historyFile.isFile()) {
+            return durations;
+        }
+        try {
+            InputStream inputStream = new FileInputStream(historyFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != HISTORY_VERSION) {
+                    return durations;
+                }
+                int count = decoder.readSmallInt();
+                for (int i = 0; i < count; i++) {
+                    durations.put(decoder.readString(), decoder.readSmallLong());
+                }
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            // The history is only used to schedule test classes, so discard it when it cannot be read
+            LOGGER.debug("Could not read test class durations from {}.", historyFile, e);
+            durations.clear();
+        }
+        return durations;
+    }
+
+    /**
+     * Records the durations of the given test class results.
+     */
+    public void record(Collection<TestClassResult> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        Map<String, Long> durations = read();
+        for (TestClassResult result : results) {
+            durations.put(result.getClassName(), result.getDuration());
+        }
+        try {
+            OutputStream outputStream = new FileOutputStream(historyFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(HISTORY_VERSION);
+                encoder.writeSmallInt(durations.size());
+                for (Map.Entry<String, Long> entry : durations.entrySet()) {
+                    encoder.writeString(entry.getKey());
+                    encoder.writeSmallLong(entry.getValue());
+                }
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
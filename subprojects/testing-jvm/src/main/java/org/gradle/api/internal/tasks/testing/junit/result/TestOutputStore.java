@@ -27,11 +27,17 @@ import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class TestOutputStore {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_MESSAGE_BUFFER_SIZE = 1024 * 1024;
 
     private final File resultsDir;
     private final Charset messageStorageCharset;
@@ -71,12 +77,17 @@ public class TestOutputStore {
 
     public class Writer implements Closeable {
         private final KryoBackedEncoder output;
+        private final CharsetEncoder messageEncoder = messageStorageCharset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private char[] messageChars = new char[8 * 1024];
+        private ByteBuffer messageBuffer = ByteBuffer.allocate(8 * 1024);
 
         private final Map<Long, Map<Long, TestCaseRegion>> index = new LinkedHashMap<Long, Map<Long, TestCaseRegion>>();
 
         public Writer() {
             try {
-                output = new KryoBackedEncoder(new FileOutputStream(getOutputsFile()));
+                output = new KryoBackedEncoder(new FileOutputStream(getOutputsFile()), OUTPUT_BUFFER_SIZE);
             } catch (FileNotFoundException e) {
                 throw new UncheckedIOException(e);
             }
@@ -100,14 +111,29 @@ public class TestOutputStore {
             output.writeSmallLong(classId);
             output.writeSmallLong(testId);
 
-            byte[] bytes;
-            try {
-                bytes = outputEvent.getMessage().getBytes(messageStorageCharset.name());
-            } catch (UnsupportedEncodingException e) {
-                throw UncheckedException.throwAsUncheckedException(e);
+            String message = outputEvent.getMessage();
+            int maxLength = (int) Math.ceil(message.length() * (double) messageEncoder.maxBytesPerChar());
+            if (maxLength > MAX_MESSAGE_BUFFER_SIZE) {
+                byte[] bytes = message.getBytes(messageStorageCharset);
+                output.writeSmallInt(bytes.length);
+                output.writeBytes(bytes, 0, bytes.length);
+                return;
+            }
+
+            // Encode into buffers that are reused for each message, as there can be many output events
+            if (messageChars.length < message.length()) {
+                messageChars = new char[message.length()];
+            }
+            if (messageBuffer.capacity() < maxLength) {
+                messageBuffer = ByteBuffer.allocate(maxLength);
             }
-            output.writeSmallInt(bytes.length);
-            output.writeBytes(bytes, 0, bytes.length);
+            message.getChars(0, message.length(), messageChars, 0);
+            messageBuffer.clear();
+            messageEncoder.reset();
+            messageEncoder.encode(CharBuffer.wrap(messageChars, 0, message.length()), messageBuffer, true);
+            messageEncoder.flush(messageBuffer);
+            output.writeSmallInt(messageBuffer.position());
+            output.writeBytes(messageBuffer.array(), 0, messageBuffer.position());
         }
 
         private void mark(long classId, long testId, boolean isStdout) {
@@ -35,6 +35,7 @@ import org.gradle.api.internal.tasks.testing.NoMatchingTestsReporter;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
+import org.gradle.api.internal.tasks.testing.detection.TestClassFactsIndex;
 import org.gradle.api.internal.tasks.testing.detection.TestExecuter;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
@@ -42,6 +43,7 @@ import org.gradle.api.internal.tasks.testing.junit.report.DefaultTestReport;
 import org.gradle.api.internal.tasks.testing.junit.report.TestReporter;
 import org.gradle.api.internal.tasks.testing.junit.result.Binary2JUnitXmlReportGenerator;
 import org.gradle.api.internal.tasks.testing.junit.result.InMemoryTestResultsProvider;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassDurationHistory;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestOutputAssociation;
 import org.gradle.api.internal.tasks.testing.junit.result.TestOutputStore;
@@ -58,6 +60,7 @@ import org.gradle.api.internal.tasks.testing.results.StateTrackingTestResultProc
 import org.gradle.api.internal.tasks.testing.results.TestListenerAdapter;
 import org.gradle.api.internal.tasks.testing.results.TestListenerInternal;
 import org.gradle.api.internal.tasks.testing.testng.TestNGTestFramework;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.api.reporting.DirectoryReport;
 import org.gradle.api.reporting.Reporting;
@@ -172,6 +175,11 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
     private boolean scanForTestClasses = true;
     private long forkEvery;
     private int maxParallelForks = 1;
+    private boolean distributeTestClassesOnDemand;
+    private int testClassPrefetch;
+    private boolean scheduleTestClassesByDuration;
+    private boolean reuseTestWorkerProcesses;
+    private boolean batchTestOutput;
     private TestReporter testReporter;
     private final TestTaskReports reports;
 
@@ -610,7 +618,8 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         TestResultProcessor resultProcessor = new StateTrackingTestResultProcessor(testListenerInternalBroadcaster.getSource());
 
         if (testExecuter == null) {
-            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory(), getModuleRegistry(), getServices().get(BuildOperationWorkerRegistry.class), getServices().get(BuildOperationExecutor.class));
+            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory(), getModuleRegistry(), getServices().get(BuildOperationWorkerRegistry.class), getServices().get(BuildOperationExecutor.class), getServices().get(TestWorkerPool.class),
+                getServices().get(TestClassFactsIndex.class));
         }
 
         JavaVersion javaVersion = getJavaVersion();
@@ -629,6 +638,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
 
         new TestResultSerializer(binaryResultsDir).write(results.values());
+        new TestClassDurationHistory(getTemporaryDir()).record(results.values());
 
         TestResultsProvider testResultsProvider = new InMemoryTestResultsProvider(results.values(), testOutputStore);
 
@@ -1140,6 +1150,155 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         this.maxParallelForks = maxParallelForks;
     }
 
+    /**
+     * Returns whether test classes are sent to the forked test processes as the processes become free, rather than being assigned to the processes up
+     * front. The default value is false.
+     *
+     * <p>When enabled, each forked test process takes its next test class from a queue shared by all the forked test processes once it has finished the
+     * test classes it was previously sent. This helps the processes finish at about the same time when some test classes take much longer to run than
+     * others. Has no effect when {@link #getForkEvery()} is set. TestNG runs the test classes sent to a process together once all test classes have
+     * been sent, so gains little from this option.</p>
+     *
+     * @return true if test classes are distributed on demand.
+     * @since 3.5
+     */
+    @Incubating
+    @Internal
+    public boolean isDistributeTestClassesOnDemand() {
+        return distributeTestClassesOnDemand;
+    }
+
+    /**
+     * Sets whether test classes are sent to the forked test processes as the processes become free.
+     *
+     * @param distributeTestClassesOnDemand true to distribute test classes on demand.
+     * @see #isDistributeTestClassesOnDemand()
+     * @since 3.5
+     */
+    @Incubating
+    public void setDistributeTestClassesOnDemand(boolean distributeTestClassesOnDemand) {
+        this.distributeTestClassesOnDemand = distributeTestClassesOnDemand;
+    }
+
+    /**
+     * Returns the number of test classes sent to a forked test process ahead of the test class it is running, when test classes are distributed on
+     * demand. The default value is 0, so that a process is sent its next test class only once it has finished its current test class.
+     *
+     * @return The number of prefetched test classes.
+     * @see #isDistributeTestClassesOnDemand()
+     * @since 3.5
+     */
+    @Incubating
+    @Internal
+    public int getTestClassPrefetch() {
+        return testClassPrefetch;
+    }
+
+    /**
+     * Sets the number of test classes sent to a forked test process ahead of the test class it is running, when test classes are distributed on
+     * demand.
+     *
+     * @param testClassPrefetch The number of prefetched test classes.
+     * @since 3.5
+     */
+    @Incubating
+    public void setTestClassPrefetch(int testClassPrefetch) {
+        if (testClassPrefetch < 0) {
+            throw new IllegalArgumentException("Cannot set testClassPrefetch to a value less than 0.");
+        }
+        this.testClassPrefetch = testClassPrefetch;
+    }
+
+    /**
+     * Returns whether test classes are scheduled using the durations recorded by earlier executions of this task. The default value is false.
+     *
+     * <p>When enabled, test classes are held back until all test classes have been found, and then the test classes that took the longest to run are
+     * started first. Test classes with no recorded duration are started before all others. When {@link #getMaxParallelForks()} is greater than 1, each
+     * test class is assigned to the forked test process with the least expected work.</p>
+     *
+     * @return true if test classes are scheduled by duration.
+     * @since 3.5
+     */
+    @Incubating
+    @Internal
+    public boolean isScheduleTestClassesByDuration() {
+        return scheduleTestClassesByDuration;
+    }
+
+    /**
+     * Sets whether test classes are scheduled using the durations recorded by earlier executions of this task.
+     *
+     * @param scheduleTestClassesByDuration true to schedule test classes by duration.
+     * @see #isScheduleTestClassesByDuration()
+     * @since 3.5
+     */
+    @Incubating
+    public void setScheduleTestClassesByDuration(boolean scheduleTestClassesByDuration) {
+        this.scheduleTestClassesByDuration = scheduleTestClassesByDuration;
+    }
+
+    /**
+     * Returns whether the forked test processes are kept alive once this task has finished, to be reused by later test tasks of the build. The
+     * default value is false.
+     *
+     * <p>When enabled, a forked test process is reused by a later test task that would start it with the same Java executable, JVM arguments,
+     * system properties, bootstrap classpath, working directory and environment. Each task loads its test runtime classpath in a new ClassLoader of
+     * the reused process, and the system properties of the process are restored once the tests of a task have finished. Other state that tests
+     * leave behind in the JVM, such as threads that are still running, is seen by the tests of later tasks.</p>
+     *
+     * <p>Processes are not reused when {@link #getForkEvery()} is greater than 0.</p>
+     *
+     * @return true if forked test processes are reused.
+     * @since 3.5
+     */
+    @Incubating
+    @Internal
+    public boolean isReuseTestWorkerProcesses() {
+        return reuseTestWorkerProcesses;
+    }
+
+    /**
+     * Sets whether the forked test processes are kept alive once this task has finished, to be reused by later test tasks of the build.
+     *
+     * @param reuseTestWorkerProcesses true to reuse forked test processes.
+     * @see #isReuseTestWorkerProcesses()
+     * @since 3.5
+     */
+    @Incubating
+    public void setReuseTestWorkerProcesses(boolean reuseTestWorkerProcesses) {
+        this.reuseTestWorkerProcesses = reuseTestWorkerProcesses;
+    }
+
+    /**
+     * Returns whether the forked test processes combine the lines that tests write to standard output and standard error before sending them to
+     * the build process. The default value is false.
+     *
+     * <p>When enabled, the lines that a test writes in quick succession to the same stream are reported as a single output event, rather than as an
+     * event per line. This reduces the overhead of tests that write a lot of output, but {@link TestOutputListener}s then receive several lines
+     * at once.</p>
+     *
+     * @return true if test output is batched.
+     * @since 3.5
+     */
+    @Incubating
+    @Internal
+    public boolean isBatchTestOutput() {
+        return batchTestOutput;
+    }
+
+    /**
+     * Sets whether the forked test processes combine the lines that tests write to standard output and standard error before sending them to the
+     * build process.
+     *
+     * @param batchTestOutput true to batch test output.
+     * @see #isBatchTestOutput()
+     * @since 3.5
+     */
+    @Incubating
+    public void setBatchTestOutput(boolean batchTestOutput) {
+        this.batchTestOutput = batchTestOutput;
+    }
+
     /**
      * Returns the classes files to scan for test classes.
      *
@@ -16,6 +16,12 @@
 
 package org.gradle.jvm.test.internal.services;
 
+import org.gradle.StartParameter;
+import org.gradle.api.internal.changedetection.state.TaskHistoryStore;
+import org.gradle.api.internal.hash.FileHasher;
+import org.gradle.api.internal.tasks.testing.detection.TestClassFactsIndex;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.PluginServiceRegistry;
 import org.gradle.jvm.test.internal.JUnitTestSuiteBinaryRenderer;
@@ -28,7 +34,7 @@ public class JvmTestingServices implements PluginServiceRegistry {
 
     @Override
     public void registerBuildSessionServices(ServiceRegistration registration) {
-
+        registration.addProvider(new BuildSessionScopeServices());
     }
 
     @Override
@@ -38,11 +44,23 @@ public class JvmTestingServices implements PluginServiceRegistry {
 
     @Override
     public void registerGradleServices(ServiceRegistration registration) {
-
+        registration.addProvider(new GradleScopeServices());
     }
 
     @Override
     public void registerProjectServices(ServiceRegistration registration) {
 
     }
+
+    private static class BuildSessionScopeServices {
+        TestWorkerPool createTestWorkerPool(ExecutorFactory executorFactory, StartParameter startParameter) {
+            return new TestWorkerPool(executorFactory, startParameter.getMaxWorkerCount());
+        }
+    }
+
+    private static class GradleScopeServices {
+        TestClassFactsIndex createTestClassFactsIndex(TaskHistoryStore store, FileHasher fileHasher) {
+            return new TestClassFactsIndex(store.createCache("testClassFacts", String.class, new TestClassFactsIndex.EntrySerializer(), 100000, true), fileHasher);
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import com.google.common.hash.HashCode
+import org.gradle.api.internal.hash.FileHasher
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.junit.JUnitDetector
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.Factory
+import org.gradle.internal.serialize.SerializerSpec
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+
+class TestClassFactsIndexTest extends SerializerSpec {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+    private final Map<String, TestClassFactsIndex.Entry> entries = [:]
+    private final PersistentIndexedCache<String, TestClassFactsIndex.Entry> cache = [
+        get: { String key -> entries[key] },
+        put: { String key, TestClassFactsIndex.Entry value -> entries[key] = value },
+        remove: { String key -> entries.remove(key) }
+    ] as PersistentIndexedCache
+    private final FileHasher hasher = Stub(FileHasher) {
+        hash(_ as File) >> { File file -> HashCode.fromInt(file.text.hashCode()) }
+    }
+    private final TestClassFactsIndex index = new TestClassFactsIndex(cache, hasher)
+
+    def "extracts facts of a class file once for its content"() {
+        def factory = Mock(Factory)
+        def facts = new TestClassFacts("org/gradle/Foo", "java/lang/Object", false, true)
+        def changedFacts = new TestClassFacts("org/gradle/Foo", "org/gradle/Base", false, true)
+        def classFile = tmp.file("Foo.class")
+        classFile.text = "content"
+
+        when:
+        def first = index.getFacts("junit", classFile, factory)
+        def second = index.getFacts("junit", classFile, factory)
+
+        then:
+        1 * factory.create() >> facts
+        first == facts
+        second == facts
+
+        when:
+        classFile.text = "changed"
+        def changed = index.getFacts("junit", classFile, factory)
+
+        then:
+        1 * factory.create() >> changedFacts
+        changed == changedFacts
+
+        and:
+        entries.size() == 1
+    }
+
+    def "keeps facts separately for each class file"() {
+        def factory = Mock(Factory)
+        def classFile = tmp.file("Foo.class")
+        classFile.text = "content"
+        def copy = tmp.file("copy/Foo.class")
+        copy.text = "content"
+
+        when:
+        index.getFacts("junit", classFile, factory)
+        index.getFacts("junit", copy, factory)
+
+        then:
+        2 * factory.create() >> new TestClassFacts("org/gradle/Foo", "java/lang/Object", false, true)
+        entries.size() == 2
+    }
+
+    def "keeps facts separately for each kind of detector"() {
+        def factory = Mock(Factory)
+        def classFile = tmp.file("Foo.class")
+        classFile.text = "content"
+
+        when:
+        index.getFacts("junit", classFile, factory)
+        index.getFacts("testng", classFile, factory)
+
+        then:
+        2 * factory.create() >> new TestClassFacts("org/gradle/Foo", "java/lang/Object", false, true)
+    }
+
+    def "serializes facts"() {
+        when:
+        def entry = serialize(new TestClassFactsIndex.Entry(HashCode.fromInt(123), new TestClassFacts("org/gradle/Foo", superClassName, true, false)), new TestClassFactsIndex.EntrySerializer())
+        def facts = entry.facts
+
+        then:
+        entry.contentHash == HashCode.fromInt(123)
+        facts.className == "org/gradle/Foo"
+        facts.superClassName == superClassName
+        facts.abstract
+        !facts.test
+
+        where:
+        superClassName << ["org/gradle/Base", null]
+    }
+
+    def "detector uses indexed facts of class files in the test classes directory"() {
+        def processor = Mock(TestClassProcessor)
+        def classesDir = tmp.createDir("classes")
+        def classFile = classesDir.file("org/gradle/Foo.class")
+        classFile.text = "not a class file"
+        index.getFacts(JUnitDetector.name, classFile, { new TestClassFacts("org/gradle/Foo", "java/lang/Object", false, true) } as Factory)
+        def detector = new JUnitDetector(new ClassFileExtractionManager({ tmp.createDir("tmp") } as Factory))
+        detector.testClassesDirectory = classesDir
+        detector.testClassFactsIndex = index
+        detector.startDetection(processor)
+
+        when:
+        def test = detector.processTestClass(classFile)
+
+        then:
+        test
+        1 * processor.processTestClass({ TestClassRunInfo info -> info.testClassName == "org.gradle.Foo" })
+    }
+}
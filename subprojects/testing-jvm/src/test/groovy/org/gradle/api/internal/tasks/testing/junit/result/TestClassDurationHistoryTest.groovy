@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result
+
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class TestClassDurationHistoryTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+
+    def "has no durations when nothing has been recorded"() {
+        expect:
+        new TestClassDurationHistory(tmp.testDirectory).read().isEmpty()
+    }
+
+    def "records durations of test classes across executions"() {
+        def history = new TestClassDurationHistory(tmp.testDirectory)
+
+        when:
+        history.record([result(1, "Class1", 1000, 1500), result(2, "Class2", 1000, 3000)])
+        history.record([result(1, "Class2", 5000, 5200), result(2, "Class3", 5000, 5100)])
+
+        then:
+        new TestClassDurationHistory(tmp.testDirectory).read() == [Class1: 500L, Class2: 200L, Class3: 100L]
+    }
+
+    def "discards durations that cannot be read"() {
+        tmp.file("test-class-durations.bin").text = "broken"
+
+        expect:
+        new TestClassDurationHistory(tmp.testDirectory).read().isEmpty()
+    }
+
+    def result(long id, String className, long startTime, long endTime) {
+        def result = new TestClassResult(id, className, startTime)
+        result.add(new TestMethodResult(id, "test", TestResult.ResultType.SUCCESS, endTime - startTime, endTime))
+        return result
+    }
+}
@@ -98,6 +98,25 @@ class TestOutputStoreSpec extends WorkspaceTest {
         reader.close()
     }
 
+    def "stores messages of any length and content"() {
+        def large = "\u00e9\u4e2d" * (1024 * 1024)
+
+        when:
+        def writer = output.writer()
+        writer.onOutput(1, 1, output(StdOut, "[\u00e9\u4e2d\ud83d\ude00]"))
+        writer.onOutput(1, 1, output(StdOut, large))
+        writer.onOutput(1, 1, output(StdOut, "[\ud83d]"))
+        writer.onOutput(1, 1, output(StdOut, "[out]"))
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        collectOutput(reader, 1, 1, StdOut) == "[\u00e9\u4e2d\ud83d\ude00]" + large + "[?][out]"
+
+        cleanup:
+        reader.close()
+    }
+
     def DefaultTestOutputEvent output(TestOutputEvent.Destination destination, String msg) {
         new DefaultTestOutputEvent(destination, msg)
     }